@@ -0,0 +1,213 @@
+package uk.ac.bris.cs.gamekit.graph;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Shortest path distances, in edges, on a graph whose edges can be closed
+ * and reopened, e.g. underground lines or ferry routes that stop running
+ * during a game. <br>
+ * The nodes and edges are those of a {@link GraphIndex}, every edge starts
+ * open. The distances from a source are computed when first asked for and
+ * then kept up to date as edges change: opening edges only propagates the
+ * distances that shrink, and closing edges only throws away the sources
+ * where a closed edge was the last one on a shortest path into some node;
+ * those are searched again when next asked for. Edges of an undirected
+ * graph appear once in each direction, close both to close a connection.
+ * This class is not thread safe.
+ *
+ * @param <V> the type for {@link Node} values
+ * @param <D> the type for {@link Edge} data
+ */
+public final class DynamicDistances<V, D> {
+
+	private final GraphIndex<V, D> index;
+	private final boolean[] open;
+	private final int[] source; // edge -> id it leaves from
+	// Incoming edges grouped by target, to find other shortest path parents
+	private final int[] inStart;
+	private final int[] inEdge;
+	private final int[][] distances; // by source id, null until asked for
+	private long searches;
+
+	/**
+	 * Creates distances on a graph with every edge open
+	 *
+	 * @param index the graph; not null
+	 */
+	public DynamicDistances(GraphIndex<V, D> index) {
+		this.index = index;
+		int nodes = index.size();
+		int edges = index.edgeCount();
+		open = new boolean[edges];
+		Arrays.fill(open, true);
+		source = new int[edges];
+		inStart = new int[nodes + 1];
+		inEdge = new int[edges];
+		for (int node = 0; node < nodes; node++) {
+			for (int edge = index.edgeStart(node); edge < index.edgeEnd(node); edge++) {
+				source[edge] = node;
+				inStart[index.target(edge) + 1]++;
+			}
+		}
+		for (int i = 0; i < nodes; i++) inStart[i + 1] += inStart[i];
+		int[] fill = Arrays.copyOf(inStart, nodes);
+		for (int edge = 0; edge < edges; edge++) inEdge[fill[index.target(edge)]++] = edge;
+		distances = new int[nodes][];
+	}
+
+	public GraphIndex<V, D> index() {
+		return index;
+	}
+
+	/**
+	 * @param edge an edge number
+	 * @return whether the edge is open
+	 */
+	public boolean isOpen(int edge) {
+		return open[edge];
+	}
+
+	/**
+	 * @return a filter of the open edges for {@link GraphAlgorithms}; it sees
+	 *         later changes
+	 */
+	public IntPredicate openEdges() {
+		return this::isOpen;
+	}
+
+	/**
+	 * @return the number of full searches run so far, i.e. sources computed
+	 *         for the first time or again after a change
+	 */
+	public long searches() {
+		return searches;
+	}
+
+	/**
+	 * @param from the source id
+	 * @param to the target id
+	 * @return the number of edges on a shortest path of open edges,
+	 *         {@link GraphAlgorithms#UNREACHABLE} if there is none
+	 */
+	public int distance(int from, int to) {
+		return table(from)[to];
+	}
+
+	/**
+	 * @param from the source id
+	 * @return the distance to every node, see {@link #distance(int, int)}; a
+	 *         new array
+	 */
+	public int[] distances(int from) {
+		return table(from).clone();
+	}
+
+	private int[] table(int from) {
+		int[] table = distances[from];
+		if (table == null) {
+			table = GraphAlgorithms.distances(index, from, this::isOpen);
+			distances[from] = table;
+			searches++;
+		}
+		return table;
+	}
+
+	/**
+	 * Opens or closes the edges a filter selects
+	 *
+	 * @param edges the edges to change, e.g. by the data of
+	 *        {@link GraphIndex#mapEdges}
+	 * @param open whether they should be open
+	 * @return the number of edges that changed
+	 */
+	public int setOpen(IntPredicate edges, boolean open) {
+		int[] changed = new int[this.open.length];
+		int count = 0;
+		for (int edge = 0; edge < changed.length; edge++)
+			if (this.open[edge] != open && edges.test(edge)) changed[count++] = edge;
+		changed = Arrays.copyOf(changed, count);
+		for (int edge : changed) this.open[edge] = open;
+		if (count == 0) return 0;
+		for (int from = 0; from < distances.length; from++) {
+			int[] table = distances[from];
+			if (table == null) continue;
+			if (open) shrink(table, changed);
+			else if (!stillShortest(table, changed)) distances[from] = null;
+		}
+		return count;
+	}
+
+	/**
+	 * Opens or closes one edge
+	 *
+	 * @param edge the edge number
+	 * @param open whether it should be open
+	 * @return whether the edge changed
+	 */
+	public boolean setOpen(int edge, boolean open) {
+		if (edge < 0 || edge >= this.open.length)
+			throw new IllegalArgumentException("No edge " + edge);
+		return setOpen(e -> e == edge, open) > 0;
+	}
+
+	// If a node got further away, take the one of those that was nearest:
+	// none of its parents on shortest paths got further away, so they were
+	// all closed; checking the closed edges into it finds it
+	private boolean stillShortest(int[] table, int[] closed) {
+		for (int edge : closed) {
+			int from = table[source[edge]];
+			int to = index.target(edge);
+			if (from == GraphAlgorithms.UNREACHABLE || table[to] != from + 1) continue;
+			if (!hasOpenParent(table, to)) return false;
+		}
+		return true;
+	}
+
+	private boolean hasOpenParent(int[] table, int node) {
+		for (int in = inStart[node]; in < inStart[node + 1]; in++) {
+			int edge = inEdge[in];
+			int from = table[source[edge]];
+			if (open[edge] && from != GraphAlgorithms.UNREACHABLE && from + 1 == table[node])
+				return true;
+		}
+		return false;
+	}
+
+	// Distances only shrink when edges open, relax from the nodes the new
+	// edges improve until nothing changes
+	private void shrink(int[] table, int[] opened) {
+		int nodes = table.length;
+		int[] queue = new int[nodes];
+		boolean[] queued = new boolean[nodes];
+		int head = 0, size = 0;
+		for (int edge : opened) {
+			int to = index.target(edge);
+			if (improve(table, table[source[edge]], to) && !queued[to]) {
+				queued[to] = true;
+				queue[(head + size++) % nodes] = to;
+			}
+		}
+		while (size > 0) {
+			int node = queue[head];
+			head = (head + 1) % nodes;
+			size--;
+			queued[node] = false;
+			for (int edge = index.edgeStart(node); edge < index.edgeEnd(node); edge++) {
+				int to = index.target(edge);
+				if (open[edge] && improve(table, table[node], to) && !queued[to]) {
+					queued[to] = true;
+					queue[(head + size++) % nodes] = to;
+				}
+			}
+		}
+	}
+
+	private static boolean improve(int[] table, int from, int to) {
+		if (from == GraphAlgorithms.UNREACHABLE) return false;
+		if (table[to] != GraphAlgorithms.UNREACHABLE && table[to] <= from + 1) return false;
+		table[to] = from + 1;
+		return true;
+	}
+
+}
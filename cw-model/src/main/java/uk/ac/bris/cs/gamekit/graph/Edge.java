@@ -58,7 +58,9 @@ public class Edge<N, D> implements Serializable {
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(source, destination, data);
+		// Objects.hash(source, destination, data) without the varargs array
+		return (31 * (31 + Objects.hashCode(source)) + Objects.hashCode(destination)) * 31
+				+ Objects.hashCode(data);
 	}
 
 	@Override
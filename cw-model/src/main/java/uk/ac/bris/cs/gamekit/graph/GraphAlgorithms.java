@@ -0,0 +1,348 @@
+package uk.ac.bris.cs.gamekit.graph;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Graph algorithms on the ids and edge numbers of a {@link GraphIndex}. <br>
+ * Edges are filtered with an {@link IntPredicate} on edge numbers, for
+ * example built from {@link GraphIndex#mapEdges} to allow some transports
+ * only; {@link #ALL_EDGES} allows every edge. Queues and heaps are plain int
+ * arrays, nothing is boxed. The {@code parallel} variants split the work
+ * over the common fork-join pool and only pay off on large graphs or many
+ * sources.
+ */
+public final class GraphAlgorithms {
+
+	/**
+	 * The distance of a node that cannot be reached
+	 */
+	public static final int UNREACHABLE = -1;
+
+	/**
+	 * A filter that allows every edge
+	 */
+	public static final IntPredicate ALL_EDGES = edge -> true;
+
+	// Sources per batch of the bit-parallel search, one bit each
+	private static final int BATCH = Long.SIZE;
+
+	private GraphAlgorithms() {}
+
+	private static void checkIds(GraphIndex<?, ?> graph, int... ids) {
+		for (int id : ids)
+			if (id < 0 || id >= graph.size())
+				throw new IllegalArgumentException("No node with id " + id);
+	}
+
+	/**
+	 * Breadth first search from one node
+	 *
+	 * @param graph the graph
+	 * @param source the id to start from
+	 * @param edges the edges that may be followed
+	 * @return the number of edges to every node, {@link #UNREACHABLE} if
+	 *         there is no path
+	 */
+	public static int[] distances(GraphIndex<?, ?> graph, int source, IntPredicate edges) {
+		return distances(graph, new int[] { source }, edges);
+	}
+
+	/**
+	 * Breadth first search from many nodes at once, e.g. the distance from
+	 * every node to the nearest detective
+	 *
+	 * @param graph the graph
+	 * @param sources the ids to start from
+	 * @param edges the edges that may be followed
+	 * @return the number of edges from the nearest source to every node,
+	 *         {@link #UNREACHABLE} if there is no path
+	 */
+	public static int[] distances(GraphIndex<?, ?> graph, int[] sources, IntPredicate edges) {
+		int[] distance = new int[graph.size()];
+		search(graph, sources, edges, distance, null);
+		return distance;
+	}
+
+	/**
+	 * Breadth first search from many nodes that also tells which source is
+	 * nearest to each node; ties go to the earlier source
+	 *
+	 * @param graph the graph
+	 * @param sources the ids to start from
+	 * @param edges the edges that may be followed
+	 * @return the index into {@code sources} of the nearest source for every
+	 *         node, -1 if there is no path
+	 */
+	public static int[] nearestSources(GraphIndex<?, ?> graph, int[] sources,
+			IntPredicate edges) {
+		int[] nearest = new int[graph.size()];
+		search(graph, sources, edges, new int[graph.size()], nearest);
+		return nearest;
+	}
+
+	private static void search(GraphIndex<?, ?> graph, int[] sources, IntPredicate edges,
+			int[] distance, int[] nearest) {
+		checkIds(graph, sources);
+		Arrays.fill(distance, UNREACHABLE);
+		if (nearest != null) Arrays.fill(nearest, -1);
+		int[] queue = new int[graph.size()];
+		int tail = 0;
+		for (int i = 0; i < sources.length; i++) {
+			int source = sources[i];
+			if (distance[source] != UNREACHABLE) continue;
+			distance[source] = 0;
+			if (nearest != null) nearest[source] = i;
+			queue[tail++] = source;
+		}
+		for (int head = 0; head < tail; head++) {
+			int node = queue[head];
+			for (int edge = graph.edgeStart(node); edge < graph.edgeEnd(node); edge++) {
+				int target = graph.target(edge);
+				if (distance[target] != UNREACHABLE || !edges.test(edge)) continue;
+				distance[target] = distance[node] + 1;
+				if (nearest != null) nearest[target] = nearest[node];
+				queue[tail++] = target;
+			}
+		}
+	}
+
+	/**
+	 * Level synchronous breadth first search that expands each level in
+	 * parallel; the result equals {@link #distances(GraphIndex, int[],
+	 * IntPredicate)}
+	 *
+	 * @param graph the graph
+	 * @param sources the ids to start from
+	 * @param edges the edges that may be followed; called from many threads
+	 * @return the number of edges from the nearest source to every node
+	 */
+	public static int[] parallelDistances(GraphIndex<?, ?> graph, int[] sources,
+			IntPredicate edges) {
+		checkIds(graph, sources);
+		AtomicIntegerArray distance = new AtomicIntegerArray(graph.size());
+		for (int i = 0; i < graph.size(); i++) distance.lazySet(i, UNREACHABLE);
+		int[] frontier = IntStream.of(sources).distinct().toArray();
+		for (int source : frontier) distance.set(source, 0);
+		for (int level = 1; frontier.length > 0; level++) {
+			int next = level;
+			frontier = IntStream.of(frontier).parallel()
+					.flatMap(node -> IntStream.range(graph.edgeStart(node), graph.edgeEnd(node))
+							.filter(edge -> edges.test(edge) && distance
+									.compareAndSet(graph.target(edge), UNREACHABLE, next))
+							.map(graph::target))
+					.toArray();
+		}
+		int[] result = new int[graph.size()];
+		for (int i = 0; i < result.length; i++) result[i] = distance.get(i);
+		return result;
+	}
+
+	/**
+	 * Breadth first search from many sources at once, 64 sources per pass
+	 * with one bit each, so the cost per edge is shared by all of them
+	 *
+	 * @param graph the graph
+	 * @param sources the ids to start from
+	 * @param edges the edges that may be followed
+	 * @param parallel whether to run the batches of 64 sources in parallel
+	 * @return {@code result[i][node]} is the distance from {@code sources[i]}
+	 *         to the node, {@link #UNREACHABLE} if there is no path
+	 */
+	public static int[][] allDistances(GraphIndex<?, ?> graph, int[] sources, IntPredicate edges,
+			boolean parallel) {
+		checkIds(graph, sources);
+		int[][] result = new int[sources.length][];
+		IntStream batches = IntStream.range(0, (sources.length + BATCH - 1) / BATCH);
+		(parallel ? batches.parallel() : batches).forEach(batch -> {
+			int from = batch * BATCH;
+			int to = Math.min(sources.length, from + BATCH);
+			bitParallel(graph, sources, from, to, edges, result);
+		});
+		return result;
+	}
+
+	private static void bitParallel(GraphIndex<?, ?> graph, int[] sources, int from, int to,
+			IntPredicate edges, int[][] result) {
+		int nodes = graph.size();
+		long[] seen = new long[nodes];
+		long[] frontier = new long[nodes];
+		long[] next = new long[nodes];
+		for (int i = from; i < to; i++) {
+			result[i] = new int[nodes];
+			Arrays.fill(result[i], UNREACHABLE);
+			result[i][sources[i]] = 0;
+			seen[sources[i]] |= 1L << i - from;
+		}
+		System.arraycopy(seen, 0, frontier, 0, nodes);
+		for (int level = 1;; level++) {
+			boolean changed = false;
+			for (int node = 0; node < nodes; node++) {
+				long bits = frontier[node];
+				if (bits == 0) continue;
+				for (int edge = graph.edgeStart(node); edge < graph.edgeEnd(node); edge++)
+					if (edges.test(edge)) next[graph.target(edge)] |= bits;
+			}
+			for (int node = 0; node < nodes; node++) {
+				long bits = next[node] & ~seen[node];
+				next[node] = 0;
+				frontier[node] = bits;
+				if (bits == 0) continue;
+				changed = true;
+				seen[node] |= bits;
+				for (; bits != 0; bits &= bits - 1)
+					result[from + Long.numberOfTrailingZeros(bits)][node] = level;
+			}
+			if (!changed) return;
+		}
+	}
+
+	/**
+	 * Dijkstra's algorithm from one node
+	 *
+	 * @param graph the graph
+	 * @param source the id to start from
+	 * @param edges the edges that may be followed
+	 * @param weight the length of each edge by edge number; not negative
+	 * @return the length of the shortest path to every node,
+	 *         {@link Double#POSITIVE_INFINITY} if there is none
+	 */
+	public static double[] shortestDistances(GraphIndex<?, ?> graph, int source,
+			IntPredicate edges, IntToDoubleFunction weight) {
+		double[] distance = new double[graph.size()];
+		search(graph, source, -1, edges, weight, node -> 0, distance, new int[graph.size()]);
+		return distance;
+	}
+
+	/**
+	 * A* search for a shortest path between two nodes
+	 *
+	 * @param graph the graph
+	 * @param source the id to start from
+	 * @param target the id to reach
+	 * @param edges the edges that may be followed
+	 * @param weight the length of each edge by edge number; not negative
+	 * @param heuristic a lower bound of the distance from each node id to the
+	 *        target that is also consistent, or 0 for Dijkstra's algorithm
+	 * @return the ids on a shortest path from source to target, both
+	 *         included; empty if there is no path
+	 */
+	public static int[] shortestPath(GraphIndex<?, ?> graph, int source, int target,
+			IntPredicate edges, IntToDoubleFunction weight, IntToDoubleFunction heuristic) {
+		checkIds(graph, target);
+		double[] distance = new double[graph.size()];
+		int[] parent = new int[graph.size()];
+		search(graph, source, target, edges, weight, heuristic, distance, parent);
+		if (distance[target] == Double.POSITIVE_INFINITY) return new int[0];
+		int length = 1;
+		for (int node = target; node != source; node = parent[node]) length++;
+		int[] path = new int[length];
+		for (int node = target, i = length - 1; i >= 0; node = parent[node], i--) path[i] = node;
+		return path;
+	}
+
+	private static void search(GraphIndex<?, ?> graph, int source, int target,
+			IntPredicate edges, IntToDoubleFunction weight, IntToDoubleFunction heuristic,
+			double[] distance, int[] parent) {
+		checkIds(graph, source);
+		Arrays.fill(distance, Double.POSITIVE_INFINITY);
+		Arrays.fill(parent, -1);
+		boolean[] done = new boolean[graph.size()];
+		Heap heap = new Heap(graph.size());
+		distance[source] = 0;
+		heap.update(source, heuristic.applyAsDouble(source));
+		while (!heap.isEmpty()) {
+			int node = heap.poll();
+			if (node == target) return;
+			done[node] = true;
+			for (int edge = graph.edgeStart(node); edge < graph.edgeEnd(node); edge++) {
+				int next = graph.target(edge);
+				if (done[next] || !edges.test(edge)) continue;
+				double length = weight.applyAsDouble(edge);
+				if (!(length >= 0))
+					throw new IllegalArgumentException("Edge " + edge + " has length " + length);
+				double candidate = distance[node] + length;
+				if (candidate >= distance[next]) continue;
+				distance[next] = candidate;
+				parent[next] = node;
+				heap.update(next, candidate + heuristic.applyAsDouble(next));
+			}
+		}
+	}
+
+	// Binary min-heap of node ids with decrease-key
+	private static final class Heap {
+
+		private final int[] nodes;
+		private final int[] position; // node -> index in nodes, -1 if absent
+		private final double[] key; // by node
+		private int size;
+
+		Heap(int capacity) {
+			nodes = new int[capacity];
+			position = new int[capacity];
+			key = new double[capacity];
+			Arrays.fill(position, -1);
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		// Inserts the node or lowers its key
+		void update(int node, double value) {
+			key[node] = value;
+			int index = position[node];
+			if (index < 0) {
+				index = size++;
+				nodes[index] = node;
+				position[node] = index;
+			}
+			up(index);
+		}
+
+		int poll() {
+			int top = nodes[0];
+			position[top] = -1;
+			if (--size > 0) {
+				nodes[0] = nodes[size];
+				position[nodes[0]] = 0;
+				down(0);
+			}
+			return top;
+		}
+
+		private void up(int index) {
+			int node = nodes[index];
+			while (index > 0) {
+				int parent = (index - 1) >>> 1;
+				if (key[nodes[parent]] <= key[node]) break;
+				move(nodes[parent], index);
+				index = parent;
+			}
+			move(node, index);
+		}
+
+		private void down(int index) {
+			int node = nodes[index];
+			while (true) {
+				int child = 2 * index + 1;
+				if (child >= size) break;
+				if (child + 1 < size && key[nodes[child + 1]] < key[nodes[child]]) child++;
+				if (key[nodes[child]] >= key[node]) break;
+				move(nodes[child], index);
+				index = child;
+			}
+			move(node, index);
+		}
+
+		private void move(int node, int index) {
+			nodes[index] = node;
+			position[node] = index;
+		}
+	}
+
+}
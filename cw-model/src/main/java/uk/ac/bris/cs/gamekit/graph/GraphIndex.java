@@ -0,0 +1,281 @@
+package uk.ac.bris.cs.gamekit.graph;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.ToIntFunction;
+
+/**
+ * Dense {@code int} ids for the nodes of any {@link Graph}, with the
+ * outgoing edges of every node stored contiguously in primitive arrays
+ * (compressed sparse rows). <br>
+ * Algorithms can run entirely on ids and edge numbers and only map back to
+ * node values at the boundaries, so they neither box values nor hash nodes
+ * on every step. Ids follow the order of {@link Graph#getNodes()} unless a
+ * {@link NodeOrder} is given, the edges of node {@code id} are the edge
+ * numbers from {@link #edgeStart(int)} to {@link #edgeEnd(int)} exclusive,
+ * in the order of {@link Graph#getEdgesFrom(Node)}. An index is immutable,
+ * the graph is only read while it is created.
+ *
+ * @param <V> the type for {@link Node} values
+ * @param <D> the type for {@link Edge} data
+ */
+public final class GraphIndex<V, D> {
+
+	private final List<Node<V>> nodes;
+	private final Map<V, Integer> ids;
+	private final int[] offsets; // edges of node i are [offsets[i], offsets[i + 1])
+	private final int[] targets; // edge -> destination id
+	private final Object[] data; // edge -> edge data
+	private final int maxDegree;
+
+	private GraphIndex(List<Node<V>> nodes, Map<V, Integer> ids, int[] offsets, int[] targets,
+			Object[] data) {
+		this.nodes = nodes;
+		this.ids = ids;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.data = data;
+		int max = 0;
+		for (int i = 0; i < nodes.size(); i++) max = Math.max(max, offsets[i + 1] - offsets[i]);
+		this.maxDegree = max;
+	}
+
+	/**
+	 * Indexes a graph
+	 *
+	 * @param graph the graph; not null
+	 * @param <V> the type for {@link Node} values
+	 * @param <D> the type for {@link Edge} data
+	 * @return the index; never null
+	 */
+	public static <V, D> GraphIndex<V, D> of(Graph<V, D> graph) {
+		List<Node<V>> nodes = List.copyOf(graph.getNodes());
+		Map<V, Integer> ids = new HashMap<>(nodes.size() * 2);
+		for (int i = 0; i < nodes.size(); i++) ids.put(nodes.get(i).value(), i);
+
+		int[] offsets = new int[nodes.size() + 1];
+		for (int i = 0; i < nodes.size(); i++)
+			offsets[i + 1] = offsets[i] + graph.getEdgesFrom(nodes.get(i)).size();
+		int[] targets = new int[offsets[nodes.size()]];
+		Object[] data = new Object[targets.length];
+		int edge = 0;
+		for (Node<V> node : nodes) {
+			for (Edge<V, D> e : graph.getEdgesFrom(node)) {
+				Integer target = ids.get(e.destination().value());
+				if (target == null) throw new IllegalArgumentException(
+						"destination of " + e + " is not in the graph");
+				targets[edge] = target;
+				data[edge++] = e.data();
+			}
+		}
+		return new GraphIndex<>(nodes, ids, offsets, targets, data);
+	}
+
+	/**
+	 * Indexes a graph with the nodes numbered in the given order
+	 *
+	 * @param graph the graph; not null
+	 * @param order the order of the ids; not null
+	 * @param <V> the type for {@link Node} values
+	 * @param <D> the type for {@link Edge} data
+	 * @return the index; never null
+	 */
+	public static <V, D> GraphIndex<V, D> of(Graph<V, D> graph, NodeOrder order) {
+		return of(graph).reorder(order);
+	}
+
+	/**
+	 * Renumbers the nodes, values and edges stay the same
+	 *
+	 * @param order the new order of the ids; not null
+	 * @return an index with the same graph and new ids; this index for
+	 *         {@link NodeOrder#INSERTION}, which keeps the current ids
+	 */
+	public GraphIndex<V, D> reorder(NodeOrder order) {
+		if (order == NodeOrder.INSERTION) return this;
+		int[] oldIds = order.order(this);
+		int[] newIds = new int[oldIds.length];
+		for (int i = 0; i < oldIds.length; i++) newIds[oldIds[i]] = i;
+		List<Node<V>> reordered = new ArrayList<>(nodes.size());
+		Map<V, Integer> reorderedIds = new HashMap<>(nodes.size() * 2);
+		int[] reorderedOffsets = new int[offsets.length];
+		int[] reorderedTargets = new int[targets.length];
+		Object[] reorderedData = new Object[data.length];
+		for (int id = 0; id < oldIds.length; id++) {
+			int old = oldIds[id];
+			reordered.add(nodes.get(old));
+			reorderedIds.put(nodes.get(old).value(), id);
+			int start = reorderedOffsets[id];
+			for (int edge = offsets[old]; edge < offsets[old + 1]; edge++) {
+				int moved = start + edge - offsets[old];
+				reorderedTargets[moved] = newIds[targets[edge]];
+				reorderedData[moved] = data[edge];
+			}
+			reorderedOffsets[id + 1] = start + offsets[old + 1] - offsets[old];
+		}
+		return new GraphIndex<>(List.copyOf(reordered), reorderedIds, reorderedOffsets,
+				reorderedTargets, reorderedData);
+	}
+
+	/**
+	 * @return the number of nodes
+	 */
+	public int size() {
+		return nodes.size();
+	}
+
+	/**
+	 * @return the number of edges
+	 */
+	public int edgeCount() {
+		return targets.length;
+	}
+
+	/**
+	 * @return the largest number of edges leaving a single node
+	 */
+	public int maxDegree() {
+		return maxDegree;
+	}
+
+	/**
+	 * @return the largest difference between the ids of the two ends of an
+	 *         edge
+	 */
+	public int bandwidth() {
+		int bandwidth = 0;
+		for (int id = 0; id < nodes.size(); id++)
+			for (int edge = offsets[id]; edge < offsets[id + 1]; edge++)
+				bandwidth = Math.max(bandwidth, Math.abs(targets[edge] - id));
+		return bandwidth;
+	}
+
+	/**
+	 * @param value a node value
+	 * @return the id of the node, -1 if it is not in the graph
+	 */
+	public int id(V value) {
+		Integer id = ids.get(value);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * @param node a node
+	 * @return the id of the node, -1 if it is not in the graph
+	 */
+	public int id(Node<V> node) {
+		return id(node.value());
+	}
+
+	/**
+	 * @param values node values, all in the graph
+	 * @return the id of each value, in iteration order
+	 */
+	public int[] ids(Collection<? extends V> values) {
+		int[] result = new int[values.size()];
+		int i = 0;
+		for (V value : values) {
+			int id = id(value);
+			if (id < 0) throw new IllegalArgumentException(value + " is not in the graph");
+			result[i++] = id;
+		}
+		return result;
+	}
+
+	/**
+	 * @param id a node id
+	 * @return the node with the id
+	 */
+	public Node<V> node(int id) {
+		return nodes.get(id);
+	}
+
+	/**
+	 * @param id a node id
+	 * @return the value of the node with the id
+	 */
+	public V value(int id) {
+		return nodes.get(id).value();
+	}
+
+	/**
+	 * @param ids node ids
+	 * @return a view of the values of the ids; the array is not copied
+	 */
+	public List<V> values(int[] ids) {
+		Objects.requireNonNull(ids);
+		return new Values(ids);
+	}
+
+	/**
+	 * @param id a node id
+	 * @return the first edge number of the node
+	 */
+	public int edgeStart(int id) {
+		return offsets[id];
+	}
+
+	/**
+	 * @param id a node id
+	 * @return one past the last edge number of the node
+	 */
+	public int edgeEnd(int id) {
+		return offsets[id + 1];
+	}
+
+	/**
+	 * @param edge an edge number
+	 * @return the id of the node the edge leads to
+	 */
+	public int target(int edge) {
+		return targets[edge];
+	}
+
+	/**
+	 * @param edge an edge number
+	 * @return the data of the edge
+	 */
+	@SuppressWarnings("unchecked")
+	public D data(int edge) {
+		return (D) data[edge];
+	}
+
+	/**
+	 * Maps the data of every edge to an int once, e.g. to filter edges by
+	 * kind inside an algorithm without calling back per step
+	 *
+	 * @param mapper the mapping; not null
+	 * @return the mapped value by edge number; a new array
+	 */
+	public int[] mapEdges(ToIntFunction<? super D> mapper) {
+		int[] result = new int[targets.length];
+		for (int edge = 0; edge < result.length; edge++) result[edge] = mapper.applyAsInt(data(edge));
+		return result;
+	}
+
+	private final class Values extends AbstractList<V> implements RandomAccess {
+
+		private final int[] ids;
+
+		Values(int[] ids) {
+			this.ids = ids;
+		}
+
+		@Override
+		public V get(int index) {
+			return value(ids[index]);
+		}
+
+		@Override
+		public int size() {
+			return ids.length;
+		}
+	}
+
+}
@@ -1,13 +1,21 @@
 package uk.ac.bris.cs.gamekit.graph;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 /**
- * An immutable graph that does not allow adding new nodes or edges
+ * An immutable graph that does not allow adding new nodes or edges. <br>
+ * The graph is a snapshot: the source graph is compacted into arrays of
+ * node and edge lists when this graph is created, later changes to the
+ * source are not seen. Lookups are array reads after one hash lookup of the
+ * node value, or none at all for {@link Integer} values in a dense range.
+ * Snapshots can be shared freely, see {@link #of(Graph)}.
  *
  * @param <V> the type for {@link Node} values
  * @param <D> the type for {@link Edge} data
@@ -17,11 +25,88 @@ public final class ImmutableGraph<V, D> extends AbstractGraph<V, D>
 		Graph<V, D>,
 		Serializable {
 
-	private static final long serialVersionUID = -54523690732483278L;
-	private final Graph<V, D> graph;
-
+	private static final long serialVersionUID = 2785640021475538314L;
+	private final List<Node<V>> nodes;
+	private final Map<V, Integer> indices; // null when valueIndex is used
+	private final List<Edge<V, D>> edges;
+	private final List<List<Edge<V, D>>> edgesFrom; // by node index
+	private final List<List<Edge<V, D>>> edgesTo;
+	// Node index by integer value minus the offset, -1 for none; null unless
+	// every value is an Integer and the values are dense enough
+	private final int[] valueIndex;
+	private final int offset;
+
+	/**
+	 * Creates a snapshot of a graph
+	 *
+	 * @param graph the graph to copy; not null
+	 */
 	public ImmutableGraph(Graph<V, D> graph) {
-		this.graph = Objects.requireNonNull(graph);
+		Objects.requireNonNull(graph);
+		nodes = List.copyOf(graph.getNodes());
+		edges = List.copyOf(graph.getEdges());
+		List<List<Edge<V, D>>> from = new ArrayList<>(nodes.size());
+		List<List<Edge<V, D>>> to = new ArrayList<>(nodes.size());
+		for (Node<V> node : nodes) {
+			from.add(List.copyOf(graph.getEdgesFrom(node)));
+			to.add(List.copyOf(graph.getEdgesTo(node)));
+		}
+		edgesFrom = List.copyOf(from);
+		edgesTo = List.copyOf(to);
+
+		int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+		boolean integers = true;
+		for (Node<V> node : nodes) {
+			if (!(node.value() instanceof Integer)) {
+				integers = false;
+				break;
+			}
+			int value = (Integer) node.value();
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+		if (integers && !nodes.isEmpty() && (long) max - min < 4L * nodes.size() + 64) {
+			offset = min;
+			valueIndex = new int[max - min + 1];
+			Arrays.fill(valueIndex, -1);
+			for (int i = 0; i < nodes.size(); i++)
+				valueIndex[(Integer) nodes.get(i).value() - min] = i;
+			indices = null;
+		} else {
+			offset = 0;
+			valueIndex = null;
+			indices = new HashMap<>(nodes.size() * 2);
+			for (int i = 0; i < nodes.size(); i++) indices.put(nodes.get(i).value(), i);
+		}
+	}
+
+	/**
+	 * Returns a snapshot of a graph, the graph itself if it already is one
+	 *
+	 * @param graph the graph; not null
+	 * @param <V> the type for {@link Node} values
+	 * @param <D> the type for {@link Edge} data
+	 * @return an immutable graph equal to the given graph
+	 */
+	public static <V, D> ImmutableGraph<V, D> of(Graph<V, D> graph) {
+		if (graph instanceof ImmutableGraph) return (ImmutableGraph<V, D>) graph;
+		return new ImmutableGraph<>(graph);
+	}
+
+	private int indexOf(V value) {
+		if (valueIndex != null) {
+			if (!(value instanceof Integer)) return -1;
+			long slot = (long) (Integer) value - offset;
+			return slot < 0 || slot >= valueIndex.length ? -1 : valueIndex[(int) slot];
+		}
+		Integer index = indices.get(value);
+		return index == null ? -1 : index;
+	}
+
+	private int requireIndex(Node<V> node) {
+		int index = indexOf(Objects.requireNonNull(node).value());
+		if (index < 0) throw new IllegalArgumentException(node + " is not in the graph");
+		return index;
 	}
 
 	@Override
@@ -38,47 +123,48 @@ public final class ImmutableGraph<V, D> extends AbstractGraph<V, D>
 
 	@Override
 	public Node<V> getNode(V value) {
-		return graph.getNode(value);
+		int index = indexOf(value);
+		return index < 0 ? null : nodes.get(index);
 	}
 
 	@Override
 	public boolean containsNode(V value) {
-		return graph.containsNode(value);
+		return indexOf(value) >= 0;
 	}
 
 	@Override
 	public List<Node<V>> getNodes() {
-		return graph == null ? Collections.emptyList() : graph.getNodes();
+		return nodes;
 	}
 
 	@Override
 	public Collection<Edge<V, D>> getEdges() {
-		return graph.getEdges();
+		return edges;
 	}
 
 	@Override
 	public Collection<Edge<V, D>> getEdgesFrom(Node<V> source) {
-		return graph.getEdgesFrom(source);
+		return edgesFrom.get(requireIndex(source));
 	}
 
 	@Override
 	public Collection<Edge<V, D>> getEdgesTo(Node<V> destination) {
-		return graph.getEdgesTo(destination);
+		return edgesTo.get(requireIndex(destination));
 	}
 
 	@Override
 	public boolean isEmpty() {
-		return graph.isEmpty();
+		return nodes.isEmpty();
 	}
 
 	@Override
 	public int size() {
-		return graph.size();
+		return nodes.size();
 	}
 
 	@Override
 	public String toString() {
-		return "ImmutableGraph{" + graph + '}';
+		return "ImmutableGraph{" + "nodes=" + nodes + ", edges=" + edges + '}';
 	}
 
 }
@@ -34,7 +34,8 @@ public final class Node<V> implements Serializable{
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(value);
+		// Objects.hash(value) without allocating its varargs array
+		return 31 + value.hashCode();
 	}
 
 	@Override
@@ -0,0 +1,105 @@
+package uk.ac.bris.cs.gamekit.graph;
+
+import java.util.Arrays;
+
+/**
+ * Orders in which a {@link GraphIndex} can number the nodes of a graph. <br>
+ * Numbering nodes that are close in the graph close together keeps the
+ * arrays an algorithm touches while walking edges close in memory, which
+ * matters for graphs too large for the caches. Only the ids change, node
+ * values and the {@link Graph} itself are untouched.
+ */
+public enum NodeOrder {
+
+	/**
+	 * The order of {@link Graph#getNodes()}
+	 */
+	INSERTION {
+		@Override
+		int[] order(GraphIndex<?, ?> index) {
+			int[] order = new int[index.size()];
+			for (int i = 0; i < order.length; i++) order[i] = i;
+			return order;
+		}
+	},
+
+	/**
+	 * Breadth first order from the first node, then from the first node not
+	 * reached yet for every other component
+	 */
+	BREADTH_FIRST {
+		@Override
+		int[] order(GraphIndex<?, ?> index) {
+			return breadthFirst(index, false);
+		}
+	},
+
+	/**
+	 * Reverse Cuthill-McKee: breadth first from a node of least degree,
+	 * neighbours in ascending degree, reversed. Keeps edges near the
+	 * diagonal of the adjacency matrix, i.e. a small
+	 * {@link GraphIndex#bandwidth()}
+	 */
+	REVERSE_CUTHILL_MCKEE {
+		@Override
+		int[] order(GraphIndex<?, ?> index) {
+			int[] order = breadthFirst(index, true);
+			for (int i = 0, j = order.length - 1; i < j; i++, j--) {
+				int swap = order[i];
+				order[i] = order[j];
+				order[j] = swap;
+			}
+			return order;
+		}
+	};
+
+	/**
+	 * @param index the graph
+	 * @return the current id of the node that gets each new id
+	 */
+	abstract int[] order(GraphIndex<?, ?> index);
+
+	private static int[] breadthFirst(GraphIndex<?, ?> index, boolean byDegree) {
+		int size = index.size();
+		int[] degree = new int[size];
+		for (int i = 0; i < size; i++) degree[i] = index.edgeEnd(i) - index.edgeStart(i);
+		// Component roots are tried in this order
+		int[] roots = new int[size];
+		for (int i = 0; i < size; i++) roots[i] = i;
+		if (byDegree) roots = sortByDegree(roots, size, degree);
+		boolean[] seen = new boolean[size];
+		int[] queue = new int[size];
+		int[] neighbours = new int[index.maxDegree()];
+		int tail = 0;
+		for (int root : roots) {
+			if (seen[root]) continue;
+			seen[root] = true;
+			queue[tail++] = root;
+			for (int head = tail - 1; head < tail; head++) {
+				int node = queue[head];
+				int count = 0;
+				for (int edge = index.edgeStart(node); edge < index.edgeEnd(node); edge++) {
+					int target = index.target(edge);
+					if (seen[target]) continue;
+					seen[target] = true;
+					neighbours[count++] = target;
+				}
+				if (byDegree) sortByDegree(neighbours, count, degree);
+				System.arraycopy(neighbours, 0, queue, tail, count);
+				tail += count;
+			}
+		}
+		return queue;
+	}
+
+	// Stable sort of the first count ids by ascending degree, in place
+	private static int[] sortByDegree(int[] ids, int count, int[] degree) {
+		long[] keys = new long[count];
+		for (int i = 0; i < count; i++) keys[i] = (long) degree[ids[i]] << 32 | i;
+		Arrays.sort(keys);
+		int[] original = Arrays.copyOf(ids, count);
+		for (int i = 0; i < count; i++) ids[i] = original[(int) keys[i]];
+		return ids;
+	}
+
+}
@@ -0,0 +1,239 @@
+package uk.ac.bris.cs.gamekit.graph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+
+/**
+ * A memoised answer to "which nodes can be reached from here within k moves
+ * using only these kinds of edges". <br>
+ * Every edge belongs to one of up to {@value #MAX_CLASSES} classes (for
+ * example the ticket it takes) and a query names the classes that may be
+ * used as a bit mask; a node is reachable within k moves if a path of at
+ * most k such edges leads to it, the start node included. Ticket counts are
+ * not tracked, so the answer is the closure a player with unlimited tickets
+ * of the allowed kinds would have. <br>
+ * Results are bitsets over the node indices of {@link #indexOf(Node)} and
+ * are kept in a least recently used cache limited to a number of bytes.
+ * The cache is thread safe: queries for different keys are computed
+ * concurrently, outside the lock, and {@link #fill} computes many keys in
+ * parallel. The graph is read through a {@link GraphIndex}, later changes to
+ * the graph are not seen.
+ *
+ * @param <V> the type for {@link Node} values
+ * @param <D> the type for {@link Edge} data
+ */
+public final class ReachabilityCache<V, D> {
+
+	/**
+	 * The number of edge classes a mask can hold
+	 */
+	public static final int MAX_CLASSES = 16;
+
+	/**
+	 * The largest number of moves a query can ask for
+	 */
+	public static final int MAX_MOVES = 0xFFFF;
+
+	// Estimated bytes per cache entry besides the bitset itself: the map
+	// entry, the boxed key and the array header
+	private static final int ENTRY_OVERHEAD = 96;
+
+	private final GraphIndex<V, D> index;
+	private final int[] edgeBit; // 1 << class of each edge
+	private final int words;
+	private final int capacity;
+	private final LinkedHashMap<Long, long[]> cache;
+
+	/**
+	 * Creates a cache for a graph
+	 *
+	 * @param graph the graph; not null
+	 * @param edgeClass maps edge data to its class, from 0 to
+	 *        {@value #MAX_CLASSES} exclusive; not null
+	 * @param maxBytes roughly the most memory cached results may take; at
+	 *        least enough for one result
+	 */
+	public ReachabilityCache(Graph<V, D> graph, ToIntFunction<? super D> edgeClass,
+			long maxBytes) {
+		this(GraphIndex.of(graph), edgeClass, maxBytes);
+	}
+
+	/**
+	 * Creates a cache for an indexed graph, node indices are the ids of the
+	 * index
+	 *
+	 * @param index the graph index; not null
+	 * @param edgeClass maps edge data to its class, from 0 to
+	 *        {@value #MAX_CLASSES} exclusive; not null
+	 * @param maxBytes roughly the most memory cached results may take; at
+	 *        least enough for one result
+	 */
+	public ReachabilityCache(GraphIndex<V, D> index, ToIntFunction<? super D> edgeClass,
+			long maxBytes) {
+		this.index = Objects.requireNonNull(index);
+		edgeBit = index.mapEdges(edgeClass);
+		for (int edge = 0; edge < edgeBit.length; edge++) {
+			int type = edgeBit[edge];
+			if (type < 0 || type >= MAX_CLASSES) throw new IllegalArgumentException(
+					"Class " + type + " of edge " + edge + " is out of range");
+			edgeBit[edge] = 1 << type;
+		}
+		words = (index.size() + 63) >>> 6;
+		long entryBytes = words * 8L + ENTRY_OVERHEAD;
+		if (maxBytes < entryBytes)
+			throw new IllegalArgumentException("maxBytes " + maxBytes + " < " + entryBytes);
+		capacity = (int) Math.min(Integer.MAX_VALUE - 1, maxBytes / entryBytes);
+		cache = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * @param node a node of the graph
+	 * @return the index of the node in the bitsets of this cache
+	 */
+	public int indexOf(Node<V> node) {
+		int id = index.id(Objects.requireNonNull(node));
+		if (id < 0) throw new IllegalArgumentException(node + " is not in the graph");
+		return id;
+	}
+
+	/**
+	 * @param index a node index
+	 * @return the node with that index
+	 */
+	public Node<V> node(int index) {
+		return this.index.node(index);
+	}
+
+	/**
+	 * Finds the nodes reachable from a start node
+	 *
+	 * @param start the start node
+	 * @param moves the most moves that may be made
+	 * @param mask the edge classes that may be used, bit {@code c} for class
+	 *        {@code c}
+	 * @return a new bitset of node indices
+	 */
+	public BitSet reachable(Node<V> start, int moves, int mask) {
+		return BitSet.valueOf(closure(indexOf(start), moves, mask));
+	}
+
+	/**
+	 * Tests whether one node is reachable from another, without copying the
+	 * cached result
+	 *
+	 * @param start the start node
+	 * @param moves the most moves that may be made
+	 * @param mask the edge classes that may be used
+	 * @param target the node to reach
+	 * @return true if a path of at most {@code moves} allowed edges exists
+	 */
+	public boolean canReach(Node<V> start, int moves, int mask, Node<V> target) {
+		int index = indexOf(target);
+		return (closure(indexOf(start), moves, mask)[index >>> 6] & 1L << index) != 0;
+	}
+
+	/**
+	 * @param start the start node
+	 * @param moves the most moves that may be made
+	 * @param mask the edge classes that may be used
+	 * @return the number of reachable nodes, the start node included
+	 */
+	public int count(Node<V> start, int moves, int mask) {
+		int count = 0;
+		for (long word : closure(indexOf(start), moves, mask)) count += Long.bitCount(word);
+		return count;
+	}
+
+	/**
+	 * Computes and caches the results for many start nodes in parallel, e.g.
+	 * ahead of a search
+	 *
+	 * @param starts the start nodes
+	 * @param moves the most moves that may be made
+	 * @param mask the edge classes that may be used
+	 */
+	public void fill(Collection<Node<V>> starts, int moves, int mask) {
+		int[] starting = starts.stream().mapToInt(this::indexOf).toArray();
+		Arrays.stream(starting).parallel().forEach(i -> closure(i, moves, mask));
+	}
+
+	/**
+	 * @return the number of cached results
+	 */
+	public int size() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	/**
+	 * @return the most results this cache holds at once
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * Removes all cached results
+	 */
+	public void clear() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	private long[] closure(int start, int moves, int mask) {
+		if (moves < 0 || moves > MAX_MOVES)
+			throw new IllegalArgumentException("moves " + moves + " out of range");
+		if ((mask & ~0xFFFF) != 0) throw new IllegalArgumentException("Bad mask " + mask);
+		Long key = (long) start << 32 | (long) moves << 16 | mask;
+		long[] closure;
+		synchronized (cache) {
+			closure = cache.get(key);
+		}
+		if (closure != null) return closure;
+		// Two threads may both compute a missing key; the results are equal
+		closure = search(start, moves, mask);
+		synchronized (cache) {
+			cache.put(key, closure);
+		}
+		return closure;
+	}
+
+	// Breadth first search stopped after the given number of layers
+	private long[] search(int start, int moves, int mask) {
+		long[] seen = new long[words];
+		int[] queue = new int[index.size()];
+		seen[start >>> 6] |= 1L << start;
+		queue[0] = start;
+		int head = 0, tail = 1;
+		for (int depth = 0; depth < moves && head < tail; depth++) {
+			int layerEnd = tail;
+			while (head < layerEnd) {
+				int node = queue[head++];
+				for (int edge = index.edgeStart(node); edge < index.edgeEnd(node); edge++) {
+					if ((edgeBit[edge] & mask) == 0) continue;
+					int target = index.target(edge);
+					long bit = 1L << target;
+					if ((seen[target >>> 6] & bit) != 0) continue;
+					seen[target >>> 6] |= bit;
+					queue[tail++] = target;
+				}
+			}
+		}
+		return seen;
+	}
+
+}
@@ -1,6 +1,7 @@
 package uk.ac.bris.cs.gamekit.graph;
 
 import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -8,19 +9,25 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
 
 /**
- * An undirected graph implementation
+ * An undirected graph implementation. <br>
+ * Each connection is stored once, as the edge it was added with, and is
+ * referenced from the incidence lists of both its nodes. The edge
+ * collections returned are views that present every connection in the
+ * direction asked for, swapping edges as they are read; they are not
+ * copied per call.
  *
  * @param <V> the type for {@link Node} values
  * @param <D> the type for {@link Edge} data
  */
 public final class UndirectedGraph<V, D> extends AbstractGraph<V, D> implements Graph<V, D> , Serializable{
 
-	private static final long serialVersionUID = 6932837778781276092L;
+	private static final long serialVersionUID = -3167745253316429150L;
 	private final Map<V, Node<V>> valueNodeMap = new LinkedHashMap<>();
-	private final Map<Node<V>, List<Edge<V, D>>> sourceEdges = new HashMap<>();
-	private final Map<Node<V>, List<Edge<V, D>>> destinationEdges = new HashMap<>();
+	private final Map<Node<V>, List<Edge<V, D>>> incidentEdges = new HashMap<>();
 	private final List<Edge<V, D>> edges = new ArrayList<>();
 
 	/**
@@ -29,11 +36,21 @@ public final class UndirectedGraph<V, D> extends AbstractGraph<V, D> implements
 	public UndirectedGraph() {}
 
 	/**
-	 * Copy constructor
+	 * Copy constructor. Edges of the other graph are paired up with their
+	 * swapped copies and stored once; an edge without one is added as an
+	 * undirected edge.
 	 */
 	public UndirectedGraph(Graph<V, D> other) {
 		other.getNodes().forEach(this::addNode);
-		other.getEdges().forEach(e -> appendEdge(getNode(e.source().value()), e));
+		Map<Edge<V, D>, Integer> unpaired = new HashMap<>();
+		for (Edge<V, D> edge : other.getEdges()) {
+			Integer pending = unpaired.get(edge);
+			if (pending == null) {
+				appendEdge(edge);
+				unpaired.merge(edge.swap(), 1, Integer::sum);
+			} else if (pending == 1) unpaired.remove(edge);
+			else unpaired.put(edge, pending - 1);
+		}
 	}
 
 	@Override
@@ -42,32 +59,29 @@ public final class UndirectedGraph<V, D> extends AbstractGraph<V, D> implements
 		if (valueNodeMap.containsKey(node.value()))
 			throw new IllegalArgumentException(node + " is already in the graph");
 		valueNodeMap.put(node.value(), node);
-		sourceEdges.put(node, new ArrayList<>());
-		destinationEdges.put(node, new ArrayList<>());
+		incidentEdges.put(node, new ArrayList<>());
 	}
 
 	/**
-	 * Adds an edge to the node. This will add two edges, the given edge and the
-	 * given edge with source and destination swapped.
+	 * Adds an edge to the node. The edge can be followed in both directions,
+	 * the graph reports it as the given edge and the given edge with source
+	 * and destination swapped.
 	 *
 	 * @param edge the edge to add, must not be null; it is an error to add
 	 */
 	@Override
 	public void addEdge(Edge<V, D> edge) {
 		if (edge == null) throw new NullPointerException("edge == null");
-		Node<V> source = getNode(edge.source().value());
-		if (source == null) throw new IllegalArgumentException(
+		if (!containsNode(edge.source().value())) throw new IllegalArgumentException(
 				"source of edge(" + edge.source() + ") is not in the graph");
-		Node<V> destination = getNode(edge.destination().value());
-		if (destination == null) throw new IllegalArgumentException(
+		if (!containsNode(edge.destination().value())) throw new IllegalArgumentException(
 				"destination of edge(" + edge.destination() + ") is not in the graph");
-		appendEdge(source, edge);
-		appendEdge(destination, edge.swap());
+		appendEdge(edge);
 	}
 
-	private void appendEdge(Node<V> node, Edge<V, D> edge) {
-		sourceEdges.get(node).add(edge);
-		destinationEdges.get(node).add(edge);
+	private void appendEdge(Edge<V, D> edge) {
+		incidentEdges.get(getNode(edge.source().value())).add(edge);
+		incidentEdges.get(getNode(edge.destination().value())).add(edge);
 		edges.add(edge);
 	}
 
@@ -86,19 +100,23 @@ public final class UndirectedGraph<V, D> extends AbstractGraph<V, D> implements
 		return Collections.unmodifiableList(new ArrayList<>(valueNodeMap.values()));
 	}
 
+	/**
+	 * @return every edge followed by its swapped copy, in insertion order
+	 */
 	@Override
 	public Collection<Edge<V, D>> getEdges() {
-		return Collections.unmodifiableList(edges);
+		return new BothWays<>(edges);
 	}
 
 	@Override
 	public Collection<Edge<V, D>> getEdgesFrom(Node<V> source) {
-		return Collections.unmodifiableList(sourceEdges.get(source));
+		return new Oriented<>(Objects.requireNonNull(incidentEdges.get(source)), source, true);
 	}
 
 	@Override
 	public Collection<Edge<V, D>> getEdgesTo(Node<V> destination) {
-		return Collections.unmodifiableList(destinationEdges.get(destination));
+		return new Oriented<>(Objects.requireNonNull(incidentEdges.get(destination)),
+				destination, false);
 	}
 
 	@Override
@@ -113,6 +131,55 @@ public final class UndirectedGraph<V, D> extends AbstractGraph<V, D> implements
 
 	@Override
 	public String toString() {
-		return "UndirectedGraph{" + "nodes=" + valueNodeMap.values() + ", edges=" + edges + '}';
+		return "UndirectedGraph{" + "nodes=" + valueNodeMap.values() + ", edges=" + getEdges() + '}';
+	}
+
+	// The incident edges of a node, each with the node as its source or as
+	// its destination
+	private static final class Oriented<V, D> extends AbstractList<Edge<V, D>>
+			implements RandomAccess {
+
+		private final List<Edge<V, D>> edges;
+		private final Node<V> node;
+		private final boolean outgoing;
+
+		Oriented(List<Edge<V, D>> edges, Node<V> node, boolean outgoing) {
+			this.edges = edges;
+			this.node = node;
+			this.outgoing = outgoing;
+		}
+
+		@Override
+		public Edge<V, D> get(int index) {
+			Edge<V, D> edge = edges.get(index);
+			return node.equals(outgoing ? edge.source() : edge.destination()) ? edge : edge.swap();
+		}
+
+		@Override
+		public int size() {
+			return edges.size();
+		}
+	}
+
+	// Every stored edge at an even index, its swapped copy after it
+	private static final class BothWays<V, D> extends AbstractList<Edge<V, D>>
+			implements RandomAccess {
+
+		private final List<Edge<V, D>> edges;
+
+		BothWays(List<Edge<V, D>> edges) {
+			this.edges = edges;
+		}
+
+		@Override
+		public Edge<V, D> get(int index) {
+			Edge<V, D> edge = edges.get(index >> 1);
+			return (index & 1) == 0 ? edge : edge.swap();
+		}
+
+		@Override
+		public int size() {
+			return edges.size() * 2;
+		}
 	}
 }
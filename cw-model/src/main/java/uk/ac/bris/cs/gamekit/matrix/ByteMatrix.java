@@ -0,0 +1,147 @@
+package uk.ac.bris.cs.gamekit.matrix;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A matrix of {@code byte}s backed by one flat array, e.g. for compact
+ * distance tables of small maps. <br>
+ * The primitive accessors do not box; the {@link Matrix} methods box each
+ * cell as it is read, see {@link FlatMatrix} for the views they return.
+ */
+public final class ByteMatrix extends FlatMatrix<Byte> {
+
+	private static final long serialVersionUID = -4370157327788513269L;
+	private final byte[] cells;
+
+	/**
+	 * Creates a matrix with every cell 0
+	 *
+	 * @param rows the number of rows, must be &gt; 0
+	 * @param columns the number of columns, must be &gt; 0
+	 */
+	public ByteMatrix(int rows, int columns) {
+		super(rows, columns);
+		cells = new byte[rows * columns];
+	}
+
+	/**
+	 * Copy constructor
+	 *
+	 * @param matrix the matrix to copy from
+	 */
+	public ByteMatrix(ByteMatrix matrix) {
+		super(matrix.rows, matrix.columns);
+		cells = matrix.cells.clone();
+	}
+
+	@Override
+	Byte cell(int index) {
+		return cells[index];
+	}
+
+	@Override
+	void cell(int index, Byte value) {
+		cells[index] = value;
+	}
+
+	public byte getByte(int row, int column) {
+		return cells[index(row, column)];
+	}
+
+	public void putByte(int row, int column, byte value) {
+		cells[index(row, column)] = value;
+	}
+
+	/**
+	 * @param index a flat index, see {@link #index(int, int)}
+	 * @return the cell, without bounds checks beyond those of the array
+	 */
+	public byte getByte(int index) {
+		return cells[index];
+	}
+
+	/**
+	 * @param index a flat index, see {@link #index(int, int)}
+	 * @param value the cell
+	 */
+	public void putByte(int index, byte value) {
+		cells[index] = value;
+	}
+
+	/**
+	 * @param row the row
+	 * @return a buffer sharing the cells of the row; writes go to the matrix
+	 */
+	public ByteBuffer rowBuffer(int row) {
+		checkBound("row", row, rows);
+		return ByteBuffer.wrap(cells, row * columns, columns).slice();
+	}
+
+	/**
+	 * Sets every cell
+	 *
+	 * @param value the value
+	 */
+	public void fill(byte value) {
+		Arrays.fill(cells, value);
+	}
+
+	/**
+	 * Copies every cell of a matrix of the same size into this one
+	 *
+	 * @param matrix the matrix to copy; not null
+	 */
+	public void copyFrom(ByteMatrix matrix) {
+		checkSameSize(matrix);
+		System.arraycopy(matrix.cells, 0, cells, 0, cells.length);
+	}
+
+	/**
+	 * Replaces every cell with an operation applied to it, the results are
+	 * narrowed to {@code byte}
+	 *
+	 * @param operation the operation; called from many threads if parallel
+	 * @param parallel whether to split the cells over the fork-join pool
+	 */
+	public void apply(IntUnaryOperator operation, boolean parallel) {
+		Objects.requireNonNull(operation);
+		forEachIndex(parallel, i -> cells[i] = (byte) operation.applyAsInt(cells[i]));
+	}
+
+	/**
+	 * Replaces every cell with an operation applied to it and the same cell
+	 * of another matrix of the same size, narrowed to {@code byte}
+	 *
+	 * @param matrix the other matrix; not null
+	 * @param operation the operation, this cell first; called from many
+	 *        threads if parallel
+	 * @param parallel whether to split the cells over the fork-join pool
+	 */
+	public void combine(ByteMatrix matrix, IntBinaryOperator operation, boolean parallel) {
+		checkSameSize(matrix);
+		Objects.requireNonNull(operation);
+		byte[] other = matrix.cells;
+		forEachIndex(parallel,
+				i -> cells[i] = (byte) operation.applyAsInt(cells[i], other[i]));
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o instanceof ByteMatrix) {
+			ByteMatrix that = (ByteMatrix) o;
+			return rows == that.rows && columns == that.columns
+					&& Arrays.equals(cells, that.cells);
+		}
+		return super.equals(o);
+	}
+
+	@Override
+	public int hashCode() {
+		return super.hashCode();
+	}
+
+}
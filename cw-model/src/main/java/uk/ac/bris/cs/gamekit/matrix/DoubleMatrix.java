@@ -0,0 +1,145 @@
+package uk.ac.bris.cs.gamekit.matrix;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A matrix of {@code double}s backed by one flat array, e.g. for heatmaps
+ * and probability tables. <br>
+ * The primitive accessors do not box; the {@link Matrix} methods box each
+ * cell as it is read, see {@link FlatMatrix} for the views they return.
+ */
+public final class DoubleMatrix extends FlatMatrix<Double> {
+
+	private static final long serialVersionUID = 2981553478119506847L;
+	private final double[] cells;
+
+	/**
+	 * Creates a matrix with every cell 0
+	 *
+	 * @param rows the number of rows, must be &gt; 0
+	 * @param columns the number of columns, must be &gt; 0
+	 */
+	public DoubleMatrix(int rows, int columns) {
+		super(rows, columns);
+		cells = new double[rows * columns];
+	}
+
+	/**
+	 * Copy constructor
+	 *
+	 * @param matrix the matrix to copy from
+	 */
+	public DoubleMatrix(DoubleMatrix matrix) {
+		super(matrix.rows, matrix.columns);
+		cells = matrix.cells.clone();
+	}
+
+	@Override
+	Double cell(int index) {
+		return cells[index];
+	}
+
+	@Override
+	void cell(int index, Double value) {
+		cells[index] = value;
+	}
+
+	public double getDouble(int row, int column) {
+		return cells[index(row, column)];
+	}
+
+	public void putDouble(int row, int column, double value) {
+		cells[index(row, column)] = value;
+	}
+
+	/**
+	 * @param index a flat index, see {@link #index(int, int)}
+	 * @return the cell, without bounds checks beyond those of the array
+	 */
+	public double getDouble(int index) {
+		return cells[index];
+	}
+
+	/**
+	 * @param index a flat index, see {@link #index(int, int)}
+	 * @param value the cell
+	 */
+	public void putDouble(int index, double value) {
+		cells[index] = value;
+	}
+
+	/**
+	 * @param row the row
+	 * @return a buffer sharing the cells of the row; writes go to the matrix
+	 */
+	public DoubleBuffer rowBuffer(int row) {
+		checkBound("row", row, rows);
+		return DoubleBuffer.wrap(cells, row * columns, columns).slice();
+	}
+
+	/**
+	 * Sets every cell
+	 *
+	 * @param value the value
+	 */
+	public void fill(double value) {
+		Arrays.fill(cells, value);
+	}
+
+	/**
+	 * Copies every cell of a matrix of the same size into this one
+	 *
+	 * @param matrix the matrix to copy; not null
+	 */
+	public void copyFrom(DoubleMatrix matrix) {
+		checkSameSize(matrix);
+		System.arraycopy(matrix.cells, 0, cells, 0, cells.length);
+	}
+
+	/**
+	 * Replaces every cell with an operation applied to it
+	 *
+	 * @param operation the operation; called from many threads if parallel
+	 * @param parallel whether to split the cells over the fork-join pool
+	 */
+	public void apply(DoubleUnaryOperator operation, boolean parallel) {
+		Objects.requireNonNull(operation);
+		forEachIndex(parallel, i -> cells[i] = operation.applyAsDouble(cells[i]));
+	}
+
+	/**
+	 * Replaces every cell with an operation applied to it and the same cell
+	 * of another matrix of the same size
+	 *
+	 * @param matrix the other matrix; not null
+	 * @param operation the operation, this cell first; called from many
+	 *        threads if parallel
+	 * @param parallel whether to split the cells over the fork-join pool
+	 */
+	public void combine(DoubleMatrix matrix, DoubleBinaryOperator operation, boolean parallel) {
+		checkSameSize(matrix);
+		Objects.requireNonNull(operation);
+		double[] other = matrix.cells;
+		forEachIndex(parallel, i -> cells[i] = operation.applyAsDouble(cells[i], other[i]));
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o instanceof DoubleMatrix) {
+			DoubleMatrix that = (DoubleMatrix) o;
+			return rows == that.rows && columns == that.columns
+					&& Arrays.equals(cells, that.cells);
+		}
+		return super.equals(o);
+	}
+
+	@Override
+	public int hashCode() {
+		return super.hashCode();
+	}
+
+}
@@ -0,0 +1,204 @@
+package uk.ac.bris.cs.gamekit.matrix;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * The shared part of the matrices backed by one flat primitive array in
+ * row major order. <br>
+ * The lists returned by {@link #row(int)}, {@link #column(int)}, the
+ * diagonals and {@link #asList()} are read-only views of the cells, nothing
+ * is copied and later changes to the matrix show through. Cells cannot be
+ * null. {@link #rowSize()} is the length of a row, i.e. the number of
+ * columns, and {@link #columnSize()} the length of a column.
+ *
+ * @param <T> the boxed type of the cells
+ */
+abstract class FlatMatrix<T> extends AbstractMatrix<T> implements Serializable {
+
+	private static final long serialVersionUID = -2146349766125796415L;
+
+	// Cells per task of the parallel element-wise operations
+	private static final int PARALLEL_CHUNK = 1 << 14;
+
+	final int rows;
+	final int columns;
+
+	FlatMatrix(int rows, int columns) {
+		if (rows < 1 || columns < 1)
+			throw new IllegalArgumentException("Size must me > 0, got " + rows + "x" + columns);
+		if ((long) rows * columns > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("Too many cells: " + rows + "x" + columns);
+		this.rows = rows;
+		this.columns = columns;
+	}
+
+	/**
+	 * @param index a flat index
+	 * @return the boxed cell
+	 */
+	abstract T cell(int index);
+
+	/**
+	 * @param index a flat index
+	 * @param value the cell; not null
+	 */
+	abstract void cell(int index, T value);
+
+	/**
+	 * The flat index of a cell, {@code row * rowSize() + column}
+	 *
+	 * @param row the row of the cell
+	 * @param column the column of the cell
+	 * @return the index into the backing array
+	 */
+	public final int index(int row, int column) {
+		checkBound("row", row, rows);
+		checkBound("column", column, columns);
+		return row * columns + column;
+	}
+
+	static void checkBound(String name, int value, int size) {
+		if (value < 0) throw new IndexOutOfBoundsException(name + " " + value + " < 0");
+		if (value >= size)
+			throw new IndexOutOfBoundsException(name + " " + value + " > " + (size - 1));
+	}
+
+	void checkSameSize(FlatMatrix<?> that) {
+		if (rows != that.rows || columns != that.columns)
+			throw new IllegalArgumentException("Size " + that.rows + "x" + that.columns
+					+ " != " + rows + "x" + columns);
+	}
+
+	// Runs the action for every flat index, in chunks on the fork-join pool
+	// if parallel
+	void forEachIndex(boolean parallel, IntConsumer action) {
+		int count = count();
+		if (!parallel || count <= PARALLEL_CHUNK) {
+			for (int i = 0; i < count; i++) action.accept(i);
+			return;
+		}
+		IntStream.range(0, (count + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK).parallel()
+				.forEach(chunk -> {
+					int end = Math.min(count, (chunk + 1) * PARALLEL_CHUNK);
+					for (int i = chunk * PARALLEL_CHUNK; i < end; i++) action.accept(i);
+				});
+	}
+
+	@Override
+	public T get(int row, int column) {
+		return cell(index(row, column));
+	}
+
+	@Override
+	public void put(int row, int column, T cell) {
+		cell(index(row, column), Objects.requireNonNull(cell));
+	}
+
+	@Override
+	public boolean inBounds(int row, int column) {
+		return (row >= 0 && row < rows) && (column >= 0 && column < columns);
+	}
+
+	@Override
+	public List<T> row(int row) {
+		checkBound("row", row, rows);
+		return new View(row * columns, 1, columns);
+	}
+
+	@Override
+	public void row(int row, List<T> values) {
+		Objects.requireNonNull(values);
+		checkBound("row", row, rows);
+		if (columns != values.size()) throw new IllegalArgumentException("size != value.size()");
+		for (int i = 0; i < columns; i++) cell(row * columns + i, values.get(i));
+	}
+
+	@Override
+	public List<T> column(int column) {
+		checkBound("column", column, columns);
+		return new View(column, columns, rows);
+	}
+
+	@Override
+	public void column(int column, List<T> values) {
+		Objects.requireNonNull(values);
+		checkBound("column", column, columns);
+		if (rows != values.size()) throw new IllegalArgumentException("size != value.size()");
+		for (int i = 0; i < rows; i++) cell(i * columns + column, values.get(i));
+	}
+
+	@Override
+	public List<T> mainDiagonal() {
+		return new View(0, columns + 1, Math.min(rows, columns));
+	}
+
+	@Override
+	public List<T> antiDiagonal() {
+		return new View(columns - 1, columns - 1, Math.min(rows, columns));
+	}
+
+	@Override
+	public List<T> asList() {
+		return new View(0, 1, count());
+	}
+
+	@Override
+	public int count() {
+		return rows * columns;
+	}
+
+	@Override
+	public int columnSize() {
+		return rows;
+	}
+
+	@Override
+	public int rowSize() {
+		return columns;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("[");
+		for (int row = 0; row < rows; row++) {
+			if (row > 0) builder.append('\n');
+			for (int column = 0; column < columns; column++) {
+				if (column > 0) builder.append(", ");
+				builder.append(cell(row * columns + column));
+			}
+		}
+		return builder.append(']').toString();
+	}
+
+	// Every stride-th cell from start
+	private final class View extends AbstractList<T> implements RandomAccess {
+
+		private final int start;
+		private final int stride;
+		private final int size;
+
+		View(int start, int stride, int size) {
+			this.start = start;
+			this.stride = stride;
+			this.size = size;
+		}
+
+		@Override
+		public T get(int index) {
+			checkBound("index", index, size);
+			return cell(start + index * stride);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+}
@@ -0,0 +1,145 @@
+package uk.ac.bris.cs.gamekit.matrix;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A matrix of {@code int}s backed by one flat array, e.g. for distance
+ * tables. <br>
+ * The primitive accessors do not box; the {@link Matrix} methods box each
+ * cell as it is read, see {@link FlatMatrix} for the views they return.
+ */
+public final class IntMatrix extends FlatMatrix<Integer> {
+
+	private static final long serialVersionUID = 6084562941839013725L;
+	private final int[] cells;
+
+	/**
+	 * Creates a matrix with every cell 0
+	 *
+	 * @param rows the number of rows, must be &gt; 0
+	 * @param columns the number of columns, must be &gt; 0
+	 */
+	public IntMatrix(int rows, int columns) {
+		super(rows, columns);
+		cells = new int[rows * columns];
+	}
+
+	/**
+	 * Copy constructor
+	 *
+	 * @param matrix the matrix to copy from
+	 */
+	public IntMatrix(IntMatrix matrix) {
+		super(matrix.rows, matrix.columns);
+		cells = matrix.cells.clone();
+	}
+
+	@Override
+	Integer cell(int index) {
+		return cells[index];
+	}
+
+	@Override
+	void cell(int index, Integer value) {
+		cells[index] = value;
+	}
+
+	public int getInt(int row, int column) {
+		return cells[index(row, column)];
+	}
+
+	public void putInt(int row, int column, int value) {
+		cells[index(row, column)] = value;
+	}
+
+	/**
+	 * @param index a flat index, see {@link #index(int, int)}
+	 * @return the cell, without bounds checks beyond those of the array
+	 */
+	public int getInt(int index) {
+		return cells[index];
+	}
+
+	/**
+	 * @param index a flat index, see {@link #index(int, int)}
+	 * @param value the cell
+	 */
+	public void putInt(int index, int value) {
+		cells[index] = value;
+	}
+
+	/**
+	 * @param row the row
+	 * @return a buffer sharing the cells of the row; writes go to the matrix
+	 */
+	public IntBuffer rowBuffer(int row) {
+		checkBound("row", row, rows);
+		return IntBuffer.wrap(cells, row * columns, columns).slice();
+	}
+
+	/**
+	 * Sets every cell
+	 *
+	 * @param value the value
+	 */
+	public void fill(int value) {
+		Arrays.fill(cells, value);
+	}
+
+	/**
+	 * Copies every cell of a matrix of the same size into this one
+	 *
+	 * @param matrix the matrix to copy; not null
+	 */
+	public void copyFrom(IntMatrix matrix) {
+		checkSameSize(matrix);
+		System.arraycopy(matrix.cells, 0, cells, 0, cells.length);
+	}
+
+	/**
+	 * Replaces every cell with an operation applied to it
+	 *
+	 * @param operation the operation; called from many threads if parallel
+	 * @param parallel whether to split the cells over the fork-join pool
+	 */
+	public void apply(IntUnaryOperator operation, boolean parallel) {
+		Objects.requireNonNull(operation);
+		forEachIndex(parallel, i -> cells[i] = operation.applyAsInt(cells[i]));
+	}
+
+	/**
+	 * Replaces every cell with an operation applied to it and the same cell
+	 * of another matrix of the same size
+	 *
+	 * @param matrix the other matrix; not null
+	 * @param operation the operation, this cell first; called from many
+	 *        threads if parallel
+	 * @param parallel whether to split the cells over the fork-join pool
+	 */
+	public void combine(IntMatrix matrix, IntBinaryOperator operation, boolean parallel) {
+		checkSameSize(matrix);
+		Objects.requireNonNull(operation);
+		int[] other = matrix.cells;
+		forEachIndex(parallel, i -> cells[i] = operation.applyAsInt(cells[i], other[i]));
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o instanceof IntMatrix) {
+			IntMatrix that = (IntMatrix) o;
+			return rows == that.rows && columns == that.columns
+					&& Arrays.equals(cells, that.cells);
+		}
+		return super.equals(o);
+	}
+
+	@Override
+	public int hashCode() {
+		return super.hashCode();
+	}
+
+}
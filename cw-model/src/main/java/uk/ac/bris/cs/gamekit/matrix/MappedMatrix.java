@@ -0,0 +1,364 @@
+package uk.ac.bris.cs.gamekit.matrix;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * A matrix of integers stored in a memory-mapped file, for tables too large
+ * for the heap such as all-pairs distances of generated maps. <br>
+ * Cells are 1, 2 or 4 byte signed integers in row major order after a small
+ * header, so a file written once can be reopened in milliseconds and shared
+ * through the page cache by every process that maps it. Files larger than a
+ * single {@link MappedByteBuffer} are mapped in chunks of a power of two
+ * bytes. Reads and writes use absolute buffer positions only, so any number
+ * of threads may read at once; writes made by one thread are only guaranteed
+ * to be seen by others after some other synchronisation, as for plain
+ * arrays. <br>
+ * The {@link Matrix} methods box each cell; {@link #count()} and
+ * {@link #asList()} throw {@link ArithmeticException} when there are more
+ * than {@link Integer#MAX_VALUE} cells, use {@link #cells()} instead. Java
+ * 11 has no way to unmap a buffer, the mapping goes away when this matrix is
+ * garbage collected after {@link #close()}.
+ */
+public final class MappedMatrix extends AbstractMatrix<Integer> implements Closeable {
+
+	/**
+	 * The default size of a mapped chunk
+	 */
+	public static final int DEFAULT_CHUNK_BYTES = 1 << 30;
+
+	private static final int MAGIC = 0x474B4D58; // "GKMX"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 32;
+	private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	private final FileChannel channel;
+	private final ByteBuffer[] chunks;
+	private final int chunkShift;
+	private final int chunkMask;
+	private final int rows;
+	private final int columns;
+	private final int cellBytes;
+	private final boolean writable;
+
+	private MappedMatrix(FileChannel channel, boolean writable, int rows, int columns,
+			int cellBytes, int chunkBytes) throws IOException {
+		if (chunkBytes < 4 || Integer.bitCount(chunkBytes) != 1)
+			throw new IllegalArgumentException("chunkBytes must be a power of two >= 4");
+		this.channel = channel;
+		this.writable = writable;
+		this.rows = rows;
+		this.columns = columns;
+		this.cellBytes = cellBytes;
+		chunkShift = Integer.numberOfTrailingZeros(chunkBytes);
+		chunkMask = chunkBytes - 1;
+		long bytes = (long) rows * columns * cellBytes;
+		chunks = new ByteBuffer[(int) ((bytes + chunkMask) >>> chunkShift)];
+		MapMode mode = writable ? MapMode.READ_WRITE : MapMode.READ_ONLY;
+		for (int i = 0; i < chunks.length; i++) {
+			long start = (long) i << chunkShift;
+			chunks[i] = channel.map(mode, HEADER_BYTES + start, Math.min(chunkBytes, bytes - start))
+					.order(ORDER);
+		}
+	}
+
+	private static void checkShape(int rows, int columns, int cellBytes) {
+		if (rows < 1 || columns < 1)
+			throw new IllegalArgumentException("Size must me > 0, got " + rows + "x" + columns);
+		if (cellBytes != 1 && cellBytes != 2 && cellBytes != 4)
+			throw new IllegalArgumentException("cellBytes must be 1, 2 or 4, got " + cellBytes);
+	}
+
+	/**
+	 * Creates a file with every cell 0, replacing any existing file, and maps
+	 * it for reading and writing
+	 *
+	 * @param path the file; not null
+	 * @param rows the number of rows, must be &gt; 0
+	 * @param columns the number of columns, must be &gt; 0
+	 * @param cellBytes the size of a cell: 1, 2 or 4
+	 * @return the matrix; never null
+	 * @throws IOException if the file cannot be created or mapped
+	 */
+	public static MappedMatrix create(Path path, int rows, int columns, int cellBytes)
+			throws IOException {
+		return create(path, rows, columns, cellBytes, DEFAULT_CHUNK_BYTES);
+	}
+
+	/**
+	 * As {@link #create(Path, int, int, int)} with a given chunk size
+	 *
+	 * @param chunkBytes the most bytes mapped by one buffer, a power of two
+	 *        of at least 4
+	 */
+	public static MappedMatrix create(Path path, int rows, int columns, int cellBytes,
+			int chunkBytes) throws IOException {
+		checkShape(rows, columns, cellBytes);
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ORDER);
+			header.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(columns).putInt(cellBytes);
+			header.clear();
+			channel.write(header, 0);
+			// Extend the file so the whole table can be mapped, the gap reads as 0
+			long size = HEADER_BYTES + (long) rows * columns * cellBytes;
+			channel.write(ByteBuffer.allocate(1), size - 1);
+			return new MappedMatrix(channel, true, rows, columns, cellBytes, chunkBytes);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Maps an existing file
+	 *
+	 * @param path the file; not null
+	 * @param writable whether cells may be written
+	 * @return the matrix; never null
+	 * @throws IOException if the file cannot be read, is not a matrix or is
+	 *         shorter than its header says
+	 */
+	public static MappedMatrix open(Path path, boolean writable) throws IOException {
+		return open(path, writable, DEFAULT_CHUNK_BYTES);
+	}
+
+	/**
+	 * As {@link #open(Path, boolean)} with a given chunk size
+	 *
+	 * @param chunkBytes the most bytes mapped by one buffer, a power of two
+	 *        of at least 4
+	 */
+	public static MappedMatrix open(Path path, boolean writable, int chunkBytes)
+			throws IOException {
+		FileChannel channel = writable
+				? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+				: FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ORDER);
+			while (header.hasRemaining())
+				if (channel.read(header, header.position()) < 0)
+					throw new IOException(path + " is too short for a matrix header");
+			header.flip();
+			if (header.getInt() != MAGIC) throw new IOException(path + " is not a matrix");
+			int version = header.getInt();
+			if (version != VERSION) throw new IOException("Unsupported version " + version);
+			int rows = header.getInt(), columns = header.getInt(), cellBytes = header.getInt();
+			try {
+				checkShape(rows, columns, cellBytes);
+			} catch (IllegalArgumentException e) {
+				throw new IOException(path + " has a corrupt header", e);
+			}
+			if (channel.size() < HEADER_BYTES + (long) rows * columns * cellBytes)
+				throw new IOException(path + " is shorter than its header says");
+			return new MappedMatrix(channel, writable, rows, columns, cellBytes, chunkBytes);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	private long offset(int row, int column) {
+		FlatMatrix.checkBound("row", row, rows);
+		FlatMatrix.checkBound("column", column, columns);
+		return ((long) row * columns + column) * cellBytes;
+	}
+
+	private int read(long offset) {
+		ByteBuffer chunk = chunks[(int) (offset >>> chunkShift)];
+		int position = (int) (offset & chunkMask);
+		switch (cellBytes) {
+			case 1:
+				return chunk.get(position);
+			case 2:
+				return chunk.getShort(position);
+			default:
+				return chunk.getInt(position);
+		}
+	}
+
+	private void write(long offset, int value) {
+		if (!writable) throw new UnsupportedOperationException("Matrix is read only");
+		ByteBuffer chunk = chunks[(int) (offset >>> chunkShift)];
+		int position = (int) (offset & chunkMask);
+		switch (cellBytes) {
+			case 1:
+				if (value != (byte) value) throw outOfRange(value);
+				chunk.put(position, (byte) value);
+				break;
+			case 2:
+				if (value != (short) value) throw outOfRange(value);
+				chunk.putShort(position, (short) value);
+				break;
+			default:
+				chunk.putInt(position, value);
+		}
+	}
+
+	private IllegalArgumentException outOfRange(int value) {
+		return new IllegalArgumentException(value + " does not fit in " + cellBytes + " bytes");
+	}
+
+	public int getInt(int row, int column) {
+		return read(offset(row, column));
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the value does not fit in a cell
+	 * @throws UnsupportedOperationException if the matrix is read only
+	 */
+	public void putInt(int row, int column, int value) {
+		write(offset(row, column), value);
+	}
+
+	/**
+	 * @return the number of cells
+	 */
+	public long cells() {
+		return (long) rows * columns;
+	}
+
+	/**
+	 * @return the size of a cell in bytes
+	 */
+	public int cellBytes() {
+		return cellBytes;
+	}
+
+	public boolean isWritable() {
+		return writable;
+	}
+
+	/**
+	 * Writes changes through to the file
+	 */
+	public void force() {
+		for (ByteBuffer chunk : chunks) ((MappedByteBuffer) chunk).force();
+	}
+
+	/**
+	 * Writes changes through to the file if writable and closes it; cells
+	 * can still be read until the mapping is garbage collected, but should
+	 * not be
+	 */
+	@Override
+	public void close() throws IOException {
+		if (writable) force();
+		channel.close();
+	}
+
+	@Override
+	public Integer get(int row, int column) {
+		return getInt(row, column);
+	}
+
+	@Override
+	public void put(int row, int column, Integer cell) {
+		putInt(row, column, Objects.requireNonNull(cell));
+	}
+
+	@Override
+	public boolean inBounds(int row, int column) {
+		return (row >= 0 && row < rows) && (column >= 0 && column < columns);
+	}
+
+	@Override
+	public List<Integer> row(int row) {
+		FlatMatrix.checkBound("row", row, rows);
+		return new View((long) row * columns, 1, columns);
+	}
+
+	@Override
+	public void row(int row, List<Integer> values) {
+		Objects.requireNonNull(values);
+		if (columns != values.size()) throw new IllegalArgumentException("size != value.size()");
+		for (int i = 0; i < columns; i++) putInt(row, i, values.get(i));
+	}
+
+	@Override
+	public List<Integer> column(int column) {
+		FlatMatrix.checkBound("column", column, columns);
+		return new View(column, columns, rows);
+	}
+
+	@Override
+	public void column(int column, List<Integer> values) {
+		Objects.requireNonNull(values);
+		if (rows != values.size()) throw new IllegalArgumentException("size != value.size()");
+		for (int i = 0; i < rows; i++) putInt(i, column, values.get(i));
+	}
+
+	@Override
+	public List<Integer> mainDiagonal() {
+		return new View(0, columns + 1L, Math.min(rows, columns));
+	}
+
+	@Override
+	public List<Integer> antiDiagonal() {
+		return new View(columns - 1, columns - 1L, Math.min(rows, columns));
+	}
+
+	@Override
+	public List<Integer> asList() {
+		return new View(0, 1, count());
+	}
+
+	@Override
+	public int count() {
+		return Math.toIntExact(cells());
+	}
+
+	@Override
+	public int columnSize() {
+		return rows;
+	}
+
+	@Override
+	public int rowSize() {
+		return columns;
+	}
+
+	@Override
+	public String toString() {
+		return "MappedMatrix{" + rows + "x" + columns + ", " + cellBytes + " byte cells}";
+	}
+
+	// Every stride-th cell from start, by cell index
+	private final class View extends AbstractList<Integer> implements RandomAccess {
+
+		private final long start;
+		private final long stride;
+		private final int size;
+
+		View(long start, long stride, int size) {
+			this.start = start;
+			this.stride = stride;
+			this.size = size;
+		}
+
+		@Override
+		public Integer get(int index) {
+			FlatMatrix.checkBound("index", index, size);
+			return read((start + index * stride) * cellBytes);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+}
@@ -0,0 +1,34 @@
+package uk.ac.bris.cs.gamekit.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count that only goes up. Updates do not lock and threads updating at
+ * the same time do not contend on one field.
+ */
+public final class Counter {
+
+	private final LongAdder count = new LongAdder();
+
+	Counter() {}
+
+	public void increment() {
+		count.increment();
+	}
+
+	/**
+	 * @param amount the amount to add, must be &gt;= 0
+	 */
+	public void add(long amount) {
+		if (amount < 0) throw new IllegalArgumentException("amount < 0: " + amount);
+		count.add(amount);
+	}
+
+	/**
+	 * @return the sum of everything added so far
+	 */
+	public long count() {
+		return count.sum();
+	}
+
+}
@@ -0,0 +1,110 @@
+package uk.ac.bris.cs.gamekit.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of non-negative values, e.g. latencies in nanoseconds, with
+ * a fixed relative error and a fixed size. <br>
+ * As in HdrHistogram, values below {@code 2^bits} have a bucket each and
+ * every power of two above is split into {@code 2^bits} equal buckets, so a
+ * percentile is within {@code 2^-bits} of the true value whatever the
+ * range, and recording is one array increment without locks. The default
+ * of 5 bits is within about 3% in under 16 KB.
+ */
+public final class Histogram {
+
+	/**
+	 * The default number of bits of precision
+	 */
+	public static final int DEFAULT_BITS = 5;
+
+	private final int bits;
+	private final int subBuckets;
+	private final AtomicLongArray buckets;
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	Histogram(int bits) {
+		if (bits < 1 || bits > 10) throw new IllegalArgumentException("bits must be 1 to 10");
+		this.bits = bits;
+		this.subBuckets = 1 << bits;
+		// The values below subBuckets, then subBuckets for each power of two
+		// from bits to 62
+		buckets = new AtomicLongArray(subBuckets * (Long.SIZE - bits));
+	}
+
+	private int bucket(long value) {
+		if (value < subBuckets) return (int) value;
+		int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - bits;
+		return subBuckets + shift * subBuckets + (int) ((value >>> shift) & (subBuckets - 1));
+	}
+
+	// The largest value that falls in a bucket
+	private long highest(int bucket) {
+		if (bucket < subBuckets) return bucket;
+		int shift = (bucket - subBuckets) / subBuckets;
+		long sub = (bucket - subBuckets) % subBuckets;
+		return ((subBuckets + sub + 1) << shift) - 1;
+	}
+
+	/**
+	 * @param value the value, negative values are recorded as 0
+	 */
+	public void record(long value) {
+		value = Math.max(0, value);
+		buckets.incrementAndGet(bucket(value));
+		count.increment();
+		sum.add(value);
+		max.accumulate(value);
+	}
+
+	/**
+	 * @return the number of values recorded
+	 */
+	public long count() {
+		return count.sum();
+	}
+
+	/**
+	 * @return the mean of the values, 0 if there are none
+	 */
+	public double mean() {
+		long count = count();
+		return count == 0 ? 0 : (double) sum.sum() / count;
+	}
+
+	/**
+	 * @return the largest value, 0 if there are none
+	 */
+	public long max() {
+		return max.get();
+	}
+
+	/**
+	 * @param percentile the percentile, from 0 to 100
+	 * @return the smallest value that at least that percentage of values
+	 *         are no larger than, to the precision of the buckets; 0 if there
+	 *         are no values
+	 */
+	public long percentile(double percentile) {
+		if (!(percentile >= 0 && percentile <= 100))
+			throw new IllegalArgumentException("percentile must be 0 to 100, got " + percentile);
+		// Sum the buckets once so the total matches what is walked
+		long[] counts = new long[buckets.length()];
+		long total = 0;
+		for (int i = 0; i < counts.length; i++) total += counts[i] = buckets.get(i);
+		if (total == 0) return 0;
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) return Math.min(highest(i), max());
+		}
+		return max();
+	}
+
+}
@@ -0,0 +1,79 @@
+package uk.ac.bris.cs.gamekit.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A count of events and their rate per second over the last minute, e.g.
+ * moves made. <br>
+ * Events are added to the bucket of the current second; the rate is taken
+ * over the whole seconds that have gone by, so it lags by up to a second.
+ * Updates do not lock; an update racing with the start of a new second can
+ * land in the old one, which makes the rate approximate.
+ */
+public final class Meter {
+
+	/**
+	 * The number of seconds the rate is taken over
+	 */
+	public static final int WINDOW_SECONDS = 60;
+
+	private final LongAdder count = new LongAdder();
+	private final AtomicLongArray counts = new AtomicLongArray(WINDOW_SECONDS);
+	private final AtomicLongArray seconds = new AtomicLongArray(WINDOW_SECONDS);
+	private final LongSupplier clock;
+	private final long start;
+
+	Meter(LongSupplier nanoClock) {
+		this.clock = nanoClock;
+		this.start = nanoClock.getAsLong();
+		for (int i = 0; i < WINDOW_SECONDS; i++) seconds.set(i, -1);
+	}
+
+	private long second() {
+		return (clock.getAsLong() - start) / 1_000_000_000L;
+	}
+
+	public void mark() {
+		mark(1);
+	}
+
+	/**
+	 * @param events the number of events, must be &gt;= 0
+	 */
+	public void mark(long events) {
+		if (events < 0) throw new IllegalArgumentException("events < 0: " + events);
+		count.add(events);
+		long second = second();
+		int slot = (int) (second % WINDOW_SECONDS);
+		long stamp = seconds.get(slot);
+		// The first update of a second clears what the slot held a minute ago
+		if (stamp != second && seconds.compareAndSet(slot, stamp, second)) counts.set(slot, 0);
+		counts.addAndGet(slot, events);
+	}
+
+	/**
+	 * @return the number of events so far
+	 */
+	public long count() {
+		return count.sum();
+	}
+
+	/**
+	 * @return the events per second over the whole seconds of the last
+	 *         minute, or of the time since this meter was created if shorter
+	 */
+	public double rate() {
+		long now = second();
+		long span = Math.min(WINDOW_SECONDS, now);
+		if (span == 0) return 0;
+		long sum = 0;
+		for (int slot = 0; slot < WINDOW_SECONDS; slot++) {
+			long second = seconds.get(slot);
+			if (second < now && second >= now - span) sum += counts.get(slot);
+		}
+		return (double) sum / span;
+	}
+
+}
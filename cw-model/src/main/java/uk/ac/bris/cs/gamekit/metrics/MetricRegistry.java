@@ -0,0 +1,229 @@
+package uk.ac.bris.cs.gamekit.metrics;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Named {@link Counter}s, {@link Meter}s, {@link Histogram}s and gauges. <br>
+ * Metrics are created on first use and the same name always gives the same
+ * metric, so callers can keep them in fields. All of them are read through
+ * {@link #snapshot()}, a flat map of numbers where a meter or histogram
+ * adds several entries ({@code name.count}, {@code name.rate},
+ * {@code name.p99} and so on); {@link #register(ObjectName)} publishes that
+ * map as the attributes of an MBean and {@link MetricsServer} as plain text.
+ * The registry is thread safe.
+ */
+public final class MetricRegistry {
+
+	private static final MetricRegistry GLOBAL = new MetricRegistry();
+
+	private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+	private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+	private final Map<String, Object> metrics = new ConcurrentHashMap<>();
+	private final LongSupplier nanoClock;
+
+	public MetricRegistry() {
+		this(System::nanoTime);
+	}
+
+	/**
+	 * @param nanoClock the time in nanoseconds for {@link Meter} rates; not
+	 *        null
+	 */
+	public MetricRegistry(LongSupplier nanoClock) {
+		this.nanoClock = Objects.requireNonNull(nanoClock);
+	}
+
+	/**
+	 * @return the registry the game and AI code record to
+	 */
+	public static MetricRegistry global() {
+		return GLOBAL;
+	}
+
+	private <T> T get(String name, Class<T> type, Supplier<T> create) {
+		Objects.requireNonNull(name);
+		Object metric = metrics.computeIfAbsent(name, n -> create.get());
+		if (!type.isInstance(metric))
+			throw new IllegalArgumentException(name + " is a " + metric.getClass().getSimpleName()
+					+ ", not a " + type.getSimpleName());
+		return type.cast(metric);
+	}
+
+	/**
+	 * @param name the name; not null
+	 * @return the counter with that name
+	 * @throws IllegalArgumentException if the name is used by another kind of
+	 *         metric
+	 */
+	public Counter counter(String name) {
+		return get(name, Counter.class, Counter::new);
+	}
+
+	/**
+	 * @see #counter(String)
+	 */
+	public Meter meter(String name) {
+		return get(name, Meter.class, () -> new Meter(nanoClock));
+	}
+
+	/**
+	 * A histogram with {@link Histogram#DEFAULT_BITS} of precision
+	 *
+	 * @see #counter(String)
+	 */
+	public Histogram histogram(String name) {
+		return get(name, Histogram.class, () -> new Histogram(Histogram.DEFAULT_BITS));
+	}
+
+	/**
+	 * Adds a value read when the metrics are, replacing any gauge of the same
+	 * name
+	 *
+	 * @param name the name; not null
+	 * @param gauge the value; called from any thread, must not block
+	 * @throws IllegalArgumentException if the name is used by another kind of
+	 *         metric
+	 */
+	public void gauge(String name, LongSupplier gauge) {
+		Objects.requireNonNull(gauge);
+		Gauge value = new Gauge(gauge);
+		Object previous = metrics.merge(Objects.requireNonNull(name), value,
+				(old, replacement) -> old instanceof Gauge ? replacement : old);
+		if (previous != value)
+			throw new IllegalArgumentException(name + " is not a gauge");
+	}
+
+	/**
+	 * @return the current value of every metric by name, in name order
+	 */
+	public SortedMap<String, Number> snapshot() {
+		SortedMap<String, Number> values = new TreeMap<>();
+		metrics.forEach((name, metric) -> {
+			if (metric instanceof Counter) {
+				values.put(name, ((Counter) metric).count());
+			} else if (metric instanceof Gauge) {
+				values.put(name, ((Gauge) metric).supplier.getAsLong());
+			} else if (metric instanceof Meter) {
+				Meter meter = (Meter) metric;
+				values.put(name + ".count", meter.count());
+				values.put(name + ".rate", meter.rate());
+			} else {
+				Histogram histogram = (Histogram) metric;
+				values.put(name + ".count", histogram.count());
+				values.put(name + ".mean", histogram.mean());
+				values.put(name + ".max", histogram.max());
+				for (int i = 0; i < PERCENTILES.length; i++)
+					values.put(name + "." + PERCENTILE_NAMES[i],
+							histogram.percentile(PERCENTILES[i]));
+			}
+		});
+		return values;
+	}
+
+	/**
+	 * Writes {@link #snapshot()} as one {@code name value} line per entry
+	 *
+	 * @param out where to write; not null
+	 * @throws IOException if writing fails
+	 */
+	public void writeText(Appendable out) throws IOException {
+		for (Map.Entry<String, Number> entry : snapshot().entrySet())
+			out.append(entry.getKey()).append(' ').append(entry.getValue().toString()).append('\n');
+	}
+
+	/**
+	 * Publishes {@link #snapshot()} as read-only attributes of an MBean on
+	 * the platform MBean server, e.g. for JConsole
+	 *
+	 * @param name the name of the MBean; not null
+	 * @throws IllegalStateException if the name is taken
+	 */
+	public void register(ObjectName name) {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			server.registerMBean(new RegistryMBean(), name);
+		} catch (InstanceAlreadyExistsException e) {
+			throw new IllegalStateException(name + " is already registered", e);
+		} catch (JMException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static final class Gauge {
+
+		final LongSupplier supplier;
+
+		Gauge(LongSupplier supplier) {
+			this.supplier = supplier;
+		}
+	}
+
+	// Attributes are the entries of the snapshot, so new metrics show up
+	// the next time a client asks for the MBeanInfo
+	private final class RegistryMBean implements DynamicMBean {
+
+		@Override
+		public Object getAttribute(String attribute) throws AttributeNotFoundException {
+			Number value = snapshot().get(attribute);
+			if (value == null) throw new AttributeNotFoundException(attribute);
+			return value;
+		}
+
+		@Override
+		public void setAttribute(Attribute attribute) {
+			throw new UnsupportedOperationException("Metrics are read only");
+		}
+
+		@Override
+		public AttributeList getAttributes(String[] attributes) {
+			SortedMap<String, Number> values = snapshot();
+			AttributeList list = new AttributeList();
+			for (String attribute : attributes)
+				if (values.containsKey(attribute))
+					list.add(new Attribute(attribute, values.get(attribute)));
+			return list;
+		}
+
+		@Override
+		public AttributeList setAttributes(AttributeList attributes) {
+			return new AttributeList();
+		}
+
+		@Override
+		public Object invoke(String actionName, Object[] params, String[] signature) {
+			throw new UnsupportedOperationException("No operations");
+		}
+
+		@Override
+		public MBeanInfo getMBeanInfo() {
+			MBeanAttributeInfo[] attributes = snapshot().entrySet().stream()
+					.map(entry -> new MBeanAttributeInfo(entry.getKey(),
+							entry.getValue().getClass().getName(), entry.getKey(),
+							true, false, false))
+					.toArray(MBeanAttributeInfo[]::new);
+			return new MBeanInfo(MetricRegistry.class.getName(), "Game metrics", attributes,
+					null, null, null);
+		}
+	}
+
+}
@@ -0,0 +1,86 @@
+package uk.ac.bris.cs.gamekit.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Serves a {@link MetricRegistry} as plain text on
+ * {@code http://localhost:<port>/metrics}, one {@code name value} line per
+ * entry, for scraping by scripts or monitoring agents. <br>
+ * The server only listens on the loopback address and answers one request
+ * at a time on its own thread.
+ */
+public final class MetricsServer implements Closeable {
+
+	/**
+	 * The path the metrics are served on
+	 */
+	public static final String PATH = "/metrics";
+
+	private final HttpServer server;
+
+	private MetricsServer(HttpServer server) {
+		this.server = server;
+	}
+
+	/**
+	 * Starts serving
+	 *
+	 * @param registry the metrics; not null
+	 * @param port the port, 0 for any free one
+	 * @return the running server; never null
+	 * @throws IOException if the port cannot be bound
+	 */
+	public static MetricsServer start(MetricRegistry registry, int port) throws IOException {
+		Objects.requireNonNull(registry);
+		HttpServer server = HttpServer.create(
+				new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext(PATH, exchange -> respond(registry, exchange));
+		server.start();
+		return new MetricsServer(server);
+	}
+
+	private static void respond(MetricRegistry registry, HttpExchange exchange)
+			throws IOException {
+		try {
+			if (!exchange.getRequestMethod().equals("GET")) {
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+			StringBuilder text = new StringBuilder();
+			registry.writeText(text);
+			byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * @return the port being listened on
+	 */
+	public int port() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Stops serving, waiting for no request
+	 */
+	@Override
+	public void close() {
+		server.stop(0);
+	}
+
+}
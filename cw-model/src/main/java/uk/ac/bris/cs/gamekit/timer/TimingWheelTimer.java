@@ -0,0 +1,317 @@
+package uk.ac.bris.cs.gamekit.timer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link Timer} for many concurrent clocks, built on a hierarchical
+ * timing wheel. <br>
+ * Time advances in ticks of a configurable length. Every level of the wheel
+ * has {@code 2^bits} slots, each slot of a level spanning a whole turn of
+ * the level below; a task sits in the lowest level that can tell its
+ * deadline apart from the current tick and moves down as time passes.
+ * Scheduling and cancelling are O(1) (a doubly linked list per slot) and
+ * advancing a tick only touches the slots that come due. Tasks run no
+ * earlier than asked and at most about one tick late. <br>
+ * One daemon thread advances the wheel and, unless an {@link Executor} is
+ * given, also runs the tasks, so tasks should be short, as with
+ * {@link StandardTimer}. The thread sleeps while no task is scheduled.
+ * {@link #scope()} gives each game its own {@link Timer} on the shared wheel
+ * whose {@link Timer#stopAll()} only cancels that game's tasks. Cancelling
+ * never interrupts a task that is already running.
+ */
+public final class TimingWheelTimer implements Timer, AutoCloseable {
+
+	private final long tickNanos;
+	private final int bits;
+	private final int mask;
+	private final Node[][] wheels; // [level][slot] -> list head
+	private final Executor executor;
+	private final Thread thread;
+	private final long start = System.nanoTime();
+	private long tick; // ticks since start that have been processed
+	private int size;
+	private volatile boolean closed;
+
+	/**
+	 * Creates a timer with 64 slots per level that runs tasks on its own
+	 * thread
+	 *
+	 * @param tick the length of a tick; positive
+	 */
+	public TimingWheelTimer(Duration tick) {
+		this(tick, 6, Runnable::run);
+	}
+
+	/**
+	 * Creates a timer
+	 *
+	 * @param tick the length of a tick; positive
+	 * @param bits log2 of the number of slots per level, from 1 to 16
+	 * @param executor runs the tasks; not null
+	 */
+	public TimingWheelTimer(Duration tick, int bits, Executor executor) {
+		tickNanos = tick.toNanos();
+		if (tickNanos <= 0) throw new IllegalArgumentException("tick must be positive");
+		if (bits < 1 || bits > 16) throw new IllegalArgumentException("bits must be 1 to 16");
+		this.bits = bits;
+		this.mask = (1 << bits) - 1;
+		this.executor = Objects.requireNonNull(executor);
+		// Enough levels to hold any non-negative tick count
+		wheels = new Node[(Long.SIZE - 1 + bits - 1) / bits][1 << bits];
+		for (Node[] wheel : wheels)
+			for (int slot = 0; slot < wheel.length; slot++) wheel[slot] = Node.head();
+		thread = new Thread(this::run, "timing-wheel");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * @return a timer that schedules on this wheel and whose
+	 *         {@link Timer#stopAll()} only cancels its own tasks
+	 */
+	public Timer scope() {
+		return new Scope();
+	}
+
+	@Override
+	public ScheduledFuture<?> schedule(long duration, TimeUnit unit, Runnable runnable) {
+		return schedule(duration, unit, runnable, null);
+	}
+
+	private Task schedule(long duration, TimeUnit unit, Runnable runnable, Scope scope) {
+		Objects.requireNonNull(runnable);
+		if (closed) throw new IllegalStateException("Timer is closed");
+		long elapsed = System.nanoTime() - start;
+		long delay = Math.max(0, unit.toNanos(duration));
+		// Nanos since start, saturated so a huge delay stays effectively never
+		long deadline = delay > Long.MAX_VALUE - elapsed ? Long.MAX_VALUE : elapsed + delay;
+		Task task;
+		boolean wake;
+		synchronized (this) {
+			wake = size == 0;
+			// An idle wheel skips the ticks it slept through
+			if (wake) tick = Math.max(tick, elapsed / tickNanos);
+			// Round up so the task never runs early, and never into a slot
+			// that has already gone by
+			long ticks = Math.max(tick + 1,
+					deadline / tickNanos + (deadline % tickNanos == 0 ? 0 : 1));
+			task = new Task(runnable, deadline, ticks, scope);
+			if (scope != null) scope.tasks.add(task);
+			insert(task);
+			size++;
+		}
+		if (wake) LockSupport.unpark(thread);
+		return task;
+	}
+
+	/**
+	 * Cancels every task of every scope
+	 */
+	@Override
+	public void stopAll() {
+		List<Task> tasks = new ArrayList<>();
+		synchronized (this) {
+			for (Node[] wheel : wheels)
+				for (Node head : wheel)
+					for (Node node = head.next; node != head; node = node.next)
+						tasks.add((Task) node);
+		}
+		tasks.forEach(task -> task.cancel(false));
+	}
+
+	/**
+	 * Cancels every task and stops the thread of this timer
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		stopAll();
+		LockSupport.unpark(thread);
+	}
+
+	// Must hold the lock
+	private void insert(Task task) {
+		int level = 0;
+		while (level < wheels.length - 1
+				&& task.tick >>> (bits * (level + 1)) != tick >>> (bits * (level + 1)))
+			level++;
+		int slot = (int) (task.tick >>> (bits * level)) & mask;
+		task.linkBefore(wheels[level][slot]);
+	}
+
+	private void run() {
+		List<Task> due = new ArrayList<>();
+		while (!closed) {
+			long target = (System.nanoTime() - start) / tickNanos;
+			boolean idle;
+			long next;
+			synchronized (this) {
+				while (tick < target && size > 0) advance(due);
+				idle = size == 0;
+				next = start + (tick + 1) * tickNanos;
+			}
+			for (Task task : due) executor.execute(task::run);
+			due.clear();
+			// Sleep until a task is scheduled or the next tick; schedule
+			// unparks after its insert, so a wakeup is never lost
+			if (idle) LockSupport.park(this);
+			else LockSupport.parkNanos(this, next - System.nanoTime());
+		}
+	}
+
+	// Must hold the lock, moves to the next tick and collects the due tasks
+	private void advance(List<Task> due) {
+		tick++;
+		// Bring down the slots of higher levels whose turn starts now
+		int top = 0;
+		while (top < wheels.length - 1 && (tick & ((1L << (bits * (top + 1))) - 1)) == 0) top++;
+		for (int level = top; level > 0; level--) {
+			Node head = wheels[level][(int) (tick >>> (bits * level)) & mask];
+			while (head.next != head) {
+				Task task = (Task) head.next;
+				task.unlink();
+				insert(task);
+			}
+		}
+		Node head = wheels[0][(int) tick & mask];
+		while (head.next != head) {
+			Task task = (Task) head.next;
+			task.unlink();
+			size--;
+			due.add(task);
+		}
+	}
+
+	// A list node, the head of a slot links to itself when empty
+	private static class Node {
+
+		Node previous;
+		Node next;
+
+		static Node head() {
+			Node head = new Node();
+			head.previous = head;
+			head.next = head;
+			return head;
+		}
+
+		void linkBefore(Node head) {
+			previous = head.previous;
+			next = head;
+			head.previous.next = this;
+			head.previous = this;
+		}
+
+		void unlink() {
+			previous.next = next;
+			next.previous = previous;
+			previous = null;
+			next = null;
+		}
+
+		boolean linked() {
+			return next != null;
+		}
+	}
+
+	private final class Task extends Node implements ScheduledFuture<Void> {
+
+		private final Runnable runnable;
+		private final long deadline; // nanos since the timer started
+		private final long tick;
+		private final Scope scope;
+		private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+		Task(Runnable runnable, long deadline, long tick, Scope scope) {
+			this.runnable = runnable;
+			this.deadline = deadline;
+			this.tick = tick;
+			this.scope = scope;
+		}
+
+		void run() {
+			if (result.isDone()) return;
+			try {
+				runnable.run();
+				result.complete(null);
+			} catch (Throwable e) {
+				result.completeExceptionally(e);
+			} finally {
+				if (scope != null) scope.tasks.remove(this);
+			}
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			synchronized (TimingWheelTimer.this) {
+				if (linked()) {
+					unlink();
+					size--;
+				}
+			}
+			if (scope != null) scope.tasks.remove(this);
+			return result.cancel(false);
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return result.isCancelled();
+		}
+
+		@Override
+		public boolean isDone() {
+			return result.isDone();
+		}
+
+		@Override
+		public Void get() throws InterruptedException, ExecutionException {
+			return result.get();
+		}
+
+		@Override
+		public Void get(long timeout, TimeUnit unit)
+				throws InterruptedException, ExecutionException, TimeoutException {
+			return result.get(timeout, unit);
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(deadline - (System.nanoTime() - start), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed other) {
+			return Long.compare(getDelay(TimeUnit.NANOSECONDS),
+					other.getDelay(TimeUnit.NANOSECONDS));
+		}
+	}
+
+	private final class Scope implements Timer {
+
+		private final Set<Task> tasks = ConcurrentHashMap.newKeySet();
+
+		@Override
+		public ScheduledFuture<?> schedule(long duration, TimeUnit unit, Runnable runnable) {
+			return TimingWheelTimer.this.schedule(duration, unit, runnable, this);
+		}
+
+		@Override
+		public void stopAll() {
+			for (Task task : tasks) task.cancel(false);
+		}
+	}
+
+}
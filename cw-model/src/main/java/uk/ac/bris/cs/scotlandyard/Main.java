@@ -1,7 +1,11 @@
 package uk.ac.bris.cs.scotlandyard;
 
+import java.io.Closeable;
+import java.io.IOException;
+
 import javafx.application.Application;
 import javafx.stage.Stage;
+import uk.ac.bris.cs.scotlandyard.model.ModelMetrics;
 import uk.ac.bris.cs.scotlandyard.ui.Utils;
 import uk.ac.bris.cs.scotlandyard.ui.controller.LocalGame;
 
@@ -19,6 +23,13 @@ public final class Main {
 		}
 	}
 
-	public static void main(String[] args) { JFXApp.launch(JFXApp.class, args); }
+	public static void main(String[] args) throws IOException {
+		Closeable metrics = ModelMetrics.export();
+		try {
+			JFXApp.launch(JFXApp.class, args);
+		} finally {
+			metrics.close();
+		}
+	}
 
 }
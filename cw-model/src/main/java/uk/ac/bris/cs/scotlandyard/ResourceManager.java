@@ -14,7 +14,6 @@ import com.google.common.collect.ImmutableMap;
 import javafx.geometry.Point2D;
 import javafx.scene.image.Image;
 import uk.ac.bris.cs.gamekit.graph.Graph;
-import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
 import uk.ac.bris.cs.scotlandyard.ai.ResourceProvider;
 import uk.ac.bris.cs.scotlandyard.model.StandardGame;
 import uk.ac.bris.cs.scotlandyard.model.Ticket;
@@ -55,7 +54,7 @@ public final class ResourceManager implements ResourceProvider {
 				ticket -> loadImage(format("/tickets/%s.png", ticket.name().toLowerCase())))));
 
 		mapCoordinates = ImmutableMap.copyOf(StandardGame.pngMapPositionEntries());
-		graph = new ImmutableGraph<>(StandardGame.standardGraph());
+		graph = StandardGame.standardGraph();
 	}
 
 	private static Image loadImage(String path) {
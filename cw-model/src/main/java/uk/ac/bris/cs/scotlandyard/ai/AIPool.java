@@ -17,7 +17,16 @@ import java.util.stream.Stream;
 
 import com.google.common.collect.ImmutableSet;
 
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
 import javafx.scene.layout.Pane;
+import uk.ac.bris.cs.gamekit.metrics.Histogram;
+import uk.ac.bris.cs.gamekit.metrics.MetricRegistry;
 import uk.ac.bris.cs.scotlandyard.ResourceManager;
 import uk.ac.bris.cs.scotlandyard.model.Colour;
 import uk.ac.bris.cs.scotlandyard.model.Move;
@@ -35,6 +44,20 @@ import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
  */
 public class AIPool<G> {
 
+	/**
+	 * The {@link MetricRegistry#global()} histogram of the time from asking an
+	 * AI for a move until it is given, in nanoseconds
+	 */
+	public static final String THINK_NANOS = "ai.thinkNanos";
+	/**
+	 * The {@link MetricRegistry#global()} histogram of the time a move request
+	 * waited for a pool thread, in nanoseconds
+	 */
+	public static final String QUEUE_NANOS = "ai.queueNanos";
+
+	static final Histogram THINK_TIMES = MetricRegistry.global().histogram(THINK_NANOS);
+	static final Histogram QUEUE_TIMES = MetricRegistry.global().histogram(QUEUE_NANOS);
+
 	private final VisualiserSurface surface;
 	private final Consumer<Throwable> exceptionHandler;
 	private final Map<G, AIGroup> groups = new HashMap<>();
@@ -141,9 +164,19 @@ public class AIPool<G> {
 				int location,
 				Set<Move> moves,
 				Consumer<Move> callback) {
+			ThinkEvent event = new ThinkEvent();
+			event.begin();
+			long submitted = System.nanoTime();
 			service.submit((Callable<Void>) () -> {
+				long started = System.nanoTime();
+				QUEUE_TIMES.record(started - submitted);
 				try {
-					player.makeMove(view, location, ImmutableSet.copyOf(moves), callback);
+					player.makeMove(view, location, ImmutableSet.copyOf(moves), move -> {
+						event.end();
+						THINK_TIMES.record(System.nanoTime() - submitted);
+						commit(event, move.colour(), started - submitted, moves.size());
+						callback.accept(move);
+					});
 				} catch (Throwable e) {
 					e.printStackTrace();
 					exceptionHandler.accept(e);
@@ -151,6 +184,38 @@ public class AIPool<G> {
 				return null;
 			});
 		}
+
+		private static void commit(ThinkEvent event, Colour colour, long queueWait, int moves) {
+			if (event.shouldCommit()) {
+				event.player = colour.name();
+				event.queueWait = queueWait;
+				event.moves = moves;
+				event.commit();
+			}
+		}
+	}
+
+	/**
+	 * A Java Flight Recorder event from a move being asked of an AI until it
+	 * is given, including the time spent waiting for a thread of the pool
+	 */
+	@Name("uk.ac.bris.cs.scotlandyard.AIThink")
+	@Label("AI Think")
+	@Description("An AI choosing a move, from submission to the pool until the callback")
+	@Category({"Scotland Yard", "AI"})
+	@StackTrace(false)
+	static final class ThinkEvent extends Event {
+
+		@Label("Player")
+		String player;
+
+		@Label("Queue Wait")
+		@Description("Time from submission until a pool thread started the AI")
+		@Timespan(Timespan.NANOSECONDS)
+		long queueWait;
+
+		@Label("Moves")
+		int moves;
 	}
 
 }
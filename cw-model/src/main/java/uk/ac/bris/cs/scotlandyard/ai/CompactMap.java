@@ -0,0 +1,137 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import java.util.Arrays;
+import java.util.List;
+
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.Node;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+/**
+ * An immutable, array backed copy of a Scotland Yard map for search code that
+ * cannot afford to go through {@link Graph} on every step. <br>
+ * Nodes are numbered densely from 0 in ascending order of their values and
+ * the edges of each node are stored contiguously (compressed sparse rows), so
+ * walking the neighbours of a node is a plain array scan.
+ */
+public final class CompactMap {
+
+	private final int[] values; // index -> node value, ascending
+	private final int[] offsets; // edges of node i are [offsets[i], offsets[i + 1])
+	private final int[] targets; // edge -> destination index
+	private final byte[] tickets; // edge -> Ticket.ordinal() needed to travel it
+	private final int maxDegree;
+
+	private CompactMap(int[] values, int[] offsets, int[] targets, byte[] tickets) {
+		this.values = values;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.tickets = tickets;
+		int max = 0;
+		for (int i = 0; i < values.length; i++)
+			max = Math.max(max, offsets[i + 1] - offsets[i]);
+		this.maxDegree = max;
+	}
+
+	/**
+	 * Compacts a map, the graph is only read during this call
+	 *
+	 * @param graph the map; not null
+	 * @return the compacted map; never null
+	 */
+	public static CompactMap of(Graph<Integer, Transport> graph) {
+		List<Node<Integer>> nodes = graph.getNodes();
+		int[] values = new int[nodes.size()];
+		for (int i = 0; i < values.length; i++) values[i] = nodes.get(i).value();
+		Arrays.sort(values);
+
+		int[] offsets = new int[values.length + 1];
+		int edgeCount = 0;
+		for (int i = 0; i < values.length; i++) {
+			offsets[i] = edgeCount;
+			edgeCount += graph.getEdgesFrom(graph.getNode(values[i])).size();
+		}
+		offsets[values.length] = edgeCount;
+
+		int[] targets = new int[edgeCount];
+		byte[] tickets = new byte[edgeCount];
+		int edge = 0;
+		for (int value : values) {
+			for (Edge<Integer, Transport> e : graph.getEdgesFrom(graph.getNode(value))) {
+				targets[edge] = Arrays.binarySearch(values, e.destination().value());
+				tickets[edge] = (byte) Ticket.fromTransport(e.data()).ordinal();
+				edge++;
+			}
+		}
+		return new CompactMap(values, offsets, targets, tickets);
+	}
+
+	/**
+	 * @return the number of nodes
+	 */
+	public int size() {
+		return values.length;
+	}
+
+	/**
+	 * @return the largest number of edges leaving a single node
+	 */
+	public int maxDegree() {
+		return maxDegree;
+	}
+
+	/**
+	 * @param index a node index
+	 * @return the value of the node, i.e the location on the board
+	 */
+	public int value(int index) {
+		return values[index];
+	}
+
+	/**
+	 * @param value a location on the board
+	 * @return the index of the node, or a negative number if the map has no
+	 *         such node
+	 */
+	public int indexOf(int value) {
+		int index = Arrays.binarySearch(values, value);
+		return index < 0 ? -1 : index;
+	}
+
+	/**
+	 * @param index a node index
+	 * @return the first edge leaving the node
+	 */
+	public int edgeStart(int index) {
+		return offsets[index];
+	}
+
+	/**
+	 * @param index a node index
+	 * @return one past the last edge leaving the node
+	 */
+	public int edgeEnd(int index) {
+		return offsets[index + 1];
+	}
+
+	/**
+	 * @param edge an edge between {@link #edgeStart(int)} and
+	 *        {@link #edgeEnd(int)}
+	 * @return the index of the node the edge leads to
+	 */
+	public int target(int edge) {
+		return targets[edge];
+	}
+
+	/**
+	 * @param edge an edge between {@link #edgeStart(int)} and
+	 *        {@link #edgeEnd(int)}
+	 * @return the {@link Ticket#ordinal()} of the ticket needed for the edge
+	 */
+	public int ticket(int edge) {
+		return tickets[edge];
+	}
+
+}
@@ -0,0 +1,459 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.List;
+import java.util.Map;
+
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.GameSnapshot;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.PassMove;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.TicketMove;
+
+/**
+ * A mutable, allocation free copy of a game's full state on a
+ * {@link CompactMap}, following the same rules as {@link ScotlandYardModel}
+ * but without players, spectators or {@code Set<Move>}s. <br>
+ * Moves are encoded as {@code long}s and written into caller supplied buffers,
+ * see {@link #generateMoves(long[])}; use {@link #toMove(long)} to turn one
+ * back into a {@link Move}. Locations are node indices of the map, not board
+ * locations. <br>
+ * Instances are not thread safe, give each thread its own {@link #copy()}.
+ */
+public final class CompactState {
+
+	/**
+	 * Who has won the game, if anyone
+	 */
+	public enum Outcome {
+		NONE, MR_X, DETECTIVES
+	}
+
+	/**
+	 * Number of ticket types, tickets are indexed by {@link Ticket#ordinal()}
+	 */
+	public static final int TICKETS = Ticket.values().length;
+
+	/**
+	 * The encoded move of a detective that cannot move
+	 */
+	public static final long PASS = 7;
+
+	private static final int DOUBLE = Ticket.DOUBLE.ordinal();
+	private static final int SECRET = Ticket.SECRET.ordinal();
+	private static final Ticket[] TICKET_VALUES = Ticket.values();
+
+	private final CompactMap map;
+	private final boolean[] rounds;
+	private final Colour[] colours;
+	private final int[] locations; // node index per player, Mr X first
+	private final int[] tickets; // player * TICKETS + ticket ordinal
+	private int round;
+	private int current;
+	private boolean roundFinished;
+	private int revealedLocation; // board location, 0 if never revealed
+
+	private CompactState(CompactMap map, boolean[] rounds, Colour[] colours) {
+		this.map = map;
+		this.rounds = rounds;
+		this.colours = colours;
+		this.locations = new int[colours.length];
+		this.tickets = new int[colours.length * TICKETS];
+	}
+
+	/**
+	 * Creates a state from a snapshot, which includes Mr X's actual location
+	 *
+	 * @param map the map the game is played on; not null
+	 * @param snapshot the game; not null
+	 * @return a new state; never null
+	 */
+	public static CompactState of(CompactMap map, GameSnapshot snapshot) {
+		List<Colour> players = snapshot.players();
+		CompactState state = new CompactState(requireNonNull(map), rounds(snapshot.rounds()),
+				players.toArray(new Colour[0]));
+		for (int i = 0; i < players.size(); i++) {
+			Colour colour = players.get(i);
+			state.locations[i] = state.indexOf(snapshot.location(colour));
+			for (Ticket ticket : TICKET_VALUES)
+				state.tickets[i * TICKETS + ticket.ordinal()] = snapshot.tickets(colour).get(ticket);
+		}
+		state.round = snapshot.currentRound();
+		state.current = players.indexOf(snapshot.currentPlayer());
+		state.revealedLocation = snapshot.revealedLocation();
+		state.roundFinished = state.current == 0 && state.round != ScotlandYardView.NOT_STARTED;
+		return state;
+	}
+
+	/**
+	 * Creates a state from what a player can see, with Mr X placed on an
+	 * assumed location; this is what a detective would use to evaluate one of
+	 * the places Mr X could be.
+	 *
+	 * @param map the map the game is played on; not null
+	 * @param view the game; not null
+	 * @param mrXLocation where Mr X is assumed to be
+	 * @return a new state; never null
+	 */
+	public static CompactState of(CompactMap map, ScotlandYardView view, int mrXLocation) {
+		List<Colour> players = view.getPlayers();
+		CompactState state = new CompactState(requireNonNull(map), rounds(view.getRounds()),
+				players.toArray(new Colour[0]));
+		for (int i = 0; i < players.size(); i++) {
+			Colour colour = players.get(i);
+			state.locations[i] = state.indexOf(
+					i == 0 ? mrXLocation : view.getPlayerLocation(colour).orElse(0));
+			for (Ticket ticket : TICKET_VALUES)
+				state.tickets[i * TICKETS + ticket.ordinal()] = view.getPlayerTickets(colour, ticket)
+						.orElse(0);
+		}
+		state.round = view.getCurrentRound();
+		state.current = players.indexOf(view.getCurrentPlayer());
+		state.revealedLocation = view.getPlayerLocation(Colour.BLACK).orElse(0);
+		state.roundFinished = state.current == 0 && state.round != ScotlandYardView.NOT_STARTED;
+		return state;
+	}
+
+	/**
+	 * Creates a state for a game that has not started yet
+	 *
+	 * @param map the map the game is played on; not null
+	 * @param rounds the reveal rounds; not null
+	 * @param colours the players in order of play, Mr X first; not null
+	 * @param locations the start location of each player; not null
+	 * @param tickets the tickets of each player; not null
+	 * @return a new state; never null
+	 */
+	public static CompactState of(CompactMap map, List<Boolean> rounds, List<Colour> colours,
+			List<Integer> locations, List<? extends Map<Ticket, Integer>> tickets) {
+		if (colours.isEmpty() || colours.get(0).isDetective())
+			throw new IllegalArgumentException("Mr X must be the first player");
+		if (locations.size() != colours.size() || tickets.size() != colours.size())
+			throw new IllegalArgumentException("Player state does not match player count");
+		CompactState state = new CompactState(requireNonNull(map), rounds(rounds),
+				colours.toArray(new Colour[0]));
+		for (int i = 0; i < colours.size(); i++) {
+			state.locations[i] = state.indexOf(locations.get(i));
+			for (Ticket ticket : TICKET_VALUES)
+				state.tickets[i * TICKETS + ticket.ordinal()] = tickets.get(i).getOrDefault(ticket, 0);
+		}
+		return state;
+	}
+
+	private static boolean[] rounds(List<Boolean> rounds) {
+		boolean[] array = new boolean[rounds.size()];
+		for (int i = 0; i < array.length; i++) array[i] = rounds.get(i);
+		return array;
+	}
+
+	private int indexOf(int location) {
+		int index = map.indexOf(location);
+		if (index < 0) throw new IllegalArgumentException("Location " + location + " is not on the map");
+		return index;
+	}
+
+	/**
+	 * @return an independent copy of this state sharing the same map
+	 */
+	public CompactState copy() {
+		CompactState copy = new CompactState(map, rounds, colours);
+		copy.copyFrom(this);
+		return copy;
+	}
+
+	/**
+	 * Overwrites this state with another one of the same game without
+	 * allocating
+	 *
+	 * @param that the state to copy; not null, must have the same players
+	 */
+	public void copyFrom(CompactState that) {
+		if (that.colours.length != colours.length)
+			throw new IllegalArgumentException("States are not from the same game");
+		System.arraycopy(that.locations, 0, locations, 0, locations.length);
+		System.arraycopy(that.tickets, 0, tickets, 0, tickets.length);
+		round = that.round;
+		current = that.current;
+		roundFinished = that.roundFinished;
+		revealedLocation = that.revealedLocation;
+	}
+
+	// A copy with player i taken from player order[i], see DetectiveSymmetry
+	CompactState permute(int[] order) {
+		if (order.length != colours.length || order[0] != 0 || order[current] != current)
+			throw new IllegalArgumentException("Order must keep Mr X and the current player");
+		Colour[] permuted = new Colour[colours.length];
+		for (int i = 0; i < order.length; i++) permuted[i] = colours[order[i]];
+		CompactState copy = new CompactState(map, rounds, permuted);
+		copy.copyFrom(this);
+		for (int i = 0; i < order.length; i++) {
+			copy.locations[i] = locations[order[i]];
+			System.arraycopy(tickets, order[i] * TICKETS, copy.tickets, i * TICKETS, TICKETS);
+		}
+		return copy;
+	}
+
+	public CompactMap map() {
+		return map;
+	}
+
+	/**
+	 * @return the number of players, Mr X is player 0
+	 */
+	public int players() {
+		return colours.length;
+	}
+
+	public Colour colour(int player) {
+		return colours[player];
+	}
+
+	/**
+	 * @return the player to move next
+	 */
+	public int currentPlayer() {
+		return current;
+	}
+
+	/**
+	 * @return the current round, see {@link ScotlandYardView#getCurrentRound()}
+	 */
+	public int round() {
+		return round;
+	}
+
+	/**
+	 * @return the total number of rounds
+	 */
+	public int rounds() {
+		return rounds.length;
+	}
+
+	/**
+	 * @param round a round, counting from 0
+	 * @return whether Mr X is revealed after his move in that round
+	 */
+	public boolean isRevealRound(int round) {
+		return rounds[round];
+	}
+
+	/**
+	 * @return the node index of the player
+	 */
+	public int location(int player) {
+		return locations[player];
+	}
+
+	/**
+	 * Moves a player without playing a move, e.g. to place Mr X on one of
+	 * the locations he might be at
+	 *
+	 * @param player the player
+	 * @param node the node index to place the player on
+	 */
+	public void relocate(int player, int node) {
+		if (node < 0 || node >= map.size()) throw new IllegalArgumentException("No node " + node);
+		locations[player] = node;
+	}
+
+	public int tickets(int player, int ticket) {
+		return tickets[player * TICKETS + ticket];
+	}
+
+	/**
+	 * @return the last revealed board location of Mr X or 0 if he has not been
+	 *         revealed yet
+	 */
+	public int revealedLocation() {
+		return revealedLocation;
+	}
+
+	/**
+	 * @return the size a buffer passed to {@link #generateMoves(long[])} needs
+	 *         to have to hold the moves of any position on this map
+	 */
+	public int maxMoves() {
+		int singles = 2 * map.maxDegree();
+		return singles + singles * singles;
+	}
+
+	/**
+	 * Writes the valid moves of the current player into a buffer, the same
+	 * moves {@link ScotlandYardModel} would offer in this position
+	 *
+	 * @param out the buffer; at least {@link #maxMoves()} long
+	 * @return the number of moves written, 0 only if Mr X cannot move
+	 */
+	public int generateMoves(long[] out) {
+		int player = current;
+		int count = singleMoves(player, locations[player], out, 0);
+		if (player == 0) {
+			if (round != rounds.length - 1 && tickets[DOUBLE] > 0) count = doubleMoves(out, count);
+		} else if (count == 0) {
+			out[0] = PASS;
+			count = 1;
+		}
+		return count;
+	}
+
+	private int singleMoves(int player, int from, long[] out, int start) {
+		int end = start;
+		int base = player * TICKETS;
+		for (int edge = map.edgeStart(from); edge < map.edgeEnd(from); edge++) {
+			int to = map.target(edge);
+			if (occupied(to, player)) continue;
+			int ticket = map.ticket(edge);
+			if (tickets[base + ticket] > 0) end = addUnique(out, start, end, single(ticket, to));
+			if (tickets[base + SECRET] > 0) end = addUnique(out, start, end, single(SECRET, to));
+		}
+		return end;
+	}
+
+	private static int addUnique(long[] out, int start, int end, long move) {
+		for (int i = start; i < end; i++) if (out[i] == move) return end;
+		out[end] = move;
+		return end + 1;
+	}
+
+	private boolean occupied(int node, int player) {
+		for (int i = 1; i < locations.length; i++)
+			if (i != player && locations[i] == node) return true;
+		return false;
+	}
+
+	// Appends double moves after the single ones, second moves are generated
+	// into the free part of the buffer and compacted in place
+	private int doubleMoves(long[] out, int singles) {
+		int end = singles;
+		for (int i = 0; i < singles; i++) {
+			long first = out[i];
+			int firstTicket = firstTicket(first);
+			int seconds = singleMoves(0, firstTarget(first), out, end);
+			for (int j = end; j < seconds; j++) {
+				int secondTicket = firstTicket(out[j]);
+				int needed = firstTicket == secondTicket ? 2 : 1;
+				if (tickets[secondTicket] >= needed) out[end++] = first | (out[j] + 1) << 32;
+			}
+		}
+		return end;
+	}
+
+	/**
+	 * @return whether Mr X has at least one valid move
+	 */
+	public boolean mrXCanMove() {
+		int from = locations[0];
+		for (int edge = map.edgeStart(from); edge < map.edgeEnd(from); edge++) {
+			if (occupied(map.target(edge), 0)) continue;
+			if (tickets[map.ticket(edge)] > 0 || tickets[SECRET] > 0) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Plays a move for the current player; the move is not checked
+	 *
+	 * @param move one of the moves from {@link #generateMoves(long[])}
+	 */
+	public void apply(long move) {
+		int player = current;
+		if (move != PASS) {
+			if (isDouble(move)) {
+				tickets[DOUBLE]--;
+				travel(player, firstTicket(move), firstTarget(move));
+				travel(player, secondTicket(move), secondTarget(move));
+			} else travel(player, firstTicket(move), firstTarget(move));
+		}
+		if (++current == colours.length) {
+			current = 0;
+			roundFinished = true;
+		} else roundFinished = false;
+	}
+
+	private void travel(int player, int ticket, int to) {
+		tickets[player * TICKETS + ticket]--;
+		locations[player] = to;
+		if (player == 0) {
+			if (rounds[round]) revealedLocation = map.value(to);
+			round++;
+		} else tickets[ticket]++; // detectives hand their tickets to Mr X
+	}
+
+	/**
+	 * @return the winner, checked in the same order as
+	 *         {@link ScotlandYardModel#getWinningPlayers()}
+	 */
+	public Outcome outcome() {
+		if (roundFinished && !mrXCanMove()) return Outcome.DETECTIVES;
+		if (roundFinished && round == rounds.length) return Outcome.MR_X;
+		int mrX = locations[0];
+		boolean hasTickets = false;
+		for (int i = 1; i < locations.length; i++) {
+			if (locations[i] == mrX) return Outcome.DETECTIVES;
+			for (int t = 0; t < TICKETS; t++) hasTickets |= tickets[i * TICKETS + t] != 0;
+		}
+		return hasTickets ? Outcome.NONE : Outcome.MR_X;
+	}
+
+	/**
+	 * Decodes a move into one the model would accept
+	 *
+	 * @param move an encoded move of the current player
+	 * @return the move; never null
+	 */
+	public Move toMove(long move) {
+		Colour colour = colours[current];
+		if (move == PASS) return new PassMove(colour);
+		TicketMove first = new TicketMove(colour, TICKET_VALUES[firstTicket(move)],
+				map.value(firstTarget(move)));
+		if (!isDouble(move)) return first;
+		return new DoubleMove(colour, first, new TicketMove(colour,
+				TICKET_VALUES[secondTicket(move)], map.value(secondTarget(move))));
+	}
+
+	/**
+	 * Encodes a single ticket move
+	 *
+	 * @param ticket the {@link Ticket#ordinal()}
+	 * @param to the node index of the destination
+	 * @return the encoded move
+	 */
+	public static long single(int ticket, int to) {
+		return (long) to << 3 | ticket;
+	}
+
+	public static boolean isDouble(long move) {
+		return move >>> 32 != 0;
+	}
+
+	public static int firstTicket(long move) {
+		return (int) (move & 7);
+	}
+
+	public static int firstTarget(long move) {
+		return (int) (move & 0xFFFFFFFFL) >>> 3;
+	}
+
+	public static int secondTicket(long move) {
+		return (int) ((move >>> 32) - 1) & 7;
+	}
+
+	public static int secondTarget(long move) {
+		return (int) ((move >>> 32) - 1) >>> 3;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("CompactState{round=").append(round)
+				.append(", current=").append(colours[current]);
+		for (int i = 0; i < colours.length; i++)
+			sb.append(", ").append(colours[i]).append('@').append(map.value(locations[i]));
+		return sb.append('}').toString();
+	}
+
+}
@@ -0,0 +1,191 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import static uk.ac.bris.cs.scotlandyard.ai.CompactState.TICKETS;
+
+/**
+ * Maps a position to a canonical ordering of its detectives. Detectives with
+ * identical tickets are interchangeable, so positions that only differ in
+ * which of them stands where get the same canonical form and can share a
+ * cache entry; with five equal detectives that is up to 5! positions. <br>
+ * Mr X and the player to move keep their place, and detectives only swap with
+ * detectives on the same side of the player to move, so the canonical
+ * position has the same player to move and the same detectives still to move
+ * this round. This ignores that the order two such detectives move in decides
+ * which of them may step onto the other's node; for search purposes the
+ * positions are treated as equal anyway. <br>
+ * Canonical slot {@code k} holds player {@link #player(int) player(k)}, slots
+ * are ordered by location within each group of equal detectives.
+ */
+public final class DetectiveSymmetry {
+
+	private final int[] players; // canonical slot -> player
+	private final int[] slots; // player -> canonical slot
+
+	private DetectiveSymmetry(int[] players) {
+		this.players = players;
+		this.slots = new int[players.length];
+		for (int slot = 0; slot < players.length; slot++) slots[players[slot]] = slot;
+	}
+
+	/**
+	 * @param state the position; not null
+	 * @return the canonical ordering of the position; never null
+	 */
+	public static DetectiveSymmetry of(CompactState state) {
+		int[] locations = new int[state.players()];
+		int[] tickets = new int[state.players() * TICKETS];
+		for (int player = 0; player < locations.length; player++) {
+			locations[player] = state.location(player);
+			for (int ticket = 0; ticket < TICKETS; ticket++)
+				tickets[player * TICKETS + ticket] = state.tickets(player, ticket);
+		}
+		return of(state.currentPlayer(), locations, tickets);
+	}
+
+	/**
+	 * @param current the player to move, 0 for Mr X
+	 * @param locations the location of each player, Mr X first; not null
+	 * @param tickets the tickets of each player, laid out as
+	 *        {@code player * CompactState.TICKETS + ticket ordinal}; not null
+	 * @return the canonical ordering of the position; never null
+	 */
+	public static DetectiveSymmetry of(int current, int[] locations, int[] tickets) {
+		int count = locations.length;
+		if (tickets.length != count * TICKETS)
+			throw new IllegalArgumentException("Tickets do not match player count");
+		if (current < 0 || current >= count)
+			throw new IllegalArgumentException("No player " + current);
+		int[] players = new int[count];
+		for (int player = 0; player < count; player++) players[player] = player;
+		if (current == 0) {
+			canonicalise(players, 1, count, locations, tickets);
+		} else {
+			canonicalise(players, 1, current, locations, tickets);
+			canonicalise(players, current + 1, count, locations, tickets);
+		}
+		return new DetectiveSymmetry(players);
+	}
+
+	// Sorts each group of equal detectives in [from, to) by location, in the
+	// slots the group already occupies
+	private static void canonicalise(int[] players, int from, int to, int[] locations,
+			int[] tickets) {
+		boolean[] done = new boolean[to];
+		int[] group = new int[to - from];
+		for (int slot = from; slot < to; slot++) {
+			if (done[slot]) continue;
+			int size = 0;
+			for (int other = slot; other < to; other++) {
+				if (!done[other] && sameTickets(tickets, slot, other)) {
+					done[other] = true;
+					group[size++] = other;
+				}
+			}
+			// Insertion sort of the players, their slots stay in order
+			for (int i = 1; i < size; i++) {
+				int player = players[group[i]];
+				int j = i - 1;
+				while (j >= 0 && before(locations, player, players[group[j]])) {
+					players[group[j + 1]] = players[group[j]];
+					j--;
+				}
+				players[group[j + 1]] = player;
+			}
+		}
+	}
+
+	private static boolean sameTickets(int[] tickets, int a, int b) {
+		for (int ticket = 0; ticket < TICKETS; ticket++)
+			if (tickets[a * TICKETS + ticket] != tickets[b * TICKETS + ticket]) return false;
+		return true;
+	}
+
+	private static boolean before(int[] locations, int a, int b) {
+		return locations[a] < locations[b] || (locations[a] == locations[b] && a < b);
+	}
+
+	/**
+	 * @return whether the position already is in canonical order
+	 */
+	public boolean isIdentity() {
+		for (int slot = 0; slot < players.length; slot++) if (players[slot] != slot) return false;
+		return true;
+	}
+
+	/**
+	 * @param slot a canonical slot
+	 * @return the player in that slot
+	 */
+	public int player(int slot) {
+		return players[slot];
+	}
+
+	/**
+	 * @param player a player
+	 * @return the canonical slot of the player
+	 */
+	public int slot(int player) {
+		return slots[player];
+	}
+
+	/**
+	 * Reorders a position into canonical order; colours move with their
+	 * players
+	 *
+	 * @param state the position this symmetry was made for; not null, not
+	 *        modified
+	 * @return a new state in canonical order; never null
+	 */
+	public CompactState canonical(CompactState state) {
+		return state.permute(players);
+	}
+
+	/**
+	 * Reorders a canonical position back into the original order
+	 *
+	 * @param canonical a position returned by {@link #canonical(CompactState)}
+	 *        or reached from it by the same moves; not null, not modified
+	 * @return a new state in the original order; never null
+	 */
+	public CompactState original(CompactState canonical) {
+		return canonical.permute(slots);
+	}
+
+	/**
+	 * Maps joint moves, e.g. from {@link JointMoves}, to the canonical order
+	 *
+	 * @param moves the moves of players {@code first} onwards in the original
+	 *        order; not null
+	 * @param first the player making the first move, the player to move
+	 * @return the same moves, element i is the move of slot {@code first + i}
+	 */
+	public long[] toCanonical(long[] moves, int first) {
+		return remap(moves, first, slots);
+	}
+
+	/**
+	 * Maps joint moves from the canonical order back to the original order
+	 *
+	 * @param moves the moves of slots {@code first} onwards; not null
+	 * @param first the slot making the first move, the player to move
+	 * @return the same moves, element i is the move of player
+	 *         {@code first + i}
+	 */
+	public long[] fromCanonical(long[] moves, int first) {
+		return remap(moves, first, players);
+	}
+
+	private static long[] remap(long[] moves, int first, int[] mapping) {
+		if (first + moves.length > mapping.length)
+			throw new IllegalArgumentException("More moves than players");
+		long[] mapped = new long[moves.length];
+		for (int i = 0; i < moves.length; i++) {
+			int target = mapping[first + i] - first;
+			if (target < 0 || target >= moves.length)
+				throw new IllegalArgumentException("Moves do not cover a whole side of the round");
+			mapped[target] = moves[i];
+		}
+		return mapped;
+	}
+
+}
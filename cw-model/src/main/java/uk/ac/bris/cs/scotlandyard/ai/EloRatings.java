@@ -0,0 +1,127 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import java.util.Arrays;
+
+/**
+ * Elo ratings from game results between a fixed set of players, indexed from
+ * 0. Two estimates are kept:
+ * <ul>
+ * <li>{@link #elo()}: classic incremental Elo, updated game by game in the
+ * order results are added</li>
+ * <li>{@link #bayesElo()}: the maximum a posteriori Bradley-Terry ratings of
+ * all results, as BayesElo computes them; a prior of virtual games against an
+ * opponent rated 0 keeps ratings finite for players that won or lost
+ * everything, and the result does not depend on the order of the games</li>
+ * </ul>
+ * Both are centred so that the mean rating is 0.
+ */
+public final class EloRatings {
+
+	private static final int MAX_ITERATIONS = 10_000;
+	private static final double TOLERANCE = 1e-9;
+
+	private final int players;
+	private final double k;
+	private final double prior;
+	private final double[] elo;
+	private final int[][] wins; // wins[winner][loser]
+
+	/**
+	 * @param players the number of players; at least 1
+	 * @param k the factor of the incremental updates, e.g. 16
+	 * @param prior the number of virtual games, half of them won, each player
+	 *        has against a player rated 0, e.g. 2; greater than 0
+	 */
+	public EloRatings(int players, double k, double prior) {
+		if (players < 1) throw new IllegalArgumentException("players < 1");
+		if (!(prior > 0)) throw new IllegalArgumentException("prior <= 0");
+		this.players = players;
+		this.k = k;
+		this.prior = prior;
+		this.elo = new double[players];
+		this.wins = new int[players][players];
+	}
+
+	/**
+	 * @param difference the rating difference of a player to its opponent
+	 * @return the expected score of the player
+	 */
+	public static double expectedScore(double difference) {
+		return 1 / (1 + Math.pow(10, -difference / 400));
+	}
+
+	/**
+	 * @param score the score of a player, in (0, 1)
+	 * @return the rating difference that gives the score
+	 */
+	public static double difference(double score) {
+		return -400 * Math.log10(1 / score - 1);
+	}
+
+	/**
+	 * Adds the result of a game
+	 *
+	 * @param winner the player who won
+	 * @param loser the player who lost; not the winner
+	 */
+	public void add(int winner, int loser) {
+		if (winner == loser) throw new IllegalArgumentException("A player cannot beat itself");
+		double change = k * (1 - expectedScore(elo[winner] - elo[loser]));
+		elo[winner] += change;
+		elo[loser] -= change;
+		wins[winner][loser]++;
+	}
+
+	/**
+	 * @return the incremental ratings; a new array
+	 */
+	public double[] elo() {
+		return elo.clone();
+	}
+
+	/**
+	 * @return the number of games the first player won against the second
+	 */
+	public int wins(int winner, int loser) {
+		return wins[winner][loser];
+	}
+
+	/**
+	 * @return the Bradley-Terry ratings of all results so far; a new array
+	 */
+	public double[] bayesElo() {
+		// Minorisation-maximisation (Hunter 2004) on strengths gamma = 10^(elo/400)
+		double[] gamma = new double[players];
+		Arrays.fill(gamma, 1);
+		double[] won = new double[players];
+		for (int i = 0; i < players; i++) {
+			won[i] = prior / 2;
+			for (int j = 0; j < players; j++) won[i] += wins[i][j];
+		}
+		double[] next = new double[players];
+		for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+			double change = 0;
+			for (int i = 0; i < players; i++) {
+				double denominator = prior / (gamma[i] + 1);
+				for (int j = 0; j < players; j++) {
+					int games = wins[i][j] + wins[j][i];
+					if (games != 0) denominator += games / (gamma[i] + gamma[j]);
+				}
+				next[i] = denominator == 0 ? gamma[i] : won[i] / denominator;
+				change = Math.max(change, Math.abs(Math.log(next[i] / gamma[i])));
+			}
+			System.arraycopy(next, 0, gamma, 0, players);
+			if (change < TOLERANCE) break;
+		}
+		double[] ratings = new double[players];
+		for (int i = 0; i < players; i++) ratings[i] = 400 * Math.log10(gamma[i]);
+		return centred(ratings);
+	}
+
+	private static double[] centred(double[] ratings) {
+		double mean = Arrays.stream(ratings).average().orElse(0);
+		for (int i = 0; i < ratings.length; i++) ratings[i] -= mean;
+		return ratings;
+	}
+
+}
@@ -0,0 +1,224 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import javafx.geometry.Point2D;
+import javafx.scene.image.Image;
+import javafx.scene.layout.Pane;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.ai.CompactState.Outcome;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.ModelMetrics;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+/**
+ * Plays complete games between two AIs without a UI, one AI playing Mr X and
+ * the other all detectives. <br>
+ * Every game gets fresh {@link PlayerFactory} instances and starts from the
+ * standard locations for its seed. The game runs on the calling thread and
+ * asks for each move on a thread of its own, waiting at most the move timeout
+ * for it; a side that throws, makes an invalid move or exceeds the move
+ * timeout forfeits the game, even if its player never returns.
+ */
+public final class HeadlessGame {
+
+	private final Graph<Integer, Transport> graph;
+	private final List<Boolean> rounds;
+	private final List<Colour> detectives;
+	private final long timeoutNanos;
+	private final ResourceProvider provider;
+
+	/**
+	 * @param graph the map; not null
+	 * @param rounds the reveal rounds; not null
+	 * @param detectives the detectives in order of play; not empty
+	 * @param moveTimeout how long a player may think about a move; not null
+	 * @param provider the resources handed to the AIs, or null for a provider
+	 *        that only has the graph
+	 */
+	public HeadlessGame(Graph<Integer, Transport> graph, List<Boolean> rounds,
+			List<Colour> detectives, Duration moveTimeout, ResourceProvider provider) {
+		this.graph = requireNonNull(graph);
+		this.rounds = requireNonNull(rounds);
+		if (detectives.isEmpty()) throw new IllegalArgumentException("No detectives");
+		if (detectives.stream().anyMatch(Colour::isMrX))
+			throw new IllegalArgumentException("Mr X is not a detective");
+		this.detectives = new ArrayList<>(detectives);
+		this.timeoutNanos = moveTimeout.toNanos();
+		this.provider = provider == null ? new GraphOnly(graph) : provider;
+	}
+
+	/**
+	 * Plays one game to the end
+	 *
+	 * @param mrX the AI playing Mr X; not null
+	 * @param detectives the AI playing all detectives; not null
+	 * @param seed picks the start locations, see
+	 *        {@link StandardGame#generateDetectiveLocations(int, int)}
+	 * @return the winning side; never {@link Outcome#NONE}
+	 */
+	public Outcome play(AI mrX, AI detectives, int seed) {
+		PlayerFactory mrXFactory = mrX.instantiate();
+		PlayerFactory detectiveFactory = detectives.instantiate();
+		// Daemon, so a player that ignores the interrupt cannot keep the JVM alive
+		ExecutorService thinking = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "headless-player");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			List<Integer> locations = StandardGame.generateDetectiveLocations(seed,
+					this.detectives.size());
+			PlayerConfiguration mrXConfiguration = configure(mrXFactory, thinking, Colour.BLACK,
+					StandardGame.generateMrXLocation(seed), StandardGame.generateMrXTickets());
+			PlayerConfiguration[] detectiveConfigurations =
+					new PlayerConfiguration[this.detectives.size()];
+			for (int i = 0; i < detectiveConfigurations.length; i++) {
+				detectiveConfigurations[i] = configure(detectiveFactory, thinking,
+						this.detectives.get(i), locations.get(i),
+						StandardGame.generateDetectiveTickets());
+			}
+			ScotlandYardModel model = new ScotlandYardModel(rounds, graph, mrXConfiguration,
+					detectiveConfigurations[0], Arrays.copyOfRange(detectiveConfigurations, 1,
+							detectiveConfigurations.length));
+			start(mrXFactory, model);
+			start(detectiveFactory, model);
+			while (!model.isGameOver()) model.startRotate();
+			return model.getWinningPlayers().contains(Colour.BLACK) ? Outcome.MR_X
+					: Outcome.DETECTIVES;
+		} catch (Forfeit forfeit) {
+			ModelMetrics.abandoned();
+			return forfeit.colour.isMrX() ? Outcome.DETECTIVES : Outcome.MR_X;
+		} finally {
+			thinking.shutdownNow();
+			mrXFactory.finish();
+			detectiveFactory.finish();
+		}
+	}
+
+	private PlayerConfiguration configure(PlayerFactory factory, ExecutorService thinking,
+			Colour colour, int location, Map<Ticket, Integer> tickets) {
+		Player player = new Waiting(colour, factory.createPlayer(colour), thinking,
+				timeoutNanos);
+		return new PlayerConfiguration.Builder(colour).using(player).with(tickets).at(location)
+				.build();
+	}
+
+	private void start(PlayerFactory factory, ScotlandYardModel model) {
+		factory.createSpectators(model).forEach(model::registerSpectator);
+		Pane[] surface = new Pane[1];
+		factory.ready(() -> {
+			if (surface[0] == null) surface[0] = new Pane();
+			return surface[0];
+		}, provider);
+	}
+
+	// Thrown through the model to end a game lost by a misbehaving player
+	private static final class Forfeit extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		final Colour colour;
+
+		Forfeit(Colour colour, String reason, Throwable cause) {
+			super(colour + " forfeits: " + reason, cause, false, false);
+			this.colour = colour;
+		}
+	}
+
+	// Asks the player for a move off the game thread and waits for it before handing it to
+	// the model
+	private static final class Waiting implements Player {
+
+		private final Colour colour;
+		private final Player player;
+		private final ExecutorService thinking;
+		private final long timeoutNanos;
+
+		Waiting(Colour colour, Player player, ExecutorService thinking, long timeoutNanos) {
+			this.colour = colour;
+			this.player = requireNonNull(player, "AI created no player for " + colour);
+			this.thinking = thinking;
+			this.timeoutNanos = timeoutNanos;
+		}
+
+		@Override
+		public void makeMove(ScotlandYardView view, int location, Set<Move> moves,
+				Consumer<Move> callback) {
+			CompletableFuture<Move> chosen = new CompletableFuture<>();
+			Move move;
+			long start = System.nanoTime();
+			try {
+				thinking.execute(() -> {
+					try {
+						player.makeMove(view, location, moves, chosen::complete);
+					} catch (RuntimeException e) {
+						chosen.completeExceptionally(e);
+					}
+				});
+				move = chosen.get(timeoutNanos, TimeUnit.NANOSECONDS);
+				AIPool.THINK_TIMES.record(System.nanoTime() - start);
+			} catch (TimeoutException e) {
+				throw new Forfeit(colour, "no move in time", e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new Forfeit(colour, "interrupted", e);
+			} catch (ExecutionException | RuntimeException e) {
+				throw new Forfeit(colour, "failed to move", e);
+			}
+			if (!moves.contains(move)) throw new Forfeit(colour, "invalid move " + move, null);
+			callback.accept(move);
+		}
+	}
+
+	// Headless games have no images, AIs only get the graph
+	private static final class GraphOnly implements ResourceProvider {
+
+		private final Graph<Integer, Transport> graph;
+
+		GraphOnly(Graph<Integer, Transport> graph) {
+			this.graph = graph;
+		}
+
+		@Override
+		public Image getMap() {
+			throw new UnsupportedOperationException("No images in a headless game");
+		}
+
+		@Override
+		public Image getTicket(Ticket ticket) {
+			throw new UnsupportedOperationException("No images in a headless game");
+		}
+
+		@Override
+		public Graph<Integer, Transport> getGraph() {
+			return graph;
+		}
+
+		@Override
+		public Point2D coordinateAtNode(int node) {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,211 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+
+/**
+ * Enumerates the joint moves of the detectives for the rest of a round, i.e.
+ * one move for each detective from the current player to the last, following
+ * the same rules as the model: detectives move in order, may not end on a
+ * node another detective occupies at that point and pass only when they
+ * cannot move. <br>
+ * Optionally, moves that are dominated with respect to a set of candidate Mr
+ * X locations are pruned: a detective's move is dominated when another of its
+ * moves is at least as close to every candidate and closer to one, which
+ * removes e.g. moves away from every candidate. <br>
+ * Joint moves are streamed lazily, depth first; the stream splits between
+ * subtrees so {@link Stream#parallel()} enumerates large products on all
+ * cores.
+ */
+public final class JointMoves {
+
+	private static final int UNREACHABLE = Byte.MAX_VALUE;
+	private static final int SECRET = Ticket.SECRET.ordinal();
+
+	private final CompactMap map;
+	private final byte[] distances; // detective hop distances, from * size + to
+
+	/**
+	 * Precomputes the detective distances of a map, i.e. hops over
+	 * connections detectives can use, ignoring tickets
+	 *
+	 * @param map the map; not null
+	 */
+	public JointMoves(CompactMap map) {
+		this.map = requireNonNull(map);
+		int size = map.size();
+		this.distances = new byte[size * size];
+		Arrays.fill(distances, (byte) UNREACHABLE);
+		int[] queue = new int[size];
+		for (int source = 0; source < size; source++) {
+			int offset = source * size;
+			int head = 0, tail = 0;
+			queue[tail++] = source;
+			distances[offset + source] = 0;
+			while (head < tail) {
+				int node = queue[head++];
+				int next = distances[offset + node] + 1;
+				for (int edge = map.edgeStart(node); edge < map.edgeEnd(node); edge++) {
+					int to = map.target(edge);
+					if (map.ticket(edge) == SECRET || distances[offset + to] != UNREACHABLE) continue;
+					distances[offset + to] = (byte) Math.min(next, UNREACHABLE - 1);
+					queue[tail++] = to;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the detective hop distance between two node indices, or
+	 *         {@link Byte#MAX_VALUE} if unreachable
+	 */
+	public int distance(int from, int to) {
+		return distances[from * map.size() + to];
+	}
+
+	/**
+	 * Streams all joint moves of the detectives still to move this round
+	 *
+	 * @param state a position with a detective to move; not null, not modified
+	 * @return a lazy stream of joint moves, element i is the encoded move of
+	 *         player {@code state.currentPlayer() + i}
+	 */
+	public Stream<long[]> enumerate(CompactState state) {
+		return enumerate(state, null);
+	}
+
+	/**
+	 * Streams the joint moves of the detectives still to move this round,
+	 * without the ones dominated with respect to the candidates
+	 *
+	 * @param state a position with a detective to move; not null, not modified
+	 * @param candidates the node indices Mr X could be at; null or empty to
+	 *        not prune anything
+	 * @return a lazy stream of joint moves, element i is the encoded move of
+	 *         player {@code state.currentPlayer() + i}
+	 */
+	public Stream<long[]> enumerate(CompactState state, int[] candidates) {
+		if (state.currentPlayer() == 0)
+			throw new IllegalArgumentException("Mr X is to move, not the detectives");
+		if (state.map() != map) throw new IllegalArgumentException("State is on another map");
+		int[] pruneFor = candidates == null || candidates.length == 0 ? null : candidates.clone();
+		int width = state.players() - state.currentPlayer();
+		Deque<Frame> frames = new ArrayDeque<>();
+		frames.push(new Frame(state.copy(), new long[width], 0));
+		return StreamSupport.stream(new Enumerator(frames, pruneFor), false);
+	}
+
+	// A partial joint move, the state has the first depth moves applied
+	private static final class Frame {
+		final CompactState state;
+		final long[] moves;
+		final int depth;
+
+		Frame(CompactState state, long[] moves, int depth) {
+			this.state = state;
+			this.moves = moves;
+			this.depth = depth;
+		}
+	}
+
+	private final class Enumerator implements Spliterator<long[]> {
+
+		private final Deque<Frame> frames;
+		private final int[] candidates;
+		private long[] buffer;
+
+		Enumerator(Deque<Frame> frames, int[] candidates) {
+			this.frames = frames;
+			this.candidates = candidates;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super long[]> action) {
+			Frame frame;
+			while ((frame = frames.poll()) != null) {
+				if (frame.depth == frame.moves.length) {
+					action.accept(frame.moves);
+					return true;
+				}
+				expand(frame);
+			}
+			return false;
+		}
+
+		// Pushes the children in reverse so they come out in generation order
+		private void expand(Frame frame) {
+			if (buffer == null) buffer = new long[frame.state.maxMoves()];
+			int count = frame.state.generateMoves(buffer);
+			if (candidates != null) count = undominated(frame.state, buffer, count);
+			for (int i = count - 1; i >= 0; i--) {
+				CompactState child = frame.state.copy();
+				child.apply(buffer[i]);
+				long[] moves = frame.moves.clone();
+				moves[frame.depth] = buffer[i];
+				frames.push(new Frame(child, moves, frame.depth + 1));
+			}
+		}
+
+		// Compacts the moves to those not dominated by another move
+		private int undominated(CompactState state, long[] moves, int count) {
+			int player = state.currentPlayer();
+			int kept = 0;
+			for (int i = 0; i < count; i++) {
+				int to = destination(state, player, moves[i]);
+				boolean dominated = false;
+				for (int j = 0; j < count && !dominated; j++) {
+					if (i != j) dominated = dominates(destination(state, player, moves[j]), to);
+				}
+				if (!dominated) moves[kept++] = moves[i];
+			}
+			return kept;
+		}
+
+		private int destination(CompactState state, int player, long move) {
+			return move == CompactState.PASS ? state.location(player)
+					: CompactState.firstTarget(move);
+		}
+
+		private boolean dominates(int a, int b) {
+			boolean closer = false;
+			for (int candidate : candidates) {
+				int da = distance(a, candidate);
+				int db = distance(b, candidate);
+				if (da > db) return false;
+				closer |= da < db;
+			}
+			return closer;
+		}
+
+		@Override
+		public Spliterator<long[]> trySplit() {
+			// Make sure there is more than one subtree to hand out
+			while (frames.size() == 1 && frames.peek().depth < frames.peek().moves.length)
+				expand(frames.poll());
+			if (frames.size() < 2) return null;
+			Deque<Frame> split = new ArrayDeque<>();
+			for (int i = frames.size() / 2; i > 0; i--) split.push(frames.pollLast());
+			return new Enumerator(split, candidates);
+		}
+
+		@Override
+		public long estimateSize() {
+			return Long.MAX_VALUE;
+		}
+
+		@Override
+		public int characteristics() {
+			return NONNULL | DISTINCT;
+		}
+	}
+
+}
@@ -0,0 +1,380 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MoveVisitor;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.Spectator;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.TicketMove;
+
+/**
+ * A probability distribution over where Mr X is, kept up to date as a
+ * {@link Spectator}. <br>
+ * Every hidden move of Mr X is a Bayesian update: the probability of each
+ * node moves to its neighbours in proportion to how likely a
+ * {@link MoveModel} says Mr X is to make that move out of all the moves he
+ * has, restricted to moves with the ticket he used. The weight of a move is
+ * fixed when the belief is created, times a factor for its destination the
+ * model may give afresh on every update from where the detectives are.
+ * Reveal rounds collapse the distribution to one node and nodes detectives
+ * move onto are ruled out; if nothing is left, Mr X is assumed to be on any
+ * node without a detective.
+ * Double moves are observed as their two ticket moves, i.e. the model only
+ * weighs single moves. <br>
+ * The distribution is a plain {@code double[]} over node indices and a step
+ * is two passes over flat edge arrays without branches in the inner loops,
+ * so a step takes microseconds on the standard map; {@link #sample} is a
+ * binary search. A belief is not thread safe, {@link #copy()} it to sample
+ * from another thread.
+ */
+public final class MrXBelief implements Spectator {
+
+	/**
+	 * How likely Mr X is to make a move, up to a constant factor per node
+	 */
+	@FunctionalInterface
+	public interface MoveModel {
+
+		/**
+		 * Every move is equally likely
+		 */
+		MoveModel UNIFORM = (map, from, to, ticket) -> 1;
+
+		/**
+		 * Called once per move and node pair when the belief is created
+		 *
+		 * @param map the map
+		 * @param from the node index Mr X moves from
+		 * @param to the node index Mr X moves to
+		 * @param ticket the {@link Ticket#ordinal()} he uses, never double
+		 * @return a weight; at least 0
+		 */
+		double weight(CompactMap map, int from, int to, int ticket);
+
+		/**
+		 * Called on every hidden move to scale the weight of all moves onto
+		 * each node, e.g. to make moves away from the detectives likelier;
+		 * leaves every factor at 1 by default
+		 *
+		 * @param map the map
+		 * @param detectives the node index of each detective
+		 * @param factors the factor of each node index, all 1 when called; set
+		 *        them to at least 0
+		 */
+		default void destinations(CompactMap map, int[] detectives, double[] factors) {}
+	}
+
+	private static final int SECRET = Ticket.SECRET.ordinal();
+	private static final int DOUBLE = Ticket.DOUBLE.ordinal();
+	private static final Ticket[] TICKETS = Ticket.values();
+
+	private final CompactMap map;
+	private final MoveModel model;
+	// Outgoing edges in CompactMap order, for the normalisation of each node
+	private final byte[] outTicket;
+	private final double[] outWeight; // weight of the move with the edge's own ticket
+	private final double[] outSecretWeight; // weight of the secret move, once per target
+	// Incoming edges grouped by target, for the gather of each node
+	private final int[] inStart;
+	private final int[] inSource;
+	private final double[][] inWeight; // [observed ticket][incoming edge], none for double
+
+	private final double[] probability;
+	private final double[] scratch;
+	private final double[] free; // destination factors, 0 for nodes with a detective on them
+	private final boolean[] occupied; // the nodes detectives were last seen on
+	private final double[] ticketOn = new double[TICKETS.length];
+	private double[] cumulative; // lazily built for sampling, null when stale
+
+	/**
+	 * Creates a belief with Mr X equally likely to be on any of the start
+	 * locations
+	 *
+	 * @param map the map; not null
+	 * @param model the move model; not null
+	 * @param startLocations the board locations Mr X may start on; not empty
+	 */
+	public MrXBelief(CompactMap map, MoveModel model, Collection<Integer> startLocations) {
+		this.map = requireNonNull(map);
+		this.model = requireNonNull(model);
+		int nodes = map.size();
+		int edges = map.edgeEnd(nodes - 1);
+		outTicket = new byte[edges];
+		outWeight = new double[edges];
+		outSecretWeight = new double[edges];
+		for (int from = 0; from < nodes; from++) {
+			for (int edge = map.edgeStart(from); edge < map.edgeEnd(from); edge++) {
+				int to = map.target(edge);
+				int ticket = map.ticket(edge);
+				outTicket[edge] = (byte) ticket;
+				if (ticket != SECRET) outWeight[edge] = weight(model, from, to, ticket);
+				if (firstEdgeTo(from, edge)) outSecretWeight[edge] = weight(model, from, to, SECRET);
+			}
+		}
+
+		inStart = new int[nodes + 1];
+		inSource = new int[edges];
+		inWeight = new double[TICKETS.length][];
+		for (int ticket = 0; ticket < TICKETS.length; ticket++)
+			if (ticket != DOUBLE) inWeight[ticket] = new double[edges];
+		for (int edge = 0; edge < edges; edge++) inStart[map.target(edge) + 1]++;
+		for (int i = 0; i < nodes; i++) inStart[i + 1] += inStart[i];
+		int[] fill = Arrays.copyOf(inStart, nodes);
+		for (int from = 0; from < nodes; from++) {
+			for (int edge = map.edgeStart(from); edge < map.edgeEnd(from); edge++) {
+				int slot = fill[map.target(edge)]++;
+				inSource[slot] = from;
+				int ticket = outTicket[edge];
+				if (ticket != SECRET) inWeight[ticket][slot] = outWeight[edge];
+				inWeight[SECRET][slot] = outSecretWeight[edge];
+			}
+		}
+
+		probability = new double[nodes];
+		scratch = new double[nodes];
+		free = new double[nodes];
+		Arrays.fill(free, 1);
+		occupied = new boolean[nodes];
+		if (startLocations.isEmpty()) throw new IllegalArgumentException("No start locations");
+		for (int location : startLocations) probability[indexOf(location)] = 1;
+		normalise();
+	}
+
+	/**
+	 * Creates a belief with uniform moves from the standard start locations
+	 *
+	 * @param map the map; not null
+	 */
+	public MrXBelief(CompactMap map) {
+		this(map, MoveModel.UNIFORM, StandardGame.MRX_LOCATIONS);
+	}
+
+	private MrXBelief(MrXBelief that) {
+		this.map = that.map;
+		this.model = that.model;
+		this.outTicket = that.outTicket;
+		this.outWeight = that.outWeight;
+		this.outSecretWeight = that.outSecretWeight;
+		this.inStart = that.inStart;
+		this.inSource = that.inSource;
+		this.inWeight = that.inWeight;
+		this.probability = that.probability.clone();
+		this.scratch = new double[probability.length];
+		this.free = that.free.clone();
+		this.occupied = that.occupied.clone();
+		this.cumulative = that.cumulative;
+	}
+
+	private double weight(MoveModel model, int from, int to, int ticket) {
+		double weight = model.weight(map, from, to, ticket);
+		if (!(weight >= 0)) throw new IllegalArgumentException("Negative weight " + weight);
+		return weight;
+	}
+
+	// Secret moves to the same node count once however many edges lead there
+	private boolean firstEdgeTo(int from, int edge) {
+		for (int other = map.edgeStart(from); other < edge; other++)
+			if (map.target(other) == map.target(edge)) return false;
+		return true;
+	}
+
+	private int indexOf(int location) {
+		int index = map.indexOf(location);
+		if (index < 0)
+			throw new IllegalArgumentException("Location " + location + " is not on the map");
+		return index;
+	}
+
+	/**
+	 * @return an independent copy of this belief
+	 */
+	public MrXBelief copy() {
+		return new MrXBelief(this);
+	}
+
+	public CompactMap map() {
+		return map;
+	}
+
+	/**
+	 * @param location a board location
+	 * @return the probability of Mr X being there
+	 */
+	public double probability(int location) {
+		return probability[indexOf(location)];
+	}
+
+	/**
+	 * @return the probability of each node index; a new array
+	 */
+	public double[] probabilities() {
+		return probability.clone();
+	}
+
+	/**
+	 * @return the number of nodes Mr X may be on
+	 */
+	public int support() {
+		int support = 0;
+		for (double p : probability) if (p > 0) support++;
+		return support;
+	}
+
+	/**
+	 * Draws a location from the distribution
+	 *
+	 * @param random the source of randomness; not null
+	 * @return a board location with a positive probability
+	 */
+	public int sample(SplittableRandom random) {
+		if (cumulative == null) {
+			double[] sums = new double[probability.length];
+			double sum = 0;
+			for (int i = 0; i < sums.length; i++) sums[i] = sum += probability[i];
+			cumulative = sums;
+		}
+		double target = random.nextDouble() * cumulative[cumulative.length - 1];
+		int index = Arrays.binarySearch(cumulative, target);
+		index = index < 0 ? -index - 1 : index + 1;
+		// Skip nodes without probability that share the cumulative value
+		while (index < probability.length - 1 && probability[index] == 0) index++;
+		return map.value(index);
+	}
+
+	/**
+	 * Updates the belief with a hidden move of Mr X
+	 *
+	 * @param ticket the {@link Ticket#ordinal()} Mr X used; not double
+	 * @param detectives the node index of each detective
+	 * @param mrXTickets the number of tickets Mr X had before the move, by
+	 *        ordinal
+	 */
+	public void hiddenMove(int ticket, int[] detectives, int[] mrXTickets) {
+		if (ticket < 0 || ticket >= TICKETS.length || ticket == DOUBLE)
+			throw new IllegalArgumentException("Not a move ticket: " + ticket);
+		model.destinations(map, detectives, free);
+		for (double factor : free)
+			if (!(factor >= 0)) throw new IllegalArgumentException("Negative factor " + factor);
+		Arrays.fill(occupied, false);
+		for (int detective : detectives) {
+			free[detective] = 0;
+			occupied[detective] = true;
+		}
+		for (int t = 0; t < ticketOn.length; t++) ticketOn[t] = mrXTickets[t] > 0 ? 1 : 0;
+		double secretOn = ticketOn[SECRET];
+
+		// Scale every node by the total weight of its valid moves
+		for (int from = 0; from < probability.length; from++) {
+			double total = 0;
+			for (int edge = map.edgeStart(from); edge < map.edgeEnd(from); edge++) {
+				double moves = outWeight[edge] * ticketOn[outTicket[edge]]
+						+ outSecretWeight[edge] * secretOn;
+				total += free[map.target(edge)] * moves;
+			}
+			scratch[from] = total > 0 ? probability[from] / total : 0;
+		}
+		// Gather the moves made with the observed ticket
+		double[] weights = inWeight[ticket];
+		double[] next = probability;
+		for (int to = 0; to < next.length; to++) {
+			double sum = 0;
+			for (int in = inStart[to]; in < inStart[to + 1]; in++)
+				sum += scratch[inSource[in]] * weights[in];
+			next[to] = sum * free[to];
+		}
+		Arrays.fill(free, 1);
+		normalise();
+	}
+
+	/**
+	 * Updates the belief with a revealed location of Mr X
+	 *
+	 * @param location the board location
+	 */
+	public void reveal(int location) {
+		Arrays.fill(probability, 0);
+		probability[indexOf(location)] = 1;
+		cumulative = null;
+	}
+
+	/**
+	 * Rules out a location, e.g. because a detective moved there without
+	 * catching Mr X
+	 *
+	 * @param location the board location
+	 */
+	public void exclude(int location) {
+		int index = indexOf(location);
+		probability[index] = 0;
+		occupied[index] = true;
+		normalise();
+	}
+
+	// If every node was ruled out Mr X has not moved the way any model
+	// allows, fall back to everywhere he could be, i.e. off the detectives
+	private void normalise() {
+		double sum = 0;
+		for (double p : probability) sum += p;
+		if (!(sum > 0)) {
+			for (int i = 0; i < probability.length; i++) probability[i] = occupied[i] ? 0 : 1;
+			sum = 0;
+			for (double p : probability) sum += p;
+		}
+		double scale = sum > 0 ? 1 / sum : 0;
+		for (int i = 0; i < probability.length; i++) probability[i] *= scale;
+		cumulative = null;
+	}
+
+	@Override
+	public void onMoveMade(ScotlandYardView view, Move move) {
+		move.visit(new MoveVisitor() {
+			@Override
+			public void visit(TicketMove move) {
+				if (move.colour().isDetective()) {
+					Arrays.fill(occupied, false);
+					for (int detective : detectives(view)) occupied[detective] = true;
+					exclude(move.destination());
+				} else mrXMoved(view, move);
+			}
+
+			@Override
+			public void visit(DoubleMove move) {
+				// Its ticket moves are reported on their own
+			}
+		});
+	}
+
+	// The model reports Mr X's move after the round has advanced and the
+	// ticket is used
+	private void mrXMoved(ScotlandYardView view, TicketMove move) {
+		int round = view.getCurrentRound() - 1;
+		if (view.getRounds().get(round)) {
+			reveal(move.destination());
+			return;
+		}
+		int[] tickets = new int[TICKETS.length];
+		for (Ticket ticket : TICKETS)
+			tickets[ticket.ordinal()] = view.getPlayerTickets(Colour.BLACK, ticket).orElse(0);
+		tickets[move.ticket().ordinal()]++;
+		hiddenMove(move.ticket().ordinal(), detectives(view), tickets);
+	}
+
+	private int[] detectives(ScotlandYardView view) {
+		List<Colour> players = view.getPlayers();
+		int[] detectives = new int[players.size() - 1];
+		for (int i = 1; i < players.size(); i++)
+			detectives[i - 1] = indexOf(view.getPlayerLocation(players.get(i)).orElse(0));
+		return detectives;
+	}
+
+}
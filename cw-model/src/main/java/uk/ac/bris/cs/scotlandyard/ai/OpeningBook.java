@@ -0,0 +1,435 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MoveVisitor;
+import uk.ac.bris.cs.scotlandyard.model.PassMove;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.TicketMove;
+
+/**
+ * Precomputed best moves for the first moves of a game, keyed by a hash of
+ * what the player to move can see (Mr X's location is only part of the key
+ * for Mr X himself). <br>
+ * Books are built offline with a {@link Builder} and stored as two sorted
+ * arrays, so a lookup from {@link Player#makeMove} is a binary search.
+ */
+public final class OpeningBook {
+
+	private static final int MAGIC = 0x53594F42; // "SYOB"
+	private static final int VERSION = 2; // 2: keys ignore the order of equal detectives
+	private static final long PASS = 7;
+	private static final Ticket[] TICKETS = Ticket.values();
+
+	private final long[] keys; // sorted
+	private final long[] moves; // packed with board locations, see pack(Move)
+
+	private OpeningBook(long[] keys, long[] moves) {
+		this.keys = keys;
+		this.moves = moves;
+	}
+
+	/**
+	 * @return the number of positions in the book
+	 */
+	public int size() {
+		return keys.length;
+	}
+
+	/**
+	 * Looks up the book move for the current player, meant to be called from
+	 * {@link Player#makeMove(ScotlandYardView, int, Set, java.util.function.Consumer)}
+	 *
+	 * @param view the view of the game; not null
+	 * @param location the location passed to the player
+	 * @param valid the valid moves passed to the player; not null
+	 * @return the book move, or empty if the position is not in the book
+	 */
+	public Optional<Move> lookup(ScotlandYardView view, int location, Set<Move> valid) {
+		int index = Arrays.binarySearch(keys, key(view, location));
+		if (index < 0) return Optional.empty();
+		Move move = unpack(view.getCurrentPlayer(), moves[index]);
+		return valid.contains(move) ? Optional.of(move) : Optional.empty();
+	}
+
+	/**
+	 * Looks up the book move for the current player
+	 *
+	 * @param state the position; not null
+	 * @return the book move, or empty if the position is not in the book
+	 */
+	public Optional<Move> lookup(CompactState state) {
+		int index = Arrays.binarySearch(keys, key(state));
+		if (index < 0) return Optional.empty();
+		return Optional.of(unpack(state.colour(state.currentPlayer()), moves[index]));
+	}
+
+	/**
+	 * Hashes what the current player knows about a position; positions that
+	 * only differ in which of several equal detectives stands where share a
+	 * key, see {@link DetectiveSymmetry}
+	 *
+	 * @param state the position; not null
+	 * @return the key
+	 */
+	public static long key(CompactState state) {
+		CompactMap map = state.map();
+		int current = state.currentPlayer();
+		int[] locations = new int[state.players()];
+		int[] tickets = new int[state.players() * CompactState.TICKETS];
+		for (int player = 0; player < locations.length; player++) {
+			boolean hidden = player == 0 && current != 0;
+			locations[player] = hidden ? -1 : map.value(state.location(player));
+			for (int ticket = 0; ticket < CompactState.TICKETS; ticket++)
+				tickets[player * CompactState.TICKETS + ticket] = state.tickets(player, ticket);
+		}
+		return key(current, state.round(), state.revealedLocation(), locations, tickets);
+	}
+
+	/**
+	 * Hashes what the current player knows about a position, the same as
+	 * {@link #key(CompactState)}
+	 *
+	 * @param view the view of the game; not null
+	 * @param location the location of the current player
+	 * @return the key
+	 */
+	public static long key(ScotlandYardView view, int location) {
+		List<Colour> players = view.getPlayers();
+		int current = players.indexOf(view.getCurrentPlayer());
+		int[] locations = new int[players.size()];
+		int[] tickets = new int[players.size() * CompactState.TICKETS];
+		for (int player = 0; player < locations.length; player++) {
+			Colour colour = players.get(player);
+			if (player == current) locations[player] = location;
+			else locations[player] = player == 0 ? -1 : view.getPlayerLocation(colour).orElse(0);
+			for (Ticket ticket : TICKETS)
+				tickets[player * CompactState.TICKETS + ticket.ordinal()] = view
+						.getPlayerTickets(colour, ticket).orElse(0);
+		}
+		return key(current, view.getCurrentRound(), view.getPlayerLocation(Colour.BLACK).orElse(0),
+				locations, tickets);
+	}
+
+	private static long key(int current, int round, int revealed, int[] locations,
+			int[] tickets) {
+		DetectiveSymmetry symmetry = DetectiveSymmetry.of(current, locations, tickets);
+		long hash = mix(mix(mix(0, current), round), revealed);
+		for (int slot = 0; slot < locations.length; slot++) {
+			int player = symmetry.player(slot);
+			hash = mix(hash, locations[player]);
+			for (int ticket = 0; ticket < CompactState.TICKETS; ticket++)
+				hash = mix(hash, tickets[player * CompactState.TICKETS + ticket]);
+		}
+		return hash;
+	}
+
+	private static long mix(long hash, int value) {
+		long h = (hash ^ value) * 0x9E3779B97F4A7C15L;
+		return h ^ (h >>> 32);
+	}
+
+	// Moves are packed as in CompactState but with board locations, so a book
+	// does not depend on how a map numbers its nodes
+	private static long pack(Move move) {
+		long[] packed = {PASS};
+		move.visit(new MoveVisitor() {
+			@Override
+			public void visit(TicketMove move) {
+				packed[0] = pack(move);
+			}
+
+			@Override
+			public void visit(DoubleMove move) {
+				packed[0] = pack(move.firstMove()) | (pack(move.secondMove()) + 1) << 32;
+			}
+		});
+		return packed[0];
+	}
+
+	private static long pack(TicketMove move) {
+		return CompactState.single(move.ticket().ordinal(), move.destination());
+	}
+
+	private static Move unpack(Colour colour, long move) {
+		if (move == PASS) return new PassMove(colour);
+		TicketMove first = new TicketMove(colour, TICKETS[CompactState.firstTicket(move)],
+				CompactState.firstTarget(move));
+		if (!CompactState.isDouble(move)) return first;
+		return new DoubleMove(colour, first, new TicketMove(colour,
+				TICKETS[CompactState.secondTicket(move)], CompactState.secondTarget(move)));
+	}
+
+	/**
+	 * Writes the book, the stream is not closed
+	 *
+	 * @param stream the stream; not null
+	 * @throws IOException if writing fails
+	 */
+	public void write(OutputStream stream) throws IOException {
+		DataOutputStream out = new DataOutputStream(stream);
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		out.writeInt(keys.length);
+		for (long key : keys) out.writeLong(key);
+		for (long move : moves) out.writeLong(move);
+		out.flush();
+	}
+
+	/**
+	 * Reads a book written with {@link #write(OutputStream)}, the stream is not
+	 * closed
+	 *
+	 * @param stream the stream; not null
+	 * @return the book; never null
+	 * @throws IOException if reading fails or the data is not a book
+	 */
+	public static OpeningBook read(InputStream stream) throws IOException {
+		DataInputStream in = new DataInputStream(stream);
+		if (in.readInt() != MAGIC) throw new IOException("Not an opening book");
+		int version = in.readUnsignedByte();
+		if (version != VERSION) throw new IOException("Unsupported book version " + version);
+		int size = in.readInt();
+		if (size < 0) throw new IOException("Corrupted book");
+		long[] keys = new long[size];
+		long[] moves = new long[size];
+		for (int i = 0; i < size; i++) {
+			keys[i] = in.readLong();
+			if (i > 0 && keys[i] <= keys[i - 1]) throw new IOException("Corrupted book");
+		}
+		for (int i = 0; i < size; i++) moves[i] = in.readLong();
+		return new OpeningBook(keys, moves);
+	}
+
+	/**
+	 * @param file the book; not null
+	 * @return the book; never null
+	 * @throws IOException if reading fails or the file is not a book
+	 */
+	public static OpeningBook read(Path file) throws IOException {
+		try (InputStream stream = new BufferedInputStream(Files.newInputStream(file))) {
+			return read(stream);
+		}
+	}
+
+	/**
+	 * @param file where to write the book, overwritten if it exists; not null
+	 * @throws IOException if writing fails
+	 */
+	public void write(Path file) throws IOException {
+		try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(file))) {
+			write(stream);
+		}
+	}
+
+	/**
+	 * Creates the start of a standard game, placing the players like
+	 * {@link StandardGame#generateMrXLocation(int)} and
+	 * {@link StandardGame#generateDetectiveLocations(int, int)} do
+	 *
+	 * @param map the map; not null
+	 * @param detectives the detectives in order of play; not empty
+	 * @param seed the seed for the locations
+	 * @return the start position; never null
+	 */
+	public static CompactState standardStart(CompactMap map, List<Colour> detectives, int seed) {
+		List<Colour> colours = new ArrayList<>();
+		List<Integer> locations = new ArrayList<>();
+		List<Map<Ticket, Integer>> tickets = new ArrayList<>();
+		colours.add(Colour.BLACK);
+		locations.add(StandardGame.generateMrXLocation(seed));
+		tickets.add(StandardGame.generateMrXTickets());
+		colours.addAll(detectives);
+		locations.addAll(StandardGame.generateDetectiveLocations(seed, detectives.size()));
+		for (int i = 0; i < detectives.size(); i++) tickets.add(StandardGame.generateDetectiveTickets());
+		return CompactState.of(map, StandardGame.ROUNDS, colours, locations, tickets);
+	}
+
+	/**
+	 * Builds a book by self-play: from each start position, both sides pick
+	 * the move with the best flat Monte Carlo score for a number of plies and
+	 * every position on the way is added to the book. <br>
+	 * Detectives do not know where Mr X is, so their moves are scored against
+	 * every location Mr X could be at given the tickets he used and the
+	 * reveal rounds, starting from {@link StandardGame#MRX_LOCATIONS}.
+	 */
+	public static final class Builder {
+
+		private final CompactMap map;
+		private final PlayoutEngine engine;
+		private final int playouts;
+		private final long seed;
+		private final TreeMap<Long, Long> entries = new TreeMap<>();
+		private int plies = 12;
+		private Collection<Integer> mrXStarts = StandardGame.MRX_LOCATIONS;
+
+		/**
+		 * @param map the map; not null
+		 * @param engine the engine to score moves with, used for every position and
+		 *        left open; not null
+		 * @param playouts number of playouts per scored move
+		 * @param seed the seed all playouts are derived from
+		 */
+		public Builder(CompactMap map, PlayoutEngine engine, int playouts, long seed) {
+			if (playouts < 1) throw new IllegalArgumentException("playouts < 1");
+			this.map = requireNonNull(map);
+			this.engine = requireNonNull(engine);
+			this.playouts = playouts;
+			this.seed = seed;
+		}
+
+		/**
+		 * @param plies how many moves of each line go into the book, defaults
+		 *        to 12
+		 * @return this builder
+		 */
+		public Builder plies(int plies) {
+			if (plies < 1) throw new IllegalArgumentException("plies < 1");
+			this.plies = plies;
+			return this;
+		}
+
+		/**
+		 * @param locations where Mr X may start, as far as the detectives know;
+		 *        defaults to {@link StandardGame#MRX_LOCATIONS}
+		 * @return this builder
+		 */
+		public Builder mrXStarts(Collection<Integer> locations) {
+			this.mrXStarts = requireNonNull(locations);
+			return this;
+		}
+
+		/**
+		 * Plays one line from a start position and adds its positions
+		 *
+		 * @param start a position at the start of a game; not null
+		 * @return this builder
+		 * @throws InterruptedException if interrupted while scoring moves
+		 */
+		public Builder addLine(CompactState start) throws InterruptedException {
+			CompactState state = start.copy();
+			long[] buffer = new long[state.maxMoves()];
+			boolean[] candidates = new boolean[map.size()];
+			for (int location : mrXStarts) {
+				int node = map.indexOf(location);
+				if (node >= 0) candidates[node] = true;
+			}
+			candidates[state.location(0)] = true;
+			removeDetectives(state, candidates);
+
+			for (int ply = 0; ply < plies && state.outcome() == CompactState.Outcome.NONE; ply++) {
+				int count = state.generateMoves(buffer);
+				if (count == 0) break;
+				long key = key(state);
+				long best = buffer[0];
+				double bestScore = -1;
+				for (int i = 0; i < count; i++) {
+					double score = score(state, buffer[i], candidates, key * 31 + i);
+					if (score > bestScore) {
+						bestScore = score;
+						best = buffer[i];
+					}
+				}
+				entries.putIfAbsent(key, pack(state.toMove(best)));
+				if (state.currentPlayer() == 0) followMrX(state, best, candidates);
+				state.apply(best);
+				removeDetectives(state, candidates);
+			}
+			return this;
+		}
+
+		// The win rate of the player to move after playing the move
+		private double score(CompactState state, long move, boolean[] candidates, long salt)
+				throws InterruptedException {
+			CompactState child = state.copy();
+			child.apply(move);
+			if (state.currentPlayer() == 0) {
+				return engine.run(child, seed ^ salt, playouts).mrXWinRate();
+			}
+			int possible = 0;
+			for (boolean candidate : candidates) if (candidate) possible++;
+			int each = Math.max(1, playouts / possible);
+			double wins = 0;
+			for (int node = 0; node < candidates.length; node++) {
+				if (!candidates[node]) continue;
+				child.relocate(0, node);
+				wins += 1 - engine.run(child, seed ^ salt ^ node, each).mrXWinRate();
+			}
+			return wins / possible;
+		}
+
+		// Moves the candidates along the tickets Mr X used, revealing him
+		// where the rounds say so
+		private void followMrX(CompactState state, long move, boolean[] candidates) {
+			int round = state.round();
+			spread(state, CompactState.firstTicket(move), candidates);
+			if (state.isRevealRound(round++)) reveal(CompactState.firstTarget(move), candidates);
+			if (CompactState.isDouble(move)) {
+				spread(state, CompactState.secondTicket(move), candidates);
+				if (state.isRevealRound(round)) reveal(CompactState.secondTarget(move), candidates);
+			}
+		}
+
+		private void spread(CompactState state, int ticket, boolean[] candidates) {
+			boolean[] next = new boolean[candidates.length];
+			for (int node = 0; node < candidates.length; node++) {
+				if (!candidates[node]) continue;
+				for (int edge = map.edgeStart(node); edge < map.edgeEnd(node); edge++) {
+					if (ticket == Ticket.SECRET.ordinal() || map.ticket(edge) == ticket)
+						next[map.target(edge)] = true;
+				}
+			}
+			System.arraycopy(next, 0, candidates, 0, candidates.length);
+			removeDetectives(state, candidates);
+		}
+
+		private static void reveal(int node, boolean[] candidates) {
+			Arrays.fill(candidates, false);
+			candidates[node] = true;
+		}
+
+		private static void removeDetectives(CompactState state, boolean[] candidates) {
+			for (int player = 1; player < state.players(); player++)
+				candidates[state.location(player)] = false;
+		}
+
+		/**
+		 * @return the book built so far; never null
+		 */
+		public OpeningBook build() {
+			long[] keys = new long[entries.size()];
+			long[] moves = new long[entries.size()];
+			int i = 0;
+			for (Map.Entry<Long, Long> entry : entries.entrySet()) {
+				keys[i] = entry.getKey();
+				moves[i++] = entry.getValue();
+			}
+			return new OpeningBook(keys, moves);
+		}
+	}
+
+}
@@ -0,0 +1,222 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import uk.ac.bris.cs.scotlandyard.ai.CompactState.Outcome;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+
+/**
+ * Runs random playouts for Monte Carlo evaluation: from a given position every
+ * player picks uniformly among its valid moves until the game is over. <br>
+ * Playouts run on a {@link CompactState}, so they neither notify spectators
+ * nor allocate move sets. <br>
+ * Like {@link StandardGame#generateDetectiveLocations(int, int)}, everything
+ * is derived from a seed: playouts are grouped into fixed size batches and
+ * each batch gets its own {@link SplittableRandom} split from the seed in
+ * batch order, so the result for a seed is the same no matter how many
+ * threads ran the batches. <br>
+ * An engine keeps its worker threads for all of its runs, so callers that run
+ * many small searches do not create threads for each; close it when done.
+ */
+public final class PlayoutEngine implements AutoCloseable {
+
+	/**
+	 * Number of playouts sharing one random stream
+	 */
+	public static final int BATCH_SIZE = 64;
+
+	private final int threads;
+	private final ExecutorService executor;
+
+	/**
+	 * @param threads number of worker threads; at least 1
+	 */
+	public PlayoutEngine(int threads) {
+		if (threads < 1) throw new IllegalArgumentException("threads < 1");
+		this.threads = threads;
+		// Daemon, so an engine that is never closed does not keep the JVM alive
+		AtomicInteger created = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "playout-" + created.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * @return an engine using all available processors
+	 */
+	public static PlayoutEngine createDefault() {
+		return new PlayoutEngine(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Plays a single random game to the end, modifying the given state
+	 *
+	 * @param state the position to play from, modified in place; not null
+	 * @param buffer a move buffer of at least {@link CompactState#maxMoves()}
+	 * @param random the source of randomness; not null
+	 * @return the winner; never {@link Outcome#NONE}
+	 */
+	public static Outcome playout(CompactState state, long[] buffer, SplittableRandom random) {
+		Outcome outcome;
+		while ((outcome = state.outcome()) == Outcome.NONE) {
+			int count = state.generateMoves(buffer);
+			if (count == 0) return Outcome.DETECTIVES; // Mr X is stuck
+			state.apply(buffer[random.nextInt(count)]);
+		}
+		return outcome;
+	}
+
+	/**
+	 * Runs playouts from a position, blocking until all are done
+	 *
+	 * @param start the position to play from, not modified; not null
+	 * @param seed the seed all random streams are derived from
+	 * @param playouts the number of playouts to run
+	 * @return the aggregated results; never null
+	 * @throws InterruptedException if interrupted while waiting
+	 * @throws IllegalStateException if the engine is closed
+	 */
+	public Result run(CompactState start, long seed, int playouts) throws InterruptedException {
+		requireNonNull(start);
+		if (executor.isShutdown()) throw new IllegalStateException("Engine is closed");
+		if (playouts < 0) throw new IllegalArgumentException("playouts < 0");
+		int batches = (playouts + BATCH_SIZE - 1) / BATCH_SIZE;
+		SplittableRandom root = new SplittableRandom(seed);
+		SplittableRandom[] streams = new SplittableRandom[batches];
+		for (int i = 0; i < batches; i++) streams[i] = root.split();
+
+		AtomicInteger next = new AtomicInteger();
+		List<Callable<long[]>> workers = new ArrayList<>();
+		for (int w = 0; w < Math.min(threads, Math.max(batches, 1)); w++) {
+			workers.add(() -> {
+				CompactState state = start.copy();
+				long[] buffer = new long[state.maxMoves()];
+				long[] totals = new long[3]; // Mr X wins, detective wins, rounds
+				int batch;
+				while ((batch = next.getAndIncrement()) < batches) {
+					int size = Math.min(BATCH_SIZE, playouts - batch * BATCH_SIZE);
+					for (int i = 0; i < size; i++) {
+						state.copyFrom(start);
+						Outcome outcome = playout(state, buffer, streams[batch]);
+						totals[outcome == Outcome.MR_X ? 0 : 1]++;
+						totals[2] += state.round();
+					}
+				}
+				return totals;
+			});
+		}
+
+		long begin = System.nanoTime();
+		try {
+			long[] totals = new long[3];
+			for (Future<long[]> future : executor.invokeAll(workers)) {
+				long[] partial = future.get();
+				for (int i = 0; i < totals.length; i++) totals[i] += partial[i];
+			}
+			return new Result(totals[0], totals[1], totals[2], System.nanoTime() - begin,
+					workers.size());
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Playout failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Stops the worker threads, interrupting any run in progress
+	 */
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Aggregated results of {@link #run(CompactState, long, int)}; everything
+	 * but the timing is reproducible for a given seed
+	 */
+	public static final class Result {
+
+		private final long mrXWins;
+		private final long detectiveWins;
+		private final long rounds;
+		private final long elapsedNanos;
+		private final int threads;
+
+		Result(long mrXWins, long detectiveWins, long rounds, long elapsedNanos, int threads) {
+			this.mrXWins = mrXWins;
+			this.detectiveWins = detectiveWins;
+			this.rounds = rounds;
+			this.elapsedNanos = elapsedNanos;
+			this.threads = threads;
+		}
+
+		public long playouts() {
+			return mrXWins + detectiveWins;
+		}
+
+		public long mrXWins() {
+			return mrXWins;
+		}
+
+		public long detectiveWins() {
+			return detectiveWins;
+		}
+
+		/**
+		 * @return the fraction of playouts Mr X won, 0 if there were none
+		 */
+		public double mrXWinRate() {
+			return playouts() == 0 ? 0 : (double) mrXWins / playouts();
+		}
+
+		/**
+		 * @return the mean round the playouts ended in
+		 */
+		public double meanRounds() {
+			return playouts() == 0 ? 0 : (double) rounds / playouts();
+		}
+
+		public long elapsed(TimeUnit unit) {
+			return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+		}
+
+		public int threads() {
+			return threads;
+		}
+
+		/**
+		 * @return throughput divided by the number of worker threads
+		 */
+		public double playoutsPerSecondPerCore() {
+			if (elapsedNanos == 0) return 0;
+			return playouts() / (elapsedNanos / 1e9) / threads;
+		}
+
+		/**
+		 * @return whether the reproducible parts of the results are the same
+		 */
+		public boolean sameOutcomes(Result that) {
+			return mrXWins == that.mrXWins && detectiveWins == that.detectiveWins
+					&& rounds == that.rounds;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(
+					"Result{playouts=%d, mrXWins=%d, meanRounds=%.2f, threads=%d, %.0f playouts/s/core}",
+					playouts(), mrXWins, meanRounds(), threads, playoutsPerSecondPerCore());
+		}
+	}
+
+}
@@ -0,0 +1,251 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import uk.ac.bris.cs.scotlandyard.ai.CompactState.Outcome;
+
+/**
+ * Reads a file written by a {@link SampleWriter}. The reader is a cursor:
+ * {@link #next()} moves to the next sample and the accessors return its
+ * columns. Chunks are memory mapped and inflated straight from the mapping
+ * into buffers that are reused for every chunk, so iterating does not
+ * allocate per sample.
+ */
+public final class SampleReader implements Closeable {
+
+	private static final int HEADER = 12;
+	private static final int CHUNK_HEADER = (2 + SampleWriter.COLUMNS) * Integer.BYTES;
+	private static final Outcome[] OUTCOMES = Outcome.values();
+
+	private final FileChannel channel;
+	private final int players;
+	private final long[] chunks; // file offset of each chunk header
+	private final long samples;
+	private final Inflater inflater = new Inflater();
+	private final ByteBuffer[] columns = new ByteBuffer[SampleWriter.COLUMNS];
+
+	private int chunk = -1;
+	private int rows; // samples in the current chunk
+	private int row = -1;
+	private int[] moveStart = new int[SampleWriter.CHUNK_ROWS + 1];
+
+	private SampleReader(FileChannel channel, int players, long[] chunks, long samples) {
+		this.channel = channel;
+		this.players = players;
+		this.chunks = chunks;
+		this.samples = samples;
+	}
+
+	/**
+	 * Opens a sample file
+	 *
+	 * @param file the file; not null
+	 * @return the reader positioned before the first sample, close it when
+	 *         done; never null
+	 * @throws IOException if the file cannot be read or is not a sample file
+	 */
+	public static SampleReader open(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, READ);
+		try {
+			ByteBuffer header = read(channel, 0, HEADER);
+			if (header == null || header.getInt() != SampleWriter.MAGIC)
+				throw new IOException(file + " is not a sample file");
+			int version = header.getInt();
+			if (version != SampleWriter.VERSION)
+				throw new IOException("Unsupported sample file version " + version);
+			int players = header.getInt();
+			if (players < 2) throw new IOException("Corrupted sample file");
+			// Only the chunk headers are read up front
+			long[] chunks = new long[16];
+			int count = 0;
+			long samples = 0;
+			long offset = HEADER;
+			while (offset < channel.size()) {
+				ByteBuffer chunk = read(channel, offset, CHUNK_HEADER);
+				if (chunk == null) throw new IOException(file + " is truncated");
+				if (count == chunks.length) chunks = Arrays.copyOf(chunks, count * 2);
+				chunks[count++] = offset;
+				samples += chunk.getInt();
+				chunk.getInt();
+				offset += CHUNK_HEADER;
+				for (int i = 0; i < SampleWriter.COLUMNS; i++) offset += chunk.getInt();
+			}
+			if (offset != channel.size()) throw new IOException(file + " is truncated");
+			return new SampleReader(channel, players, Arrays.copyOf(chunks, count), samples);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	private static ByteBuffer read(FileChannel channel, long position, int size)
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) return null;
+		}
+		return buffer.flip();
+	}
+
+	/**
+	 * @return the number of players including Mr X
+	 */
+	public int players() {
+		return players;
+	}
+
+	/**
+	 * @return the number of samples in the file
+	 */
+	public long samples() {
+		return samples;
+	}
+
+	/**
+	 * Moves to the next sample
+	 *
+	 * @return false if there are no more samples
+	 * @throws IOException if a chunk cannot be read
+	 */
+	public boolean next() throws IOException {
+		if (++row < rows) return true;
+		while (chunk + 1 < chunks.length) {
+			load(++chunk);
+			if (rows > 0) return true;
+		}
+		row = rows;
+		return false;
+	}
+
+	private void load(int index) throws IOException {
+		ByteBuffer header = read(channel, chunks[index], CHUNK_HEADER);
+		if (header == null) throw new IOException("Sample file is truncated");
+		rows = header.getInt();
+		int moveRows = header.getInt();
+		int[] sizes = new int[SampleWriter.COLUMNS];
+		long length = 0;
+		for (int i = 0; i < sizes.length; i++) length += sizes[i] = header.getInt();
+		MappedByteBuffer data = channel.map(MapMode.READ_ONLY, chunks[index] + CHUNK_HEADER,
+				length);
+		int[] widths = {
+				rows, rows, rows * Integer.BYTES, rows * players * Integer.BYTES,
+				rows * players * CompactState.TICKETS, rows * Short.BYTES, rows * Short.BYTES, rows,
+				moveRows * Long.BYTES};
+		int position = 0;
+		for (int i = 0; i < SampleWriter.COLUMNS; i++) {
+			data.limit(position + sizes[i]).position(position);
+			columns[i] = inflate(data, columns[i], widths[i]);
+			position += sizes[i];
+		}
+		if (moveStart.length < rows + 1) moveStart = new int[rows + 1];
+		for (int i = 0; i < rows; i++) moveStart[i + 1] = moveStart[i]
+				+ Short.toUnsignedInt(columns[5].getShort(i * Short.BYTES));
+		if (moveStart[rows] != moveRows) throw new IOException("Corrupted sample file");
+		row = 0;
+	}
+
+	private ByteBuffer inflate(ByteBuffer input, ByteBuffer output, int size) throws IOException {
+		if (output == null || output.capacity() < size)
+			output = ByteBuffer.allocate(Math.max(size, output == null ? 0 : output.capacity() * 2));
+		output.clear().limit(size);
+		inflater.reset();
+		inflater.setInput(input);
+		try {
+			while (output.hasRemaining() && !inflater.finished()) {
+				if (inflater.inflate(output) == 0 && inflater.needsInput()) break;
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupted sample file", e);
+		}
+		if (output.hasRemaining() || !inflater.finished())
+			throw new IOException("Corrupted sample file");
+		return output;
+	}
+
+	/**
+	 * @return the current round when the move was made
+	 */
+	public int round() {
+		return columns[0].get(row) & 0xFF;
+	}
+
+	/**
+	 * @return the player who made the move, 0 for Mr X
+	 */
+	public int currentPlayer() {
+		return columns[1].get(row) & 0xFF;
+	}
+
+	/**
+	 * @return Mr X's last revealed board location, 0 if never revealed
+	 */
+	public int revealedLocation() {
+		return columns[2].getInt(row * Integer.BYTES);
+	}
+
+	/**
+	 * @param player the player, 0 for Mr X
+	 * @return the board location of the player
+	 */
+	public int location(int player) {
+		return columns[3].getInt((row * players + player) * Integer.BYTES);
+	}
+
+	/**
+	 * @param player the player, 0 for Mr X
+	 * @param ticket the ticket ordinal
+	 * @return the number of tickets the player has
+	 */
+	public int tickets(int player, int ticket) {
+		return columns[4].get((row * players + player) * CompactState.TICKETS + ticket) & 0xFF;
+	}
+
+	/**
+	 * @return the number of valid moves
+	 */
+	public int moveCount() {
+		return moveStart[row + 1] - moveStart[row];
+	}
+
+	/**
+	 * @param index the index of the move, less than {@link #moveCount()}
+	 * @return the valid move, encoded as in {@link CompactState} but with
+	 *         board locations
+	 */
+	public long move(int index) {
+		if (index < 0 || index >= moveCount()) throw new IndexOutOfBoundsException(index);
+		return columns[8].getLong((moveStart[row] + index) * Long.BYTES);
+	}
+
+	/**
+	 * @return the index of the move played among the valid moves
+	 */
+	public int choice() {
+		return Short.toUnsignedInt(columns[6].getShort(row * Short.BYTES));
+	}
+
+	/**
+	 * @return the winner of the game
+	 */
+	public Outcome outcome() {
+		return OUTCOMES[columns[7].get(row)];
+	}
+
+	@Override
+	public void close() throws IOException {
+		inflater.end();
+		channel.close();
+	}
+
+}
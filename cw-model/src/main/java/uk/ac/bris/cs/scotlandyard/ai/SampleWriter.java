@@ -0,0 +1,316 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.zip.Deflater;
+
+import uk.ac.bris.cs.scotlandyard.ai.CompactState.Outcome;
+
+/**
+ * Streams training samples to a columnar file, one sample per decision: the
+ * position, the valid moves, the move chosen and how the game ended. Unlike
+ * the Java source a {@link uk.ac.bris.cs.scotlandyard.harness.CodeGenRecorder}
+ * writes, the file is meant to be read back in bulk with a
+ * {@link SampleReader}. <br>
+ * Samples are grouped into chunks of whole games of at least
+ * {@link #CHUNK_ROWS} samples; every column of a chunk is a fixed width
+ * primitive array compressed on its own, so columns compress well and a
+ * reader can decode a chunk with a few bulk operations. Moves are stored as
+ * in {@link CompactState} but with board locations, so the data does not
+ * depend on how a map numbers its nodes. Locations are ints so any board
+ * value fits; move counts and choices are unsigned shorts. <br>
+ * The layout is: a header ({@code "SYTD"}, version, players), then for every
+ * chunk the number of samples, the number of valid moves, the compressed size
+ * of each column in {@link SampleReader} column order and the columns.
+ */
+public final class SampleWriter implements Closeable {
+
+	/**
+	 * Minimum number of samples per chunk
+	 */
+	public static final int CHUNK_ROWS = 4096;
+
+	static final int MAGIC = 0x53595444; // "SYTD"
+	static final int VERSION = 2;
+	static final int COLUMNS = 9;
+
+	private final DataOutputStream out;
+	private final int players;
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+	private byte[] compressed = new byte[1 << 16];
+
+	// Columns of the current chunk, one entry per sample unless noted
+	private int rows;
+	private byte[] round = new byte[CHUNK_ROWS];
+	private byte[] current = new byte[CHUNK_ROWS];
+	private int[] revealed = new int[CHUNK_ROWS];
+	private int[] locations; // players per sample
+	private byte[] tickets; // players * TICKETS per sample
+	private short[] moveCount = new short[CHUNK_ROWS];
+	private short[] chosen = new short[CHUNK_ROWS];
+	private byte[] outcome = new byte[CHUNK_ROWS];
+	private long[] moves = new long[CHUNK_ROWS * 8]; // moveCount per sample
+	private int moveTotal;
+
+	private int gameStart; // first sample of the game being recorded
+	private long samples;
+	private long games;
+
+	private SampleWriter(DataOutputStream out, int players) {
+		this.out = out;
+		this.players = players;
+		this.locations = new int[CHUNK_ROWS * players];
+		this.tickets = new byte[CHUNK_ROWS * players * CompactState.TICKETS];
+	}
+
+	/**
+	 * Creates a file for samples of games with a given number of players
+	 *
+	 * @param file the file, overwritten if it exists; not null
+	 * @param players the number of players including Mr X; at least 2
+	 * @return the writer, close it when done; never null
+	 * @throws IOException if the file cannot be created
+	 */
+	public static SampleWriter create(Path file, int players) throws IOException {
+		if (players < 2) throw new IllegalArgumentException("players < 2");
+		DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(players);
+		return new SampleWriter(out, players);
+	}
+
+	/**
+	 * @return the number of samples of finished games written so far
+	 */
+	public long samples() {
+		return samples;
+	}
+
+	/**
+	 * @return the number of finished games written so far
+	 */
+	public long games() {
+		return games;
+	}
+
+	/**
+	 * Records a decision of the game being recorded
+	 *
+	 * @param state the position before the move; not null, not modified
+	 * @param valid the valid moves from {@link CompactState#generateMoves(long[])}
+	 * @param count the number of valid moves; at least 1
+	 * @param choice the index of the move played
+	 */
+	public void add(CompactState state, long[] valid, int count, int choice) {
+		if (state.players() != players)
+			throw new IllegalArgumentException("Writer is for " + players + " players");
+		if (choice < 0 || choice >= count)
+			throw new IllegalArgumentException("Choice " + choice + " is not one of " + count);
+		if (count > 0xFFFF) throw new IllegalArgumentException("Too many moves: " + count);
+		ensureCapacity(rows + 1, moveTotal + count);
+		CompactMap map = state.map();
+		round[rows] = (byte) state.round();
+		current[rows] = (byte) state.currentPlayer();
+		revealed[rows] = state.revealedLocation();
+		for (int player = 0; player < players; player++) {
+			locations[rows * players + player] = map.value(state.location(player));
+			for (int ticket = 0; ticket < CompactState.TICKETS; ticket++) {
+				int value = state.tickets(player, ticket);
+				if (value > 0xFF) throw new IllegalArgumentException("Too many tickets: " + value);
+				tickets[(rows * players + player) * CompactState.TICKETS + ticket] = (byte) value;
+			}
+		}
+		for (int i = 0; i < count; i++) moves[moveTotal + i] = toBoard(map, valid[i]);
+		moveCount[rows] = (short) count;
+		chosen[rows] = (short) choice;
+		moveTotal += count;
+		rows++;
+	}
+
+	private static long toBoard(CompactMap map, long move) {
+		if (move == CompactState.PASS) return move;
+		long first = CompactState.single(CompactState.firstTicket(move),
+				map.value(CompactState.firstTarget(move)));
+		if (!CompactState.isDouble(move)) return first;
+		long second = CompactState.single(CompactState.secondTicket(move),
+				map.value(CompactState.secondTarget(move)));
+		return first | (second + 1) << 32;
+	}
+
+	private void ensureCapacity(int rowsNeeded, int movesNeeded) {
+		if (rowsNeeded > round.length) {
+			int size = Math.max(rowsNeeded, round.length * 2);
+			round = Arrays.copyOf(round, size);
+			current = Arrays.copyOf(current, size);
+			revealed = Arrays.copyOf(revealed, size);
+			locations = Arrays.copyOf(locations, size * players);
+			tickets = Arrays.copyOf(tickets, size * players * CompactState.TICKETS);
+			moveCount = Arrays.copyOf(moveCount, size);
+			chosen = Arrays.copyOf(chosen, size);
+			outcome = Arrays.copyOf(outcome, size);
+		}
+		if (movesNeeded > moves.length)
+			moves = Arrays.copyOf(moves, Math.max(movesNeeded, moves.length * 2));
+	}
+
+	/**
+	 * Ends the game being recorded, giving all its samples the outcome
+	 *
+	 * @param winner who won; not {@link Outcome#NONE}
+	 * @throws IOException if a full chunk cannot be written
+	 */
+	public void finishGame(Outcome winner) throws IOException {
+		if (requireNonNull(winner) == Outcome.NONE)
+			throw new IllegalArgumentException("The game is not over");
+		Arrays.fill(outcome, gameStart, rows, (byte) winner.ordinal());
+		samples += rows - gameStart;
+		games++;
+		gameStart = rows;
+		if (rows >= CHUNK_ROWS) flush();
+	}
+
+	/**
+	 * Plays a game from a position with uniformly random moves, like
+	 * {@link PlayoutEngine#playout(CompactState, long[], SplittableRandom)},
+	 * recording every decision
+	 *
+	 * @param start the position to play from, not modified; not null
+	 * @param random the source of randomness; not null
+	 * @return the winner; never {@link Outcome#NONE}
+	 * @throws IOException if a full chunk cannot be written
+	 */
+	public Outcome play(CompactState start, SplittableRandom random) throws IOException {
+		CompactState state = start.copy();
+		long[] buffer = new long[state.maxMoves()];
+		Outcome winner;
+		while ((winner = state.outcome()) == Outcome.NONE) {
+			int count = state.generateMoves(buffer);
+			if (count == 0) {
+				winner = Outcome.DETECTIVES; // Mr X is stuck
+				break;
+			}
+			int choice = random.nextInt(count);
+			add(state, buffer, count, choice);
+			state.apply(buffer[choice]);
+		}
+		finishGame(winner);
+		return winner;
+	}
+
+	/**
+	 * Plays random games from a position, each with its own random stream
+	 * split from the seed
+	 *
+	 * @param start the position to play from, not modified; not null
+	 * @param games the number of games
+	 * @param seed the seed
+	 * @throws IOException if writing fails
+	 */
+	public void play(CompactState start, int games, long seed) throws IOException {
+		SplittableRandom root = new SplittableRandom(seed);
+		for (int i = 0; i < games; i++) play(start, root.split());
+	}
+
+	private void flush() throws IOException {
+		if (gameStart == 0) return;
+		int rows = gameStart;
+		int moveRows = 0;
+		for (int i = 0; i < rows; i++) moveRows += moveCount[i];
+		ByteBuffer[] columns = {
+				ByteBuffer.wrap(round, 0, rows),
+				ByteBuffer.wrap(current, 0, rows),
+				ints(revealed, rows),
+				ints(locations, rows * players),
+				ByteBuffer.wrap(tickets, 0, rows * players * CompactState.TICKETS),
+				shorts(moveCount, rows),
+				shorts(chosen, rows),
+				ByteBuffer.wrap(outcome, 0, rows),
+				longs(moves, moveRows)};
+		byte[][] data = new byte[COLUMNS][];
+		int[] sizes = new int[COLUMNS];
+		for (int i = 0; i < COLUMNS; i++) {
+			sizes[i] = compress(columns[i]);
+			data[i] = Arrays.copyOf(compressed, sizes[i]);
+		}
+		out.writeInt(rows);
+		out.writeInt(moveRows);
+		for (int size : sizes) out.writeInt(size);
+		for (int i = 0; i < COLUMNS; i++) out.write(data[i], 0, sizes[i]);
+		compact(rows, moveRows);
+	}
+
+	// Moves the samples of an unfinished game to the front
+	private void compact(int flushed, int flushedMoves) {
+		int left = this.rows - flushed;
+		System.arraycopy(round, flushed, round, 0, left);
+		System.arraycopy(current, flushed, current, 0, left);
+		System.arraycopy(revealed, flushed, revealed, 0, left);
+		System.arraycopy(locations, flushed * players, locations, 0, left * players);
+		int width = players * CompactState.TICKETS;
+		System.arraycopy(tickets, flushed * width, tickets, 0, left * width);
+		System.arraycopy(moveCount, flushed, moveCount, 0, left);
+		System.arraycopy(chosen, flushed, chosen, 0, left);
+		System.arraycopy(moves, flushedMoves, moves, 0, moveTotal - flushedMoves);
+		this.rows = left;
+		moveTotal -= flushedMoves;
+		gameStart = 0;
+	}
+
+	private static ByteBuffer shorts(short[] values, int length) {
+		ByteBuffer buffer = ByteBuffer.allocate(length * Short.BYTES);
+		buffer.asShortBuffer().put(values, 0, length);
+		return buffer;
+	}
+
+	private static ByteBuffer ints(int[] values, int length) {
+		ByteBuffer buffer = ByteBuffer.allocate(length * Integer.BYTES);
+		buffer.asIntBuffer().put(values, 0, length);
+		return buffer;
+	}
+
+	private static ByteBuffer longs(long[] values, int length) {
+		ByteBuffer buffer = ByteBuffer.allocate(length * Long.BYTES);
+		buffer.asLongBuffer().put(values, 0, length);
+		return buffer;
+	}
+
+	private int compress(ByteBuffer column) {
+		deflater.reset();
+		deflater.setInput(column.array(), column.arrayOffset() + column.position(),
+				column.remaining());
+		deflater.finish();
+		int size = 0;
+		while (!deflater.finished()) {
+			if (size == compressed.length) compressed = Arrays.copyOf(compressed, size * 2);
+			size += deflater.deflate(compressed, size, compressed.length - size);
+		}
+		return size;
+	}
+
+	/**
+	 * Writes the remaining finished games; samples of a game that was not
+	 * finished with {@link #finishGame(Outcome)} are dropped
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+			out.flush();
+		} finally {
+			deflater.end();
+			out.close();
+		}
+	}
+
+}
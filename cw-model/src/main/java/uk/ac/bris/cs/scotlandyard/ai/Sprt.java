@@ -0,0 +1,99 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+/**
+ * Sequential probability ratio test deciding whether one AI is stronger than
+ * another by a given Elo margin. Games of Scotland Yard cannot be drawn, so
+ * every game is a Bernoulli trial with the expected score the Elo difference
+ * gives; after each game the log likelihood ratio of H1 (difference
+ * {@code elo1}) against H0 (difference {@code elo0}) is compared with the
+ * Wald bounds for the error rates. <br>
+ * On average this needs far fewer games than a fixed size test with the same
+ * error rates, most of all when the difference is clearly outside
+ * [elo0, elo1].
+ */
+public final class Sprt {
+
+	public enum Verdict {
+		/**
+		 * Neither bound reached, more games are needed
+		 */
+		CONTINUE,
+
+		/**
+		 * The difference is at most {@code elo0}
+		 */
+		ACCEPT_H0,
+
+		/**
+		 * The difference is at least {@code elo1}
+		 */
+		ACCEPT_H1
+	}
+
+	private final double winWeight;
+	private final double lossWeight;
+	private final double lower;
+	private final double upper;
+	private double llr;
+	private int games;
+
+	/**
+	 * @param elo0 the Elo difference of H0
+	 * @param elo1 the Elo difference of H1; greater than {@code elo0}
+	 * @param alpha the probability of accepting H1 when H0 holds; in (0, 1)
+	 * @param beta the probability of accepting H0 when H1 holds; in (0, 1)
+	 */
+	public Sprt(double elo0, double elo1, double alpha, double beta) {
+		if (!(elo1 > elo0)) throw new IllegalArgumentException("elo1 <= elo0");
+		if (!(alpha > 0 && alpha < 1 && beta > 0 && beta < 1))
+			throw new IllegalArgumentException("Error rates must be in (0, 1)");
+		double p0 = EloRatings.expectedScore(elo0);
+		double p1 = EloRatings.expectedScore(elo1);
+		this.winWeight = Math.log(p1 / p0);
+		this.lossWeight = Math.log((1 - p1) / (1 - p0));
+		this.lower = Math.log(beta / (1 - alpha));
+		this.upper = Math.log((1 - beta) / alpha);
+	}
+
+	/**
+	 * Adds the result of a game
+	 *
+	 * @param won whether the tested AI won
+	 * @return the verdict after this game
+	 */
+	public Verdict add(boolean won) {
+		llr += won ? winWeight : lossWeight;
+		games++;
+		return verdict();
+	}
+
+	/**
+	 * @return the verdict so far
+	 */
+	public Verdict verdict() {
+		if (llr <= lower) return Verdict.ACCEPT_H0;
+		if (llr >= upper) return Verdict.ACCEPT_H1;
+		return Verdict.CONTINUE;
+	}
+
+	/**
+	 * @return the log likelihood ratio of H1 against H0 so far
+	 */
+	public double llr() {
+		return llr;
+	}
+
+	/**
+	 * @return the number of games added
+	 */
+	public int games() {
+		return games;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Sprt{games=%d, llr=%.3f, bounds=[%.3f, %.3f], verdict=%s}", games, llr,
+				lower, upper, verdict());
+	}
+
+}
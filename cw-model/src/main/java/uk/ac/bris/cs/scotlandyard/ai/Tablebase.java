@@ -0,0 +1,375 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.LongStream;
+
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+
+/**
+ * A solved endgame table for the perfect information capture game: for every
+ * (Mr X location, detective locations, player to move) it holds the number of
+ * moves (plies) the detectives need to force a capture, or that Mr X can
+ * survive forever. <br>
+ * Tickets are abstracted away: every player is assumed to have unlimited
+ * tickets, Mr X may use any connection (as with a secret ticket) but never
+ * double moves, detectives may not use ferries and pass only when blocked. A
+ * forced capture in the table is therefore a strong hint, not a proof, for a
+ * real game. The abstraction cannot be turned off: counting tickets exactly
+ * multiplies the positions by the ticket combinations of every player, a few
+ * hundred per detective, which no longer fits in memory or on disk. <br>
+ * Tables are generated once with {@link #generate(CompactMap, int, Path)} by
+ * retrograde analysis over all cores and probed in O(1) through a memory
+ * mapped file, so several players and JVMs can share one copy. Positions take
+ * a byte each, i.e. {@code nodes^(detectives + 1) * (detectives + 1)} bytes;
+ * the standard map with two detectives needs about 24MB. A byte holds forced
+ * captures of up to {@link #MAX_DISTANCE} plies; generating a table with a
+ * longer one fails rather than mistaking it for {@link #SURVIVES}.
+ */
+public final class Tablebase implements Closeable {
+
+	/**
+	 * Returned by the probes when the detectives cannot force a capture
+	 */
+	public static final int SURVIVES = -1;
+	/**
+	 * The longest forced capture, in plies, a table can hold
+	 */
+	public static final int MAX_DISTANCE = 254;
+
+	private static final int MAGIC = 0x53595442; // "SYTB"
+	private static final int VERSION = 1;
+	private static final int HEADER = 32;
+	private static final int CHUNK_BITS = 30;
+	private static final long CHUNK = 1L << CHUNK_BITS;
+	private static final int MAX_VALUE = MAX_DISTANCE + 1; // values are distance + 1, 0 for survives
+
+	private final FileChannel channel;
+	private final MappedByteBuffer[] chunks;
+	private final int nodes;
+	private final int detectives;
+	private final long positions;
+
+	private Tablebase(FileChannel channel, MapMode mode, int nodes, int detectives)
+			throws IOException {
+		this.channel = channel;
+		this.nodes = nodes;
+		this.detectives = detectives;
+		this.positions = positions(nodes, detectives);
+		this.chunks = new MappedByteBuffer[(int) ((positions + CHUNK - 1) / CHUNK)];
+		for (int i = 0; i < chunks.length; i++) {
+			long start = i * CHUNK;
+			chunks[i] = channel.map(mode, HEADER + start, Math.min(CHUNK, positions - start));
+		}
+	}
+
+	private static long positions(int nodes, int detectives) {
+		long positions = detectives + 1;
+		for (int i = 0; i <= detectives; i++) positions = Math.multiplyExact(positions, nodes);
+		return positions;
+	}
+
+	/**
+	 * Opens a table previously generated for the given map
+	 *
+	 * @param file the table; not null
+	 * @param map the map; not null
+	 * @return the table, close it when done; never null
+	 * @throws IOException if the file cannot be read, is not a table or was
+	 *         generated for another map
+	 */
+	public static Tablebase open(Path file, CompactMap map) throws IOException {
+		FileChannel channel = FileChannel.open(file, READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER);
+			while (header.hasRemaining()) if (channel.read(header) < 0) break;
+			header.flip();
+			if (header.remaining() < HEADER || header.getInt() != MAGIC)
+				throw new IOException(file + " is not a tablebase");
+			int version = header.getInt();
+			if (version != VERSION) throw new IOException("Unsupported tablebase version " + version);
+			int nodes = header.getInt();
+			int detectives = header.getInt();
+			if (nodes != map.size() || header.getLong() != fingerprint(map))
+				throw new IOException(file + " was generated for a different map");
+			if (detectives < 1 || channel.size() < HEADER + positions(nodes, detectives))
+				throw new IOException(file + " is truncated");
+			return new Tablebase(channel, MapMode.READ_ONLY, nodes, detectives);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Solves the capture game for a number of detectives and writes the table
+	 * to a file, using all available processors
+	 *
+	 * @param map the map; not null
+	 * @param detectives the number of detectives; at least 1
+	 * @param file where to write the table, overwritten if it exists; not
+	 *        null
+	 * @return the generated table opened for probing; never null
+	 * @throws IOException if the table cannot be written
+	 * @throws IllegalStateException if a forced capture takes more than
+	 *         {@link #MAX_DISTANCE} plies; the file is deleted
+	 */
+	public static Tablebase generate(CompactMap map, int detectives, Path file) throws IOException {
+		if (detectives < 1) throw new IllegalArgumentException("detectives < 1");
+		try (FileChannel channel = FileChannel.open(file, CREATE, TRUNCATE_EXISTING, READ, WRITE)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER);
+			header.putInt(MAGIC).putInt(VERSION).putInt(map.size()).putInt(detectives)
+					.putLong(fingerprint(map));
+			header.clear();
+			while (header.hasRemaining()) channel.write(header);
+			Tablebase table = new Tablebase(channel, MapMode.READ_WRITE, map.size(), detectives);
+			new Generator(map, table).run();
+			for (MappedByteBuffer chunk : table.chunks) chunk.force();
+		} catch (IllegalStateException e) {
+			Files.deleteIfExists(file);
+			throw e;
+		}
+		return open(file, map);
+	}
+
+	// Identifies a map by its nodes and edges so a table is never probed with
+	// indices of another map
+	private static long fingerprint(CompactMap map) {
+		long hash = map.size();
+		for (int node = 0; node < map.size(); node++) {
+			hash = hash * 31 + map.value(node);
+			for (int edge = map.edgeStart(node); edge < map.edgeEnd(node); edge++)
+				hash = hash * 31 + map.target(edge) * 8L + map.ticket(edge);
+		}
+		return hash;
+	}
+
+	/**
+	 * @return the number of detectives the table was generated for
+	 */
+	public int detectives() {
+		return detectives;
+	}
+
+	/**
+	 * Looks up a position
+	 *
+	 * @param mrX the node index of Mr X
+	 * @param detectives the node index of each detective in order of play
+	 * @param toMove the player to move, 0 for Mr X
+	 * @return the number of moves until the detectives capture Mr X with best
+	 *         play from both sides, or {@link #SURVIVES}
+	 */
+	public int distance(int mrX, int[] detectives, int toMove) {
+		if (detectives.length != this.detectives)
+			throw new IllegalArgumentException("Table is for " + this.detectives + " detectives");
+		long index = mrX;
+		for (int detective : detectives) index = index * nodes + detective;
+		return get(index * (this.detectives + 1) + toMove) - 1;
+	}
+
+	/**
+	 * Looks up a position, tickets in the state are ignored
+	 *
+	 * @param state the position; not null, with as many detectives as the
+	 *        table
+	 * @return the number of moves until the detectives capture Mr X with best
+	 *         play from both sides, or {@link #SURVIVES}
+	 */
+	public int distance(CompactState state) {
+		if (state.players() != detectives + 1)
+			throw new IllegalArgumentException("Table is for " + detectives + " detectives");
+		long index = 0;
+		for (int player = 0; player < state.players(); player++)
+			index = index * nodes + state.location(player);
+		return get(index * (detectives + 1) + state.currentPlayer()) - 1;
+	}
+
+	/**
+	 * @param state the position; not null, with as many detectives as the
+	 *        table
+	 * @return whether the table has a capture before the last round ends
+	 */
+	public boolean captureForced(CompactState state) {
+		int distance = distance(state);
+		if (distance == SURVIVES) return false;
+		int turns = detectives + 1;
+		int current = state.currentPlayer();
+		int left = (state.rounds() - state.round()) * turns + (current == 0 ? 0 : turns - current);
+		return distance <= left;
+	}
+
+	private int get(long index) {
+		return chunks[(int) (index >>> CHUNK_BITS)].get((int) (index & (CHUNK - 1))) & 0xFF;
+	}
+
+	private void put(long index, int value) {
+		chunks[(int) (index >>> CHUNK_BITS)].put((int) (index & (CHUNK - 1)), (byte) value);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Retrograde analysis: positions where Mr X is caught (or stuck) get
+	 * value 1, then level by level every predecessor of a position with value
+	 * n is checked. A detective to move takes the first capture it finds, Mr X
+	 * to move only loses once all his moves lose. Each level only writes
+	 * n + 1, so the parallel sweeps give the same table whatever the
+	 * scheduling.
+	 */
+	private static final class Generator {
+
+		private static final int BLOCK = 1 << 16;
+		private static final int SECRET = Ticket.SECRET.ordinal();
+
+		private final CompactMap map;
+		private final Tablebase table;
+		private final int nodes;
+		private final int turns;
+		private final long mrXStride; // index distance between adjacent Mr X locations
+		private final int[] inStart; // incoming edges of node i are [inStart[i], inStart[i + 1])
+		private final int[] inSource;
+		private final boolean[] inFerry;
+
+		Generator(CompactMap map, Tablebase table) {
+			this.map = map;
+			this.table = table;
+			this.nodes = map.size();
+			this.turns = table.detectives + 1;
+			this.mrXStride = table.positions / nodes;
+
+			int edges = map.edgeEnd(nodes - 1);
+			inStart = new int[nodes + 1];
+			inSource = new int[edges];
+			inFerry = new boolean[edges];
+			for (int edge = 0; edge < edges; edge++) inStart[map.target(edge) + 1]++;
+			for (int i = 0; i < nodes; i++) inStart[i + 1] += inStart[i];
+			int[] fill = inStart.clone();
+			for (int node = 0; node < nodes; node++) {
+				for (int edge = map.edgeStart(node); edge < map.edgeEnd(node); edge++) {
+					int slot = fill[map.target(edge)]++;
+					inSource[slot] = node;
+					inFerry[slot] = map.ticket(edge) == SECRET;
+				}
+			}
+		}
+
+		void run() {
+			long blocks = (table.positions + BLOCK - 1) / BLOCK;
+			LongStream.range(0, blocks).parallel().forEach(this::initialise);
+			// Runs one level past the last value that fits, which must resolve nothing
+			for (int level = 1; level <= MAX_VALUE; level++) {
+				int value = level;
+				if (LongStream.range(0, blocks).parallel().map(b -> retract(b, value)).sum() == 0)
+					break;
+			}
+		}
+
+		private int decode(long index, int[] locations) {
+			int turn = (int) (index % turns);
+			index /= turns;
+			for (int i = turns - 1; i > 0; i--) {
+				locations[i] = (int) (index % nodes);
+				index /= nodes;
+			}
+			locations[0] = (int) index;
+			return turn;
+		}
+
+		private long encode(int[] locations, int turn) {
+			long index = 0;
+			for (int location : locations) index = index * nodes + location;
+			return index * turns + turn;
+		}
+
+		private boolean occupied(int[] locations, int node, int except) {
+			for (int i = 1; i < turns; i++) if (i != except && locations[i] == node) return true;
+			return false;
+		}
+
+		private void initialise(long block) {
+			int[] locations = new int[turns];
+			long end = Math.min(table.positions, (block + 1) * BLOCK);
+			for (long index = block * BLOCK; index < end; index++) {
+				int turn = decode(index, locations);
+				if (occupied(locations, locations[0], 0)
+						|| (turn == 0 && !mrXCanMove(locations))) table.put(index, 1);
+			}
+		}
+
+		private boolean mrXCanMove(int[] locations) {
+			int from = locations[0];
+			for (int edge = map.edgeStart(from); edge < map.edgeEnd(from); edge++)
+				if (!occupied(locations, map.target(edge), 0)) return true;
+			return false;
+		}
+
+		private boolean detectiveCanMove(int[] locations, int detective) {
+			int from = locations[detective];
+			for (int edge = map.edgeStart(from); edge < map.edgeEnd(from); edge++) {
+				if (map.ticket(edge) != SECRET && !occupied(locations, map.target(edge), detective))
+					return true;
+			}
+			return false;
+		}
+
+		private long retract(long block, int level) {
+			int[] locations = new int[turns];
+			long resolved = 0;
+			long end = Math.min(table.positions, (block + 1) * BLOCK);
+			for (long index = block * BLOCK; index < end; index++) {
+				if (table.get(index) != level) continue;
+				int turn = decode(index, locations);
+				int mover = (turn + turns - 1) % turns;
+				int to = locations[mover];
+				if (occupied(locations, to, mover)) continue;
+				for (int in = inStart[to]; in < inStart[to + 1]; in++) {
+					int from = inSource[in];
+					if (mover != 0 && (inFerry[in] || from == locations[0])) continue;
+					if (occupied(locations, from, mover)) continue;
+					locations[mover] = from;
+					if (update(encode(locations, mover), locations, mover, level)) resolved++;
+					locations[mover] = to;
+				}
+				// A blocked detective passes and leaves the position as it is
+				if (mover != 0 && !detectiveCanMove(locations, mover)
+						&& update(encode(locations, mover), locations, mover, level)) resolved++;
+			}
+			return resolved;
+		}
+
+		private boolean update(long index, int[] locations, int turn, int level) {
+			if (table.get(index) != 0) return false;
+			if (turn == 0) {
+				// Mr X loses only when every move loses, with the longest one
+				long base = index - locations[0] * mrXStride + 1;
+				int from = locations[0];
+				for (int edge = map.edgeStart(from); edge < map.edgeEnd(from); edge++) {
+					int to = map.target(edge);
+					if (occupied(locations, to, 0)) continue;
+					int value = table.get(base + to * mrXStride);
+					if (value == 0 || value > level) return false;
+				}
+			}
+			if (level == MAX_VALUE)
+				throw new IllegalStateException("Forced capture longer than " + MAX_DISTANCE + " plies");
+			table.put(index, level + 1);
+			return true;
+		}
+	}
+
+}
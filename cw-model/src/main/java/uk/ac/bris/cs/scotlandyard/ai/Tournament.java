@@ -0,0 +1,419 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.ai.CompactState.Outcome;
+import uk.ac.bris.cs.scotlandyard.ai.Sprt.Verdict;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.ModelMetrics;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+/**
+ * Plays AIs against each other with {@link HeadlessGame}s and rates them. <br>
+ * Pairings are either a round robin of all AIs or a gauntlet of one
+ * challenger against all others. Games of a pairing come in pairs with the
+ * same start locations and sides swapped, so neither AI profits from the side
+ * it plays. A pairing stops after a maximum number of games or, if a
+ * {@link Sprt} is configured, as soon as the test reaches a verdict on
+ * whether the first AI is stronger than the second. <br>
+ * Pairings run in parallel, the games of one pairing in order; results are
+ * rated in pairing order so a tournament with the same seed gives the same
+ * ratings however many threads ran it, provided the AIs themselves are
+ * deterministic.
+ */
+public final class Tournament {
+
+	private final List<AI> ais;
+	private final AI challenger;
+	private final HeadlessGame game;
+	private final int games;
+	private final double[] sprt; // elo0, elo1, alpha, beta or null
+	private final int seed;
+	private final int threads;
+
+	private Tournament(Builder builder, HeadlessGame game) {
+		this.ais = builder.ais;
+		this.challenger = builder.challenger;
+		this.game = game;
+		this.games = builder.games;
+		this.sprt = builder.sprt;
+		this.seed = builder.seed;
+		this.threads = builder.threads;
+	}
+
+	/**
+	 * Plays all pairings, blocking until they are done
+	 *
+	 * @return the results; never null
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public Result run() throws InterruptedException {
+		List<Callable<Pairing>> tasks = new ArrayList<>();
+		for (int i = 0; i < ais.size(); i++) {
+			for (int j = i + 1; j < ais.size(); j++) {
+				AI first = ais.get(i), second = ais.get(j);
+				if (challenger == null) tasks.add(() -> play(first, second));
+				else if (first.equals(challenger)) tasks.add(() -> play(first, second));
+				else if (second.equals(challenger)) tasks.add(() -> play(second, first));
+			}
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Pairing> pairings = new ArrayList<>();
+			for (Future<Pairing> future : executor.invokeAll(tasks)) {
+				try {
+					pairings.add(future.get());
+				} catch (ExecutionException e) {
+					throw new RuntimeException("Pairing failed", e.getCause());
+				}
+			}
+			return new Result(ais, pairings);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private Pairing play(AI first, AI second) {
+		Sprt test = sprt == null ? null : new Sprt(sprt[0], sprt[1], sprt[2], sprt[3]);
+		boolean[] results = new boolean[games];
+		int played = 0;
+		while (played < games) {
+			int gameSeed = seed + played / 2;
+			results[played++] = game.play(first, second, gameSeed) == Outcome.MR_X;
+			results[played++] = game.play(second, first, gameSeed) == Outcome.DETECTIVES;
+			if (test != null) {
+				test.add(results[played - 2]);
+				if (test.add(results[played - 1]) != Verdict.CONTINUE) break;
+			}
+		}
+		return new Pairing(first, second, Arrays.copyOf(results, played),
+				test == null ? null : test.verdict());
+	}
+
+	/**
+	 * The games of two AIs
+	 */
+	public static final class Pairing {
+
+		private final AI first;
+		private final AI second;
+		private final boolean[] results;
+		private final Verdict verdict;
+
+		private Pairing(AI first, AI second, boolean[] results, Verdict verdict) {
+			this.first = first;
+			this.second = second;
+			this.results = results;
+			this.verdict = verdict;
+		}
+
+		/**
+		 * @return the AI under test, Mr X in every even game
+		 */
+		public AI first() {
+			return first;
+		}
+
+		public AI second() {
+			return second;
+		}
+
+		/**
+		 * @return the number of games played
+		 */
+		public int games() {
+			return results.length;
+		}
+
+		/**
+		 * @param game the game, in the order they were played
+		 * @return whether the first AI won the game
+		 */
+		public boolean firstWon(int game) {
+			return results[game];
+		}
+
+		/**
+		 * @return the number of games the first AI won
+		 */
+		public int firstWins() {
+			int wins = 0;
+			for (boolean won : results) if (won) wins++;
+			return wins;
+		}
+
+		/**
+		 * @return the verdict of the SPRT on the first AI being stronger, or
+		 *         null if the tournament had no SPRT
+		 */
+		public Verdict verdict() {
+			return verdict;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s vs %s: %d-%d%s", first.getName(), second.getName(),
+					firstWins(), games() - firstWins(), verdict == null ? "" : " " + verdict);
+		}
+	}
+
+	/**
+	 * The pairings and ratings of a tournament
+	 */
+	public static final class Result {
+
+		private final List<AI> ais;
+		private final List<Pairing> pairings;
+		private final EloRatings ratings;
+
+		private Result(List<AI> ais, List<Pairing> pairings) {
+			this.ais = ais;
+			this.pairings = Collections.unmodifiableList(pairings);
+			this.ratings = new EloRatings(ais.size(), 16, 2);
+			for (Pairing pairing : pairings) {
+				int first = ais.indexOf(pairing.first), second = ais.indexOf(pairing.second);
+				for (int game = 0; game < pairing.games(); game++) {
+					if (pairing.firstWon(game)) ratings.add(first, second);
+					else ratings.add(second, first);
+				}
+			}
+		}
+
+		public List<Pairing> pairings() {
+			return pairings;
+		}
+
+		/**
+		 * @param ai one of the AIs of the tournament; not null
+		 * @return the incremental Elo rating of the AI
+		 */
+		public double elo(AI ai) {
+			return ratings.elo()[index(ai)];
+		}
+
+		/**
+		 * @param ai one of the AIs of the tournament; not null
+		 * @return the BayesElo rating of the AI
+		 */
+		public double bayesElo(AI ai) {
+			return ratings.bayesElo()[index(ai)];
+		}
+
+		private int index(AI ai) {
+			int index = ais.indexOf(requireNonNull(ai));
+			if (index < 0) throw new IllegalArgumentException(ai.getName() + " did not play");
+			return index;
+		}
+
+		@Override
+		public String toString() {
+			double[] elo = ratings.elo();
+			double[] bayesElo = ratings.bayesElo();
+			Integer[] order = new Integer[ais.size()];
+			for (int i = 0; i < order.length; i++) order[i] = i;
+			Arrays.sort(order, (a, b) -> Double.compare(bayesElo[b], bayesElo[a]));
+			StringBuilder sb = new StringBuilder(
+					String.format("%-24s %9s %9s%n", "AI", "BayesElo", "Elo"));
+			for (int i : order) {
+				sb.append(String.format("%-24s %9.1f %9.1f%n", ais.get(i).getName(), bayesElo[i],
+						elo[i]));
+			}
+			for (Pairing pairing : pairings) sb.append(pairing).append(System.lineSeparator());
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * Configures a tournament; by default a round robin of 100 games per
+	 * pairing on the standard map with five detectives
+	 */
+	public static final class Builder {
+
+		private final List<AI> ais;
+		private AI challenger;
+		private int games = 100;
+		private double[] sprt;
+		private int seed;
+		private int threads = Runtime.getRuntime().availableProcessors();
+		private List<Colour> detectives = Arrays.asList(Colour.BLUE, Colour.GREEN, Colour.RED,
+				Colour.WHITE, Colour.YELLOW);
+		private Duration moveTimeout = Duration.ofSeconds(15);
+		private Graph<Integer, Transport> graph;
+		private ResourceProvider provider;
+
+		/**
+		 * @param ais the AIs taking part, e.g. from {@link AI#scanClasspath()};
+		 *        at least two
+		 */
+		public Builder(List<AI> ais) {
+			if (ais.size() < 2) throw new IllegalArgumentException("A tournament needs two AIs");
+			if (ais.stream().distinct().count() != ais.size())
+				throw new IllegalArgumentException("AIs must be distinct");
+			this.ais = new ArrayList<>(ais);
+		}
+
+		/**
+		 * Plays only the pairings of one AI against all others
+		 *
+		 * @param challenger one of the AIs; not null
+		 * @return this builder
+		 */
+		public Builder gauntlet(AI challenger) {
+			if (!ais.contains(requireNonNull(challenger)))
+				throw new IllegalArgumentException(challenger.getName() + " is not taking part");
+			this.challenger = challenger;
+			return this;
+		}
+
+		/**
+		 * @param games the maximum number of games per pairing; even and
+		 *        positive
+		 * @return this builder
+		 */
+		public Builder games(int games) {
+			if (games < 2 || games % 2 != 0)
+				throw new IllegalArgumentException("games must be even and positive");
+			this.games = games;
+			return this;
+		}
+
+		/**
+		 * Stops pairings early with a {@link Sprt}
+		 *
+		 * @return this builder
+		 * @see Sprt#Sprt(double, double, double, double)
+		 */
+		public Builder sprt(double elo0, double elo1, double alpha, double beta) {
+			new Sprt(elo0, elo1, alpha, beta); // validates
+			this.sprt = new double[] {elo0, elo1, alpha, beta};
+			return this;
+		}
+
+		/**
+		 * @param seed the seed of the start locations of the first game pair,
+		 *        the following pairs use the next seeds
+		 * @return this builder
+		 */
+		public Builder seed(int seed) {
+			this.seed = seed;
+			return this;
+		}
+
+		/**
+		 * @param threads the number of pairings played at once; at least 1
+		 * @return this builder
+		 */
+		public Builder threads(int threads) {
+			if (threads < 1) throw new IllegalArgumentException("threads < 1");
+			this.threads = threads;
+			return this;
+		}
+
+		/**
+		 * @param detectives the detectives in order of play; not empty
+		 * @return this builder
+		 */
+		public Builder detectives(List<Colour> detectives) {
+			this.detectives = new ArrayList<>(detectives);
+			return this;
+		}
+
+		/**
+		 * @param moveTimeout how long a player may think about a move; not null
+		 * @return this builder
+		 */
+		public Builder moveTimeout(Duration moveTimeout) {
+			this.moveTimeout = requireNonNull(moveTimeout);
+			return this;
+		}
+
+		/**
+		 * @param graph the map, defaults to {@link StandardGame#standardGraph()}
+		 * @return this builder
+		 */
+		public Builder graph(Graph<Integer, Transport> graph) {
+			this.graph = requireNonNull(graph);
+			return this;
+		}
+
+		/**
+		 * @param provider the resources handed to the AIs, defaults to one
+		 *        that only has the graph
+		 * @return this builder
+		 */
+		public Builder resources(ResourceProvider provider) {
+			this.provider = requireNonNull(provider);
+			return this;
+		}
+
+		/**
+		 * @return the tournament; never null
+		 * @throws IOException if the standard map cannot be read
+		 */
+		public Tournament build() throws IOException {
+			Graph<Integer, Transport> map = graph == null ? StandardGame.standardGraph() : graph;
+			return new Tournament(this, new HeadlessGame(map, StandardGame.ROUNDS, detectives,
+					moveTimeout, provider));
+		}
+	}
+
+	/**
+	 * Runs a tournament of the AIs on the classpath and prints the results.
+	 * Arguments: {@code [--gauntlet name] [--games n] [--seed n] [--threads n]
+	 * [--sprt elo0 elo1 alpha beta]}. Metrics are published as in
+	 * {@link ModelMetrics#export()}.
+	 *
+	 * @param args the arguments
+	 * @throws Exception if the tournament fails
+	 */
+	public static void main(String[] args) throws Exception {
+		List<AI> ais = AI.scanClasspath();
+		Builder builder = new Builder(ais);
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "--gauntlet":
+					String name = args[++i];
+					builder.gauntlet(ais.stream().filter(ai -> ai.getName().equals(name)).findFirst()
+							.orElseThrow(() -> new IllegalArgumentException("No AI named " + name)));
+					break;
+				case "--games":
+					builder.games(Integer.parseInt(args[++i]));
+					break;
+				case "--seed":
+					builder.seed(Integer.parseInt(args[++i]));
+					break;
+				case "--threads":
+					builder.threads(Integer.parseInt(args[++i]));
+					break;
+				case "--sprt":
+					builder.sprt(Double.parseDouble(args[++i]), Double.parseDouble(args[++i]),
+							Double.parseDouble(args[++i]), Double.parseDouble(args[++i]));
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown argument " + args[i]);
+			}
+		}
+		Closeable metrics = ModelMetrics.export();
+		try {
+			System.out.print(builder.build().run());
+		} finally {
+			metrics.close();
+		}
+	}
+
+}
@@ -0,0 +1,99 @@
+package uk.ac.bris.cs.scotlandyard.harness;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import uk.ac.bris.cs.scotlandyard.harness.CodeGenRecorder.CodeGen;
+import uk.ac.bris.cs.scotlandyard.harness.CodeGenRecorder.Sink;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * This is an internal class designed only for use with the test harness. This class is not
+ * stable and may change anytime without notice.
+ * <br>
+ * A {@link Sink} writing the games of each code generator to a file of its own in a
+ * directory, {@code <name>-<index>.<extension>}. With rotation on, a game that starts once
+ * the current file has reached the size limit starts the next file, so no file is much bigger
+ * than the limit and games are never split across files.
+ */
+public final class CodeGenFiles implements Sink, Closeable {
+
+	private static final class File {
+		final Path path;
+		final int index;
+		final BufferedWriter writer;
+		File(Path path, int index, BufferedWriter writer) {
+			this.path = path;
+			this.index = index;
+			this.writer = writer;
+		}
+	}
+
+	private final Path directory;
+	private final long rotateBytes;
+	private final Map<CodeGen, File> files = new HashMap<>();
+
+	/**
+	 * @param directory the directory to write to, created if missing; not null
+	 * @param rotateBytes the size to start a new file at; 0 or less to keep one file
+	 */
+	public CodeGenFiles(Path directory, long rotateBytes) {
+		this.directory = Objects.requireNonNull(directory);
+		this.rotateBytes = rotateBytes;
+	}
+
+	@Override public synchronized Writer open(CodeGen codeGen) throws IOException {
+		File file = files.get(codeGen);
+		if (file != null && rotateBytes > 0 && Files.size(file.path) >= rotateBytes) {
+			file.writer.close();
+			file = create(codeGen, file.index + 1);
+		} else if (file == null) file = create(codeGen, 0);
+		return file.writer;
+	}
+
+	private File create(CodeGen codeGen, int index) throws IOException {
+		Files.createDirectories(directory);
+		Path path = directory.resolve(String.format("%s-%d.%s",
+				codeGen.name(), index, codeGen.extension()));
+		File file = new File(path, index, Files.newBufferedWriter(path, UTF_8));
+		files.put(codeGen, file);
+		return file;
+	}
+
+	@Override public void finished(CodeGen codeGen, Writer writer) throws IOException {
+		// So the size is known when the next game opens
+		writer.flush();
+	}
+
+	/**
+	 * @param codeGen the code generator
+	 * @return the file it is writing to, if it has started one
+	 */
+	public synchronized Path current(CodeGen codeGen) {
+		File file = files.get(codeGen);
+		return file == null ? null : file.path;
+	}
+
+	@Override public synchronized void close() throws IOException {
+		IOException failed = null;
+		for (File file : files.values()) {
+			try {
+				file.writer.close();
+			} catch (IOException e) {
+				if (failed == null) failed = e;
+				else failed.addSuppressed(e);
+			}
+		}
+		files.clear();
+		if (failed != null) throw failed;
+	}
+
+}
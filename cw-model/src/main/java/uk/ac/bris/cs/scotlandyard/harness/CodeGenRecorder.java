@@ -1,11 +1,18 @@
 package uk.ac.bris.cs.scotlandyard.harness;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 import uk.ac.bris.cs.scotlandyard.model.Colour;
@@ -15,45 +22,208 @@ import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration.Builder;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
 import uk.ac.bris.cs.scotlandyard.model.Spectator;
 
+import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
-import static java.util.stream.Collectors.toSet;
 
 /**
  * This is an internal class designed only for use with the test harness. This class is not
  * stable and may change anytime without notice.
+ * <br>
+ * A recorder either keeps what its code generators write in memory until
+ * {@link #readOut(String)}, or streams it to a {@link Sink} as the game is played, so any
+ * number of games can be recorded one after another ({@link #snap(ScotlandYardView)} starts
+ * the next one) in constant memory.
  */
 public final class CodeGenRecorder {
 
 
 	public interface CodeGen {
 		String name();
+		/**
+		 * @return the extension of the files the output is written to
+		 */
+		String extension();
+		/**
+		 * @return what is written between two interactions
+		 */
+		String separator();
+		/**
+		 * Called when a game starts, before any interaction
+		 */
+		void begin(ImmutableScotlandYardView seed);
+		String header(ImmutableScotlandYardView seed,
+		              ImmutableMap<Colour, PlayerConfiguration> configs,
+		              String graphMethod);
 		void movePicked(ImmutableScotlandYardView seed,
-		                ScotlandYardView view, int location, Set<Move> moves, Move picked);
-		Spectator mkSpectator(ImmutableScotlandYardView seed);
-		String readOut(ImmutableScotlandYardView seed,
-		               ImmutableMap<Colour, PlayerConfiguration> configs,
-		               String graphMethod);
+		                ScotlandYardView view, int location, Set<Move> moves, Move picked,
+		                Consumer<String> out);
+		Spectator mkSpectator(Consumer<String> out);
+		String footer(ImmutableScotlandYardView seed);
+	}
+
+	/**
+	 * Where a streaming recorder writes to
+	 */
+	public interface Sink {
+		/**
+		 * @param codeGen the code generator starting a game
+		 * @return the writer for the game, used until {@link #finished(CodeGen, Writer)}
+		 */
+		Writer open(CodeGen codeGen) throws IOException;
+		/**
+		 * @param codeGen the code generator that finished a game
+		 * @param writer the writer it was given
+		 */
+		void finished(CodeGen codeGen, Writer writer) throws IOException;
+
+		/**
+		 * @param writers the writer of each code generator; flushed after every game but
+		 *                never closed
+		 * @return a sink writing every game of a code generator to its writer
+		 */
+		static Sink to(Function<CodeGen, Writer> writers) {
+			requireNonNull(writers);
+			Map<CodeGen, Writer> buffered = new HashMap<>();
+			return new Sink() {
+				@Override public Writer open(CodeGen codeGen) {
+					return buffered.computeIfAbsent(codeGen, cg -> {
+						Writer writer = requireNonNull(writers.apply(cg));
+						return writer instanceof BufferedWriter
+								? writer : new BufferedWriter(writer);
+					});
+				}
+				@Override public void finished(CodeGen codeGen, Writer writer) throws IOException {
+					writer.flush();
+				}
+			};
+		}
+	}
+
+	// One game of one code generator
+	private static final class Output implements Consumer<String> {
+		final String separator;
+		final Appendable out;
+		boolean first = true;
+		Output(String separator, Appendable out) {
+			this.separator = separator;
+			this.out = out;
+		}
+		@Override public void accept(String interaction) {
+			try {
+				if (!first) out.append(separator);
+				first = false;
+				out.append(interaction);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
 	}
 
 	private ImmutableScotlandYardView seed;
 	private final Map<Colour, PlayerConfiguration> configs = new HashMap<>();
 	private final List<CodeGen> codeGens;
+	private final String graphMethod;
+	private final Sink sink;
+	private final Map<CodeGen, Output> outputs = new LinkedHashMap<>();
+
+	public CodeGenRecorder(List<CodeGen> codeGens) {
+		this.codeGens = codeGens;
+		this.graphMethod = null;
+		this.sink = null;
+	}
 
-	public CodeGenRecorder(List<CodeGen> codeGens) {this.codeGens = codeGens;}
+	/**
+	 * @param codeGens the code generators
+	 * @param graphMethod the code that creates the graph, written in the headers
+	 * @param sink where each game is written as it is played
+	 */
+	public CodeGenRecorder(List<CodeGen> codeGens, String graphMethod, Sink sink) {
+		this.codeGens = codeGens;
+		this.graphMethod = requireNonNull(graphMethod);
+		this.sink = requireNonNull(sink);
+	}
 
+	/**
+	 * Starts recording a game, after its players are observed; a streaming recorder first
+	 * finishes the game before if that was not done
+	 */
 	public final void snap(ScotlandYardView view) {
-		seed = ImmutableScotlandYardView.snapshot(view);
-		if (!configs.keySet().equals(seed.players.stream().map(v -> v.colour).collect(toSet()))) {
+		ImmutableScotlandYardView seed = ImmutableScotlandYardView.snapshot(view);
+		if (!configs.keySet().equals(ImmutableSet.copyOf(seed.getPlayers()))) {
 			throw new IllegalArgumentException("Not all created player(s) were added, created:" +
 					configs + " but game has " + configs);
 		}
+		if (sink != null) end();
+		this.seed = seed;
+		synchronized (outputs) {
+			try {
+				for (CodeGen codeGen : codeGens) {
+					codeGen.begin(seed);
+					Appendable out;
+					if (sink == null) out = new StringBuilder();
+					else {
+						out = sink.open(codeGen);
+						out.append(codeGen.header(seed, ImmutableMap.copyOf(configs),
+								graphMethod));
+					}
+					outputs.put(codeGen, new Output(codeGen.separator(), out));
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * Writes the end of the game being streamed and hands it back to the sink, ready for the
+	 * players of the next game to be observed; does nothing if no game is being streamed
+	 *
+	 * @throws IllegalStateException if the recorder is not streaming
+	 */
+	public final void finish() {
+		if (sink == null) throw new IllegalStateException("Not streaming");
+		end();
+		configs.clear();
+	}
+
+	private void end() {
+		synchronized (outputs) {
+			try {
+				for (Map.Entry<CodeGen, Output> entry : outputs.entrySet()) {
+					Writer writer = (Writer) entry.getValue().out;
+					writer.append(entry.getKey().footer(seed)).append("\n\n");
+					sink.finished(entry.getKey(), writer);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} finally {
+				outputs.clear();
+			}
+		}
 	}
 
+	/**
+	 * @throws IllegalStateException if the recorder is streaming
+	 */
 	public final Map<CodeGen, String> readOut(String graphMethod) {
-		return codeGens.stream().collect(toMap(
-				Function.identity(),
-				cg -> cg.readOut(seed, ImmutableMap.copyOf(configs), graphMethod)));
+		if (sink != null) throw new IllegalStateException("Output is streamed to " + sink);
+		synchronized (outputs) {
+			return codeGens.stream().collect(toMap(
+					Function.identity(),
+					cg -> cg.header(seed, ImmutableMap.copyOf(configs), graphMethod)
+							+ outputs.get(cg).out + cg.footer(seed)));
+		}
+	}
+
+	// Interactions before the first snap or after a finish have no game to go to
+	private Consumer<String> outputOf(CodeGen codeGen) {
+		return interaction -> {
+			synchronized (outputs) {
+				Output output = outputs.get(codeGen);
+				if (output != null) output.accept(interaction);
+			}
+		};
 	}
 
 	public final PlayerConfiguration observePlayer(PlayerConfiguration that) {
@@ -66,7 +236,7 @@ public final class CodeGenRecorder {
 						// pass on null in case downstream expects it for testing
 						callback == null ? null : (Move picked) -> {
 							codeGens.forEach(v -> v.movePicked(seed, view, location, moves,
-									picked));
+									picked, outputOf(v)));
 							callback.accept(picked);
 						})).build();
 		configs.put(that.colour, configuration);
@@ -75,7 +245,7 @@ public final class CodeGenRecorder {
 
 	public final Spectator createSpectator() {
 		List<Spectator> spectators = codeGens.stream()
-				.map(v -> v.mkSpectator(seed))
+				.map(v -> v.mkSpectator(outputOf(v)))
 				.collect(toList());
 		return new Spectator() {
 			@Override public void onMoveMade(ScotlandYardView view, Move move) {
@@ -5,8 +5,10 @@ import com.google.common.collect.ImmutableMap;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import uk.ac.bris.cs.scotlandyard.harness.CodeGenRecorder.CodeGen;
+import uk.ac.bris.cs.scotlandyard.harness.ImmutableScotlandYardView.Snapshots;
 import uk.ac.bris.cs.scotlandyard.model.Colour;
 import uk.ac.bris.cs.scotlandyard.model.DoubleMove;
 import uk.ac.bris.cs.scotlandyard.model.Move;
@@ -32,66 +34,70 @@ import static uk.ac.bris.cs.scotlandyard.model.Colour.YELLOW;
 public class GameModelSequencePUMLCodeGen implements CodeGen {
 
 	private int maxRound = 0;
-	private List<String> interactions = new ArrayList<>();
+	private final Snapshots snapshots = new Snapshots();
 
 	@Override public String name() { return "GameModelSequencePUMLCodeGen"; }
+	@Override public String extension() { return "puml"; }
+	@Override public String separator() { return "\n"; }
+	@Override public void begin(ImmutableScotlandYardView seed) { maxRound = 0; }
 	@Override
 	public void movePicked(ImmutableScotlandYardView seed,
-	                       ScotlandYardView view, int location, Set<Move> moves, Move picked) {
+	                       ScotlandYardView view, int location, Set<Move> moves, Move picked,
+	                       Consumer<String> interactions) {
 
-		ImmutableScotlandYardView now = ImmutableScotlandYardView.snapshot(view);
+		ImmutableScotlandYardView now = snapshots.take(view);
 
 		String current = named(now.getCurrentPlayer());
 
 
 		if (picked.colour().isMrX()) {
-			interactions.add("UI -> ScotlandYardModel : startRotate()");
-			interactions.add("group rotation");
-			interactions.add(format("rnote over ScotlandYardModel: Round=%s, CurrentPlayer=%s",
+			interactions.accept("UI -> ScotlandYardModel : startRotate()");
+			interactions.accept("group rotation");
+			interactions.accept(format("rnote over ScotlandYardModel: Round=%s, CurrentPlayer=%s",
 					now.currentRound, current));
 		}
 
-		interactions.add(
+		interactions.accept(
 				format("ScotlandYardModel -> %s: makeMove(V,int,Set<Move>,Consumer<Move>)",
 						current));
-		interactions.add(format("activate %s", current));
-		interactions.add(format("\t%s-->ScotlandYardModel : Consumer.accept(%s)",
+		interactions.accept(format("activate %s", current));
+		interactions.accept(format("\t%s-->ScotlandYardModel : Consumer.accept(%s)",
 				current, ticketName(picked)));
-		interactions.add(format("deactivate %s", current));
+		interactions.accept(format("deactivate %s", current));
 
 
 	}
-	@Override public Spectator mkSpectator(ImmutableScotlandYardView seed) {
+	@Override public Spectator mkSpectator(Consumer<String> interactions) {
 		return new Spectator() {
 			@Override public void onMoveMade(ScotlandYardView view, Move move) {
-				ImmutableScotlandYardView now = ImmutableScotlandYardView.snapshot(view);
+				ImmutableScotlandYardView now = snapshots.take(view);
 				if (move.colour().isDetective() || move instanceof DoubleMove)
 					appendViewRNote(now, "");
-				interactions.add(format(
+				interactions.accept(format(
 						"ScotlandYardModel->Spectator: onMoveMade(V, %s)", ticketName(move)));
 
 			}
 			@Override public void onRoundStarted(ScotlandYardView view, int round) {
-				ImmutableScotlandYardView now = ImmutableScotlandYardView.snapshot(view);
+				ImmutableScotlandYardView now = snapshots.take(view);
 				if (previousPlayer(now).isMrX()) appendViewRNote(now, "");
-				interactions.add(format(
+				interactions.accept(format(
 						"ScotlandYardModel->Spectator: onRoundStarted(V, %d)", round));
 				maxRound = round;
 			}
 			@Override public void onRotationComplete(ScotlandYardView view) {
-				interactions.add("ScotlandYardModel->Spectator: onRotationComplete(V)");
-				interactions.add("end");
+				interactions.accept("ScotlandYardModel->Spectator: onRotationComplete(V)");
+				interactions.accept("end");
 			}
 			@Override public void onGameOver(ScotlandYardView view, Set<Colour> winningPlayers) {
-				ImmutableScotlandYardView now = ImmutableScotlandYardView.snapshot(view);
-				interactions.add(format("ScotlandYardModel->Spectator: onGameOver(V, [%s])",
-						now.players.stream().map(v -> named(v.colour)).collect(joining(","))));
+				ImmutableScotlandYardView now = snapshots.take(view);
+				interactions.accept(format("ScotlandYardModel->Spectator: onGameOver(V, [%s])",
+						now.getPlayers().stream().map(GameModelSequencePUMLCodeGen::named).collect(joining(","))));
 				appendViewRNote(now, ", GameOver=true");
-				interactions.add("end");
+				interactions.accept("end");
 			}
 
 			private void appendViewRNote(ImmutableScotlandYardView now, String extra) {
-				interactions.add(format("rnote over ScotlandYardModel: " +
+				interactions.accept(format("rnote over ScotlandYardModel: " +
 								"Round=%s, " +
 								"CurrentPlayer=%s" +
 								"%s",
@@ -105,17 +111,15 @@ public class GameModelSequencePUMLCodeGen implements CodeGen {
 			}
 		};
 	}
-	@Override public String readOut(ImmutableScotlandYardView seed,
-	                                ImmutableMap<Colour, PlayerConfiguration> configs,
-	                                String graphMethod) {
+	@Override public String header(ImmutableScotlandYardView seed,
+	                               ImmutableMap<Colour, PlayerConfiguration> configs,
+	                               String graphMethod) {
 
 		List<String> lines = new ArrayList<>();
 
 		lines.add("@startuml\n" +
 				"\n" +
 				"skinparam monochrome true");
-		lines.add(format("title Sample game sequence(%d player, %d rounds)",
-				seed.players.size(), maxRound));
 		lines.add("legend right\n" +
 				"Type legend\n" +
 				"In package: uk.ac.bris.cs.scotlandyard.model\n" +
@@ -131,18 +135,18 @@ public class GameModelSequencePUMLCodeGen implements CodeGen {
 				"participant ScotlandYardModel <<(M, #BBBBBB) " +
 				"java.util.function.Consumer<Move> >>");
 		lines.add("box \"Players\" #LightBlue\n");
-		lines.add(seed.players.stream()
-				.map(v -> format("\tparticipant %s <<(P, #BBBBBB)>>", named(v.colour)))
+		lines.add(seed.getPlayers().stream()
+				.map(v -> format("\tparticipant %s <<(P, #BBBBBB)>>", named(v)))
 				.collect(joining("\n")));
 		lines.add("end box\n");
 		lines.add("autonumber\n");
 
-
-		lines.addAll(interactions);
-
-		lines.add("@enduml");
-
-		return lines.stream().collect(joining("\n"));
+		return lines.stream().collect(joining("\n", "", "\n"));
+	}
+	// The title is only known once the game is over, PlantUML takes it anywhere
+	@Override public String footer(ImmutableScotlandYardView seed) {
+		return format("\ntitle Sample game sequence(%d player, %d rounds)\n@enduml",
+				seed.getPlayers().size(), maxRound);
 	}
 
 
@@ -15,7 +15,6 @@ import java.util.stream.Stream;
 
 import uk.ac.bris.cs.gamekit.graph.Graph;
 import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
-import uk.ac.bris.cs.gamekit.graph.UndirectedGraph;
 import uk.ac.bris.cs.scotlandyard.model.Colour;
 import uk.ac.bris.cs.scotlandyard.model.DoubleMove;
 import uk.ac.bris.cs.scotlandyard.model.Move;
@@ -79,68 +78,152 @@ public final class ImmutableScotlandYardView implements ScotlandYardView {
 		}
 	}
 
+	private static final Ticket[] TICKETS = Ticket.values();
+	private static final int MISSING = -1;
+
 	private final ImmutableList<Colour> colours;
 	private final ImmutableList<Boolean> rounds;
+	private final Graph<Integer, Transport> source;
 	private final ImmutableGraph<Integer, Transport> graph;
 
-	final ImmutableList<ImmutablePlayer> players;
+	// One row per player: its colour's ordinal, location then tickets in Ticket order. Rows
+	// that did not change since the previous snapshot are the previous snapshot's rows
+	private final int[][] rows;
+	// Made from the rows only when something reads them
+	private volatile ImmutableList<ImmutablePlayer> players;
 	final ImmutableSet<Colour> winning;
 	final boolean gameOver;
 	final Colour currentPlayer;
 	final int currentRound;
 
 	public static ImmutableScotlandYardView snapshot(ScotlandYardView view) {
-		return new ImmutableScotlandYardView(view);
+		return new ImmutableScotlandYardView(view, null);
+	}
+
+	/**
+	 * Snapshots a view as a diff against an earlier snapshot: the rounds, graph and the
+	 * players whose location and tickets did not change are shared with it rather than
+	 * copied. The result is equal to {@link #snapshot(ScotlandYardView)} whichever snapshot
+	 * it is taken against.
+	 *
+	 * @param view the view to snapshot; not null
+	 * @param previous an earlier snapshot, preferably of the same game; null to copy it all
+	 * @return the snapshot
+	 */
+	public static ImmutableScotlandYardView snapshot(ScotlandYardView view,
+	                                                 ImmutableScotlandYardView previous) {
+		return new ImmutableScotlandYardView(view, previous);
+	}
+
+	/**
+	 * Takes the snapshots of one game, each against the one taken before it. Safe to use from
+	 * several threads.
+	 */
+	public static final class Snapshots {
+		private volatile ImmutableScotlandYardView last;
+		public ImmutableScotlandYardView take(ScotlandYardView view) {
+			ImmutableScotlandYardView now = new ImmutableScotlandYardView(view, last);
+			last = now;
+			return now;
+		}
 	}
 
 	private ImmutableScotlandYardView(
 			ImmutableList<Colour> colours,
 			ImmutableList<Boolean> rounds,
+			Graph<Integer, Transport> source,
 			ImmutableGraph<Integer, Transport> graph,
+			int[][] rows,
 			ImmutableList<ImmutablePlayer> players,
 			ImmutableSet<Colour> winning, boolean gameOver,
 			Colour currentPlayer, int currentRound) {
 		this.colours = colours;
 		this.rounds = rounds;
+		this.source = source;
 		this.graph = graph;
+		this.rows = rows;
 		this.players = players;
 		this.winning = winning;
 		this.gameOver = gameOver;
 		this.currentPlayer = currentPlayer;
 		this.currentRound = currentRound;
 	}
-	private ImmutableScotlandYardView(ScotlandYardView view) {
-//		Thread.dumpStack();
-		players = view.getPlayers()
-				.stream()
-				.map(p -> {
-					Integer location = view.getPlayerLocation(p).orElseThrow(AssertionError::new);
-					ImmutableMap<Ticket, Integer> tickets = Stream.of(Ticket.values())
-							.collect(ImmutableMap.toImmutableMap(identity(), t -> view
-									.getPlayerTickets(p, t)
-									.orElseThrow(AssertionError::new)));
-					return new ImmutablePlayer(p, location, tickets);
-				}).collect(ImmutableList.toImmutableList());
-		colours = ImmutableList.copyOf(view.getPlayers());
-		winning = ImmutableSet.copyOf(view.getWinningPlayers());
+	private ImmutableScotlandYardView(ScotlandYardView view, ImmutableScotlandYardView previous) {
+		List<Colour> colours = view.getPlayers();
+		this.colours = previous != null && previous.colours.equals(colours)
+				? previous.colours : ImmutableList.copyOf(colours);
+		rows = new int[this.colours.size()][];
+		for (int i = 0; i < rows.length; i++) {
+			Colour colour = this.colours.get(i);
+			int[] row = new int[2 + TICKETS.length];
+			row[0] = colour.ordinal();
+			row[1] = view.getPlayerLocation(colour).orElseThrow(AssertionError::new);
+			for (int t = 0; t < TICKETS.length; t++)
+				row[2 + t] = view.getPlayerTickets(colour, TICKETS[t])
+						.orElseThrow(AssertionError::new);
+			int[] before = previous != null && i < previous.rows.length ? previous.rows[i] : null;
+			rows[i] = Arrays.equals(row, before) ? before : row;
+		}
+		List<Boolean> rounds = view.getRounds();
+		this.rounds = previous != null && previous.rounds.equals(rounds)
+				? previous.rounds : ImmutableList.copyOf(rounds);
+		source = view.getGraph();
+		graph = previous != null && previous.source == source
+				? previous.graph : ImmutableGraph.of(source);
+		Set<Colour> winning = view.getWinningPlayers();
+		this.winning = previous != null && previous.winning.equals(winning)
+				? previous.winning : ImmutableSet.copyOf(winning);
 		gameOver = view.isGameOver();
 		currentRound = view.getCurrentRound();
 		currentPlayer = view.getCurrentPlayer();
-		rounds = ImmutableList.copyOf((view.getRounds()));
-		graph = new ImmutableGraph<>(new UndirectedGraph<>(view.getGraph()));
+	}
+
+	private static int[] row(ImmutablePlayer player) {
+		int[] row = new int[2 + TICKETS.length];
+		row[0] = player.colour.ordinal();
+		row[1] = player.location;
+		for (int t = 0; t < TICKETS.length; t++)
+			row[2 + t] = player.tickets.getOrDefault(TICKETS[t], MISSING);
+		return row;
+	}
+
+	private static ImmutablePlayer player(int[] row) {
+		ImmutableMap.Builder<Ticket, Integer> tickets = ImmutableMap.builder();
+		for (int t = 0; t < TICKETS.length; t++)
+			if (row[2 + t] != MISSING) tickets.put(TICKETS[t], row[2 + t]);
+		return new ImmutablePlayer(Colour.values()[row[0]], row[1], tickets.build());
+	}
+
+	/**
+	 * @return the players with their locations and tickets, made on first use
+	 */
+	ImmutableList<ImmutablePlayer> playerList() {
+		ImmutableList<ImmutablePlayer> players = this.players;
+		if (players == null) {
+			players = Stream.of(rows)
+					.map(ImmutableScotlandYardView::player)
+					.collect(ImmutableList.toImmutableList());
+			this.players = players;
+		}
+		return players;
+	}
+
+	private int[] rowOf(Colour colour) {
+		for (int[] row : rows) if (row[0] == colour.ordinal()) return row;
+		return null;
 	}
 
 	@Override public List<Colour> getPlayers() { return colours; }
 	@Override public Set<Colour> getWinningPlayers() { return winning; }
 	@Override public Optional<Integer> getPlayerLocation(Colour colour) {
-		return players.stream()
-				.filter(p -> p.colour == colour)
-				.map(p -> p.location).findFirst();
+		int[] row = rowOf(colour);
+		return row == null ? Optional.empty() : Optional.of(row[1]);
 	}
 	@Override public Optional<Integer> getPlayerTickets(Colour colour, Ticket ticket) {
-		return players.stream()
-				.filter(p -> p.colour == colour)
-				.map(p -> p.tickets.get(ticket)).findFirst();
+		int[] row = rowOf(colour);
+		if (row == null) return Optional.empty();
+		int count = row[2 + ticket.ordinal()];
+		return count == MISSING ? Optional.empty() : Optional.of(count);
 	}
 	@Override public boolean isGameOver() { return gameOver; }
 	@Override public Colour getCurrentPlayer() { return currentPlayer; }
@@ -150,16 +233,17 @@ public final class ImmutableScotlandYardView implements ScotlandYardView {
 
 
 	private void checkPlayer(Colour colour) {
-		if (players.stream().noneMatch(c -> c.colour == colour))
+		if (rowOf(colour) == null)
 			throw new IllegalArgumentException("Player " + colour +
-					" is not part of " + players);
+					" is not part of " + playerList());
 	}
 
 	public ImmutableScotlandYardView players(ImmutablePlayer... players) {
 		ImmutableList<ImmutablePlayer> mapped = ImmutableList.copyOf(players);
 		mapped.forEach(p -> checkPlayer(p.colour));
-		return new ImmutableScotlandYardView(colours, rounds, graph,
-				mapped, winning, gameOver, currentPlayer, currentRound);
+		int[][] rows = mapped.stream().map(ImmutableScotlandYardView::row).toArray(int[][]::new);
+		return new ImmutableScotlandYardView(colours, rounds, source, graph,
+				rows, mapped, winning, gameOver, currentPlayer, currentRound);
 	}
 	//	public ImmutableSet<Colour> winning() {
 //		return winning.stream().map(ColourAbbr::from)
@@ -173,23 +257,23 @@ public final class ImmutableScotlandYardView implements ScotlandYardView {
 		if (cs.size() != winning.length)
 			throw new IllegalArgumentException("Duplicate colours in " + Arrays.toString(winning));
 		cs.forEach(this::checkPlayer);
-		return new ImmutableScotlandYardView(this.colours, rounds, graph,
-				players, cs, gameOver, currentPlayer, currentRound);
+		return new ImmutableScotlandYardView(this.colours, rounds, source, graph,
+				rows, players, cs, gameOver, currentPlayer, currentRound);
 	}
 	public ImmutableScotlandYardView over(boolean over) {
-		return new ImmutableScotlandYardView(colours, rounds, graph,
-				players, winning, over, currentPlayer, currentRound);
+		return new ImmutableScotlandYardView(colours, rounds, source, graph,
+				rows, players, winning, over, currentPlayer, currentRound);
 	}
 	public ImmutableScotlandYardView current(Colour colour) {
 		checkPlayer(colour);
-		return new ImmutableScotlandYardView(colours, rounds, graph,
-				players, winning, gameOver, colour, currentRound);
+		return new ImmutableScotlandYardView(colours, rounds, source, graph,
+				rows, players, winning, gameOver, colour, currentRound);
 	}
 	public ImmutableScotlandYardView round(int round) {
 		if (round - 1 > rounds.size())
 			throw new IllegalArgumentException(round + " > total round of " + rounds.size());
-		return new ImmutableScotlandYardView(colours, rounds, graph,
-				players, winning, gameOver, currentPlayer, round);
+		return new ImmutableScotlandYardView(colours, rounds, source, graph,
+				rows, players, winning, gameOver, currentPlayer, round);
 	}
 
 	public enum TicketAbbr {
@@ -229,6 +313,16 @@ public final class ImmutableScotlandYardView implements ScotlandYardView {
 		return ts.stream().sorted(Comparator.comparingInt(Enum<T>::ordinal)).collect(toList());
 	}
 
+	private static boolean samePlayers(int[][] left, int[][] right) {
+		if (left.length != right.length) return false;
+		for (int i = 0; i < left.length; i++) {
+			int[] l = left[i], r = right[i];
+			if (l == r) continue;
+			for (int j = 1; j < l.length; j++) if (l[j] != r[j]) return false;
+		}
+		return true;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
@@ -236,7 +330,7 @@ public final class ImmutableScotlandYardView implements ScotlandYardView {
 		ImmutableScotlandYardView that = (ImmutableScotlandYardView) o;
 		return gameOver == that.gameOver &&
 				currentRound == that.currentRound &&
-				Objects.equals(players, that.players) &&
+				samePlayers(rows, that.rows) &&
 				Objects.equals(winning, that.winning) &&
 				currentPlayer == that.currentPlayer &&
 				Objects.equals(rounds, that.rounds) &&
@@ -245,6 +339,11 @@ public final class ImmutableScotlandYardView implements ScotlandYardView {
 
 	@Override
 	public int hashCode() {
+		int players = 1;
+		for (int[] row : rows) {
+			// Like ImmutablePlayer, a player's colour is not part of its value
+			for (int i = 1; i < row.length; i++) players = 31 * players + row[i];
+		}
 		return hash(players, winning, gameOver, currentPlayer, currentRound, rounds, graph);
 	}
 
@@ -256,6 +355,6 @@ public final class ImmutableScotlandYardView implements ScotlandYardView {
 				currentPlayer,
 				gameOver,
 				fixedOrder(winning),
-				players);
+				playerList());
 	}
 }
@@ -7,9 +7,11 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import uk.ac.bris.cs.scotlandyard.harness.ImmutableScotlandYardView.ImmutablePlayer;
+import uk.ac.bris.cs.scotlandyard.harness.ImmutableScotlandYardView.Snapshots;
 import uk.ac.bris.cs.scotlandyard.harness.ImmutableScotlandYardView.TicketAbbr;
 import uk.ac.bris.cs.scotlandyard.harness.CodeGenRecorder.CodeGen;
 import uk.ac.bris.cs.scotlandyard.model.Colour;
@@ -39,15 +41,19 @@ public class TestHarnessPlayOutTestCodeGen implements CodeGen {
 	private final String seedV = "seed";
 	private final String spectatorV = "spectator";
 
-	private final List<String> interactions = new ArrayList<>();
+	private final Snapshots snapshots = new Snapshots();
+	private ImmutableScotlandYardView seed;
 
 	@Override public String name() { return "PlayOutTestCodeGen"; }
+	@Override public String extension() { return "java"; }
+	@Override public String separator() { return ", \n"; }
+	@Override public void begin(ImmutableScotlandYardView seed) { this.seed = seed; }
 
 	@Override public void movePicked(ImmutableScotlandYardView seed,
 	                                 ScotlandYardView view, int location, Set<Move> moves,
-	                                 Move picked) {
-		ImmutableScotlandYardView now = ImmutableScotlandYardView.snapshot(view);
-		interactions.add(format("player(%s).makeMove()" +
+	                                 Move picked, Consumer<String> interactions) {
+		ImmutableScotlandYardView now = snapshots.take(view);
+		interactions.accept(format("player(%s).makeMove()" +
 						"\n\t.givenGameState(eq(%s))" +
 						"\n\t.givenLocation(eq(%d))" +
 						"\n\t.givenMoves(hasSize(%d))" +
@@ -58,33 +64,33 @@ public class TestHarnessPlayOutTestCodeGen implements CodeGen {
 				moves.size(),
 				mkMove(picked)));
 	}
-	@Override public Spectator mkSpectator(ImmutableScotlandYardView seed) {
+	@Override public Spectator mkSpectator(Consumer<String> interactions) {
 		return new Spectator() {
 			@Override public void onMoveMade(ScotlandYardView view, Move move) {
-				ImmutableScotlandYardView now = ImmutableScotlandYardView.snapshot(view);
-				interactions.add(format("spectator().onMoveMade()" +
+				ImmutableScotlandYardView now = snapshots.take(view);
+				interactions.accept(format("spectator().onMoveMade()" +
 								"\t\n.givenGameState(eq(%s))" +
 								"\t\n.givenMove(eq(%s))",
 						mkView(seedV, seed, now), mkMove(move)));
 			}
 			@Override public void onRoundStarted(ScotlandYardView view, int round) {
-				ImmutableScotlandYardView now = ImmutableScotlandYardView.snapshot(view);
-				interactions.add(format("spectator().onRoundStarted()" +
+				ImmutableScotlandYardView now = snapshots.take(view);
+				interactions.accept(format("spectator().onRoundStarted()" +
 								"\t\n.givenGameState(eq(%s))" +
 								"\t\n.givenRound(eq(%d))",
 						mkView(seedV, seed, now), round));
 			}
 			@Override public void onRotationComplete(ScotlandYardView view) {
-				ImmutableScotlandYardView now = ImmutableScotlandYardView.snapshot(view);
-				interactions.add(format("spectator().onRotationComplete()" +
+				ImmutableScotlandYardView now = snapshots.take(view);
+				interactions.accept(format("spectator().onRotationComplete()" +
 								"\t\n.givenGameState(eq(%s))" +
 								"\t\n.respondWith(startRotate(%s))",
 						mkView(seedV, seed, now), gameV));
 			}
 			@Override
 			public void onGameOver(ScotlandYardView view, Set<Colour> winningPlayers) {
-				ImmutableScotlandYardView now = ImmutableScotlandYardView.snapshot(view);
-				interactions.add(format("spectator().onGameOver()" +
+				ImmutableScotlandYardView now = snapshots.take(view);
+				interactions.accept(format("spectator().onGameOver()" +
 								"\t\n.givenGameState(eq(%s))" +
 								"\t\n.givenWinners(eq(ImmutableSet.of(%s)))",
 						mkView(seedV, seed, now),
@@ -96,13 +102,13 @@ public class TestHarnessPlayOutTestCodeGen implements CodeGen {
 	}
 
 
-	@Override public String readOut(ImmutableScotlandYardView seed,
-	                                ImmutableMap<Colour, PlayerConfiguration> configs,
-	                                String graphMethod) {
+	@Override public String header(ImmutableScotlandYardView seed,
+	                               ImmutableMap<Colour, PlayerConfiguration> configs,
+	                               String graphMethod) {
 		List<String> ls = new ArrayList<>();
 		ls.add(format("TestHarness %s = new TestHarness();", harnessV));
 
-		List<ImmutablePlayer> players = seed.players.stream()
+		List<ImmutablePlayer> players = seed.playerList().stream()
 				.map(v -> new ImmutablePlayer(v.colour, configs.get(v.colour).location, v.tickets))
 				.collect(toList());
 
@@ -124,12 +130,14 @@ public class TestHarnessPlayOutTestCodeGen implements CodeGen {
 		ls.add(format("ImmutableScotlandYardView %s = ImmutableScotlandYardView.snapshot(%s);",
 				seedV, gameV));
 
-		ls.add(format("%s.play(%s).startRotationAndAssertTheseInteractionsOccurInOrder(\n%s)" +
-						"\n.thenAssertNoFurtherInteractions();",
-				harnessV, gameV, interactions.stream().collect(joining(", \n"))));
+		ls.add(format("%s.play(%s).startRotationAndAssertTheseInteractionsOccurInOrder(\n",
+				harnessV, gameV));
 
 		return ls.stream().collect(joining("\n"));
 	}
+	@Override public String footer(ImmutableScotlandYardView seed) {
+		return ")\n.thenAssertNoFurtherInteractions();";
+	}
 
 
 	private static String mkTicket(Ticket t) {
@@ -191,7 +199,7 @@ public class TestHarnessPlayOutTestCodeGen implements CodeGen {
 					.map(Colour::name)
 					.collect(joining(", "))));
 		delta.append(format(".players(\n\t//<editor-fold defaultstate=\"%s\"> \n", "collapsed"));
-		delta.append(now.players.stream()
+		delta.append(now.playerList().stream()
 				.map(TestHarnessPlayOutTestCodeGen::mkPlayer)
 				.collect(joining(", \n")));
 		delta.append(")\n\t//</editor-fold>\n");
@@ -0,0 +1,242 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A compact, immutable snapshot of a {@link ScotlandYardModel} that can be
+ * written to a stream and later resumed with
+ * {@link ScotlandYardModel#resume(GameSnapshot, uk.ac.bris.cs.gamekit.graph.Graph, Map)}
+ * without replaying any moves.
+ *
+ * <br>
+ * The snapshot holds the actual location of Mr X, so it should not be shown to
+ * the detectives.
+ */
+public final class GameSnapshot {
+
+	private static final int MAGIC = 0x53594753; // "SYGS"
+	private static final int VERSION = 1;
+	private static final Ticket[] TICKETS = Ticket.values();
+	private static final Colour[] COLOURS = Colour.values();
+
+	private final List<Boolean> rounds;
+	private final int currentRound;
+	private final Colour currentPlayer;
+	private final int revealedLocation;
+	private final List<Colour> players;
+	private final int[] locations;
+	private final int[][] tickets; // indexed by player, then Ticket.ordinal()
+	private final List<TicketMove> travelLog;
+
+	GameSnapshot(List<Boolean> rounds, int currentRound, Colour currentPlayer,
+			int revealedLocation, List<Colour> players, int[] locations, int[][] tickets,
+			List<TicketMove> travelLog) {
+		if (players.isEmpty() || players.get(0).isDetective())
+			throw new IllegalArgumentException("Mr X must be the first player");
+		if (locations.length != players.size() || tickets.length != players.size())
+			throw new IllegalArgumentException("Player state does not match player count");
+		if (!players.contains(Objects.requireNonNull(currentPlayer)))
+			throw new IllegalArgumentException(currentPlayer + " is not in " + players);
+		this.rounds = Collections.unmodifiableList(new ArrayList<>(rounds));
+		this.currentRound = currentRound;
+		this.currentPlayer = currentPlayer;
+		this.revealedLocation = revealedLocation;
+		this.players = Collections.unmodifiableList(new ArrayList<>(players));
+		this.locations = locations;
+		this.tickets = tickets;
+		this.travelLog = Collections.unmodifiableList(new ArrayList<>(travelLog));
+	}
+
+	/**
+	 * @return the reveal rounds of the game; never null
+	 */
+	public List<Boolean> rounds() {
+		return rounds;
+	}
+
+	/**
+	 * @return the round at the time of the snapshot, see
+	 *         {@link ScotlandYardView#getCurrentRound()}
+	 */
+	public int currentRound() {
+		return currentRound;
+	}
+
+	/**
+	 * @return the player who is to move next; never null
+	 */
+	public Colour currentPlayer() {
+		return currentPlayer;
+	}
+
+	/**
+	 * @return the last revealed location of Mr X, or 0 if he has not been
+	 *         revealed yet
+	 */
+	public int revealedLocation() {
+		return revealedLocation;
+	}
+
+	/**
+	 * @return colours of all players in the order of play, Mr X first; never
+	 *         null
+	 */
+	public List<Colour> players() {
+		return players;
+	}
+
+	/**
+	 * @param colour the colour of the player; not null
+	 * @return the actual location of the player
+	 * @throws IllegalArgumentException if the player is not in this snapshot
+	 */
+	public int location(Colour colour) {
+		return locations[indexOf(colour)];
+	}
+
+	/**
+	 * @param colour the colour of the player; not null
+	 * @return a mutable map of the tickets the player holds; never null
+	 * @throws IllegalArgumentException if the player is not in this snapshot
+	 */
+	public Map<Ticket, Integer> tickets(Colour colour) {
+		int[] counts = tickets[indexOf(colour)];
+		Map<Ticket, Integer> map = new EnumMap<>(Ticket.class);
+		for (Ticket ticket : TICKETS) map.put(ticket, counts[ticket.ordinal()]);
+		return map;
+	}
+
+	/**
+	 * The moves Mr X made so far with their actual destinations, one per
+	 * round; a {@link DoubleMove} shows up as its two ticket moves.
+	 *
+	 * @return an immutable list; never null
+	 */
+	public List<TicketMove> travelLog() {
+		return travelLog;
+	}
+
+	private int indexOf(Colour colour) {
+		int index = players.indexOf(Objects.requireNonNull(colour));
+		if (index < 0) throw new IllegalArgumentException(colour + " is not in " + players);
+		return index;
+	}
+
+	/**
+	 * Writes this snapshot in a compact binary form, the stream is not closed
+	 *
+	 * @param stream the stream to write to; not null
+	 * @throws IOException if writing fails
+	 */
+	public void write(OutputStream stream) throws IOException {
+		DataOutputStream out = new DataOutputStream(stream);
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+
+		// reveal rounds are packed 8 to a byte
+		out.writeShort(rounds.size());
+		for (int i = 0; i < rounds.size(); i += 8) {
+			int packed = 0;
+			for (int bit = 0; bit < 8 && i + bit < rounds.size(); bit++)
+				if (rounds.get(i + bit)) packed |= 1 << bit;
+			out.writeByte(packed);
+		}
+
+		out.writeShort(currentRound);
+		out.writeByte(currentPlayer.ordinal());
+		out.writeInt(revealedLocation);
+
+		out.writeByte(players.size());
+		for (int i = 0; i < players.size(); i++) {
+			out.writeByte(players.get(i).ordinal());
+			out.writeInt(locations[i]);
+			for (Ticket ticket : TICKETS) out.writeShort(tickets[i][ticket.ordinal()]);
+		}
+
+		out.writeShort(travelLog.size());
+		for (TicketMove move : travelLog) {
+			out.writeByte(move.ticket().ordinal());
+			out.writeInt(move.destination());
+		}
+		out.flush();
+	}
+
+	/**
+	 * Reads a snapshot previously written with {@link #write(OutputStream)},
+	 * the stream is not closed
+	 *
+	 * @param stream the stream to read from; not null
+	 * @return the snapshot; never null
+	 * @throws IOException if reading fails or the data is not a snapshot
+	 */
+	public static GameSnapshot read(InputStream stream) throws IOException {
+		DataInputStream in = new DataInputStream(stream);
+		if (in.readInt() != MAGIC) throw new IOException("Not a game snapshot");
+		int version = in.readUnsignedByte();
+		if (version != VERSION) throw new IOException("Unsupported snapshot version " + version);
+
+		int roundCount = in.readUnsignedShort();
+		List<Boolean> rounds = new ArrayList<>(roundCount);
+		for (int i = 0; i < roundCount; i += 8) {
+			int packed = in.readUnsignedByte();
+			for (int bit = 0; bit < 8 && i + bit < roundCount; bit++)
+				rounds.add((packed & (1 << bit)) != 0);
+		}
+
+		int currentRound = in.readUnsignedShort();
+		Colour currentPlayer = colour(in.readUnsignedByte());
+		int revealedLocation = in.readInt();
+
+		int playerCount = in.readUnsignedByte();
+		List<Colour> players = new ArrayList<>(playerCount);
+		int[] locations = new int[playerCount];
+		int[][] tickets = new int[playerCount][TICKETS.length];
+		for (int i = 0; i < playerCount; i++) {
+			players.add(colour(in.readUnsignedByte()));
+			locations[i] = in.readInt();
+			for (Ticket ticket : TICKETS) tickets[i][ticket.ordinal()] = in.readUnsignedShort();
+		}
+
+		int logSize = in.readUnsignedShort();
+		List<TicketMove> travelLog = new ArrayList<>(logSize);
+		for (int i = 0; i < logSize; i++) {
+			int ticket = in.readUnsignedByte();
+			if (ticket >= TICKETS.length) throw new IOException("Invalid ticket " + ticket);
+			travelLog.add(new TicketMove(Colour.BLACK, TICKETS[ticket], in.readInt()));
+		}
+
+		try {
+			return new GameSnapshot(rounds, currentRound, currentPlayer, revealedLocation,
+					players, locations, tickets, travelLog);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Corrupted snapshot", e);
+		}
+	}
+
+	private static Colour colour(int ordinal) throws IOException {
+		if (ordinal >= COLOURS.length) throw new IOException("Invalid colour " + ordinal);
+		return COLOURS[ordinal];
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("GameSnapshot{");
+		sb.append("round=").append(currentRound);
+		sb.append(", current=").append(currentPlayer);
+		sb.append(", revealed=").append(revealedLocation);
+		sb.append(", players=").append(players);
+		sb.append(", travelLog=").append(travelLog);
+		sb.append('}');
+		return sb.toString();
+	}
+}
@@ -0,0 +1,87 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events for the hot paths of {@link ScotlandYardModel},
+ * so game phases can be lined up with GC and lock pauses in a recording.
+ * <br>
+ * Events are created, timed and only filled in when
+ * {@link Event#shouldCommit()}; with recording off that is a constant false
+ * once compiled and the event objects are optimised away. Stack traces are
+ * off by default, enable them per event in the recording settings.
+ */
+final class ModelEvents {
+
+	static final String CATEGORY = "Scotland Yard";
+
+	private ModelEvents() {}
+
+	@Name("uk.ac.bris.cs.scotlandyard.MoveGeneration")
+	@Label("Move Generation")
+	@Description("Valid moves generated for a player")
+	@Category({CATEGORY, "Model"})
+	@StackTrace(false)
+	static final class MoveGeneration extends Event {
+
+		@Label("Player")
+		String player;
+
+		@Label("Moves")
+		int moves;
+	}
+
+	@Name("uk.ac.bris.cs.scotlandyard.MoveApplication")
+	@Label("Move Application")
+	@Description("A move applied to the game, including the spectator callbacks it makes")
+	@Category({CATEGORY, "Model"})
+	@StackTrace(false)
+	static final class MoveApplication extends Event {
+
+		@Label("Player")
+		String player;
+
+		@Label("Move")
+		String move;
+
+		@Label("Round")
+		int round;
+	}
+
+	@Name("uk.ac.bris.cs.scotlandyard.SpectatorCallback")
+	@Label("Spectator Callback")
+	@Description("One call to a spectator")
+	@Category({CATEGORY, "Spectator"})
+	@StackTrace(false)
+	static final class SpectatorCallback extends Event {
+
+		@Label("Spectator")
+		Class<?> spectator;
+
+		@Label("Callback")
+		String callback;
+
+		// For ModelMetrics whether or not the event is enabled, not recorded
+		transient long startNanos;
+	}
+
+	@Name("uk.ac.bris.cs.scotlandyard.GameOver")
+	@Label("Game Over")
+	@Description("A game ended")
+	@Category({CATEGORY, "Model"})
+	@StackTrace(false)
+	static final class GameOver extends Event {
+
+		@Label("Winners")
+		String winners;
+
+		@Label("Round")
+		int round;
+	}
+
+}
@@ -0,0 +1,107 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import uk.ac.bris.cs.gamekit.metrics.Counter;
+import uk.ac.bris.cs.gamekit.metrics.Histogram;
+import uk.ac.bris.cs.gamekit.metrics.Meter;
+import uk.ac.bris.cs.gamekit.metrics.MetricRegistry;
+import uk.ac.bris.cs.gamekit.metrics.MetricsServer;
+
+/**
+ * The metrics {@link ScotlandYardModel} records to
+ * {@link MetricRegistry#global()}. <br>
+ * A game is in flight from its first rotation until it is over or
+ * abandoned; whoever gives up on a game early records it to
+ * {@link #ABANDONED}. {@link #export()} publishes every global metric over
+ * JMX and, if asked for, on localhost. <br>
+ * Timing spectator callbacks for {@link #SPECTATOR_NANOS} costs two clock
+ * reads per callback, so it is off until the metrics are exported or
+ * {@link #timeSpectators(boolean)} turns it on.
+ */
+public final class ModelMetrics {
+
+	private static final MetricRegistry REGISTRY = MetricRegistry.global();
+
+	/**
+	 * The system property with the port to serve metrics on, see
+	 * {@link MetricsServer}
+	 */
+	public static final String PORT_PROPERTY = "scotlandyard.metrics.port";
+	/**
+	 * The name of the metrics MBean
+	 */
+	public static final String OBJECT_NAME = "uk.ac.bris.cs.scotlandyard:type=Metrics";
+
+	public static final String STARTED = "game.started";
+	public static final String FINISHED = "game.finished";
+	public static final String ABANDONED = "game.abandoned";
+	public static final String IN_FLIGHT = "game.inFlight";
+	public static final String MOVES = "game.moves";
+	public static final String VALID_MOVES = "game.validMoves";
+	public static final String SPECTATOR_NANOS = "game.spectatorNanos";
+
+	static final Counter STARTED_COUNT = REGISTRY.counter(STARTED);
+	static final Counter FINISHED_COUNT = REGISTRY.counter(FINISHED);
+	static final Counter ABANDONED_COUNT = REGISTRY.counter(ABANDONED);
+	static final Meter MOVE_METER = REGISTRY.meter(MOVES);
+	static final Histogram VALID_MOVE_SIZES = REGISTRY.histogram(VALID_MOVES);
+	static final Histogram SPECTATOR_TIMES = REGISTRY.histogram(SPECTATOR_NANOS);
+
+	private static volatile boolean timingSpectators = false;
+
+	static {
+		REGISTRY.gauge(IN_FLIGHT, () -> STARTED_COUNT.count() - FINISHED_COUNT.count()
+				- ABANDONED_COUNT.count());
+	}
+
+	private ModelMetrics() {}
+
+	/**
+	 * Records a game that was started but will never be over, e.g. because a
+	 * player forfeited
+	 */
+	public static void abandoned() {
+		ABANDONED_COUNT.increment();
+	}
+
+	/**
+	 * @param timing whether to time spectator callbacks into
+	 *        {@link #SPECTATOR_NANOS} from now on
+	 */
+	public static void timeSpectators(boolean timing) {
+		timingSpectators = timing;
+	}
+
+	static boolean timingSpectators() {
+		return timingSpectators;
+	}
+
+	/**
+	 * Registers the global metrics as the {@link #OBJECT_NAME} MBean, unless
+	 * already done, and serves them on the port in {@link #PORT_PROPERTY} if
+	 * it is set; spectator callbacks are timed from then on
+	 *
+	 * @return stops serving when closed; never null
+	 * @throws IOException if the port cannot be bound
+	 */
+	public static Closeable export() throws IOException {
+		try {
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name))
+				REGISTRY.register(name);
+		} catch (MalformedObjectNameException e) {
+			throw new AssertionError(e);
+		}
+		timeSpectators(true);
+		String port = System.getProperty(PORT_PROPERTY);
+		if (port == null) return () -> {};
+		return MetricsServer.start(REGISTRY, Integer.parseInt(port));
+	}
+
+}
@@ -2,6 +2,10 @@ package uk.ac.bris.cs.scotlandyard.model;
 
 import java.util.*;
 
+import jdk.jfr.EventType;
+
+import uk.ac.bris.cs.scotlandyard.model.ModelEvents.SpectatorCallback;
+
 class NotifySpectators {
     static void doubleMoveNotif(Collection<Spectator> spectators, DoubleMove move, int currentRound, List<Boolean> rounds, int revealedLocation, ScotlandYardView view) {
         // Hidden to hidden
@@ -13,32 +17,80 @@ class NotifySpectators {
 
         // Depending on which rounds are true, choose the correct DoubleMove from above
         for (Spectator spectator : spectators) {
+            SpectatorCallback event = begin();
             if (rounds.get(currentRound) && rounds.get(currentRound + 1)) spectator.onMoveMade(view, move);
             else if (rounds.get(currentRound)) spectator.onMoveMade(view, R2H);
             else if (rounds.get(currentRound + 1)) spectator.onMoveMade(view, H2R);
             else spectator.onMoveMade(view, H2H);
+            commit(event, spectator, "onMoveMade");
         }
     }
 
     static void roundNotif (Collection<Spectator> spectators, int currentRound, ScotlandYardView view) {
-        for (Spectator spectator : spectators) spectator.onRoundStarted(view, currentRound);
+        for (Spectator spectator : spectators) {
+            SpectatorCallback event = begin();
+            spectator.onRoundStarted(view, currentRound);
+            commit(event, spectator, "onRoundStarted");
+        }
     }
 
     static void ticketMoveNotif(Collection<Spectator> spectators, TicketMove move, int currentRound, List<Boolean> rounds, int destination, ScotlandYardView view) {
         for (Spectator spectator : spectators) {
+            SpectatorCallback event = begin();
             if (move.colour().isMrX()) {
                 if (rounds.get(currentRound)) spectator.onMoveMade(view, move); // Reveal location
                 else spectator.onMoveMade(view, new TicketMove(move.colour(), move.ticket(), destination)); // Don't reveal location
             }
             else spectator.onMoveMade(view, move);
+            commit(event, spectator, "onMoveMade");
         }
     }
 
     static void passMoveNotif(Collection<Spectator> spectators, PassMove move, ScotlandYardView view) {
-        for (Spectator spectator : spectators) spectator.onMoveMade(view, move);
+        for (Spectator spectator : spectators) {
+            SpectatorCallback event = begin();
+            spectator.onMoveMade(view, move);
+            commit(event, spectator, "onMoveMade");
+        }
     }
 
     static void gameOverNotif(Collection<Spectator> spectators, Set<Colour> players,  ScotlandYardView view) {
-        for (Spectator spectator : spectators) spectator.onGameOver(view, players);
+        for (Spectator spectator : spectators) {
+            SpectatorCallback event = begin();
+            spectator.onGameOver(view, players);
+            commit(event, spectator, "onGameOver");
+        }
+    }
+
+    static void rotationNotif(Collection<Spectator> spectators, ScotlandYardView view) {
+        for (Spectator spectator : spectators) {
+            SpectatorCallback event = begin();
+            spectator.onRotationComplete(view);
+            commit(event, spectator, "onRotationComplete");
+        }
+    }
+
+    private static final EventType SPECTATOR_CALLBACK = EventType.getEventType(SpectatorCallback.class);
+
+    // Times each callback for Flight Recorder and ModelMetrics, see ModelEvents; null, so
+    // nothing is allocated or timed, when neither wants it
+    private static SpectatorCallback begin() {
+        if (!SPECTATOR_CALLBACK.isEnabled() && !ModelMetrics.timingSpectators()) return null;
+        SpectatorCallback event = new SpectatorCallback();
+        event.startNanos = System.nanoTime();
+        event.begin();
+        return event;
+    }
+
+    private static void commit(SpectatorCallback event, Spectator spectator, String callback) {
+        if (event == null) return;
+        event.end();
+        if (ModelMetrics.timingSpectators())
+            ModelMetrics.SPECTATOR_TIMES.record(System.nanoTime() - event.startNanos);
+        if (event.shouldCommit()) {
+            event.spectator = spectator.getClass();
+            event.callback = callback;
+            event.commit();
+        }
     }
 }
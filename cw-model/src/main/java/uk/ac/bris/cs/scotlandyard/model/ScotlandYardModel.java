@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
@@ -16,21 +17,26 @@ import uk.ac.bris.cs.gamekit.graph.Edge;
 import uk.ac.bris.cs.gamekit.graph.Graph;
 import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
 import uk.ac.bris.cs.gamekit.graph.Node;
+import uk.ac.bris.cs.scotlandyard.model.ModelEvents.GameOver;
+import uk.ac.bris.cs.scotlandyard.model.ModelEvents.MoveApplication;
+import uk.ac.bris.cs.scotlandyard.model.ModelEvents.MoveGeneration;
 
 public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, MoveVisitor {
 
 	// Fields
 	final List<Boolean> rounds; // True rounds are reveal rounds. False rounds are hidden rounds
-	private final Graph<Integer, Transport> graph;
+	private final ImmutableGraph<Integer, Transport> graph;
 	final List<ScotlandYardPlayer> players;
 	private final ScotlandYardView view = this;
 
 	// Fields which are constantly updated
 	private int currentRound = NOT_STARTED;
 	private boolean roundFinished = false;
+	private boolean started = false; // Whether the game has counted towards ModelMetrics
 	private int playerIndex = 0; // The index of the current player in List<ScotlandYardPlayer> players;
 	private int revealedLocation = 0; // Stores the revealed locations of Mr X
 	private Set<Move> validMoves;
+	private final List<TicketMove> travelLog = new ArrayList<>(); // Mr X's moves with their actual destinations
 
 	// Spectators (also a constantly updated field)
 	private Collection<Spectator> spectators = new ArrayList<>();
@@ -51,7 +57,7 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
 		We want to fail as fast as possible when we encounter a problem. Tests for nulls.
 		 */
 		this.rounds = requireNonNull(rounds);
-		this.graph = requireNonNull(graph);
+		this.graph = ImmutableGraph.of(requireNonNull(graph));
 
 		// Returns bool if mrX is BLACK or not
 		if (mrX.colour.isDetective()) throw new IllegalArgumentException("MrX should be Black");
@@ -120,6 +126,59 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
 	// ----------------------------------------------------------------------------------------------------------------
     // Methods
 
+	/**
+	 * Recreates a game from a snapshot taken with {@link #snapshot()}. The game continues from the
+	 * snapshot's current player without replaying any moves.
+	 *
+	 * @param snapshot the snapshot to resume from; not null
+	 * @param graph the map the snapshot was taken on; not null
+	 * @param players the player implementation for each colour in the snapshot; not null
+	 * @return the resumed game; never null
+	 */
+	public static ScotlandYardModel resume(GameSnapshot snapshot, Graph<Integer, Transport> graph,
+			Map<Colour, Player> players) {
+		// Build the configurations as if the game was just created with the snapshot's state
+		List<PlayerConfiguration> configurations = new ArrayList<>();
+		for (Colour colour : snapshot.players()) {
+			configurations.add(new PlayerConfiguration.Builder(colour)
+					.using(requireNonNull(players.get(colour), "No player for " + colour))
+					.with(snapshot.tickets(colour))
+					.at(snapshot.location(colour))
+					.build());
+		}
+
+		ScotlandYardModel model = new ScotlandYardModel(snapshot.rounds(), graph,
+				configurations.get(0), configurations.get(1),
+				configurations.subList(2, configurations.size()).toArray(new PlayerConfiguration[0]));
+
+		// Then restore the constantly updated fields
+		// (A round is only finished when we're back at Mr X after he has moved at least once)
+		model.currentRound = snapshot.currentRound();
+		model.playerIndex = snapshot.players().indexOf(snapshot.currentPlayer());
+		model.roundFinished = model.playerIndex == 0 && model.currentRound != NOT_STARTED;
+		model.revealedLocation = snapshot.revealedLocation();
+		model.travelLog.addAll(snapshot.travelLog());
+		return model;
+	}
+
+	/**
+	 * Takes a snapshot of the current state of the game, including Mr X's actual location
+	 *
+	 * @return the snapshot; never null
+	 */
+	public GameSnapshot snapshot() {
+		int[] locations = new int[players.size()];
+		int[][] tickets = new int[players.size()][Ticket.values().length];
+		for (int i = 0; i < players.size(); i++) {
+			ScotlandYardPlayer player = players.get(i);
+			locations[i] = player.location();
+			for (Ticket ticket : Ticket.values()) tickets[i][ticket.ordinal()] = player.tickets().get(ticket);
+		}
+		return new GameSnapshot(rounds, currentRound, getCurrentPlayer(), revealedLocation, getPlayers(),
+				locations, tickets, travelLog);
+	}
+
+
 	@Override
 	public void registerSpectator(Spectator spectator) {
 		if (spectators.contains(spectator)) throw new IllegalArgumentException("Can't register a spectator that's in the list already");
@@ -202,6 +261,19 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
     // The main method of validMoves which unifies the set of TicketMoves, DoubleMoves and adds PassMove if needed
     // Can also return an empty set if Mr X has no more moves left
 	private Set<Move> getValidMoves(ScotlandYardPlayer player) {
+		MoveGeneration event = new MoveGeneration();
+		event.begin();
+		Set<Move> moves = generateValidMoves(player);
+		event.end();
+		if (event.shouldCommit()) {
+			event.player = player.colour().name();
+			event.moves = moves.size();
+			event.commit();
+		}
+		return moves;
+	}
+
+	private Set<Move> generateValidMoves(ScotlandYardPlayer player) {
         Graph<Integer, Transport> graphView = getGraph();
 
         // Getting set of the first movements in DoubleMove
@@ -221,8 +293,13 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
 	@Override
 	public void startRotate() {
 		if (!isGameOver()) {
+			if (!started) {
+				started = true;
+				ModelMetrics.STARTED_COUNT.increment();
+			}
 			ScotlandYardPlayer currentPlayer = getCurrentScotlandYardPlayer(getCurrentPlayer());
 			validMoves = getValidMoves(currentPlayer);
+			ModelMetrics.VALID_MOVE_SIZES.record(validMoves.size());
 
 			/*
 			1. You pass 'this' for the 1st parameter because it's essentially a ScotlandYardView
@@ -274,6 +351,7 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
 				player.location(move.destination());
 
 				if (player.isMrX()) {
+					travelLog.add(move);
 					if (roundList.get(currentRound)) revealedLocation = player.location();
 					++currentRound;
 					// Notify round start
@@ -307,18 +385,39 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
 		};
 
 		// Executes play logic
+		MoveApplication event = new MoveApplication();
+		event.begin();
         move.visit(visitor);
+		event.end();
+		ModelMetrics.MOVE_METER.mark();
+		if (event.shouldCommit()) {
+			event.player = move.colour().name();
+			event.move = move.toString();
+			event.round = currentRound;
+			event.commit();
+		}
 
         // If the round is not finished, notify the next player to make a move
 		// Else, notify all spectators the rotation has finished or the game has finished
 		if (!roundFinished && !isGameOver()) {
             ScotlandYardPlayer currentPlayer = getCurrentScotlandYardPlayer(getCurrentPlayer());
             validMoves = getValidMoves(currentPlayer);
+			ModelMetrics.VALID_MOVE_SIZES.record(validMoves.size());
 
 		    currentPlayer.player().makeMove(this, currentPlayer.location(), validMoves, this);
         }
-		else if (isGameOver()) gameOverNotif(spectators, getWinningPlayers(), view);
-		else for (Spectator spectator : spectators) spectator.onRotationComplete(view);
+		else if (isGameOver()) {
+			Set<Colour> winners = getWinningPlayers();
+			ModelMetrics.FINISHED_COUNT.increment();
+			GameOver gameOver = new GameOver();
+			if (gameOver.shouldCommit()) {
+				gameOver.winners = winners.toString();
+				gameOver.round = currentRound;
+				gameOver.commit();
+			}
+			gameOverNotif(spectators, winners, view);
+		}
+		else rotationNotif(spectators, view);
     }
 
 	@Override
@@ -378,7 +477,7 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
 		ScotlandYardPlayer mrX = getCurrentScotlandYardPlayer(BLACK);
 
 		// If Mr X is stuck (no available valid moves), detectives win
-		if ((getValidMoves(mrX).isEmpty()) && roundFinished) return detectivesWin;
+		if ((generateValidMoves(mrX).isEmpty()) && roundFinished) return detectivesWin;
 
 		// If max rounds is reached, Mr X wins
 		if ((currentRound == getRounds().size()) && roundFinished) return mrXWins;
@@ -436,7 +535,7 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
 
 	@Override
 	public Graph<Integer, Transport> getGraph() {
-		return new ImmutableGraph<>(graph);
+		return graph;
 	}
 
 }
@@ -5,6 +5,7 @@ import java.time.Duration;
 import javafx.beans.property.ObjectProperty;
 import javafx.collections.ObservableList;
 import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.model.GameSnapshot;
 import uk.ac.bris.cs.scotlandyard.model.Transport;
 import uk.ac.bris.cs.scotlandyard.ui.model.PlayerProperty;
 
@@ -19,4 +20,9 @@ public interface ModelConfiguration {
 	ObservableList<PlayerProperty> allPlayers();
 
 	ObservableList<PlayerProperty> players();
+
+	/**
+	 * @return the snapshot to resume the game from, holds null for a new game
+	 */
+	ObjectProperty<GameSnapshot> snapshotProperty();
 }
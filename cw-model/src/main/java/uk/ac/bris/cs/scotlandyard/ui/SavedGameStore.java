@@ -0,0 +1,249 @@
+package uk.ac.bris.cs.scotlandyard.ui;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+import com.google.common.base.MoreObjects;
+
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.GameSnapshot;
+
+/**
+ * File backed storage for saved games. The list of saves is read from a small
+ * index file, the snapshots themselves are only read when a game is resumed.
+ */
+public final class SavedGameStore {
+
+	private static final String INDEX = "index.tsv";
+	private static final String EXTENSION = ".snapshot";
+	private static final String FIELD = "\t";
+
+	private final Path directory;
+	private List<Entry> entries;
+
+	/**
+	 * @param directory the directory to keep saves in, created on the first
+	 *        save; not null
+	 */
+	public SavedGameStore(Path directory) {
+		this.directory = Objects.requireNonNull(directory);
+	}
+
+	/**
+	 * @return a store in the user's home directory
+	 */
+	public static SavedGameStore createDefault() {
+		return new SavedGameStore(
+				Paths.get(System.getProperty("user.home"), ".scotlandyard", "saves"));
+	}
+
+	/**
+	 * Lists all saved games, the index is read on the first call only
+	 *
+	 * @return an immutable list of saves, oldest first; never null
+	 * @throws IOException if the index cannot be read
+	 */
+	public synchronized List<Entry> entries() throws IOException {
+		if (entries == null) {
+			Path index = directory.resolve(INDEX);
+			entries = new ArrayList<>();
+			if (Files.exists(index)) {
+				for (String line : Files.readAllLines(index, UTF_8)) {
+					if (!line.isEmpty()) entries.add(Entry.parse(line));
+				}
+			}
+		}
+		return Collections.unmodifiableList(new ArrayList<>(entries));
+	}
+
+	/**
+	 * Saves a game
+	 *
+	 * @param name a display name for the save; not null
+	 * @param snapshot the game state; not null
+	 * @param ais names of the AIs playing each colour, colours without an AI
+	 *        are played by the user; not null
+	 * @param timeout the move timeout the game was set up with; not null
+	 * @return the index entry of the save; never null
+	 * @throws IOException if the save could not be written
+	 */
+	public synchronized Entry save(String name, GameSnapshot snapshot, Map<Colour, String> ais,
+			Duration timeout) throws IOException {
+		Objects.requireNonNull(timeout);
+		entries();
+		Files.createDirectories(directory);
+		Entry entry = new Entry(UUID.randomUUID().toString(), name, Instant.now(),
+				snapshot.currentRound(), snapshot.players(), ais, timeout);
+		try (OutputStream stream = new BufferedOutputStream(
+				Files.newOutputStream(directory.resolve(entry.id + EXTENSION)))) {
+			snapshot.write(stream);
+		}
+		try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve(INDEX), UTF_8,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+			writer.write(entry.format());
+			writer.newLine();
+		}
+		entries.add(entry);
+		return entry;
+	}
+
+	/**
+	 * Reads the snapshot of a saved game
+	 *
+	 * @param entry the save; not null
+	 * @return the snapshot; never null
+	 * @throws IOException if the snapshot is missing or corrupted
+	 */
+	public GameSnapshot load(Entry entry) throws IOException {
+		try (InputStream stream = new BufferedInputStream(
+				Files.newInputStream(directory.resolve(entry.id + EXTENSION)))) {
+			return GameSnapshot.read(stream);
+		}
+	}
+
+	/**
+	 * Deletes a saved game and removes it from the index
+	 *
+	 * @param entry the save; not null
+	 * @throws IOException if the index could not be rewritten
+	 */
+	public synchronized void delete(Entry entry) throws IOException {
+		entries();
+		if (!entries.remove(entry)) return;
+		Files.write(directory.resolve(INDEX),
+				entries.stream().map(Entry::format).collect(toList()), UTF_8);
+		Files.deleteIfExists(directory.resolve(entry.id + EXTENSION));
+	}
+
+	/**
+	 * A line in the index file
+	 */
+	public static final class Entry {
+
+		private final String id;
+		private final String name;
+		private final Instant saved;
+		private final int round;
+		private final List<Colour> players;
+		private final Map<Colour, String> ais;
+		private final Duration timeout;
+
+		private Entry(String id, String name, Instant saved, int round, List<Colour> players,
+				Map<Colour, String> ais, Duration timeout) {
+			this.id = id;
+			this.name = name.replaceAll("[\\t\\r\\n]", " ");
+			this.saved = saved;
+			this.round = round;
+			this.players = Collections.unmodifiableList(new ArrayList<>(players));
+			this.ais = ais.isEmpty() ? Collections.emptyMap()
+					: Collections.unmodifiableMap(new EnumMap<>(ais));
+			this.timeout = timeout;
+		}
+
+		public String name() {
+			return name;
+		}
+
+		public Instant saved() {
+			return saved;
+		}
+
+		public int round() {
+			return round;
+		}
+
+		public List<Colour> players() {
+			return players;
+		}
+
+		/**
+		 * @return the AI name for each colour played by an AI; never null
+		 */
+		public Map<Colour, String> ais() {
+			return ais;
+		}
+
+		/**
+		 * @return the move timeout the game was set up with; empty for saves
+		 *         made before it was stored
+		 */
+		public Optional<Duration> timeout() {
+			return Optional.ofNullable(timeout);
+		}
+
+		private String format() {
+			String line = String.join(FIELD, id, name, Long.toString(saved.toEpochMilli()),
+					Integer.toString(round),
+					players.stream().map(Colour::name).collect(joining(",")),
+					ais.entrySet().stream().map(e -> e.getKey().name() + "=" + e.getValue())
+							.collect(joining(",")));
+			// Older saves are written back as they were read, without a timeout
+			return timeout == null ? line : line + FIELD + timeout.toMillis();
+		}
+
+		private static Entry parse(String line) throws IOException {
+			String[] fields = line.split(FIELD, -1);
+			// Saves from before the timeout was stored have one field less
+			if (fields.length != 6 && fields.length != 7)
+				throw new IOException("Malformed index line: " + line);
+			try {
+				List<Colour> players = new ArrayList<>();
+				for (String colour : fields[4].split(",")) players.add(Colour.valueOf(colour));
+				Map<Colour, String> ais = new EnumMap<>(Colour.class);
+				if (!fields[5].isEmpty()) {
+					for (String ai : fields[5].split(",")) {
+						int split = ai.indexOf('=');
+						ais.put(Colour.valueOf(ai.substring(0, split)), ai.substring(split + 1));
+					}
+				}
+				Duration timeout = fields.length == 7
+						? Duration.ofMillis(Long.parseLong(fields[6])) : null;
+				return new Entry(fields[0], fields[1], Instant.ofEpochMilli(Long.parseLong(fields[2])),
+						Integer.parseInt(fields[3]), players, ais, timeout);
+			} catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+				throw new IOException("Malformed index line: " + line, e);
+			}
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			return id.equals(((Entry) o).id);
+		}
+
+		@Override
+		public int hashCode() {
+			return id.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return MoreObjects.toStringHelper(this).add("name", name).add("saved", saved)
+					.add("round", round).add("players", players).toString();
+		}
+	}
+
+}
@@ -319,7 +319,7 @@ public final class GameSetup implements Controller {
 		return new ModelProperty(Duration.ofSeconds(Math.round(timeout.getValue())),
 				roundConfig.getChildren().stream().map(ToggleButton.class::cast)
 						.map(ToggleButton::isSelected).collect(Collectors.toList()),
-				playerEntries, new ImmutableGraph<>(manager.getGraph()));
+				playerEntries, ImmutableGraph.of(manager.getGraph()));
 	}
 
 	ReadOnlyBooleanProperty readyProperty() {
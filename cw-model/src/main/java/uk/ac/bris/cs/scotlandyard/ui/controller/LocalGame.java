@@ -3,8 +3,10 @@ package uk.ac.bris.cs.scotlandyard.ui.controller;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 
+import java.io.IOException;
 import java.net.URL;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
@@ -21,6 +23,7 @@ import javafx.scene.control.Tab;
 import javafx.scene.control.TabPane;
 import javafx.scene.control.TabPane.TabClosingPolicy;
 import javafx.scene.control.TextArea;
+import javafx.scene.control.TextInputDialog;
 import javafx.stage.Stage;
 import uk.ac.bris.cs.scotlandyard.ResourceManager;
 import uk.ac.bris.cs.scotlandyard.ResourceManager.ImageResource;
@@ -30,12 +33,14 @@ import uk.ac.bris.cs.scotlandyard.harness.CodeGenRecorder.CodeGen;
 import uk.ac.bris.cs.scotlandyard.harness.GameModelSequencePUMLCodeGen;
 import uk.ac.bris.cs.scotlandyard.harness.TestHarnessPlayOutTestCodeGen;
 import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.GameSnapshot;
+import uk.ac.bris.cs.scotlandyard.model.Player;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
 import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
-import uk.ac.bris.cs.scotlandyard.model.ScotlandYardGame;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
 import uk.ac.bris.cs.scotlandyard.model.Spectator;
 import uk.ac.bris.cs.scotlandyard.ui.GameControl;
+import uk.ac.bris.cs.scotlandyard.ui.SavedGameStore;
 import uk.ac.bris.cs.scotlandyard.ui.Utils;
 import uk.ac.bris.cs.scotlandyard.ui.controller.Notifications.NotificationBuilder;
 import uk.ac.bris.cs.scotlandyard.ui.controller.Notifications.NotificationBuilder.Notification;
@@ -48,11 +53,14 @@ import static io.atlassian.fugue.Option.fromOptional;
 import static java.util.Arrays.asList;
 import static java.util.Arrays.stream;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 import static uk.ac.bris.cs.scotlandyard.ui.Utils.handleFatalException;
 
 public final class LocalGame extends BaseGame implements Spectator {
 
 	private final boolean showCapturedTest;
+	private final SavedGameStore store = SavedGameStore.createDefault();
+	private Game game;
 
 	public static void newGame(ResourceManager manager, Stage stage, boolean captureTest) {
 		BaseGame controller = new LocalGame(manager, stage, captureTest);
@@ -71,25 +79,42 @@ public final class LocalGame extends BaseGame implements Spectator {
 	public void initialize(URL location, ResourceBundle resources) {
 		MenuItem newGame = new MenuItem("New game");
 		MenuItem showTests = new MenuItem("Restart in test capture mode");
+		MenuItem saveGame = new MenuItem("Save game");
 		newGame.setOnAction(e -> LocalGame.newGame(resourceManager, new Stage(), false));
 		showTests.setOnAction(e -> {
 			getStage().close();
 			LocalGame.newGame(resourceManager, new Stage(), true);
 		});
+		saveGame.setOnAction(e -> {
+			if (game == null || game.model.isGameOver()) return;
+			GameSnapshot snapshot = game.model.snapshot();
+			TextInputDialog dialog = new TextInputDialog("Round " + snapshot.currentRound());
+			dialog.setTitle("Save game");
+			dialog.setHeaderText("Name of the saved game");
+			dialog.showAndWait().ifPresent(name -> {
+				try {
+					store.save(name, snapshot, game.aiNames(),
+							game.setup.timeoutProperty().get());
+				} catch (IOException ex) {
+					Utils.handleNonFatalException(ex, "Unable to save game");
+				}
+			});
+		});
+		addMenuItem(saveGame);
 		addMenuItem(newGame);
 		addMenuItem(showTests);
 		setupGame();
 	}
 
 	private void setupGame() {
-		StartScreen startScreen = new StartScreen(resourceManager, config, this::createGame);
+		StartScreen startScreen = new StartScreen(resourceManager, config, store, this::createGame);
 		showOverlay(startScreen.root());
 	}
 
 	private void createGame(ModelProperty setup) {
 		hideOverlay();
 		try {
-			Game game = new Game(setup);
+			game = new Game(setup);
 		} catch (Exception e) {
 			e.printStackTrace();
 			handleFatalException(e);
@@ -101,7 +126,7 @@ public final class LocalGame extends BaseGame implements Spectator {
 
 		private static final String NOTIFY_GAMEOVER = "notify_gameover";
 		private final ModelProperty setup;
-		private final ScotlandYardGame model;
+		private final ScotlandYardModel model;
 		private final List<GameControl> controls;
 		private final AIPool<Side> pool = new AIPool<>(
 				createVisualiserSurface(),
@@ -141,12 +166,21 @@ public final class LocalGame extends BaseGame implements Spectator {
 					.filter(p -> p.colour.isDetective())
 					.collect(toList());
 
-			model = new ScotlandYardModel(
-					setup.revealRounds(),
-					setup.graphProperty().get(),
-					mrX,
-					detectives.get(0),
-					detectives.stream().skip(1).toArray(PlayerConfiguration[]::new));
+			GameSnapshot snapshot = setup.snapshotProperty().get();
+			if (snapshot != null) {
+				model = ScotlandYardModel.resume(
+						snapshot,
+						setup.graphProperty().get(),
+						configs.stream().collect(toMap(p -> p.colour, p -> p.player,
+								(a, b) -> a, () -> new EnumMap<Colour, Player>(Colour.class))));
+			} else {
+				model = new ScotlandYardModel(
+						setup.revealRounds(),
+						setup.graphProperty().get(),
+						mrX,
+						detectives.get(0),
+						detectives.stream().skip(1).toArray(PlayerConfiguration[]::new));
+			}
 
 
 			recorder.snap(model);
@@ -178,6 +212,13 @@ public final class LocalGame extends BaseGame implements Spectator {
 			model.startRotate();
 		}
 
+		Map<Colour, String> aiNames() {
+			Map<Colour, String> names = new EnumMap<>(Colour.class);
+			for (PlayerProperty property : setup.players())
+				property.ai().ifPresent(ai -> names.put(property.colour(), ai.getName()));
+			return names;
+		}
+
 		void terminate() {
 			controls.forEach(model::unregisterSpectator);
 			controls.forEach(GameControl::onGameDetached);
@@ -1,19 +1,118 @@
 package uk.ac.bris.cs.scotlandyard.ui.controller;
 
+import static java.util.stream.Collectors.joining;
+
+import java.io.IOException;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.function.Consumer;
 
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.fxml.FXML;
 import javafx.scene.Parent;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.SplitPane;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import uk.ac.bris.cs.fxkit.BindFXML;
 import uk.ac.bris.cs.fxkit.Controller;
-import uk.ac.bris.cs.scotlandyard.ui.ModelConfiguration;
+import uk.ac.bris.cs.scotlandyard.ResourceManager;
+import uk.ac.bris.cs.scotlandyard.ai.AI;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.ui.SavedGameStore;
+import uk.ac.bris.cs.scotlandyard.ui.SavedGameStore.Entry;
+import uk.ac.bris.cs.scotlandyard.ui.Utils;
+import uk.ac.bris.cs.scotlandyard.ui.model.ModelProperty;
 
+/**
+ * Lists saved games and resumes the selected one
+ */
+@BindFXML("layout/SavedGames.fxml")
 public final class SavedGames implements Controller {
 
-	public SavedGames(Consumer<ModelConfiguration> controller) {
-		// TODO implement me
+	private static final DateTimeFormatter FORMATTER = DateTimeFormatter
+			.ofLocalizedDateTime(FormatStyle.SHORT).withZone(ZoneId.systemDefault());
+
+	@FXML private SplitPane root;
+	@FXML private TableView<Entry> savedTable;
+	@FXML private TableColumn<Entry, String> name;
+	@FXML private TableColumn<Entry, String> date;
+	@FXML private TableColumn<Entry, Number> players;
+	@FXML private Label description;
+	@FXML private Button resume;
+	@FXML private Button delete;
+
+	private final SavedGameStore store;
+	private boolean loaded;
+
+	SavedGames(ResourceManager manager, SavedGameStore store, Collection<AI> ais,
+			Consumer<ModelProperty> consumer) {
+		this.store = store;
+		Controller.bind(this);
+
+		name.setCellValueFactory(p -> new ReadOnlyStringWrapper(p.getValue().name()));
+		date.setCellValueFactory(
+				p -> new ReadOnlyStringWrapper(FORMATTER.format(p.getValue().saved())));
+		players.setCellValueFactory(
+				p -> new ReadOnlyObjectWrapper<>(p.getValue().players().size()));
+
+		savedTable.getSelectionModel().selectedItemProperty().addListener((o, p, n) ->
+				description.setText(n == null ? "" : String.format("Round %d\nPlayers: %s\nAI: %s",
+						n.round(),
+						n.players().stream().map(Colour::name).collect(joining(", ")),
+						n.ais().isEmpty() ? "none" : n.ais().toString())));
+		resume.disableProperty().bind(savedTable.getSelectionModel().selectedItemProperty().isNull());
+		delete.disableProperty().bind(savedTable.getSelectionModel().selectedItemProperty().isNull());
+
+		resume.setOnAction(e -> {
+			Entry entry = savedTable.getSelectionModel().getSelectedItem();
+			try {
+				Map<Colour, AI> resolved = new EnumMap<>(Colour.class);
+				entry.ais().forEach((colour, aiName) -> ais.stream()
+						.filter(Objects::nonNull)
+						.filter(ai -> ai.getName().equals(aiName))
+						.findFirst()
+						.ifPresent(ai -> resolved.put(colour, ai)));
+				// Older saves did not store the timeout, those get the default
+				consumer.accept(ModelProperty.resume(manager, store.load(entry), resolved,
+						entry.timeout().orElse(ModelProperty.DEFAULT_TIMEOUT)));
+			} catch (IOException ex) {
+				Utils.handleNonFatalException(ex, "Unable to resume " + entry.name());
+			}
+		});
+		delete.setOnAction(e -> {
+			Entry entry = savedTable.getSelectionModel().getSelectedItem();
+			try {
+				store.delete(entry);
+				savedTable.getItems().remove(entry);
+			} catch (IOException ex) {
+				Utils.handleNonFatalException(ex, "Unable to delete " + entry.name());
+			}
+		});
+	}
+
+	/**
+	 * Reads the save index, only the first call reads from disk
+	 */
+	void load() {
+		if (loaded) return;
+		try {
+			savedTable.getItems().setAll(store.entries());
+			loaded = true;
+		} catch (IOException e) {
+			Utils.handleNonFatalException(e, "Unable to read saved games");
+		}
 	}
 
 	@Override
 	public Parent root() {
-		return null;
+		return root;
 	}
 }
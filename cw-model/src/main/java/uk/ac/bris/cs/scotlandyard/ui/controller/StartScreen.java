@@ -13,6 +13,7 @@ import uk.ac.bris.cs.fxkit.BindFXML;
 import uk.ac.bris.cs.fxkit.Controller;
 import uk.ac.bris.cs.scotlandyard.ResourceManager;
 import uk.ac.bris.cs.scotlandyard.ai.AI;
+import uk.ac.bris.cs.scotlandyard.ui.SavedGameStore;
 import uk.ac.bris.cs.scotlandyard.ui.controller.GameSetup.Features;
 import uk.ac.bris.cs.scotlandyard.ui.model.BoardProperty;
 import uk.ac.bris.cs.scotlandyard.ui.model.ModelProperty;
@@ -29,7 +30,7 @@ public final class StartScreen implements Controller {
 	private final ResourceManager manager;
 	private final BoardProperty config;
 
-	StartScreen(ResourceManager manager, BoardProperty config,
+	StartScreen(ResourceManager manager, BoardProperty config, SavedGameStore store,
 	            Consumer<ModelProperty> consumer) {
 		this.manager = manager;
 		this.config = config;
@@ -44,11 +45,16 @@ public final class StartScreen implements Controller {
 
 		gameSetup.setContent(setupController.root());
 
-		// TODO presets and saved games...
+		// TODO presets...
 		savedConfigs.setDisable(true);
 		// savedConfigs.setContent(new SavedConfigsController(consumer).root());
-		savedGames.setDisable(true);
-		// savedGames.setContent(new SavedGamesController(consumer).root());
+
+		// the save index is only read once the tab is opened
+		SavedGames savedGamesController = new SavedGames(manager, store, ais, consumer);
+		savedGames.setContent(savedGamesController.root());
+		savedGames.setOnSelectionChanged(e -> {
+			if (savedGames.isSelected()) savedGamesController.load();
+		});
 
 		start.disableProperty().bind(setupController.readyProperty().not());
 		start.setOnAction(e -> {
@@ -23,6 +23,7 @@ import uk.ac.bris.cs.fxkit.BindFXML;
 import uk.ac.bris.cs.fxkit.Controller;
 import uk.ac.bris.cs.scotlandyard.ResourceManager;
 import uk.ac.bris.cs.scotlandyard.model.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.GameSnapshot;
 import uk.ac.bris.cs.scotlandyard.model.Move;
 import uk.ac.bris.cs.scotlandyard.model.MoveVisitor;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
@@ -69,6 +70,15 @@ public final class TravelLog implements Controller, GameControl {
 		List<Boolean> rounds = view.getRounds();
 		for (int i = 0; i < rounds.size(); i++)
 			entries.add(new Entry(i + 1, rounds.get(i)));
+
+		// fill in the rounds already played when resuming a saved game
+		GameSnapshot snapshot = configuration.snapshotProperty().get();
+		if (snapshot == null) return;
+		List<TicketMove> log = snapshot.travelLog();
+		for (int i = 0; i < log.size() && i < entries.size(); i++) {
+			entries.get(i).ticket.set(log.get(i).ticket());
+			entries.get(i).location.set(log.get(i).destination());
+		}
 	}
 
 	@Override
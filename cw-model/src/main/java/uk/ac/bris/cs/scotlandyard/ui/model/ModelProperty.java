@@ -5,6 +5,7 @@ import static java.util.stream.Stream.of;
 
 import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 
 import com.google.common.base.MoreObjects;
 
@@ -15,17 +16,22 @@ import javafx.collections.ObservableList;
 import uk.ac.bris.cs.gamekit.graph.Graph;
 import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
 import uk.ac.bris.cs.scotlandyard.ResourceManager;
+import uk.ac.bris.cs.scotlandyard.ai.AI;
 import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.GameSnapshot;
 import uk.ac.bris.cs.scotlandyard.model.StandardGame;
 import uk.ac.bris.cs.scotlandyard.model.Transport;
 import uk.ac.bris.cs.scotlandyard.ui.ModelConfiguration;
 
 public class ModelProperty implements ModelConfiguration {
 
+	public static final Duration DEFAULT_TIMEOUT = Duration.ofMinutes(1);
+
 	private final ObjectProperty<Duration> timeout = new SimpleObjectProperty<>();
 	private final ObservableList<Boolean> revealRounds = FXCollections.observableArrayList();
 	private final ObservableList<PlayerProperty> players = FXCollections.observableArrayList();
 	private final ObjectProperty<Graph<Integer, Transport>> graph = new SimpleObjectProperty<>();
+	private final ObjectProperty<GameSnapshot> snapshot = new SimpleObjectProperty<>();
 
 	public ModelProperty(Duration timeout, List<Boolean> revealRounds, List<PlayerProperty> players,
 			Graph<Integer, Transport> graph) {
@@ -36,9 +42,28 @@ public class ModelProperty implements ModelConfiguration {
 	}
 
 	public static ModelProperty createDefault(ResourceManager manager) {
-		return new ModelProperty(Duration.ofMinutes(1), StandardGame.ROUNDS,
+		return new ModelProperty(DEFAULT_TIMEOUT, StandardGame.ROUNDS,
+				of(Colour.values()).map(PlayerProperty::new).collect(toList()),
+				ImmutableGraph.of(manager.getGraph()));
+	}
+
+	public static ModelProperty resume(ResourceManager manager, GameSnapshot snapshot,
+			Map<Colour, AI> ais, Duration timeout) {
+		ModelProperty property = new ModelProperty(timeout, snapshot.rounds(),
 				of(Colour.values()).map(PlayerProperty::new).collect(toList()),
-				new ImmutableGraph<>(manager.getGraph()));
+				ImmutableGraph.of(manager.getGraph()));
+		for (PlayerProperty player : property.allPlayers()) {
+			Colour colour = player.colour();
+			player.enabledProperty().set(snapshot.players().contains(colour));
+			if (!player.enabled()) continue;
+			player.locationProperty().set(snapshot.location(colour));
+			player.tickets().setAll(snapshot.tickets(colour).entrySet().stream()
+					.map(e -> new TicketProperty(e.getKey(), e.getValue()))
+					.collect(toList()));
+			player.aiProperty().set(ais.get(colour));
+		}
+		property.snapshot.set(snapshot);
+		return property;
 	}
 
 	@Override
@@ -66,6 +91,11 @@ public class ModelProperty implements ModelConfiguration {
 		return graph;
 	}
 
+	@Override
+	public ObjectProperty<GameSnapshot> snapshotProperty() {
+		return snapshot;
+	}
+
 	@Override
 	public String toString() {
 		return MoreObjects.toStringHelper(this).add("timeout", timeout)
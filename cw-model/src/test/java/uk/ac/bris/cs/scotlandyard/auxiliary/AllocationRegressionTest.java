@@ -0,0 +1,148 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks the model allocates no more than the budgets in
+ * {@code allocation-baseline.properties}, so a change that makes much more
+ * garbage per move fails here rather than in production
+ */
+public class AllocationRegressionTest {
+
+	private static final int RUNS = 30;
+	private static final List<Colour> DETECTIVES = asList(Colour.BLUE, Colour.GREEN, Colour.RED,
+			Colour.WHITE, Colour.YELLOW);
+
+	private static Graph<Integer, Transport> graph;
+	private static Allocations.Baseline baseline;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		assumeTrue("Allocated bytes cannot be measured", Allocations.isSupported());
+		graph = StandardGame.standardGraph();
+		baseline = new Allocations.Baseline("/allocation-baseline.properties");
+	}
+
+	// Keeps the moves it is offered and answers only when told to
+	private static final class Holding implements Player {
+
+		Set<Move> moves;
+		Consumer<Move> callback;
+
+		@Override
+		public void makeMove(ScotlandYardView view, int location, Set<Move> moves,
+				Consumer<Move> callback) {
+			this.moves = moves;
+			this.callback = callback;
+		}
+
+		void answer() {
+			callback.accept(moves.iterator().next());
+		}
+	}
+
+	// Picks a move at random without allocating beyond the iterator
+	private static final class RandomPlayer implements Player {
+
+		private final Random random;
+		int moves;
+
+		RandomPlayer(Random random) {
+			this.random = random;
+		}
+
+		@Override
+		public void makeMove(ScotlandYardView view, int location, Set<Move> moves,
+				Consumer<Move> callback) {
+			Iterator<Move> iterator = moves.iterator();
+			for (int skip = random.nextInt(moves.size()); skip > 0; skip--) iterator.next();
+			this.moves++;
+			callback.accept(iterator.next());
+		}
+	}
+
+	private static ScotlandYardModel game(Player player, int seed) {
+		List<Integer> locations = StandardGame.generateDetectiveLocations(seed, DETECTIVES.size());
+		PlayerConfiguration[] detectives = new PlayerConfiguration[DETECTIVES.size()];
+		for (int i = 0; i < detectives.length; i++)
+			detectives[i] = new PlayerConfiguration.Builder(DETECTIVES.get(i)).using(player)
+					.with(StandardGame.generateDetectiveTickets()).at(locations.get(i)).build();
+		return new ScotlandYardModel(StandardGame.ROUNDS, graph,
+				new PlayerConfiguration.Builder(Colour.BLACK).using(player)
+						.with(StandardGame.generateMrXTickets())
+						.at(StandardGame.generateMrXLocation(seed)).build(),
+				detectives[0], asList(detectives).subList(1, detectives.length)
+						.toArray(new PlayerConfiguration[0]));
+	}
+
+	@Test
+	public void testValidMoveGeneration() {
+		// Asking Mr X for his first move generates his valid moves, single
+		// and double, after checking the game is not over
+		long bytes = Allocations.minimum(RUNS, () -> game(new Holding(), 1),
+				ScotlandYardModel::startRotate);
+		baseline.assertWithin("getValidMoves", bytes);
+	}
+
+	@Test
+	public void testAccept() {
+		// Applying a detective's move also generates the next detective's
+		long bytes = Allocations.minimum(RUNS, () -> {
+			Holding player = new Holding();
+			ScotlandYardModel game = game(player, 1);
+			game.startRotate();
+			player.answer();
+			return player;
+		}, Holding::answer);
+		baseline.assertWithin("accept", bytes);
+	}
+
+	@Test
+	public void testIsGameOver() {
+		long bytes = Allocations.minimum(RUNS, () -> game(new Holding(), 1),
+				ScotlandYardModel::isGameOver);
+		baseline.assertWithin("isGameOver", bytes);
+	}
+
+	@Test
+	public void testSeededPlayoutPerMove() {
+		// Averaged over many games, as games differ in length and in how many
+		// moves each player has; the first half warms up
+		long bytes = 0, moves = 0;
+		for (int run = 0; run < 2 * RUNS; run++) {
+			RandomPlayer player = new RandomPlayer(new Random(run));
+			ScotlandYardModel game = game(player, run);
+			long allocated = Allocations.measure(() -> {
+				while (!game.isGameOver()) game.startRotate();
+			});
+			assertThat(player.moves).isPositive();
+			if (run < RUNS) continue;
+			bytes += allocated;
+			moves += player.moves;
+		}
+		baseline.assertWithin("playoutPerMove", bytes / moves);
+	}
+
+}
@@ -0,0 +1,142 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Measures the bytes a block of code allocates on the calling thread, using
+ * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}, and
+ * checks them against budgets in a baseline file. <br>
+ * Allocation counts are exact per thread but depend on what the JIT has
+ * compiled (escape analysis removes some allocations), so
+ * {@link #minimum(int, Supplier, Consumer)} warms the block up and keeps the
+ * smallest of several runs; the cost of the measurement itself is
+ * subtracted.
+ */
+public final class Allocations {
+
+	private static final com.sun.management.ThreadMXBean THREADS = threads();
+	private static final long OVERHEAD = overhead();
+
+	private Allocations() {}
+
+	private static com.sun.management.ThreadMXBean threads() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (!(threads instanceof com.sun.management.ThreadMXBean)) return null;
+		com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+		if (!allocations.isThreadAllocatedMemorySupported()) return null;
+		allocations.setThreadAllocatedMemoryEnabled(true);
+		return allocations;
+	}
+
+	private static long overhead() {
+		if (THREADS == null) return 0;
+		long least = Long.MAX_VALUE;
+		for (int i = 0; i < 1000; i++) least = Math.min(least, allocated() - allocated());
+		return -least;
+	}
+
+	private static long allocated() {
+		return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * @return whether this JVM can count allocated bytes per thread
+	 */
+	public static boolean isSupported() {
+		return THREADS != null;
+	}
+
+	/**
+	 * @param block the code to measure; not null
+	 * @return the bytes allocated by the calling thread while it ran
+	 * @throws UnsupportedOperationException if {@link #isSupported()} is
+	 *         false
+	 */
+	public static long measure(Runnable block) {
+		requireNonNull(block);
+		if (THREADS == null)
+			throw new UnsupportedOperationException("Allocated bytes cannot be measured");
+		long before = allocated();
+		block.run();
+		long after = allocated();
+		return Math.max(0, after - before - OVERHEAD);
+	}
+
+	/**
+	 * Measures a block as many times again as it is run to warm up, each
+	 * time on a fresh fixture whose creation is not measured
+	 *
+	 * @param runs the number of runs to warm up and then to measure, &gt; 0
+	 * @param fixture creates what the block works on; not null
+	 * @param block the code to measure; not null
+	 * @param <T> the type of the fixture
+	 * @return the fewest bytes allocated by one measured run
+	 */
+	public static <T> long minimum(int runs, Supplier<T> fixture, Consumer<T> block) {
+		if (runs < 1) throw new IllegalArgumentException("runs < 1");
+		for (int i = 0; i < runs; i++) block.accept(fixture.get());
+		long least = Long.MAX_VALUE;
+		for (int i = 0; i < runs; i++) {
+			T value = fixture.get();
+			least = Math.min(least, measure(() -> block.accept(value)));
+		}
+		return least;
+	}
+
+	/**
+	 * Allocation budgets by name, read from a properties file of
+	 * {@code name = bytes}
+	 */
+	public static final class Baseline {
+
+		private final String resource;
+		private final Properties budgets = new Properties();
+
+		/**
+		 * @param resource the classpath resource with the budgets; not null
+		 */
+		public Baseline(String resource) {
+			this.resource = resource;
+			try (InputStream in = Allocations.class.getResourceAsStream(resource)) {
+				if (in == null) throw new IllegalArgumentException("No resource " + resource);
+				budgets.load(in);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		/**
+		 * @param name the name of the budget
+		 * @return the budget in bytes
+		 * @throws IllegalArgumentException if there is no budget of that name
+		 */
+		public long budget(String name) {
+			String budget = budgets.getProperty(name);
+			if (budget == null)
+				throw new IllegalArgumentException("No budget " + name + " in " + resource);
+			return Long.parseLong(budget.trim());
+		}
+
+		/**
+		 * @param name the name of the budget
+		 * @param bytes the bytes measured
+		 * @throws AssertionError if the bytes are over budget
+		 */
+		public void assertWithin(String name, long bytes) {
+			long budget = budget(name);
+			if (bytes > budget)
+				throw new AssertionError(String.format("%s allocated %d bytes, over its budget of "
+						+ "%d in %s; if that is intended, raise the budget", name, bytes, budget,
+						resource));
+		}
+	}
+
+}
@@ -0,0 +1,124 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.harness.CodeGenFiles;
+import uk.ac.bris.cs.scotlandyard.harness.CodeGenRecorder;
+import uk.ac.bris.cs.scotlandyard.harness.CodeGenRecorder.CodeGen;
+import uk.ac.bris.cs.scotlandyard.harness.CodeGenRecorder.Sink;
+import uk.ac.bris.cs.scotlandyard.harness.GameModelSequencePUMLCodeGen;
+import uk.ac.bris.cs.scotlandyard.harness.TestHarnessPlayOutTestCodeGen;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.DEFAULT_REVEAL;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.detectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.mrXTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.ofRounds;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.RED;
+
+/**
+ * Tests for {@link CodeGenRecorder} streaming to writers and files
+ */
+public class CodeGenRecorderTest {
+
+	// always picks the same move for the same set of moves
+	private static final Player FIRST_MOVE = (view, location, moves, callback) ->
+			callback.accept(moves.stream().min(Comparator.comparing(Object::toString))
+					.orElseThrow(AssertionError::new));
+
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+
+	private static void play(CodeGenRecorder recorder, Graph<Integer, Transport> graph,
+	                         int mrX) {
+		ScotlandYardModel game = new ScotlandYardModel(ofRounds(23, DEFAULT_REVEAL), graph,
+				recorder.observePlayer(new PlayerConfiguration.Builder(BLACK)
+						.using(FIRST_MOVE).with(mrXTickets()).at(mrX).build()),
+				recorder.observePlayer(new PlayerConfiguration.Builder(RED)
+						.using(FIRST_MOVE).with(detectiveTickets()).at(197).build()),
+				recorder.observePlayer(new PlayerConfiguration.Builder(BLUE)
+						.using(FIRST_MOVE).with(detectiveTickets()).at(174).build()));
+		recorder.snap(game);
+		game.registerSpectator(recorder.createSpectator());
+		while (!game.isGameOver()) game.startRotate();
+	}
+
+	@Test
+	public void testStreamedOutputSameAsReadOut() throws IOException {
+		Graph<Integer, Transport> graph = StandardGame.standardGraph();
+		List<CodeGen> codeGens = ImmutableList.of(
+				new TestHarnessPlayOutTestCodeGen(), new GameModelSequencePUMLCodeGen());
+		CodeGenRecorder memory = new CodeGenRecorder(codeGens);
+		play(memory, graph, 35);
+
+		List<CodeGen> streamed = ImmutableList.of(
+				new TestHarnessPlayOutTestCodeGen(), new GameModelSequencePUMLCodeGen());
+		StringWriter test = new StringWriter(), puml = new StringWriter();
+		CodeGenRecorder recorder = new CodeGenRecorder(streamed, "defaultGraph()",
+				Sink.to(cg -> cg == streamed.get(0) ? test : puml));
+		play(recorder, graph, 35);
+		recorder.finish();
+
+		List<String> expected = codeGens.stream()
+				.map(memory.readOut("defaultGraph()")::get)
+				.collect(Collectors.toList());
+		assertThat(test.toString()).isEqualTo(expected.get(0) + "\n\n");
+		assertThat(puml.toString()).isEqualTo(expected.get(1) + "\n\n")
+				.contains("title Sample game sequence(3 player, ");
+	}
+
+	@Test
+	public void testManyGamesRotateFiles() throws IOException {
+		Graph<Integer, Transport> graph = StandardGame.standardGraph();
+		Path directory = folder.getRoot().toPath().resolve("games");
+		GameModelSequencePUMLCodeGen codeGen = new GameModelSequencePUMLCodeGen();
+		int games = 12;
+		try (CodeGenFiles files = new CodeGenFiles(directory, 16 * 1024)) {
+			CodeGenRecorder recorder = new CodeGenRecorder(ImmutableList.of(codeGen),
+					"defaultGraph()", files);
+			for (int i = 0; i < games; i++) {
+				play(recorder, graph, StandardGame.MRX_LOCATIONS.get(i % 13));
+				recorder.finish();
+			}
+			assertThat(files.current(codeGen))
+					.hasFileName("GameModelSequencePUMLCodeGen-" + (countFiles(directory) - 1) + ".puml");
+		}
+		assertThat(countFiles(directory)).isGreaterThan(1);
+		int ended = 0;
+		try (Stream<Path> paths = Files.list(directory)) {
+			for (Path path : (Iterable<Path>) paths::iterator) {
+				String text = new String(Files.readAllBytes(path));
+				assertThat(text).startsWith("@startuml").endsWith("@enduml\n\n");
+				ended += text.split("@enduml", -1).length - 1;
+			}
+		}
+		assertThat(ended).isEqualTo(games);
+	}
+
+	private static long countFiles(Path directory) throws IOException {
+		try (Stream<Path> paths = Files.list(directory)) {
+			return paths.count();
+		}
+	}
+
+}
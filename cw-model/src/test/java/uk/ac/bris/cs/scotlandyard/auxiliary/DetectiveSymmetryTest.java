@@ -0,0 +1,127 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import uk.ac.bris.cs.scotlandyard.ai.CompactMap;
+import uk.ac.bris.cs.scotlandyard.ai.CompactState;
+import uk.ac.bris.cs.scotlandyard.ai.DetectiveSymmetry;
+import uk.ac.bris.cs.scotlandyard.ai.JointMoves;
+import uk.ac.bris.cs.scotlandyard.ai.OpeningBook;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.detectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.makeTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.mrXTickets;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.GREEN;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.WHITE;
+
+/**
+ * Tests for {@link DetectiveSymmetry}
+ */
+public class DetectiveSymmetryTest {
+
+	private static final List<Colour> COLOURS = asList(BLACK, RED, GREEN, BLUE, WHITE);
+
+	private static CompactState state(CompactMap map, List<Integer> locations,
+			List<Map<Ticket, Integer>> tickets) {
+		return CompactState.of(map, StandardGame.ROUNDS, COLOURS, locations, tickets);
+	}
+
+	private static List<Integer> locations(CompactState state) {
+		return asList(0, 1, 2, 3, 4).stream().map(p -> state.map().value(state.location(p)))
+				.collect(toList());
+	}
+
+	@Test
+	public void testPermutedEqualDetectivesShareCanonicalForm() throws IOException {
+		CompactMap map = CompactMap.of(StandardGame.standardGraph());
+		List<Map<Ticket, Integer>> tickets = asList(mrXTickets(), detectiveTickets(),
+				detectiveTickets(), detectiveTickets(), detectiveTickets());
+		CompactState a = state(map, asList(45, 174, 29, 141, 94), tickets);
+		CompactState b = state(map, asList(45, 94, 141, 29, 174), tickets);
+		assertThat(OpeningBook.key(a)).isEqualTo(OpeningBook.key(b));
+		CompactState canonical = DetectiveSymmetry.of(a).canonical(a);
+		assertThat(locations(canonical)).containsExactly(45, 29, 94, 141, 174);
+		assertThat(locations(DetectiveSymmetry.of(b).canonical(b)))
+				.isEqualTo(locations(canonical));
+		assertThat(DetectiveSymmetry.of(canonical).isIdentity()).isTrue();
+	}
+
+	@Test
+	public void testDetectivesWithDifferentTicketsStayApart() throws IOException {
+		CompactMap map = CompactMap.of(StandardGame.standardGraph());
+		List<Map<Ticket, Integer>> tickets = asList(mrXTickets(), detectiveTickets(),
+				makeTickets(1, 8, 4, 0, 0), detectiveTickets(), makeTickets(1, 8, 4, 0, 0));
+		CompactState a = state(map, asList(45, 174, 29, 141, 94), tickets);
+		CompactState swapped = state(map, asList(45, 174, 94, 141, 29), tickets);
+		CompactState moved = state(map, asList(45, 29, 174, 94, 141), tickets);
+		assertThat(OpeningBook.key(a)).isEqualTo(OpeningBook.key(swapped));
+		assertThat(OpeningBook.key(a)).isNotEqualTo(OpeningBook.key(moved));
+		// RED and BLUE swap, GREEN and WHITE are already in order
+		DetectiveSymmetry symmetry = DetectiveSymmetry.of(a);
+		assertThat(symmetry.player(1)).isEqualTo(3);
+		assertThat(symmetry.player(2)).isEqualTo(2);
+		CompactState canonical = symmetry.canonical(a);
+		assertThat(locations(canonical)).containsExactly(45, 141, 29, 174, 94);
+		assertThat(canonical.tickets(2, Ticket.TAXI.ordinal())).isEqualTo(1);
+		assertThat(canonical.colour(1)).isEqualTo(BLUE);
+		assertThat(locations(symmetry.original(canonical))).isEqualTo(locations(a));
+	}
+
+	@Test
+	public void testCurrentPlayerAndMovedDetectivesKeepTheirSide() throws IOException {
+		CompactMap map = CompactMap.of(StandardGame.standardGraph());
+		List<Map<Ticket, Integer>> tickets = asList(mrXTickets(), detectiveTickets(),
+				detectiveTickets(), detectiveTickets(), detectiveTickets());
+		CompactState state = state(map, asList(45, 174, 29, 141, 94), tickets);
+		long[] buffer = new long[state.maxMoves()];
+		state.generateMoves(buffer);
+		state.apply(buffer[0]);
+		state.apply(CompactState.PASS);
+		// RED has moved, GREEN is to move, BLUE and WHITE are still to move
+		DetectiveSymmetry symmetry = DetectiveSymmetry.of(state);
+		assertThat(symmetry.player(0)).isZero();
+		assertThat(symmetry.player(1)).isEqualTo(1);
+		assertThat(symmetry.player(2)).isEqualTo(2);
+		assertThat(symmetry.player(3)).isEqualTo(4);
+		assertThat(symmetry.player(4)).isEqualTo(3);
+	}
+
+	@Test
+	public void testJointMovesRemapToLegalCanonicalMoves() throws IOException {
+		CompactMap map = CompactMap.of(StandardGame.standardGraph());
+		List<Map<Ticket, Integer>> tickets = asList(mrXTickets(), detectiveTickets(),
+				detectiveTickets(), detectiveTickets(), detectiveTickets());
+		CompactState state = state(map, asList(100, 23, 14, 13, 15), tickets);
+		long[] buffer = new long[state.maxMoves()];
+		state.generateMoves(buffer);
+		state.apply(buffer[0]);
+		state.relocate(0, map.indexOf(100));
+		DetectiveSymmetry symmetry = DetectiveSymmetry.of(state);
+		assertThat(symmetry.isIdentity()).isFalse();
+		CompactState canonical = symmetry.canonical(state);
+		int first = state.currentPlayer();
+		new JointMoves(map).enumerate(state).limit(200).forEach(joint -> {
+			long[] mapped = symmetry.toCanonical(joint, first);
+			assertThat(symmetry.fromCanonical(mapped, first)).containsExactly(joint);
+			CompactState original = state.copy();
+			for (long move : joint) original.apply(move);
+			CompactState replay = canonical.copy();
+			for (long move : mapped) replay.apply(move);
+			assertThat(locations(symmetry.original(replay))).isEqualTo(locations(original));
+		});
+	}
+
+}
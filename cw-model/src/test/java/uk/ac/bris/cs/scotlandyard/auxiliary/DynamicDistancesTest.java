@@ -0,0 +1,90 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import uk.ac.bris.cs.gamekit.graph.DynamicDistances;
+import uk.ac.bris.cs.gamekit.graph.GraphAlgorithms;
+import uk.ac.bris.cs.gamekit.graph.GraphIndex;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link DynamicDistances}
+ */
+public class DynamicDistancesTest {
+
+	private static GraphIndex<Integer, Transport> index;
+	private static int[] transports;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		index = GraphIndex.of(StandardGame.standardGraph());
+		transports = index.mapEdges(Transport::ordinal);
+	}
+
+	private static void assertUpToDate(DynamicDistances<Integer, Transport> distances) {
+		for (int from = 0; from < index.size(); from++)
+			assertThat(distances.distances(from)).as("from %d", index.value(from))
+					.isEqualTo(GraphAlgorithms.distances(index, from, distances.openEdges()));
+	}
+
+	@Test
+	public void testClosingAndReopeningLines() {
+		DynamicDistances<Integer, Transport> distances = new DynamicDistances<>(index);
+		assertUpToDate(distances);
+		int underground = Transport.UNDERGROUND.ordinal();
+		assertThat(distances.setOpen(e -> transports[e] == underground, false)).isPositive();
+		assertUpToDate(distances);
+		assertThat(distances.setOpen(e -> transports[e] == Transport.FERRY.ordinal(), false))
+				.isPositive();
+		assertUpToDate(distances);
+		assertThat(distances.setOpen(e -> transports[e] == underground, true)).isPositive();
+		assertUpToDate(distances);
+		assertThat(distances.setOpen(e -> transports[e] == underground, true)).isZero();
+	}
+
+	@Test
+	public void testRandomChangesStayExact() {
+		DynamicDistances<Integer, Transport> distances = new DynamicDistances<>(index);
+		Random random = new Random(9);
+		for (int step = 0; step < 30; step++) {
+			int edge = random.nextInt(index.edgeCount());
+			distances.setOpen(edge, random.nextInt(3) == 0);
+			int from = random.nextInt(index.size());
+			assertThat(distances.distances(from))
+					.isEqualTo(GraphAlgorithms.distances(index, from, distances.openEdges()));
+		}
+		assertUpToDate(distances);
+	}
+
+	@Test
+	public void testOnlyAffectedSourcesAreSearchedAgain() {
+		DynamicDistances<Integer, Transport> distances = new DynamicDistances<>(index);
+		assertUpToDate(distances);
+		assertThat(distances.searches()).isEqualTo(index.size());
+		// Closing the ferries changes few shortest paths
+		distances.setOpen(e -> transports[e] == Transport.FERRY.ordinal(), false);
+		assertUpToDate(distances);
+		long again = distances.searches() - index.size();
+		assertThat(again).isPositive().isLessThan(index.size());
+		// Opening edges never searches again
+		distances.setOpen(e -> true, true);
+		assertUpToDate(distances);
+		assertThat(distances.searches()).isEqualTo(index.size() + again);
+	}
+
+	@Test
+	public void testInvalidEdgeThrows() {
+		DynamicDistances<Integer, Transport> distances = new DynamicDistances<>(index);
+		assertThatThrownBy(() -> distances.setOpen(index.edgeCount(), false))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
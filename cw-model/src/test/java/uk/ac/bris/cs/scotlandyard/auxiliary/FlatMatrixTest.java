@@ -0,0 +1,132 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Test;
+
+import java.nio.IntBuffer;
+import java.util.List;
+
+import uk.ac.bris.cs.gamekit.matrix.ByteMatrix;
+import uk.ac.bris.cs.gamekit.matrix.DoubleMatrix;
+import uk.ac.bris.cs.gamekit.matrix.IntMatrix;
+import uk.ac.bris.cs.gamekit.matrix.Matrix;
+import uk.ac.bris.cs.gamekit.matrix.SquareMatrix;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link IntMatrix}, {@link ByteMatrix} and {@link DoubleMatrix}
+ */
+public class FlatMatrixTest {
+
+	// 0 1 2
+	// 3 4 5
+	private static IntMatrix twoByThree() {
+		IntMatrix matrix = new IntMatrix(2, 3);
+		for (int i = 0; i < 6; i++) matrix.putInt(i, i);
+		return matrix;
+	}
+
+	@Test
+	public void testViewsAreLiveAndNotCopied() {
+		IntMatrix matrix = twoByThree();
+		List<Integer> row = matrix.row(1);
+		List<Integer> column = matrix.column(2);
+		assertThat(row).containsExactly(3, 4, 5);
+		assertThat(column).containsExactly(2, 5);
+		assertThat(matrix.mainDiagonal()).containsExactly(0, 4);
+		assertThat(matrix.antiDiagonal()).containsExactly(2, 4);
+		assertThat(matrix.asList()).containsExactly(0, 1, 2, 3, 4, 5);
+		matrix.putInt(1, 2, 50);
+		assertThat(row).containsExactly(3, 4, 50);
+		assertThat(column).containsExactly(2, 50);
+		assertThatThrownBy(() -> row.set(0, 1)).isInstanceOf(UnsupportedOperationException.class);
+	}
+
+	@Test
+	public void testRowBufferWritesThrough() {
+		IntMatrix matrix = twoByThree();
+		IntBuffer buffer = matrix.rowBuffer(1);
+		assertThat(buffer.remaining()).isEqualTo(3);
+		assertThat(buffer.get(0)).isEqualTo(3);
+		buffer.put(1, 40);
+		assertThat(matrix.getInt(1, 1)).isEqualTo(40);
+	}
+
+	@Test
+	public void testMatrixInterface() {
+		Matrix<Integer> matrix = twoByThree();
+		assertThat(matrix.rowSize()).isEqualTo(3);
+		assertThat(matrix.columnSize()).isEqualTo(2);
+		assertThat(matrix.count()).isEqualTo(6);
+		assertThat(matrix.inBounds(1, 2)).isTrue();
+		assertThat(matrix.inBounds(2, 0)).isFalse();
+		matrix.row(0, asList(7, 8, 9));
+		matrix.column(0, asList(10, 11));
+		assertThat(matrix.asList()).containsExactly(10, 8, 9, 11, 4, 5);
+		matrix.put(1, 1, 12);
+		assertThat(matrix.get(1, 1)).isEqualTo(12);
+		assertThat(matrix.toString()).isEqualTo("[10, 8, 9\n11, 12, 5]");
+		assertThatThrownBy(() -> matrix.get(2, 0)).isInstanceOf(IndexOutOfBoundsException.class);
+		assertThatThrownBy(() -> matrix.put(0, 0, null)).isInstanceOf(NullPointerException.class);
+		assertThatThrownBy(() -> matrix.row(0, asList(1, 2)))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testEqualsOtherMatrices() {
+		IntMatrix square = new IntMatrix(2, 2);
+		square.fill(3);
+		SquareMatrix<Integer> boxed = new SquareMatrix<>(2, 3);
+		assertThat(square).isEqualTo(boxed);
+		assertThat(boxed).isEqualTo(square);
+		assertThat(square.hashCode()).isEqualTo(boxed.hashCode());
+		IntMatrix copy = new IntMatrix(square);
+		assertThat(copy).isEqualTo(square);
+		copy.putInt(0, 0, 4);
+		assertThat(copy).isNotEqualTo(square);
+		square.copyFrom(copy);
+		assertThat(square.getInt(0, 0)).isEqualTo(4);
+		assertThatThrownBy(() -> square.copyFrom(twoByThree()))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testParallelOperationsMatchSequential() {
+		int size = 300;
+		DoubleMatrix sequential = new DoubleMatrix(size, size);
+		for (int i = 0; i < sequential.count(); i++) sequential.putDouble(i, i * 0.5);
+		DoubleMatrix parallel = new DoubleMatrix(sequential);
+		DoubleMatrix other = new DoubleMatrix(size, size);
+		other.fill(2);
+		sequential.apply(x -> x * x, false);
+		parallel.apply(x -> x * x, true);
+		sequential.combine(other, (a, b) -> a / b, false);
+		parallel.combine(other, (a, b) -> a / b, true);
+		assertThat(parallel).isEqualTo(sequential);
+		assertThat(parallel.getDouble(0, 3)).isEqualTo(1.5 * 1.5 / 2);
+	}
+
+	@Test
+	public void testByteOperationsNarrow() {
+		ByteMatrix matrix = new ByteMatrix(1, 2);
+		matrix.putByte(0, 0, (byte) 100);
+		matrix.putByte(0, 1, (byte) -1);
+		matrix.apply(x -> x + 100, true);
+		assertThat(matrix.getByte(0, 0)).isEqualTo((byte) 200);
+		assertThat(matrix.getByte(0, 1)).isEqualTo((byte) 99);
+		ByteMatrix twice = new ByteMatrix(matrix);
+		matrix.combine(twice, (a, b) -> a - b, false);
+		assertThat(matrix.asList()).containsExactly((byte) 0, (byte) 0);
+		assertThat(matrix.rowBuffer(0).get(1)).isEqualTo((byte) 0);
+	}
+
+	@Test
+	public void testInvalidSizesThrow() {
+		assertThatThrownBy(() -> new IntMatrix(0, 3)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new DoubleMatrix(1 << 16, 1 << 16))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
@@ -0,0 +1,114 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.harness.ImmutableScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.GameSnapshot;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.DEFAULT_REVEAL;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.detectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.mrXTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.ofRounds;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.RED;
+
+/**
+ * Tests for {@link GameSnapshot} and resuming a {@link ScotlandYardModel} from it
+ */
+public class GameSnapshotTest {
+
+	// always picks the same move for the same set of moves
+	private static final Player FIRST_MOVE = (view, location, moves, callback) ->
+			callback.accept(moves.stream().min(Comparator.comparing(Object::toString))
+					.orElseThrow(AssertionError::new));
+
+	private static ScotlandYardModel createGame(Graph<Integer, Transport> graph) {
+		return new ScotlandYardModel(ofRounds(23, DEFAULT_REVEAL), graph,
+				new PlayerConfiguration.Builder(BLACK).using(FIRST_MOVE).with(mrXTickets()).at(35).build(),
+				new PlayerConfiguration.Builder(RED).using(FIRST_MOVE).with(detectiveTickets()).at(197).build(),
+				new PlayerConfiguration.Builder(BLUE).using(FIRST_MOVE).with(detectiveTickets()).at(174).build());
+	}
+
+	private static GameSnapshot roundTrip(GameSnapshot snapshot) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		snapshot.write(out);
+		return GameSnapshot.read(new ByteArrayInputStream(out.toByteArray()));
+	}
+
+	@Test
+	public void testSnapshotSurvivesRoundTrip() throws IOException {
+		ScotlandYardModel game = createGame(StandardGame.standardGraph());
+		for (int i = 0; i < 4; i++) game.startRotate();
+		assertThat(game.isGameOver()).isFalse();
+		GameSnapshot snapshot = game.snapshot();
+		GameSnapshot read = roundTrip(snapshot);
+
+		assertThat(read.rounds()).isEqualTo(snapshot.rounds());
+		assertThat(read.currentRound()).isEqualTo(snapshot.currentRound());
+		assertThat(read.currentPlayer()).isEqualTo(snapshot.currentPlayer());
+		assertThat(read.revealedLocation()).isEqualTo(snapshot.revealedLocation());
+		assertThat(read.players()).containsExactly(BLACK, RED, BLUE);
+		for (Colour colour : read.players()) {
+			assertThat(read.location(colour)).isEqualTo(snapshot.location(colour));
+			assertThat(read.tickets(colour)).isEqualTo(snapshot.tickets(colour));
+		}
+		assertThat(read.travelLog()).isEqualTo(snapshot.travelLog());
+		assertThat(read.travelLog()).hasSize(snapshot.currentRound());
+	}
+
+	@Test
+	public void testResumedGamePlaysOutIdentically() throws IOException {
+		Graph<Integer, Transport> graph = StandardGame.standardGraph();
+		ScotlandYardModel game = createGame(graph);
+		for (int i = 0; i < 4; i++) game.startRotate();
+		assertThat(game.isGameOver()).isFalse();
+
+		Map<Colour, Player> players = new EnumMap<>(Colour.class);
+		for (Colour colour : game.getPlayers()) players.put(colour, FIRST_MOVE);
+		ScotlandYardModel resumed = ScotlandYardModel.resume(roundTrip(game.snapshot()), graph, players);
+
+		assertThat(ImmutableScotlandYardView.snapshot(resumed))
+				.isEqualTo(ImmutableScotlandYardView.snapshot(game));
+
+		while (!game.isGameOver()) {
+			game.startRotate();
+			resumed.startRotate();
+			assertThat(ImmutableScotlandYardView.snapshot(resumed))
+					.isEqualTo(ImmutableScotlandYardView.snapshot(game));
+		}
+		assertThat(resumed.isGameOver()).isTrue();
+		assertThat(resumed.getWinningPlayers()).isEqualTo(game.getWinningPlayers());
+	}
+
+	@Test
+	public void testMissingPlayerThrows() throws IOException {
+		Graph<Integer, Transport> graph = StandardGame.standardGraph();
+		GameSnapshot snapshot = createGame(graph).snapshot();
+		assertThatThrownBy(() -> ScotlandYardModel.resume(snapshot, graph, new EnumMap<>(Colour.class)))
+				.isInstanceOf(NullPointerException.class);
+	}
+
+	@Test
+	public void testGarbageInputThrows() {
+		assertThatThrownBy(() -> GameSnapshot.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5})))
+				.isInstanceOf(IOException.class);
+	}
+
+}
@@ -0,0 +1,169 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.GraphAlgorithms;
+import uk.ac.bris.cs.gamekit.graph.GraphIndex;
+import uk.ac.bris.cs.gamekit.graph.Node;
+import uk.ac.bris.cs.gamekit.graph.UndirectedGraph;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static uk.ac.bris.cs.gamekit.graph.GraphAlgorithms.ALL_EDGES;
+import static uk.ac.bris.cs.gamekit.graph.GraphAlgorithms.UNREACHABLE;
+
+/**
+ * Tests for {@link GraphAlgorithms}
+ */
+public class GraphAlgorithmsTest {
+
+	private static Graph<Integer, Transport> graph;
+	private static GraphIndex<Integer, Transport> index;
+	private static IntPredicate taxiOnly;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		graph = StandardGame.standardGraph();
+		index = GraphIndex.of(graph);
+		int[] transports = index.mapEdges(Transport::ordinal);
+		taxiOnly = edge -> transports[edge] == Transport.TAXI.ordinal();
+	}
+
+	// Breadth first search over the graph itself
+	private static int distance(int from, int to, Transport only) {
+		Map<Node<Integer>, Integer> depth = new HashMap<>();
+		Deque<Node<Integer>> queue = new ArrayDeque<>();
+		depth.put(graph.getNode(from), 0);
+		queue.add(graph.getNode(from));
+		while (!queue.isEmpty()) {
+			Node<Integer> node = queue.poll();
+			if (node.value() == to) return depth.get(node);
+			for (Edge<Integer, Transport> edge : graph.getEdgesFrom(node)) {
+				if (only != null && edge.data() != only) continue;
+				if (depth.putIfAbsent(edge.destination(), depth.get(node) + 1) == null)
+					queue.add(edge.destination());
+			}
+		}
+		return UNREACHABLE;
+	}
+
+	private static int id(int value) {
+		return index.id(value);
+	}
+
+	@Test
+	public void testDistancesMatchNaiveSearch() {
+		int[] all = GraphAlgorithms.distances(index, id(1), ALL_EDGES);
+		int[] taxi = GraphAlgorithms.distances(index, id(1), taxiOnly);
+		for (int value = 1; value <= 199; value += 7) {
+			assertThat(all[id(value)]).isEqualTo(distance(1, value, null));
+			assertThat(taxi[id(value)]).isEqualTo(distance(1, value, Transport.TAXI));
+		}
+		assertThat(taxi[id(108)]).isEqualTo(distance(1, 108, Transport.TAXI));
+	}
+
+	@Test
+	public void testMultiSourceGivesDistanceToNearest() {
+		int[] sources = index.ids(Arrays.asList(29, 94, 141));
+		int[] nearest = GraphAlgorithms.distances(index, sources, ALL_EDGES);
+		int[] owner = GraphAlgorithms.nearestSources(index, sources, ALL_EDGES);
+		int[][] each = GraphAlgorithms.allDistances(index, sources, ALL_EDGES, false);
+		for (int node = 0; node < index.size(); node++) {
+			int best = Math.min(each[0][node], Math.min(each[1][node], each[2][node]));
+			assertThat(nearest[node]).isEqualTo(best);
+			assertThat(each[owner[node]][node]).isEqualTo(best);
+		}
+		assertThat(GraphAlgorithms.parallelDistances(index, sources, ALL_EDGES))
+				.isEqualTo(nearest);
+	}
+
+	@Test
+	public void testBitParallelMatchesSingleSearches() {
+		int[] sources = new int[index.size()];
+		for (int i = 0; i < sources.length; i++) sources[i] = i;
+		int[][] parallel = GraphAlgorithms.allDistances(index, sources, taxiOnly, true);
+		for (int source = 0; source < sources.length; source += 13)
+			assertThat(parallel[source])
+					.isEqualTo(GraphAlgorithms.distances(index, source, taxiOnly));
+		int[][] sequential = GraphAlgorithms.allDistances(index, sources, taxiOnly, false);
+		for (int source = 0; source < sources.length; source++)
+			assertThat(sequential[source]).isEqualTo(parallel[source]);
+	}
+
+	@Test
+	public void testUnreachableNodes() {
+		UndirectedGraph<String, Integer> islands = new UndirectedGraph<>();
+		for (String value : new String[] { "a", "b", "c" }) islands.addNode(new Node<>(value));
+		islands.addEdge(new Edge<>(new Node<>("a"), new Node<>("b"), 1));
+		GraphIndex<String, Integer> index = GraphIndex.of(islands);
+		assertThat(GraphAlgorithms.distances(index, 0, ALL_EDGES))
+				.containsExactly(0, 1, UNREACHABLE);
+		assertThat(GraphAlgorithms.nearestSources(index, new int[] { 0 }, ALL_EDGES))
+				.containsExactly(0, 0, -1);
+		assertThat(GraphAlgorithms.allDistances(index, new int[] { 2 }, ALL_EDGES, false)[0])
+				.containsExactly(UNREACHABLE, UNREACHABLE, 0);
+		assertThat(GraphAlgorithms.shortestPath(index, 0, 2, ALL_EDGES, e -> 1, n -> 0))
+				.isEmpty();
+		assertThat(GraphAlgorithms.shortestDistances(index, 2, ALL_EDGES, e -> 1)[0])
+				.isEqualTo(Double.POSITIVE_INFINITY);
+	}
+
+	@Test
+	public void testUnitDijkstraAndAStarMatchBreadthFirst() {
+		int[] hops = GraphAlgorithms.distances(index, id(46), ALL_EDGES);
+		double[] lengths = GraphAlgorithms.shortestDistances(index, id(46), ALL_EDGES, e -> 1);
+		for (int node = 0; node < index.size(); node++)
+			assertThat(lengths[node]).isEqualTo(hops[node]);
+		// Distances to the target are an exact, consistent heuristic
+		int[] toTarget = GraphAlgorithms.distances(index, id(199), ALL_EDGES);
+		int[] path = GraphAlgorithms.shortestPath(index, id(46), id(199), ALL_EDGES, e -> 1,
+				node -> toTarget[node]);
+		assertThat(path).hasSize(hops[id(199)] + 1);
+		assertThat(path[0]).isEqualTo(id(46));
+		assertThat(path[path.length - 1]).isEqualTo(id(199));
+		for (int i = 1; i < path.length; i++) {
+			Node<Integer> next = index.node(path[i]);
+			assertThat(graph.getEdgesFrom(index.node(path[i - 1])))
+					.anySatisfy(e -> assertThat(e.destination()).isEqualTo(next));
+		}
+	}
+
+	@Test
+	public void testWeightedPathsPreferCheapEdges() {
+		// Taxis cost 1, everything else 10, so the path avoids fast transport
+		int[] transports = index.mapEdges(Transport::ordinal);
+		double[] cheap = GraphAlgorithms.shortestDistances(index, id(1), ALL_EDGES,
+				e -> transports[e] == Transport.TAXI.ordinal() ? 1 : 10);
+		int[] taxi = GraphAlgorithms.distances(index, id(1), taxiOnly);
+		for (int node = 0; node < index.size(); node++)
+			if (taxi[node] != UNREACHABLE)
+				assertThat(cheap[node]).isLessThanOrEqualTo(taxi[node]);
+		int[] path = GraphAlgorithms.shortestPath(index, id(1), id(8), ALL_EDGES,
+				e -> transports[e] == Transport.TAXI.ordinal() ? 1 : 10, n -> 0);
+		assertThat(index.values(path)).containsExactly(1, 8);
+		assertThat(cheap[id(8)]).isCloseTo(1, within(1e-9));
+	}
+
+	@Test
+	public void testInvalidArgumentsThrow() {
+		assertThatThrownBy(() -> GraphAlgorithms.distances(index, -1, ALL_EDGES))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> GraphAlgorithms.shortestDistances(index, 0, ALL_EDGES, e -> -1))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
@@ -0,0 +1,134 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.GraphAlgorithms;
+import uk.ac.bris.cs.gamekit.graph.GraphIndex;
+import uk.ac.bris.cs.gamekit.graph.Node;
+import uk.ac.bris.cs.gamekit.graph.NodeOrder;
+import uk.ac.bris.cs.gamekit.graph.UndirectedGraph;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link GraphIndex} and {@link NodeOrder}
+ */
+public class GraphIndexTest {
+
+	@Test
+	public void testAdjacencyMatchesTheGraph() throws IOException {
+		Graph<Integer, Transport> graph = StandardGame.standardGraph();
+		GraphIndex<Integer, Transport> index = GraphIndex.of(graph);
+		assertThat(index.size()).isEqualTo(graph.size());
+		assertThat(index.edgeCount()).isEqualTo(graph.getEdges().size());
+		int maxDegree = 0;
+		for (int id = 0; id < index.size(); id++) {
+			Node<Integer> node = graph.getNodes().get(id);
+			assertThat(index.node(id)).isEqualTo(node);
+			assertThat(index.id(node)).isEqualTo(id);
+			List<Edge<Integer, Transport>> edges = new ArrayList<>();
+			for (int edge = index.edgeStart(id); edge < index.edgeEnd(id); edge++)
+				edges.add(new Edge<>(node, index.node(index.target(edge)), index.data(edge)));
+			assertThat(edges).containsExactlyElementsOf(graph.getEdgesFrom(node));
+			maxDegree = Math.max(maxDegree, edges.size());
+		}
+		assertThat(index.maxDegree()).isEqualTo(maxDegree);
+	}
+
+	@Test
+	public void testNonIntegerValues() {
+		UndirectedGraph<String, Double> graph = new UndirectedGraph<>();
+		for (String value : asList("x", "y", "z")) graph.addNode(new Node<>(value));
+		graph.addEdge(new Edge<>(new Node<>("x"), new Node<>("z"), 2.5));
+		GraphIndex<String, Double> index = GraphIndex.of(graph);
+		assertThat(index.ids(asList("z", "x"))).containsExactly(2, 0);
+		assertThat(index.values(new int[] { 1, 2 })).containsExactly("y", "z");
+		assertThat(index.id("w")).isEqualTo(-1);
+		assertThat(index.edgeEnd(1) - index.edgeStart(1)).isZero();
+		int edge = index.edgeStart(2);
+		assertThat(index.value(index.target(edge))).isEqualTo("x");
+		assertThat(index.mapEdges(d -> (int) (d * 2))).containsExactly(5, 5);
+		assertThatThrownBy(() -> index.ids(asList("w")))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	// A grid of nodes added in a scrambled order, so insertion ids are far
+	// apart for neighbours
+	private static UndirectedGraph<Integer, Transport> scrambledGrid(int width) {
+		List<Integer> values = new ArrayList<>();
+		for (int i = 0; i < width * width; i++) values.add(i);
+		Collections.shuffle(values, new Random(4));
+		UndirectedGraph<Integer, Transport> graph = new UndirectedGraph<>();
+		values.forEach(value -> graph.addNode(new Node<>(value)));
+		for (int i = 0; i < width * width; i++) {
+			if (i % width < width - 1)
+				graph.addEdge(new Edge<>(new Node<>(i), new Node<>(i + 1), Transport.TAXI));
+			if (i + width < width * width)
+				graph.addEdge(new Edge<>(new Node<>(i), new Node<>(i + width), Transport.BUS));
+		}
+		return graph;
+	}
+
+	@Test
+	public void testReorderingKeepsTheGraph() throws IOException {
+		Graph<Integer, Transport> graph = StandardGame.standardGraph();
+		GraphIndex<Integer, Transport> index = GraphIndex.of(graph);
+		assertThat(index.reorder(NodeOrder.INSERTION)).isSameAs(index);
+		for (NodeOrder order : asList(NodeOrder.BREADTH_FIRST, NodeOrder.REVERSE_CUTHILL_MCKEE)) {
+			GraphIndex<Integer, Transport> reordered = GraphIndex.of(graph, order);
+			assertThat(reordered.size()).isEqualTo(index.size());
+			assertThat(reordered.edgeCount()).isEqualTo(index.edgeCount());
+			for (Node<Integer> node : graph.getNodes()) {
+				int id = reordered.id(node);
+				assertThat(reordered.node(id)).isEqualTo(node);
+				List<Edge<Integer, Transport>> edges = new ArrayList<>();
+				for (int edge = reordered.edgeStart(id); edge < reordered.edgeEnd(id); edge++)
+					edges.add(new Edge<>(node, reordered.node(reordered.target(edge)),
+							reordered.data(edge)));
+				assertThat(edges).containsExactlyElementsOf(graph.getEdgesFrom(node));
+			}
+			// Distances between values do not depend on the ids
+			int[] before = GraphAlgorithms.distances(index, index.id(1),
+					GraphAlgorithms.ALL_EDGES);
+			int[] after = GraphAlgorithms.distances(reordered, reordered.id(1),
+					GraphAlgorithms.ALL_EDGES);
+			for (Node<Integer> node : graph.getNodes())
+				assertThat(after[reordered.id(node)]).isEqualTo(before[index.id(node)]);
+		}
+	}
+
+	@Test
+	public void testReverseCuthillMcKeeNarrowsTheBandwidth() {
+		int width = 30;
+		GraphIndex<Integer, Transport> index = GraphIndex.of(scrambledGrid(width));
+		assertThat(index.bandwidth()).isGreaterThan(width * width / 2);
+		assertThat(index.reorder(NodeOrder.REVERSE_CUTHILL_MCKEE).bandwidth())
+				.isLessThanOrEqualTo(2 * width);
+		assertThat(index.reorder(NodeOrder.BREADTH_FIRST).bandwidth())
+				.isLessThanOrEqualTo(4 * width);
+	}
+
+	@Test
+	public void testHashCodesAreUnchanged() {
+		Node<Integer> a = new Node<>(7);
+		Node<Integer> b = new Node<>(8);
+		assertThat(a.hashCode()).isEqualTo(Objects.hash(7));
+		assertThat(new Edge<>(a, b, Transport.BUS).hashCode())
+				.isEqualTo(Objects.hash(a, b, Transport.BUS));
+		assertThat(new Edge<>(a, b, null).hashCode()).isEqualTo(Objects.hash(a, b, null));
+	}
+
+}
@@ -0,0 +1,104 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
+import uk.ac.bris.cs.gamekit.graph.Node;
+import uk.ac.bris.cs.gamekit.graph.UndirectedGraph;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.detectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.mrXTickets;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLUE;
+
+/**
+ * Tests for {@link ImmutableGraph}
+ */
+public class ImmutableGraphTest {
+
+	private static UndirectedGraph<String, Transport> letters() {
+		UndirectedGraph<String, Transport> graph = new UndirectedGraph<>();
+		for (String value : new String[] { "a", "b", "c" }) graph.addNode(new Node<>(value));
+		graph.addEdge(new Edge<>(new Node<>("a"), new Node<>("b"), Transport.TAXI));
+		graph.addEdge(new Edge<>(new Node<>("b"), new Node<>("c"), Transport.BUS));
+		return graph;
+	}
+
+	@Test
+	public void testSnapshotEqualsTheStandardGraph() throws IOException {
+		Graph<Integer, Transport> standard = new UndirectedGraph<>(StandardGame.standardGraph());
+		ImmutableGraph<Integer, Transport> graph = new ImmutableGraph<>(standard);
+		assertThat(graph).isEqualTo(standard);
+		for (Node<Integer> node : standard.getNodes()) {
+			assertThat(graph.getNode(node.value())).isEqualTo(node);
+			assertThat(graph.getEdgesFrom(node))
+					.containsExactlyElementsOf(standard.getEdgesFrom(node));
+			assertThat(graph.getEdgesTo(node))
+					.containsExactlyElementsOf(standard.getEdgesTo(node));
+		}
+		assertThat(graph.getNode(0)).isNull();
+		assertThat(graph.getNode(200)).isNull();
+		assertThat(graph.containsNode(-5)).isFalse();
+	}
+
+	@Test
+	public void testSnapshotDoesNotSeeLaterChanges() {
+		UndirectedGraph<String, Transport> source = letters();
+		ImmutableGraph<String, Transport> graph = new ImmutableGraph<>(source);
+		source.addNode(new Node<>("d"));
+		source.addEdge(new Edge<>(new Node<>("c"), new Node<>("d"), Transport.TAXI));
+		assertThat(graph.size()).isEqualTo(3);
+		assertThat(graph.containsNode("d")).isFalse();
+		assertThat(graph.getEdgesFrom(new Node<>("c"))).hasSize(1);
+		assertThat(graph.getEdges()).hasSize(4);
+	}
+
+	@Test
+	public void testLookupsWithoutIntegerValues() {
+		ImmutableGraph<String, Transport> graph = new ImmutableGraph<>(letters());
+		assertThat(graph.getNode("b")).isEqualTo(new Node<>("b"));
+		assertThat(graph.getNode("z")).isNull();
+		assertThat(graph.getEdgesFrom(new Node<>("b"))).hasSize(2);
+		assertThatThrownBy(() -> graph.getEdgesFrom(new Node<>("z")))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testSparseIntegerValues() {
+		UndirectedGraph<Integer, Transport> source = new UndirectedGraph<>();
+		source.addNode(new Node<>(Integer.MIN_VALUE));
+		source.addNode(new Node<>(Integer.MAX_VALUE));
+		source.addEdge(new Edge<>(new Node<>(Integer.MIN_VALUE), new Node<>(Integer.MAX_VALUE),
+				Transport.FERRY));
+		ImmutableGraph<Integer, Transport> graph = new ImmutableGraph<>(source);
+		assertThat(graph.containsNode(Integer.MAX_VALUE)).isTrue();
+		assertThat(graph.containsNode(0)).isFalse();
+		assertThat(graph.getEdgesTo(new Node<>(Integer.MIN_VALUE))).hasSize(1);
+	}
+
+	@Test
+	public void testSnapshotsAreShared() throws IOException {
+		ImmutableGraph<Integer, Transport> graph = StandardGame.standardGraph();
+		assertThat(ImmutableGraph.of(graph)).isSameAs(graph);
+		ScotlandYardModel model = new ScotlandYardModel(StandardGame.ROUNDS,
+				new UndirectedGraph<>(graph),
+				new PlayerConfiguration.Builder(BLACK).with(mrXTickets()).at(45)
+						.using((view, location, moves, callback) -> {}).build(),
+				new PlayerConfiguration.Builder(BLUE).with(detectiveTickets()).at(29)
+						.using((view, location, moves, callback) -> {}).build());
+		assertThat(model.getGraph()).isSameAs(model.getGraph()).isEqualTo(graph);
+		assertThatThrownBy(() -> model.getGraph().addNode(new Node<>(500)))
+				.isInstanceOf(UnsupportedOperationException.class);
+	}
+
+}
@@ -0,0 +1,77 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import uk.ac.bris.cs.scotlandyard.harness.ImmutableScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.harness.ImmutableScotlandYardView.Snapshots;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.DEFAULT_REVEAL;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.detectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.mrXTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.ofRounds;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.RED;
+
+/**
+ * Tests for snapshots of {@link ImmutableScotlandYardView} taken against earlier ones
+ */
+public class ImmutableScotlandYardViewTest {
+
+	// always picks the same move for the same set of moves
+	private static final Player FIRST_MOVE = (view, location, moves, callback) ->
+			callback.accept(moves.stream().min(Comparator.comparing(Object::toString))
+					.orElseThrow(AssertionError::new));
+
+	private static ScotlandYardModel createGame() throws IOException {
+		return new ScotlandYardModel(ofRounds(23, DEFAULT_REVEAL), StandardGame.standardGraph(),
+				new PlayerConfiguration.Builder(BLACK).using(FIRST_MOVE).with(mrXTickets()).at(35).build(),
+				new PlayerConfiguration.Builder(RED).using(FIRST_MOVE).with(detectiveTickets()).at(197).build(),
+				new PlayerConfiguration.Builder(BLUE).using(FIRST_MOVE).with(detectiveTickets()).at(174).build());
+	}
+
+	@Test
+	public void testDiffSnapshotsEqualFullSnapshots() throws IOException {
+		ScotlandYardModel game = createGame();
+		Snapshots snapshots = new Snapshots();
+		List<ImmutableScotlandYardView> taken = new ArrayList<>();
+		while (!game.isGameOver()) {
+			ImmutableScotlandYardView full = ImmutableScotlandYardView.snapshot(game);
+			ImmutableScotlandYardView diff = snapshots.take(game);
+			assertThat(diff).isEqualTo(full);
+			assertThat(diff.hashCode()).isEqualTo(full.hashCode());
+			assertThat(diff.toString()).isEqualTo(full.toString());
+			for (Ticket ticket : Ticket.values())
+				assertThat(diff.getPlayerTickets(BLUE, ticket))
+						.isEqualTo(game.getPlayerTickets(BLUE, ticket));
+			taken.add(diff);
+			game.startRotate();
+		}
+		// Earlier snapshots are not changed by the ones taken against them
+		assertThat(taken.get(0)).isNotEqualTo(taken.get(taken.size() - 1));
+		assertThat(taken.get(0).getPlayerLocation(RED)).contains(197);
+	}
+
+	@Test
+	public void testSnapshotAgainstAnotherGame() throws IOException {
+		ScotlandYardModel game = createGame();
+		ScotlandYardModel other = createGame();
+		for (int i = 0; i < 3; i++) game.startRotate();
+		ImmutableScotlandYardView previous = ImmutableScotlandYardView.snapshot(other);
+		assertThat(ImmutableScotlandYardView.snapshot(game, previous))
+				.isEqualTo(ImmutableScotlandYardView.snapshot(game))
+				.isNotEqualTo(previous);
+	}
+
+}
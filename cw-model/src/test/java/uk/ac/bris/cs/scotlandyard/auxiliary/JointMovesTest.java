@@ -0,0 +1,158 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import uk.ac.bris.cs.scotlandyard.ai.CompactMap;
+import uk.ac.bris.cs.scotlandyard.ai.CompactState;
+import uk.ac.bris.cs.scotlandyard.ai.JointMoves;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.nCopies;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.detectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.makeTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.mrXTickets;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.GREEN;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.RED;
+
+/**
+ * Tests for {@link JointMoves}
+ */
+public class JointMovesTest {
+
+	private static final List<Colour> COLOURS = asList(BLACK, RED, GREEN, BLUE);
+
+	// Mr X has moved, so the first detective is to move
+	private static CompactState detectivesToMove(CompactMap map, int mrX, Integer... detectives)
+			throws IOException {
+		List<Integer> locations = new ArrayList<>();
+		locations.add(mrX);
+		locations.addAll(asList(detectives));
+		CompactState state = CompactState.of(map, StandardGame.ROUNDS,
+				COLOURS.subList(0, locations.size()), locations,
+				asList(mrXTickets(), detectiveTickets(), detectiveTickets(), detectiveTickets())
+						.subList(0, locations.size()));
+		long[] buffer = new long[state.maxMoves()];
+		state.generateMoves(buffer);
+		state.apply(buffer[0]);
+		state.relocate(0, map.indexOf(mrX));
+		return state;
+	}
+
+	private static int moveCount(CompactState state) {
+		return state.generateMoves(new long[state.maxMoves()]);
+	}
+
+	private static Set<List<Long>> asSet(Stream<long[]> moves) {
+		return moves.map(m -> Arrays.stream(m).boxed().collect(toList())).collect(toSet());
+	}
+
+	@Test
+	public void testIndependentDetectivesGiveFullProduct() throws IOException {
+		CompactMap map = CompactMap.of(StandardGame.standardGraph());
+		CompactState state = detectivesToMove(map, 1, 100, 150, 199);
+		int product = 1;
+		for (int player = 1; player < 4; player++) {
+			CompactState alone = state.copy();
+			for (int skip = 1; skip < player; skip++) alone.apply(CompactState.PASS);
+			product *= moveCount(alone);
+		}
+		assertThat(new JointMoves(map).enumerate(state).count()).isEqualTo(product);
+	}
+
+	@Test
+	public void testEveryJointMoveIsLegalInSequence() throws IOException {
+		CompactMap map = CompactMap.of(StandardGame.standardGraph());
+		// 13, 14 and 23 are next to each other so the detectives block each other
+		CompactState state = detectivesToMove(map, 100, 13, 14, 23);
+		List<long[]> all = new JointMoves(map).enumerate(state).collect(toList());
+		assertThat(all).isNotEmpty();
+		long[] buffer = new long[state.maxMoves()];
+		for (long[] joint : all) {
+			CompactState replay = state.copy();
+			for (long move : joint) {
+				int count = replay.generateMoves(buffer);
+				assertThat(Arrays.copyOf(buffer, count)).contains(move);
+				replay.apply(move);
+			}
+			assertThat(replay.currentPlayer()).isZero();
+		}
+		assertThat(asSet(all.stream())).hasSize(all.size());
+	}
+
+	@Test
+	public void testBlockedDetectivePasses() throws IOException {
+		CompactMap map = CompactMap.of(StandardGame.standardGraph());
+		CompactState state = CompactState.of(map, StandardGame.ROUNDS, asList(BLACK, RED),
+				asList(1, 100), asList(mrXTickets(), makeTickets(0, 0, 0, 0, 0)));
+		state.apply(firstMove(state));
+		List<long[]> all = new JointMoves(map).enumerate(state).collect(toList());
+		assertThat(all).hasSize(1);
+		assertThat(all.get(0)).containsExactly(CompactState.PASS);
+	}
+
+	private static long firstMove(CompactState state) {
+		long[] buffer = new long[state.maxMoves()];
+		state.generateMoves(buffer);
+		return buffer[0];
+	}
+
+	@Test
+	public void testParallelEnumerationGivesSameMoves() throws IOException {
+		CompactMap map = CompactMap.of(StandardGame.standardGraph());
+		CompactState state = detectivesToMove(map, 100, 13, 14, 23);
+		JointMoves joint = new JointMoves(map);
+		Set<List<Long>> sequential = asSet(joint.enumerate(state));
+		Set<List<Long>> parallel = asSet(joint.enumerate(state).parallel());
+		assertThat(parallel).isEqualTo(sequential);
+	}
+
+	@Test
+	public void testPruningKeepsCaptureAndDropsMovesAway() throws IOException {
+		CompactMap map = CompactMap.of(StandardGame.standardGraph());
+		JointMoves joint = new JointMoves(map);
+		// 1 and 8 are connected by taxi
+		CompactState state = detectivesToMove(map, 1, 8, 150, 199);
+		int[] candidates = {map.indexOf(1)};
+
+		Set<List<Long>> all = asSet(joint.enumerate(state));
+		Set<List<Long>> pruned = asSet(joint.enumerate(state, candidates));
+		assertThat(all).containsAll(pruned);
+		assertThat(pruned.size()).isLessThan(all.size());
+		for (List<Long> moves : pruned) {
+			long first = moves.get(0);
+			assertThat(joint.distance(CompactState.firstTarget(first), candidates[0])).isZero();
+			for (int i = 0; i < moves.size(); i++) {
+				int from = state.location(i + 1);
+				int to = CompactState.firstTarget(moves.get(i));
+				assertThat(joint.distance(to, candidates[0]))
+						.isLessThan(joint.distance(from, candidates[0]));
+			}
+		}
+		assertThat(asSet(joint.enumerate(state, new int[0]))).isEqualTo(all);
+	}
+
+	@Test
+	public void testMrXToMoveThrows() throws IOException {
+		CompactMap map = CompactMap.of(StandardGame.standardGraph());
+		CompactState state = CompactState.of(map, StandardGame.ROUNDS, asList(BLACK, RED),
+				asList(1, 100), nCopies(2, detectiveTickets()));
+		assertThatThrownBy(() -> new JointMoves(map).enumerate(state))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
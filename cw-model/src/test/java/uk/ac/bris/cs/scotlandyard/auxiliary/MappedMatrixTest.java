@@ -0,0 +1,112 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import uk.ac.bris.cs.gamekit.matrix.IntMatrix;
+import uk.ac.bris.cs.gamekit.matrix.MappedMatrix;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link MappedMatrix}
+ */
+public class MappedMatrixTest {
+
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path file() throws IOException {
+		return folder.newFile().toPath();
+	}
+
+	@Test
+	public void testCellsSurviveReopening() throws IOException {
+		Path path = file();
+		try (MappedMatrix matrix = MappedMatrix.create(path, 3, 4, 2)) {
+			assertThat(matrix.getInt(2, 3)).isZero();
+			for (int row = 0; row < 3; row++)
+				for (int column = 0; column < 4; column++)
+					matrix.putInt(row, column, row * 1000 - column);
+		}
+		try (MappedMatrix matrix = MappedMatrix.open(path, false)) {
+			assertThat(matrix.columnSize()).isEqualTo(3);
+			assertThat(matrix.rowSize()).isEqualTo(4);
+			assertThat(matrix.cellBytes()).isEqualTo(2);
+			assertThat(matrix.getInt(2, 3)).isEqualTo(1997);
+			assertThat(matrix.row(1)).containsExactly(1000, 999, 998, 997);
+			assertThat(matrix.column(0)).containsExactly(0, 1000, 2000);
+			assertThat(matrix.mainDiagonal()).containsExactly(0, 999, 1998);
+			assertThat(matrix.antiDiagonal()).containsExactly(-3, 998, 1999);
+			assertThatThrownBy(() -> matrix.putInt(0, 0, 1))
+					.isInstanceOf(UnsupportedOperationException.class);
+		}
+	}
+
+	@Test
+	public void testCellsSpanManyChunks() throws IOException {
+		Path path = file();
+		int size = 50;
+		// 64 byte chunks hold 16 cells, so rows cross chunk boundaries
+		try (MappedMatrix matrix = MappedMatrix.create(path, size, size, 4, 64)) {
+			for (int row = 0; row < size; row++)
+				for (int column = 0; column < size; column++)
+					matrix.putInt(row, column, row * size + column - 1234);
+		}
+		try (MappedMatrix matrix = MappedMatrix.open(path, true, 128)) {
+			IntMatrix expected = new IntMatrix(size, size);
+			for (int i = 0; i < expected.count(); i++) expected.putInt(i, i - 1234);
+			assertThat(matrix).isEqualTo(expected);
+			matrix.putInt(49, 49, Integer.MIN_VALUE);
+			assertThat(matrix.getInt(49, 49)).isEqualTo(Integer.MIN_VALUE);
+		}
+	}
+
+	@Test
+	public void testConcurrentReaders() throws IOException {
+		Path path = file();
+		try (MappedMatrix matrix = MappedMatrix.create(path, 200, 200, 1, 256)) {
+			for (int row = 0; row < 200; row++)
+				for (int column = 0; column < 200; column++)
+					matrix.putInt(row, column, (row + column) % 100);
+		}
+		try (MappedMatrix matrix = MappedMatrix.open(path, false)) {
+			long sum = IntStream.range(0, 200).parallel()
+					.mapToLong(row -> IntStream.range(0, 200)
+							.map(column -> matrix.getInt(row, column)).sum())
+					.sum();
+			long expected = 0;
+			for (int row = 0; row < 200; row++)
+				for (int column = 0; column < 200; column++) expected += (row + column) % 100;
+			assertThat(sum).isEqualTo(expected);
+		}
+	}
+
+	@Test
+	public void testInvalidValuesAndFilesThrow() throws IOException {
+		try (MappedMatrix matrix = MappedMatrix.create(file(), 2, 2, 1)) {
+			assertThatThrownBy(() -> matrix.putInt(0, 0, 128))
+					.isInstanceOf(IllegalArgumentException.class);
+			assertThatThrownBy(() -> matrix.getInt(2, 0))
+					.isInstanceOf(IndexOutOfBoundsException.class);
+		}
+		assertThatThrownBy(() -> MappedMatrix.create(file(), 2, 2, 3))
+				.isInstanceOf(IllegalArgumentException.class);
+		Path garbage = file();
+		Files.write(garbage, new byte[64]);
+		assertThatThrownBy(() -> MappedMatrix.open(garbage, false)).isInstanceOf(IOException.class);
+		Path truncated = file();
+		MappedMatrix.create(truncated, 10, 10, 4).close();
+		Files.write(truncated, Arrays.copyOf(Files.readAllBytes(truncated), 100));
+		assertThatThrownBy(() -> MappedMatrix.open(truncated, false))
+				.isInstanceOf(IOException.class);
+	}
+
+}
@@ -0,0 +1,127 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import uk.ac.bris.cs.gamekit.metrics.Histogram;
+import uk.ac.bris.cs.gamekit.metrics.Meter;
+import uk.ac.bris.cs.gamekit.metrics.MetricRegistry;
+import uk.ac.bris.cs.gamekit.metrics.MetricsServer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Tests for {@link MetricRegistry} and the metrics it holds
+ */
+public class MetricRegistryTest {
+
+	@Test
+	public void testHistogramPercentilesWithinPrecision() {
+		Histogram histogram = new MetricRegistry().histogram("latency");
+		assertThat(histogram.percentile(99)).isEqualTo(0);
+		Random random = new Random(42);
+		long[] values = new long[100_000];
+		for (int i = 0; i < values.length; i++) {
+			// Spread over many powers of two
+			values[i] = (long) Math.exp(random.nextDouble() * 30);
+			histogram.record(values[i]);
+		}
+		Arrays.sort(values);
+		assertThat(histogram.count()).isEqualTo(values.length);
+		assertThat(histogram.max()).isEqualTo(values[values.length - 1]);
+		for (double percentile : new double[]{1, 50, 90, 99, 99.9}) {
+			long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+			assertThat((double) histogram.percentile(percentile)).as("p%s", percentile)
+					.isCloseTo(exact, within(exact / 32.0 + 1));
+		}
+		assertThat(histogram.percentile(100)).isEqualTo(histogram.max());
+	}
+
+	@Test
+	public void testHistogramIsThreadSafe() {
+		Histogram histogram = new MetricRegistry().histogram("latency");
+		IntStream.range(0, 200_000).parallel().forEach(i -> histogram.record(i % 100));
+		assertThat(histogram.count()).isEqualTo(200_000);
+		assertThat(histogram.mean()).isCloseTo(49.5, within(1e-9));
+		assertThat(histogram.percentile(50)).isEqualTo(49);
+	}
+
+	@Test
+	public void testMeterRateOverLastMinute() {
+		AtomicLong nanos = new AtomicLong();
+		Meter meter = new MetricRegistry(nanos::get).meter("moves");
+		for (int second = 0; second < 10; second++) {
+			nanos.set(second * 1_000_000_000L);
+			meter.mark(6);
+		}
+		nanos.set(10_000_000_000L);
+		assertThat(meter.count()).isEqualTo(60);
+		assertThat(meter.rate()).isCloseTo(6, within(1e-9));
+		// A minute later the old seconds have dropped out of the window
+		nanos.set(75_000_000_000L);
+		meter.mark(120);
+		nanos.set(76_000_000_000L);
+		assertThat(meter.rate()).isCloseTo(2, within(1e-9));
+	}
+
+	@Test
+	public void testSameNameGivesSameMetric() {
+		MetricRegistry registry = new MetricRegistry();
+		assertThat(registry.counter("games")).isSameAs(registry.counter("games"));
+		assertThatThrownBy(() -> registry.histogram("games"))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> registry.gauge("games", () -> 1))
+				.isInstanceOf(IllegalArgumentException.class);
+		registry.gauge("load", () -> 1);
+		registry.gauge("load", () -> 2);
+		assertThat(registry.snapshot()).containsEntry("load", 2L);
+	}
+
+	@Test
+	public void testServedAsTextAndOverJmx() throws Exception {
+		MetricRegistry registry = new MetricRegistry();
+		registry.counter("games").add(3);
+		registry.histogram("think").record(1000);
+		StringBuilder text = new StringBuilder();
+		registry.writeText(text);
+		assertThat(text.toString()).contains("games 3\n", "think.count 1\n", "think.p99 1000\n");
+
+		try (MetricsServer server = MetricsServer.start(registry, 0)) {
+			HttpURLConnection connection = (HttpURLConnection) new URL(
+					"http://localhost:" + server.port() + MetricsServer.PATH).openConnection();
+			assertThat(connection.getResponseCode()).isEqualTo(200);
+			try (InputStream in = connection.getInputStream()) {
+				assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8))
+						.isEqualTo(text.toString());
+			}
+		}
+
+		ObjectName name = new ObjectName("uk.ac.bris.cs.gamekit:type=MetricRegistryTest");
+		registry.register(name);
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			assertThat(server.getAttribute(name, "games")).isEqualTo(3L);
+			registry.counter("games").increment();
+			assertThat(server.getAttribute(name, "games")).isEqualTo(4L);
+			assertThatThrownBy(() -> registry.register(name))
+					.isInstanceOf(IllegalStateException.class);
+		} finally {
+			server.unregisterMBean(name);
+		}
+	}
+
+}
@@ -0,0 +1,157 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import uk.ac.bris.cs.gamekit.metrics.Histogram;
+import uk.ac.bris.cs.gamekit.metrics.MetricRegistry;
+import uk.ac.bris.cs.scotlandyard.model.ModelMetrics;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.Spectator;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+
+import static java.util.stream.Collectors.groupingBy;
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.DEFAULT_REVEAL;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.detectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.mrXTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.ofRounds;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.RED;
+
+/**
+ * Tests for the Flight Recorder events of the model
+ */
+public class ModelEventsTest {
+
+	private static final String PREFIX = "uk.ac.bris.cs.scotlandyard.";
+
+	private final AtomicInteger moves = new AtomicInteger();
+
+	// always picks the same move for the same set of moves, and counts them
+	private final Player firstMove = (view, location, moves, callback) -> {
+		this.moves.incrementAndGet();
+		callback.accept(moves.stream().min(Comparator.comparing(Object::toString))
+				.orElseThrow(AssertionError::new));
+	};
+
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final class CountingSpectator implements Spectator {
+
+		int movesMade;
+
+		@Override
+		public void onMoveMade(ScotlandYardView view, Move move) {
+			movesMade++;
+		}
+	}
+
+	@Test
+	public void testGameEmitsEvents() throws Exception {
+		ScotlandYardModel game = new ScotlandYardModel(ofRounds(3, DEFAULT_REVEAL),
+				StandardGame.standardGraph(),
+				new PlayerConfiguration.Builder(BLACK).using(firstMove).with(mrXTickets()).at(35).build(),
+				new PlayerConfiguration.Builder(RED).using(firstMove).with(detectiveTickets()).at(197).build(),
+				new PlayerConfiguration.Builder(BLUE).using(firstMove).with(detectiveTickets()).at(174).build());
+		CountingSpectator spectator = new CountingSpectator();
+		game.registerSpectator(spectator);
+
+		Path file = folder.getRoot().toPath().resolve("game.jfr");
+		try (Recording recording = new Recording()) {
+			for (String name : List.of("MoveGeneration", "MoveApplication", "SpectatorCallback",
+					"GameOver"))
+				recording.enable(PREFIX + name).withThreshold(Duration.ZERO);
+			recording.start();
+			while (!game.isGameOver()) game.startRotate();
+			recording.stop();
+			recording.dump(file);
+		}
+
+		Map<String, List<RecordedEvent>> events = RecordingFile.readAllEvents(file).stream()
+				.collect(groupingBy(event -> event.getEventType().getName()));
+		assertThat(events).containsKeys(PREFIX + "MoveGeneration",
+				PREFIX + "MoveApplication", PREFIX + "SpectatorCallback", PREFIX + "GameOver");
+		assertThat(events.get(PREFIX + "MoveApplication")).hasSize(moves.get())
+				.extracting(event -> event.getString("player"))
+				.containsOnly("BLACK", "RED", "BLUE");
+		// One generation per move asked for, game over checks are not move generation
+		assertThat(events.get(PREFIX + "MoveGeneration")).hasSize(moves.get())
+				.allMatch(event -> event.getInt("moves") > 0);
+		assertThat(events.get(PREFIX + "GameOver")).hasSize(1)
+				.extracting(event -> event.getInt("round")).containsExactly(game.getCurrentRound());
+		Map<String, List<RecordedEvent>> callbacks = events.get(PREFIX + "SpectatorCallback")
+				.stream().collect(groupingBy(event -> event.getString("callback")));
+		assertThat(callbacks.keySet()).containsExactlyInAnyOrder("onMoveMade", "onRoundStarted",
+				"onRotationComplete", "onGameOver");
+		assertThat(callbacks.get("onMoveMade")).hasSize(spectator.movesMade)
+				.extracting(event -> event.getClass("spectator").getName())
+				.containsOnly(CountingSpectator.class.getName());
+		assertThat(callbacks.get("onGameOver")).hasSize(1);
+	}
+
+	@Test
+	public void testNothingRecordedWhenDisabled() throws Exception {
+		Path file = folder.getRoot().toPath().resolve("empty.jfr");
+		ScotlandYardModel game = new ScotlandYardModel(ofRounds(3, DEFAULT_REVEAL),
+				StandardGame.standardGraph(),
+				new PlayerConfiguration.Builder(BLACK).using(firstMove).with(mrXTickets()).at(35).build(),
+				new PlayerConfiguration.Builder(RED).using(firstMove).with(detectiveTickets()).at(197).build());
+		try (Recording recording = new Recording()) {
+			for (String name : List.of("MoveGeneration", "MoveApplication", "SpectatorCallback",
+					"GameOver"))
+				recording.disable(PREFIX + name);
+			recording.start();
+			game.startRotate();
+			recording.stop();
+			recording.dump(file);
+		}
+		assertThat(RecordingFile.readAllEvents(file))
+				.noneMatch(event -> event.getEventType().getName().startsWith(PREFIX));
+	}
+
+	@Test
+	public void testSpectatorsTimedOnlyWhenAskedFor() throws Exception {
+		Histogram times = MetricRegistry.global().histogram(ModelMetrics.SPECTATOR_NANOS);
+		CountingSpectator spectator = new CountingSpectator();
+		ScotlandYardModel untimed = new ScotlandYardModel(ofRounds(3, DEFAULT_REVEAL),
+				StandardGame.standardGraph(),
+				new PlayerConfiguration.Builder(BLACK).using(firstMove).with(mrXTickets()).at(35).build(),
+				new PlayerConfiguration.Builder(RED).using(firstMove).with(detectiveTickets()).at(197).build());
+		untimed.registerSpectator(spectator);
+		long before = times.count();
+		untimed.startRotate();
+		assertThat(spectator.movesMade).isPositive();
+		assertThat(times.count()).isEqualTo(before);
+
+		ScotlandYardModel timed = new ScotlandYardModel(ofRounds(3, DEFAULT_REVEAL),
+				StandardGame.standardGraph(),
+				new PlayerConfiguration.Builder(BLACK).using(firstMove).with(mrXTickets()).at(35).build(),
+				new PlayerConfiguration.Builder(RED).using(firstMove).with(detectiveTickets()).at(197).build());
+		timed.registerSpectator(spectator);
+		ModelMetrics.timeSpectators(true);
+		try {
+			timed.startRotate();
+		} finally {
+			ModelMetrics.timeSpectators(false);
+		}
+		assertThat(times.count()).isGreaterThan(before);
+	}
+
+}
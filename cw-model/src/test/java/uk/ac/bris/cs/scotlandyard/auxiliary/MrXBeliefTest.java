@@ -0,0 +1,240 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.ai.CompactMap;
+import uk.ac.bris.cs.scotlandyard.ai.CompactState;
+import uk.ac.bris.cs.scotlandyard.ai.MrXBelief;
+import uk.ac.bris.cs.scotlandyard.ai.MrXBelief.MoveModel;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.detectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.mrXTickets;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.RED;
+
+/**
+ * Tests for {@link MrXBelief}
+ */
+public class MrXBeliefTest {
+
+	private static Graph<Integer, Transport> graph;
+	private static CompactMap map;
+
+	// Prefers some moves over others so the model weights matter
+	private static final MoveModel SKEWED = (map, from, to, ticket) -> 1 + (to * 7 + ticket) % 5;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		graph = StandardGame.standardGraph();
+		map = CompactMap.of(graph);
+	}
+
+	// The same update done naively, with the moves CompactState generates
+	private static double[] bruteForce(double[] prior, MoveModel model, int ticket,
+			List<Integer> detectives, Map<Ticket, Integer> tickets) {
+		double[] posterior = new double[prior.length];
+		List<Map<Ticket, Integer>> wallets = new ArrayList<>();
+		wallets.add(tickets);
+		for (int i = 0; i < detectives.size(); i++) wallets.add(detectiveTickets());
+		long[] buffer = null;
+		for (int from = 0; from < prior.length; from++) {
+			if (prior[from] == 0 || detectives.contains(map.value(from))) continue;
+			List<Integer> locations = new ArrayList<>();
+			locations.add(map.value(from));
+			locations.addAll(detectives);
+			List<Colour> colours = new ArrayList<>(asList(BLACK, BLUE, RED).subList(0,
+					detectives.size() + 1));
+			CompactState state = CompactState.of(map, StandardGame.ROUNDS, colours, locations,
+					wallets);
+			if (buffer == null) buffer = new long[state.maxMoves()];
+			int count = state.generateMoves(buffer);
+			double total = 0;
+			for (int i = 0; i < count; i++) {
+				long move = buffer[i];
+				if (CompactState.isDouble(move)) continue;
+				total += model.weight(map, from, CompactState.firstTarget(move),
+						CompactState.firstTicket(move));
+			}
+			for (int i = 0; i < count; i++) {
+				long move = buffer[i];
+				if (CompactState.isDouble(move) || CompactState.firstTicket(move) != ticket) continue;
+				int to = CompactState.firstTarget(move);
+				posterior[to] += prior[from] * model.weight(map, from, to, ticket) / total;
+			}
+		}
+		double sum = Arrays.stream(posterior).sum();
+		for (int i = 0; i < posterior.length; i++) posterior[i] /= sum;
+		return posterior;
+	}
+
+	private static int[] indices(List<Integer> locations) {
+		return locations.stream().mapToInt(map::indexOf).toArray();
+	}
+
+	private static int[] counts(Map<Ticket, Integer> tickets) {
+		int[] counts = new int[Ticket.values().length];
+		tickets.forEach((ticket, count) -> counts[ticket.ordinal()] = count);
+		return counts;
+	}
+
+	@Test
+	public void testHiddenMovesMatchBruteForce() {
+		MrXBelief belief = new MrXBelief(map, SKEWED, StandardGame.MRX_LOCATIONS);
+		List<Integer> detectives = asList(29, 94);
+		Map<Ticket, Integer> tickets = mrXTickets();
+		double[] expected = belief.probabilities();
+		for (Ticket ticket : asList(Ticket.TAXI, Ticket.BUS, Ticket.SECRET, Ticket.TAXI)) {
+			expected = bruteForce(expected, SKEWED, ticket.ordinal(), detectives, tickets);
+			belief.hiddenMove(ticket.ordinal(), indices(detectives), counts(tickets));
+			double[] actual = belief.probabilities();
+			for (int i = 0; i < actual.length; i++)
+				assertThat(actual[i]).as("node %d", map.value(i))
+						.isCloseTo(expected[i], within(1e-12));
+		}
+		assertThat(belief.probability(29)).isZero();
+	}
+
+	@Test
+	public void testDestinationsFollowTheDetectives() {
+		// Moves onto nodes with a higher index than the first detective are likelier
+		MoveModel fleeing = new MoveModel() {
+			@Override
+			public double weight(CompactMap map, int from, int to, int ticket) {
+				return SKEWED.weight(map, from, to, ticket);
+			}
+
+			@Override
+			public void destinations(CompactMap map, int[] detectives, double[] factors) {
+				for (int node = 0; node < factors.length; node++)
+					if (node > detectives[0]) factors[node] = 3;
+			}
+		};
+		MrXBelief belief = new MrXBelief(map, fleeing, StandardGame.MRX_LOCATIONS);
+		Map<Ticket, Integer> tickets = mrXTickets();
+		double[] expected = belief.probabilities();
+		for (List<Integer> detectives : asList(asList(29, 94), asList(94, 29))) {
+			int first = map.indexOf(detectives.get(0));
+			MoveModel fixed = (map, from, to, ticket) ->
+					SKEWED.weight(map, from, to, ticket) * (to > first ? 3 : 1);
+			expected = bruteForce(expected, fixed, Ticket.TAXI.ordinal(), detectives, tickets);
+			belief.hiddenMove(Ticket.TAXI.ordinal(), indices(detectives), counts(tickets));
+			double[] actual = belief.probabilities();
+			for (int i = 0; i < actual.length; i++)
+				assertThat(actual[i]).as("node %d", map.value(i))
+						.isCloseTo(expected[i], within(1e-12));
+		}
+	}
+
+	@Test
+	public void testNothingLeftFallsBackOffTheDetectives() {
+		MrXBelief belief = new MrXBelief(map, MoveModel.UNIFORM, singletonList(1));
+		belief.hiddenMove(Ticket.TAXI.ordinal(), indices(asList(29, 94)), counts(mrXTickets()));
+		// A detective lands on the only node left, which no model allows
+		belief.reveal(46);
+		belief.exclude(46);
+		assertThat(belief.probability(29)).isZero();
+		assertThat(belief.probability(94)).isZero();
+		assertThat(belief.probability(46)).isZero();
+		assertThat(belief.probability(1)).isPositive();
+		assertThat(belief.support()).isEqualTo(map.size() - 3);
+		assertThat(Arrays.stream(belief.probabilities()).sum()).isCloseTo(1, within(1e-12));
+	}
+
+	@Test
+	public void testMissingTicketsChangeTheWeights() {
+		// Without secret tickets Mr X has fewer moves, so the taxi moves weigh more
+		Map<Ticket, Integer> noSecret = mrXTickets();
+		noSecret.put(Ticket.SECRET, 0);
+		MrXBelief belief = new MrXBelief(map, MoveModel.UNIFORM, asList(1, 46));
+		belief.hiddenMove(Ticket.TAXI.ordinal(), new int[0], counts(noSecret));
+		double[] expected = bruteForce(new MrXBelief(map, MoveModel.UNIFORM, asList(1, 46))
+				.probabilities(), MoveModel.UNIFORM, Ticket.TAXI.ordinal(), singletonList(199),
+				noSecret);
+		double[] actual = belief.probabilities();
+		for (int i = 0; i < actual.length; i++)
+			assertThat(actual[i]).isCloseTo(expected[i], within(1e-12));
+	}
+
+	@Test
+	public void testRevealAndExclude() {
+		MrXBelief belief = new MrXBelief(map);
+		assertThat(belief.support()).isEqualTo(StandardGame.MRX_LOCATIONS.size());
+		belief.reveal(45);
+		assertThat(belief.probability(45)).isEqualTo(1);
+		belief.hiddenMove(Ticket.TAXI.ordinal(), new int[0], counts(mrXTickets()));
+		int support = belief.support();
+		assertThat(support).isGreaterThan(1);
+		belief.exclude(46);
+		assertThat(belief.probability(46)).isZero();
+		assertThat(belief.support()).isEqualTo(support - 1);
+		assertThat(Arrays.stream(belief.probabilities()).sum()).isCloseTo(1, within(1e-12));
+	}
+
+	@Test
+	public void testSamplesFollowTheDistribution() {
+		MrXBelief belief = new MrXBelief(map, MoveModel.UNIFORM, asList(1, 2));
+		belief.hiddenMove(Ticket.TAXI.ordinal(), new int[0], counts(mrXTickets()));
+		SplittableRandom random = new SplittableRandom(3);
+		int[] hits = new int[map.size()];
+		int samples = 100_000;
+		for (int i = 0; i < samples; i++) hits[map.indexOf(belief.sample(random))]++;
+		double[] probabilities = belief.probabilities();
+		for (int i = 0; i < hits.length; i++) {
+			if (probabilities[i] == 0) assertThat(hits[i]).isZero();
+			else assertThat((double) hits[i] / samples).isCloseTo(probabilities[i], within(0.01));
+		}
+	}
+
+	@Test
+	public void testSpectatorNeverRulesOutMrX() {
+		Random random = new Random(5);
+		Player player = (view, location, moves, callback) -> {
+			List<Move> sorted = new ArrayList<>(moves);
+			sorted.sort(Comparator.comparing(Move::toString));
+			callback.accept(sorted.get(random.nextInt(sorted.size())));
+		};
+		ScotlandYardModel model = new ScotlandYardModel(StandardGame.ROUNDS, graph,
+				new PlayerConfiguration.Builder(BLACK).using(player).with(mrXTickets()).at(45).build(),
+				new PlayerConfiguration.Builder(BLUE).using(player).with(detectiveTickets()).at(29)
+						.build(),
+				new PlayerConfiguration.Builder(RED).using(player).with(detectiveTickets()).at(94)
+						.build());
+		MrXBelief belief = new MrXBelief(map);
+		model.registerSpectator(belief);
+		int rotations = 0;
+		while (!model.isGameOver()) {
+			model.startRotate();
+			rotations++;
+			if (model.isGameOver()) break;
+			int mrX = model.snapshot().location(BLACK);
+			assertThat(belief.probability(mrX)).as("round %d", model.getCurrentRound())
+					.isPositive();
+		}
+		assertThat(rotations).isGreaterThan(1);
+	}
+
+}
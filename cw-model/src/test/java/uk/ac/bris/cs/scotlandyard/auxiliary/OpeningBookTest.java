@@ -0,0 +1,122 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.ai.CompactMap;
+import uk.ac.bris.cs.scotlandyard.ai.CompactState;
+import uk.ac.bris.cs.scotlandyard.ai.OpeningBook;
+import uk.ac.bris.cs.scotlandyard.ai.PlayoutEngine;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.RED;
+
+/**
+ * Tests for {@link OpeningBook}
+ */
+public class OpeningBookTest {
+
+	private static final List<Colour> DETECTIVES = asList(RED, BLUE);
+	private static final int PLIES = 6;
+
+	private static OpeningBook build(CompactMap map, int seed) throws InterruptedException {
+		try (PlayoutEngine engine = new PlayoutEngine(2)) {
+			return new OpeningBook.Builder(map, engine, 64, 99)
+					.plies(PLIES)
+					.addLine(OpeningBook.standardStart(map, DETECTIVES, seed))
+					.build();
+		}
+	}
+
+	private static ScotlandYardModel createGame(Graph<Integer, Transport> graph, Player player,
+			int seed) {
+		CompactState start = OpeningBook.standardStart(CompactMap.of(graph), DETECTIVES, seed);
+		List<PlayerConfiguration> configurations = new ArrayList<>();
+		for (int i = 0; i < start.players(); i++) {
+			configurations.add(new PlayerConfiguration.Builder(start.colour(i))
+					.using(player)
+					.with(i == 0 ? StandardGame.generateMrXTickets()
+							: StandardGame.generateDetectiveTickets())
+					.at(start.map().value(start.location(i)))
+					.build());
+		}
+		return new ScotlandYardModel(StandardGame.ROUNDS, graph, configurations.get(0),
+				configurations.get(1), configurations.get(2));
+	}
+
+	@Test
+	public void testBookMovesAreFoundDuringPlay() throws Exception {
+		Graph<Integer, Transport> graph = StandardGame.standardGraph();
+		OpeningBook book = build(CompactMap.of(graph), 5);
+		assertThat(book.size()).isEqualTo(PLIES);
+
+		List<Move> played = new ArrayList<>();
+		ScotlandYardModel game = createGame(graph, (view, location, moves, callback) -> {
+			Optional<Move> move = book.lookup(view, location, moves);
+			assertThat(move).as("book move after %s", played).isPresent();
+			played.add(move.get());
+			callback.accept(move.get());
+		}, 5);
+		game.startRotate();
+		game.startRotate();
+		assertThat(played).hasSize(PLIES);
+		assertThat(played.get(0).colour()).isEqualTo(BLACK);
+	}
+
+	@Test
+	public void testBuildIsReproducible() throws Exception {
+		CompactMap map = CompactMap.of(StandardGame.standardGraph());
+		OpeningBook first = build(map, 8);
+		OpeningBook second = build(map, 8);
+		CompactState start = OpeningBook.standardStart(map, DETECTIVES, 8);
+		assertThat(first.lookup(start)).isPresent().isEqualTo(second.lookup(start));
+	}
+
+	@Test
+	public void testBookSurvivesRoundTrip() throws Exception {
+		CompactMap map = CompactMap.of(StandardGame.standardGraph());
+		OpeningBook book = build(map, 1);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		book.write(out);
+		OpeningBook read = OpeningBook.read(new ByteArrayInputStream(out.toByteArray()));
+
+		CompactState start = OpeningBook.standardStart(map, DETECTIVES, 1);
+		assertThat(read.size()).isEqualTo(book.size());
+		assertThat(read.lookup(start)).isPresent().isEqualTo(book.lookup(start));
+		assertThat(read.lookup(start).get().colour()).isEqualTo(BLACK);
+	}
+
+	@Test
+	public void testUnknownPositionIsEmpty() throws Exception {
+		CompactMap map = CompactMap.of(StandardGame.standardGraph());
+		OpeningBook book = build(map, 1);
+		CompactState other = OpeningBook.standardStart(map, DETECTIVES, 2);
+		other.relocate(0, map.indexOf(199));
+		assertThat(book.lookup(other)).isEmpty();
+	}
+
+	@Test
+	public void testGarbageInputThrows() {
+		assertThatThrownBy(() -> OpeningBook.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5})))
+				.isInstanceOf(IOException.class);
+	}
+
+}
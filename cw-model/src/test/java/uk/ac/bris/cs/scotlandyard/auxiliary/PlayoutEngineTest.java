@@ -0,0 +1,159 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.ai.CompactMap;
+import uk.ac.bris.cs.scotlandyard.ai.CompactState;
+import uk.ac.bris.cs.scotlandyard.ai.CompactState.Outcome;
+import uk.ac.bris.cs.scotlandyard.ai.PlayoutEngine;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.DEFAULT_REVEAL;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.detectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.dummyPlayer;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.makeTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.mrXTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.ofRounds;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.GREEN;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.WHITE;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.YELLOW;
+
+/**
+ * Tests for {@link CompactState} and {@link PlayoutEngine}
+ */
+public class PlayoutEngineTest {
+
+	private static ScotlandYardModel createGame(Graph<Integer, Transport> graph, Player player,
+			int seed) {
+		List<Integer> detectives = StandardGame.generateDetectiveLocations(seed, 5);
+		return new ScotlandYardModel(ofRounds(23, DEFAULT_REVEAL), graph,
+				new PlayerConfiguration.Builder(BLACK).using(player).with(mrXTickets())
+						.at(StandardGame.generateMrXLocation(seed)).build(),
+				new PlayerConfiguration.Builder(RED).using(player).with(detectiveTickets())
+						.at(detectives.get(0)).build(),
+				new PlayerConfiguration.Builder(GREEN).using(player).with(makeTickets(3, 1, 1, 0, 0))
+						.at(detectives.get(1)).build(),
+				new PlayerConfiguration.Builder(BLUE).using(player).with(detectiveTickets())
+						.at(detectives.get(2)).build(),
+				new PlayerConfiguration.Builder(WHITE).using(player).with(makeTickets(1, 1, 0, 0, 0))
+						.at(detectives.get(3)).build(),
+				new PlayerConfiguration.Builder(YELLOW).using(player).with(detectiveTickets())
+						.at(detectives.get(4)).build());
+	}
+
+	private static Set<Move> decode(CompactState state, long[] buffer, int count) {
+		Set<Move> moves = new HashSet<>();
+		for (int i = 0; i < count; i++) moves.add(state.toMove(buffer[i]));
+		return moves;
+	}
+
+	@Test
+	public void testMovesAndOutcomeMatchModel() throws IOException {
+		Graph<Integer, Transport> graph = StandardGame.standardGraph();
+		CompactMap map = CompactMap.of(graph);
+		for (int seed = 0; seed < 10; seed++) {
+			Random random = new Random(seed);
+			ScotlandYardModel[] game = new ScotlandYardModel[1];
+			CompactState[] carried = new CompactState[1];
+			long[] buffer = new long[
+					CompactState.of(map, createGame(graph, dummyPlayer(), seed).snapshot()).maxMoves()];
+			List<Move> played = new ArrayList<>();
+
+			game[0] = createGame(graph, (view, location, moves, callback) -> {
+				CompactState state = CompactState.of(map, game[0].snapshot());
+				if (carried[0] == null) carried[0] = state.copy();
+				assertThat(carried[0].toString()).isEqualTo(state.toString());
+				assertThat(carried[0].outcome()).isEqualTo(Outcome.NONE);
+
+				int count = state.generateMoves(buffer);
+				assertThat(decode(state, buffer, count)).isEqualTo(moves);
+
+				Move move = new ArrayList<>(moves).get(random.nextInt(moves.size()));
+				for (int i = 0; i < count; i++) {
+					if (state.toMove(buffer[i]).equals(move)) carried[0].apply(buffer[i]);
+				}
+				played.add(move);
+				callback.accept(move);
+			}, seed);
+
+			while (!game[0].isGameOver()) game[0].startRotate();
+
+			Outcome expected = game[0].getWinningPlayers().contains(BLACK) ? Outcome.MR_X
+					: Outcome.DETECTIVES;
+			assertThat(carried[0].outcome()).as("after %s", played).isEqualTo(expected);
+			for (Colour colour : game[0].getPlayers()) {
+				int player = game[0].getPlayers().indexOf(colour);
+				assertThat(carried[0].map().value(carried[0].location(player)))
+						.isEqualTo(game[0].snapshot().location(colour));
+			}
+		}
+	}
+
+	@Test
+	public void testPlayoutIsDeterministicForSeed() throws IOException {
+		Graph<Integer, Transport> graph = StandardGame.standardGraph();
+		CompactState start = CompactState.of(CompactMap.of(graph),
+				createGame(graph, dummyPlayer(), 42).snapshot());
+		long[] buffer = new long[start.maxMoves()];
+
+		CompactState first = start.copy();
+		CompactState second = start.copy();
+		Outcome a = PlayoutEngine.playout(first, buffer, new SplittableRandom(7));
+		Outcome b = PlayoutEngine.playout(second, buffer, new SplittableRandom(7));
+		assertThat(a).isNotEqualTo(Outcome.NONE).isEqualTo(b);
+		assertThat(first.toString()).isEqualTo(second.toString());
+		assertThat(start.round()).isZero();
+	}
+
+	@Test
+	public void testResultIndependentOfThreadCount() throws Exception {
+		Graph<Integer, Transport> graph = StandardGame.standardGraph();
+		CompactState start = CompactState.of(CompactMap.of(graph),
+				createGame(graph, dummyPlayer(), 3).snapshot());
+
+		try (PlayoutEngine one = new PlayoutEngine(1); PlayoutEngine four = new PlayoutEngine(4)) {
+			PlayoutEngine.Result single = one.run(start, 1234, 1000);
+			PlayoutEngine.Result many = four.run(start, 1234, 1000);
+			PlayoutEngine.Result other = four.run(start, 4321, 1000);
+
+			assertThat(single.playouts()).isEqualTo(1000);
+			assertThat(single.sameOutcomes(many)).as("%s vs %s", single, many).isTrue();
+			assertThat(single.sameOutcomes(other)).isFalse();
+			assertThat(many.playoutsPerSecondPerCore()).isPositive();
+			// The same threads serve every run
+			assertThat(four.run(start, 1234, 1000).sameOutcomes(many)).isTrue();
+		}
+	}
+
+	@Test
+	public void testClosedEngineRejectsRuns() throws Exception {
+		Graph<Integer, Transport> graph = StandardGame.standardGraph();
+		CompactState start = CompactState.of(CompactMap.of(graph),
+				createGame(graph, dummyPlayer(), 3).snapshot());
+		PlayoutEngine engine = new PlayoutEngine(2);
+		engine.close();
+		assertThatThrownBy(() -> engine.run(start, 1, 10))
+				.isInstanceOf(IllegalStateException.class);
+	}
+
+}
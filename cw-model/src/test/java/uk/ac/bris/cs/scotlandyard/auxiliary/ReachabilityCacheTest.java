@@ -0,0 +1,130 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.Node;
+import uk.ac.bris.cs.gamekit.graph.ReachabilityCache;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link ReachabilityCache}
+ */
+public class ReachabilityCacheTest {
+
+	private static final int TAXI = 1 << Transport.TAXI.ordinal();
+	private static final int BUS = 1 << Transport.BUS.ordinal();
+	private static final int ALL = (1 << Transport.values().length) - 1;
+
+	private static Graph<Integer, Transport> graph;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		graph = StandardGame.standardGraph();
+	}
+
+	private static ReachabilityCache<Integer, Transport> cache(long maxBytes) {
+		return new ReachabilityCache<>(graph, Transport::ordinal, maxBytes);
+	}
+
+	// Plain breadth first search over the graph itself
+	private static BitSet expected(ReachabilityCache<Integer, Transport> cache, int start,
+			int moves, int mask) {
+		Map<Node<Integer>, Integer> depth = new HashMap<>();
+		Deque<Node<Integer>> queue = new ArrayDeque<>();
+		Node<Integer> first = graph.getNode(start);
+		depth.put(first, 0);
+		queue.add(first);
+		while (!queue.isEmpty()) {
+			Node<Integer> node = queue.poll();
+			if (depth.get(node) == moves) continue;
+			for (Edge<Integer, Transport> edge : graph.getEdgesFrom(node)) {
+				if ((mask & 1 << edge.data().ordinal()) == 0) continue;
+				if (depth.putIfAbsent(edge.destination(), depth.get(node) + 1) == null)
+					queue.add(edge.destination());
+			}
+		}
+		BitSet set = new BitSet();
+		depth.keySet().forEach(node -> set.set(cache.indexOf(node)));
+		return set;
+	}
+
+	@Test
+	public void testMatchesBreadthFirstSearch() {
+		ReachabilityCache<Integer, Transport> cache = cache(1 << 20);
+		for (int start : new int[] { 1, 46, 108, 153, 199 }) {
+			for (int moves = 0; moves <= 3; moves++) {
+				for (int mask : new int[] { TAXI, BUS, TAXI | BUS, ALL }) {
+					Node<Integer> node = graph.getNode(start);
+					BitSet reachable = cache.reachable(node, moves, mask);
+					assertThat(reachable).isEqualTo(expected(cache, start, moves, mask));
+					assertThat(cache.count(node, moves, mask)).isEqualTo(reachable.cardinality());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testZeroMovesAndNoClassesReachOnlyTheStart() {
+		ReachabilityCache<Integer, Transport> cache = cache(1 << 20);
+		Node<Integer> start = graph.getNode(46);
+		assertThat(cache.count(start, 0, ALL)).isEqualTo(1);
+		assertThat(cache.count(start, 5, 0)).isEqualTo(1);
+		assertThat(cache.canReach(start, 5, 0, start)).isTrue();
+		assertThat(cache.canReach(start, 1, TAXI, graph.getNode(47))).isTrue();
+		assertThat(cache.canReach(start, 1, BUS, graph.getNode(47))).isFalse();
+	}
+
+	@Test
+	public void testLeastRecentlyUsedResultsAreEvicted() {
+		int entry = (graph.size() + 63) / 64 * 8 + 96;
+		ReachabilityCache<Integer, Transport> cache = cache(entry * 3);
+		assertThat(cache.capacity()).isEqualTo(3);
+		cache.fill(graph.getNodes().subList(0, 10), 2, ALL);
+		assertThat(cache.size()).isEqualTo(3);
+		// Returned bitsets are copies and do not change the cache
+		Node<Integer> node = graph.getNodes().get(0);
+		cache.reachable(node, 2, ALL).clear();
+		assertThat(cache.count(node, 2, ALL)).isGreaterThan(1);
+		cache.clear();
+		assertThat(cache.size()).isZero();
+	}
+
+	@Test
+	public void testParallelFillMatchesSequentialQueries() {
+		ReachabilityCache<Integer, Transport> parallel = cache(1 << 24);
+		ReachabilityCache<Integer, Transport> sequential = cache(1 << 24);
+		parallel.fill(graph.getNodes(), 4, TAXI | BUS);
+		assertThat(parallel.size()).isEqualTo(graph.size());
+		for (Node<Integer> node : graph.getNodes())
+			assertThat(parallel.reachable(node, 4, TAXI | BUS))
+					.isEqualTo(sequential.reachable(node, 4, TAXI | BUS));
+	}
+
+	@Test
+	public void testInvalidQueriesThrow() {
+		ReachabilityCache<Integer, Transport> cache = cache(1 << 20);
+		Node<Integer> start = graph.getNode(1);
+		assertThatThrownBy(() -> cache.count(start, -1, ALL))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> cache.count(start, 1, 1 << 16))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> cache.count(new Node<>(1000), 1, ALL))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> cache(8)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
@@ -0,0 +1,213 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Node;
+import uk.ac.bris.cs.gamekit.graph.UndirectedGraph;
+import uk.ac.bris.cs.scotlandyard.ai.CompactMap;
+import uk.ac.bris.cs.scotlandyard.ai.CompactState;
+import uk.ac.bris.cs.scotlandyard.ai.CompactState.Outcome;
+import uk.ac.bris.cs.scotlandyard.ai.OpeningBook;
+import uk.ac.bris.cs.scotlandyard.ai.SampleReader;
+import uk.ac.bris.cs.scotlandyard.ai.SampleWriter;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.GREEN;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.RED;
+
+/**
+ * Tests for {@link SampleWriter} and {@link SampleReader}
+ */
+public class SampleFileTest {
+
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+
+	// The columns of a sample checked against the reader
+	private static final class Expected {
+		final int round, current, mrX, moves, choice;
+		Outcome outcome;
+
+		Expected(CompactState state, int moves, int choice) {
+			this.round = state.round();
+			this.current = state.currentPlayer();
+			this.mrX = state.map().value(state.location(0));
+			this.moves = moves;
+			this.choice = choice;
+		}
+	}
+
+	// Replays the games the writer plays to know what it should have written
+	private static List<Expected> replay(CompactState start, int games, long seed) {
+		List<Expected> expected = new ArrayList<>();
+		SplittableRandom root = new SplittableRandom(seed);
+		long[] buffer = new long[start.maxMoves()];
+		for (int game = 0; game < games; game++) {
+			SplittableRandom random = root.split();
+			CompactState state = start.copy();
+			int first = expected.size();
+			Outcome outcome;
+			while ((outcome = state.outcome()) == Outcome.NONE) {
+				int count = state.generateMoves(buffer);
+				if (count == 0) {
+					outcome = Outcome.DETECTIVES;
+					break;
+				}
+				int choice = random.nextInt(count);
+				expected.add(new Expected(state, count, choice));
+				state.apply(buffer[choice]);
+			}
+			for (int i = first; i < expected.size(); i++) expected.get(i).outcome = outcome;
+		}
+		return expected;
+	}
+
+	private static CompactState start() throws IOException {
+		return OpeningBook.standardStart(CompactMap.of(StandardGame.standardGraph()),
+				asList(RED, GREEN, BLUE), 3);
+	}
+
+	@Test
+	public void testSamplesRoundTrip() throws IOException {
+		CompactState start = start();
+		Path file = folder.newFile().toPath();
+		long samples;
+		try (SampleWriter writer = SampleWriter.create(file, start.players())) {
+			writer.play(start, 300, 42);
+			assertThat(writer.games()).isEqualTo(300);
+			samples = writer.samples();
+		}
+		List<Expected> expected = replay(start, 300, 42);
+		assertThat(samples).isEqualTo(expected.size()).isGreaterThan(SampleWriter.CHUNK_ROWS);
+
+		try (SampleReader reader = SampleReader.open(file)) {
+			assertThat(reader.players()).isEqualTo(4);
+			assertThat(reader.samples()).isEqualTo(samples);
+			int index = 0;
+			while (reader.next()) {
+				Expected sample = expected.get(index++);
+				assertThat(reader.round()).isEqualTo(sample.round);
+				assertThat(reader.currentPlayer()).isEqualTo(sample.current);
+				assertThat(reader.location(0)).isEqualTo(sample.mrX);
+				assertThat(reader.moveCount()).isEqualTo(sample.moves);
+				assertThat(reader.choice()).isEqualTo(sample.choice);
+				assertThat(reader.outcome()).isEqualTo(sample.outcome);
+			}
+			assertThat(index).isEqualTo(expected.size());
+			assertThat(reader.next()).isFalse();
+		}
+	}
+
+	@Test
+	public void testMovesUseBoardLocations() throws IOException {
+		CompactState start = start();
+		Path file = folder.newFile().toPath();
+		try (SampleWriter writer = SampleWriter.create(file, start.players())) {
+			writer.play(start, new SplittableRandom(1));
+		}
+		long[] buffer = new long[start.maxMoves()];
+		int count = start.generateMoves(buffer);
+		try (SampleReader reader = SampleReader.open(file)) {
+			assertThat(reader.next()).isTrue();
+			assertThat(reader.moveCount()).isEqualTo(count);
+			for (int i = 0; i < count; i++) {
+				long move = reader.move(i);
+				assertThat(CompactState.firstTarget(move))
+						.isEqualTo(start.map().value(CompactState.firstTarget(buffer[i])));
+				assertThat(CompactState.firstTicket(move)).isEqualTo(CompactState.firstTicket(buffer[i]));
+			}
+			for (int player = 0; player < start.players(); player++) {
+				assertThat(reader.location(player)).isEqualTo(start.map().value(start.location(player)));
+				for (int ticket = 0; ticket < CompactState.TICKETS; ticket++)
+					assertThat(reader.tickets(player, ticket)).isEqualTo(start.tickets(player, ticket));
+			}
+		}
+	}
+
+	@Test
+	public void testLocationsAboveShortRange() throws IOException {
+		// A ring of nodes numbered past Short.MAX_VALUE, as in large generated maps
+		int first = 40_000, size = 8;
+		UndirectedGraph<Integer, Transport> graph = new UndirectedGraph<>();
+		for (int i = 0; i < size; i++) graph.addNode(new Node<>(first + i));
+		for (int i = 0; i < size; i++)
+			graph.addEdge(new Edge<>(new Node<>(first + i), new Node<>(first + (i + 1) % size),
+					Transport.TAXI));
+		Map<Ticket, Integer> tickets = new EnumMap<>(Ticket.class);
+		tickets.put(Ticket.TAXI, 10);
+		CompactState start = CompactState.of(CompactMap.of(graph), asList(true, true, true, true),
+				asList(BLACK, BLUE), asList(first, first + 4), asList(tickets, tickets));
+		Path file = folder.newFile().toPath();
+		try (SampleWriter writer = SampleWriter.create(file, start.players())) {
+			writer.play(start, 20, 3);
+		}
+		boolean revealed = false;
+		try (SampleReader reader = SampleReader.open(file)) {
+			assertThat(reader.next()).isTrue();
+			assertThat(reader.location(0)).isEqualTo(first);
+			assertThat(reader.location(1)).isEqualTo(first + 4);
+			do {
+				for (int player = 0; player < reader.players(); player++)
+					assertThat(reader.location(player)).isBetween(first, first + size - 1);
+				if (reader.revealedLocation() != 0) {
+					assertThat(reader.revealedLocation()).isBetween(first, first + size - 1);
+					revealed = true;
+				}
+			} while (reader.next());
+		}
+		assertThat(revealed).isTrue();
+	}
+
+	@Test
+	public void testUnfinishedGameIsDropped() throws IOException {
+		CompactState start = start();
+		Path file = folder.newFile().toPath();
+		long[] buffer = new long[start.maxMoves()];
+		int count = start.generateMoves(buffer);
+		try (SampleWriter writer = SampleWriter.create(file, start.players())) {
+			writer.add(start, buffer, count, 0);
+			writer.finishGame(Outcome.MR_X);
+			writer.add(start, buffer, count, 1);
+		}
+		try (SampleReader reader = SampleReader.open(file)) {
+			assertThat(reader.samples()).isEqualTo(1);
+			assertThat(reader.next()).isTrue();
+			assertThat(reader.choice()).isZero();
+			assertThat(reader.outcome()).isEqualTo(Outcome.MR_X);
+			assertThat(reader.next()).isFalse();
+		}
+	}
+
+	@Test
+	public void testTruncatedFileThrows() throws IOException {
+		CompactState start = start();
+		Path file = folder.newFile().toPath();
+		try (SampleWriter writer = SampleWriter.create(file, start.players())) {
+			writer.play(start, 5, 7);
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - 1);
+		}
+		assertThatThrownBy(() -> SampleReader.open(file)).isInstanceOf(IOException.class);
+	}
+
+}
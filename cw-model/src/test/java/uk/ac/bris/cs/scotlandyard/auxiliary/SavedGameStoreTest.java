@@ -0,0 +1,81 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+
+import uk.ac.bris.cs.scotlandyard.model.GameSnapshot;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.ui.SavedGameStore;
+import uk.ac.bris.cs.scotlandyard.ui.SavedGameStore.Entry;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.DEFAULT_REVEAL;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.detectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.mrXTickets;
+import static uk.ac.bris.cs.scotlandyard.auxiliary.TestGames.ofRounds;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLACK;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.RED;
+
+/**
+ * Tests for {@link SavedGameStore}
+ */
+public class SavedGameStoreTest {
+
+	private static final Player NONE = (view, location, moves, callback) -> {};
+
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+
+	private static GameSnapshot snapshot() throws IOException {
+		return new ScotlandYardModel(ofRounds(23, DEFAULT_REVEAL), StandardGame.standardGraph(),
+				new PlayerConfiguration.Builder(BLACK).using(NONE).with(mrXTickets()).at(35).build(),
+				new PlayerConfiguration.Builder(RED).using(NONE).with(detectiveTickets()).at(197).build())
+				.snapshot();
+	}
+
+	@Test
+	public void testTimeoutIsKept() throws IOException {
+		Path directory = folder.getRoot().toPath();
+		Duration timeout = Duration.ofSeconds(25);
+		new SavedGameStore(directory).save("game", snapshot(), Collections.emptyMap(), timeout);
+		Entry entry = new SavedGameStore(directory).entries().get(0);
+		assertThat(entry.name()).isEqualTo("game");
+		assertThat(entry.timeout()).contains(timeout);
+	}
+
+	@Test
+	public void testSavesWithoutTimeoutStillRead() throws IOException {
+		Path directory = folder.getRoot().toPath();
+		Files.write(directory.resolve("index.tsv"),
+				Collections.singletonList("id\told\t0\t3\tBLACK,RED\tRED=AI"), UTF_8);
+		Entry entry = new SavedGameStore(directory).entries().get(0);
+		assertThat(entry.name()).isEqualTo("old");
+		assertThat(entry.players()).containsExactly(BLACK, RED);
+		assertThat(entry.timeout()).isEmpty();
+	}
+
+	@Test
+	public void testDeleteKeepsSavesWithoutTimeout() throws IOException {
+		Path directory = folder.getRoot().toPath();
+		String legacy = "id\told\t0\t3\tBLACK,RED\tRED=AI";
+		Files.write(directory.resolve("index.tsv"), Collections.singletonList(legacy), UTF_8);
+		SavedGameStore store = new SavedGameStore(directory);
+		Entry saved = store.save("new", snapshot(), Collections.emptyMap(), Duration.ofSeconds(5));
+		store.delete(saved);
+		assertThat(Files.readAllLines(directory.resolve("index.tsv"), UTF_8))
+				.containsExactly(legacy);
+		assertThat(new SavedGameStore(directory).entries()).extracting(Entry::name)
+				.containsExactly("old");
+	}
+
+}
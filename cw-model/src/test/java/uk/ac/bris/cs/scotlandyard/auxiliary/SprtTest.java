@@ -0,0 +1,94 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+import uk.ac.bris.cs.scotlandyard.ai.EloRatings;
+import uk.ac.bris.cs.scotlandyard.ai.Sprt;
+import uk.ac.bris.cs.scotlandyard.ai.Sprt.Verdict;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Tests for {@link Sprt} and {@link EloRatings}
+ */
+public class SprtTest {
+
+	// Runs tests on simulated games, returns how often H1 was accepted
+	private static double acceptH1Rate(double elo, int runs) {
+		SplittableRandom random = new SplittableRandom(elo > 0 ? 1 : 2);
+		double p = EloRatings.expectedScore(elo);
+		int accepted = 0;
+		for (int run = 0; run < runs; run++) {
+			Sprt sprt = new Sprt(0, 30, 0.05, 0.05);
+			Verdict verdict;
+			do verdict = sprt.add(random.nextDouble() < p);
+			while (verdict == Verdict.CONTINUE);
+			if (verdict == Verdict.ACCEPT_H1) accepted++;
+		}
+		return (double) accepted / runs;
+	}
+
+	@Test
+	public void testErrorRatesHoldAtTheHypotheses() {
+		assertThat(acceptH1Rate(0, 400)).isLessThan(0.1);
+		assertThat(acceptH1Rate(30, 400)).isGreaterThan(0.9);
+	}
+
+	@Test
+	public void testClearResultsStopQuickly() {
+		Sprt sprt = new Sprt(0, 50, 0.05, 0.05);
+		while (sprt.add(true) == Verdict.CONTINUE) assertThat(sprt.games()).isLessThan(30);
+		assertThat(sprt.verdict()).isEqualTo(Verdict.ACCEPT_H1);
+		Sprt losing = new Sprt(0, 50, 0.05, 0.05);
+		while (losing.add(false) == Verdict.CONTINUE) assertThat(losing.games()).isLessThan(30);
+		assertThat(losing.verdict()).isEqualTo(Verdict.ACCEPT_H0);
+	}
+
+	@Test
+	public void testInvalidHypothesesThrow() {
+		assertThatThrownBy(() -> new Sprt(10, 0, 0.05, 0.05))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new Sprt(0, 10, 0, 0.05))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testExpectedScoreAndDifferenceAreInverse() {
+		assertThat(EloRatings.expectedScore(0)).isEqualTo(0.5);
+		assertThat(EloRatings.difference(EloRatings.expectedScore(123))).isCloseTo(123, within(1e-9));
+		assertThat(EloRatings.expectedScore(400)).isCloseTo(10.0 / 11, within(1e-12));
+	}
+
+	@Test
+	public void testBayesEloRecoversRatingDifference() {
+		EloRatings ratings = new EloRatings(2, 16, 2);
+		// 3 to 1 is a difference of about 191 Elo
+		for (int i = 0; i < 3000; i++) ratings.add(0, 1);
+		for (int i = 0; i < 1000; i++) ratings.add(1, 0);
+		double[] bayesElo = ratings.bayesElo();
+		assertThat(bayesElo[0] - bayesElo[1]).isCloseTo(EloRatings.difference(0.75), within(2.0));
+		assertThat(bayesElo[0] + bayesElo[1]).isCloseTo(0, within(1e-9));
+	}
+
+	@Test
+	public void testBayesEloIsFiniteForUnbeatenPlayers() {
+		EloRatings ratings = new EloRatings(3, 16, 2);
+		for (int i = 0; i < 10; i++) {
+			ratings.add(0, 1);
+			ratings.add(1, 2);
+			ratings.add(0, 2);
+		}
+		double[] bayesElo = ratings.bayesElo();
+		for (double rating : bayesElo) assertThat(Double.isFinite(rating)).isTrue();
+		assertThat(bayesElo[0]).isGreaterThan(bayesElo[1]);
+		assertThat(bayesElo[1]).isGreaterThan(bayesElo[2]);
+		double[] elo = ratings.elo();
+		assertThat(elo[0]).isGreaterThan(elo[2]);
+		assertThat(ratings.wins(0, 2)).isEqualTo(10);
+	}
+
+}
@@ -0,0 +1,209 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Node;
+import uk.ac.bris.cs.gamekit.graph.UndirectedGraph;
+import uk.ac.bris.cs.scotlandyard.ai.CompactMap;
+import uk.ac.bris.cs.scotlandyard.ai.Tablebase;
+import uk.ac.bris.cs.scotlandyard.model.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link Tablebase}, checked against a naive forward solver
+ */
+public class TablebaseTest {
+
+	private static final int INFINITE = Integer.MAX_VALUE;
+
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+
+	// A ring of 8 taxi nodes with a bus chord, a tail and a ferry across
+	private static CompactMap smallMap() {
+		UndirectedGraph<Integer, Transport> graph = new UndirectedGraph<>();
+		for (int i = 1; i <= 10; i++) graph.addNode(new Node<>(i));
+		for (int i = 1; i <= 8; i++) edge(graph, i, i % 8 + 1, Transport.TAXI);
+		edge(graph, 1, 5, Transport.BUS);
+		edge(graph, 3, 9, Transport.TAXI);
+		edge(graph, 9, 10, Transport.TAXI);
+		edge(graph, 10, 7, Transport.FERRY);
+		return CompactMap.of(graph);
+	}
+
+	// A line of taxi nodes, Mr X can only run to the end of it
+	private static CompactMap line(int nodes) {
+		UndirectedGraph<Integer, Transport> graph = new UndirectedGraph<>();
+		for (int i = 1; i <= nodes; i++) graph.addNode(new Node<>(i));
+		for (int i = 1; i < nodes; i++) edge(graph, i, i + 1, Transport.TAXI);
+		return CompactMap.of(graph);
+	}
+
+	private static void edge(UndirectedGraph<Integer, Transport> graph, int a, int b,
+			Transport transport) {
+		graph.addEdge(new Edge<>(graph.getNode(a), graph.getNode(b), transport));
+	}
+
+	// Plain value iteration over the game as played forwards
+	private static int[] solve(CompactMap map, int detectives) {
+		int n = map.size();
+		int turns = detectives + 1;
+		int positions = turns;
+		for (int i = 0; i < turns; i++) positions *= n;
+		int[] value = new int[positions];
+		Arrays.fill(value, INFINITE);
+		int[] locations = new int[turns];
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			int[] next = value.clone();
+			for (int index = 0; index < positions; index++) {
+				int turn = decode(index, n, locations);
+				int v;
+				if (captured(locations)) v = 0;
+				else if ((v = successors(map, value, locations, turn)) != INFINITE) v++;
+				if (v != next[index]) {
+					next[index] = v;
+					changed = true;
+				}
+			}
+			value = next;
+		}
+		return value;
+	}
+
+	// Best successor value for the player to move, -1 if Mr X is stuck
+	private static int successors(CompactMap map, int[] value, int[] locations, int turn) {
+		int n = map.size();
+		int turns = locations.length;
+		int best = turn == 0 ? -1 : INFINITE;
+		boolean moved = false;
+		int from = locations[turn];
+		for (int edge = map.edgeStart(from); edge < map.edgeEnd(from); edge++) {
+			int to = map.target(edge);
+			if (turn != 0 && map.ticket(edge) == Ticket.SECRET.ordinal()) continue;
+			if (occupied(locations, to, turn)) continue;
+			moved = true;
+			locations[turn] = to;
+			int v = value[encode(locations, n, (turn + 1) % turns)];
+			locations[turn] = from;
+			best = turn == 0 ? Math.max(best, v) : Math.min(best, v);
+		}
+		if (!moved) best = turn == 0 ? -1 : value[encode(locations, n, (turn + 1) % turns)];
+		return best;
+	}
+
+	private static int decode(int index, int n, int[] locations) {
+		int turn = index % locations.length;
+		index /= locations.length;
+		for (int i = locations.length - 1; i >= 0; i--) {
+			locations[i] = index % n;
+			index /= n;
+		}
+		return turn;
+	}
+
+	private static int encode(int[] locations, int n, int turn) {
+		int index = 0;
+		for (int location : locations) index = index * n + location;
+		return index * locations.length + turn;
+	}
+
+	private static boolean captured(int[] locations) {
+		for (int i = 1; i < locations.length; i++) if (locations[i] == locations[0]) return true;
+		return false;
+	}
+
+	private static boolean occupied(int[] locations, int node, int except) {
+		for (int i = 1; i < locations.length; i++) if (i != except && locations[i] == node) return true;
+		return false;
+	}
+
+	private static boolean valid(int[] locations) {
+		for (int i = 1; i < locations.length; i++)
+			for (int j = i + 1; j < locations.length; j++)
+				if (locations[i] == locations[j]) return false;
+		return true;
+	}
+
+	private static void assertMatchesSolver(CompactMap map, Tablebase table, int detectives) {
+		int[] expected = solve(map, detectives);
+		int[] locations = new int[detectives + 1];
+		int captures = 0;
+		for (int index = 0; index < expected.length; index++) {
+			int turn = decode(index, map.size(), locations);
+			if (!valid(locations)) continue;
+			int distance = table.distance(locations[0],
+					Arrays.copyOfRange(locations, 1, locations.length), turn);
+			int want = expected[index] == INFINITE ? Tablebase.SURVIVES : expected[index];
+			assertThat(distance).as("%s to move %d", Arrays.toString(locations), turn)
+					.isEqualTo(want);
+			if (want > 0) captures++;
+		}
+		assertThat(captures).isPositive();
+	}
+
+	@Test
+	public void testOneDetectiveMatchesSolver() throws IOException {
+		CompactMap map = smallMap();
+		try (Tablebase table = Tablebase.generate(map, 1, folder.newFile().toPath())) {
+			assertMatchesSolver(map, table, 1);
+		}
+	}
+
+	@Test
+	public void testTwoDetectivesMatchSolver() throws IOException {
+		CompactMap map = smallMap();
+		try (Tablebase table = Tablebase.generate(map, 2, folder.newFile().toPath())) {
+			assertMatchesSolver(map, table, 2);
+		}
+	}
+
+	@Test
+	public void testReopenedTableIsIdentical() throws IOException {
+		CompactMap map = smallMap();
+		Path file = folder.newFile().toPath();
+		Tablebase.generate(map, 2, file).close();
+		try (Tablebase table = Tablebase.open(file, map)) {
+			assertThat(table.detectives()).isEqualTo(2);
+			assertMatchesSolver(map, table, 2);
+		}
+	}
+
+	@Test
+	public void testOpeningWithAnotherMapThrows() throws IOException {
+		Path file = folder.newFile().toPath();
+		Tablebase.generate(smallMap(), 1, file).close();
+		UndirectedGraph<Integer, Transport> other = new UndirectedGraph<>();
+		other.addNode(new Node<>(1));
+		assertThatThrownBy(() -> Tablebase.open(file, CompactMap.of(other)))
+				.isInstanceOf(IOException.class);
+	}
+
+	@Test
+	public void testLongestCaptureThatFits() throws IOException {
+		try (Tablebase table = Tablebase.generate(line(100), 1, folder.newFile().toPath())) {
+			int distance = table.distance(99, new int[]{0}, 1);
+			assertThat(distance).isBetween(100, Tablebase.MAX_DISTANCE);
+		}
+	}
+
+	@Test
+	public void testCaptureTooLongForTableThrows() throws IOException {
+		Path file = folder.newFile().toPath();
+		assertThatThrownBy(() -> Tablebase.generate(line(200), 1, file))
+				.isInstanceOf(IllegalStateException.class);
+		assertThat(Files.exists(file)).isFalse();
+	}
+
+}
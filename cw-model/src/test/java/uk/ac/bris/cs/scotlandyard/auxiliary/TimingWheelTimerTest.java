@@ -0,0 +1,118 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import uk.ac.bris.cs.gamekit.timer.Timer;
+import uk.ac.bris.cs.gamekit.timer.TimingWheelTimer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link TimingWheelTimer}
+ */
+public class TimingWheelTimerTest {
+
+	private final TimingWheelTimer timer = new TimingWheelTimer(Duration.ofMillis(1), 2,
+			Runnable::run);
+
+	@After
+	public void tearDown() {
+		timer.close();
+	}
+
+	@Test
+	public void testTaskRunsNoEarlierThanItsDelay() throws Exception {
+		long start = System.nanoTime();
+		AtomicLong ran = new AtomicLong();
+		ScheduledFuture<?> future = timer.schedule(30, TimeUnit.MILLISECONDS,
+				() -> ran.set(System.nanoTime()));
+		future.get(5, TimeUnit.SECONDS);
+		assertThat(future.isDone()).isTrue();
+		assertThat(ran.get() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(30));
+	}
+
+	@Test
+	public void testLongDelaysCascadeThroughLevels() throws Exception {
+		// 4 slots per level, so these go through several levels
+		int[] delays = {1, 3, 5, 17, 70, 150, 260};
+		CountDownLatch latch = new CountDownLatch(delays.length);
+		long start = System.nanoTime();
+		long[] ran = new long[delays.length];
+		for (int i = 0; i < delays.length; i++) {
+			int task = i;
+			timer.schedule(delays[i], TimeUnit.MILLISECONDS, () -> {
+				ran[task] = System.nanoTime() - start;
+				latch.countDown();
+			});
+		}
+		assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+		for (int i = 0; i < delays.length; i++)
+			assertThat(ran[i]).as("delay %d", delays[i])
+					.isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(delays[i]));
+	}
+
+	@Test
+	public void testHugeDelayNeverRuns() throws Exception {
+		AtomicInteger runs = new AtomicInteger();
+		ScheduledFuture<?> never = timer.schedule(Long.MAX_VALUE, TimeUnit.NANOSECONDS,
+				runs::incrementAndGet);
+		ScheduledFuture<?> alsoNever = timer.schedule(Long.MAX_VALUE, TimeUnit.DAYS,
+				runs::incrementAndGet);
+		timer.schedule(40, TimeUnit.MILLISECONDS, () -> {}).get(5, TimeUnit.SECONDS);
+		assertThat(runs).hasValue(0);
+		assertThat(never.isDone()).isFalse();
+		assertThat(alsoNever.getDelay(TimeUnit.DAYS)).isGreaterThan(100_000);
+	}
+
+	@Test
+	public void testCancelledTaskDoesNotRun() throws Exception {
+		AtomicInteger runs = new AtomicInteger();
+		ScheduledFuture<?> cancelled = timer.schedule(20, TimeUnit.MILLISECONDS,
+				runs::incrementAndGet);
+		assertThat(cancelled.cancel(false)).isTrue();
+		assertThat(cancelled.isCancelled()).isTrue();
+		timer.schedule(40, TimeUnit.MILLISECONDS, () -> {}).get(5, TimeUnit.SECONDS);
+		assertThat(runs).hasValue(0);
+	}
+
+	@Test
+	public void testScopeOnlyStopsItsOwnTasks() throws Exception {
+		Timer first = timer.scope();
+		Timer second = timer.scope();
+		AtomicInteger firstRuns = new AtomicInteger();
+		ScheduledFuture<?> a = first.schedule(20, TimeUnit.MILLISECONDS,
+				firstRuns::incrementAndGet);
+		ScheduledFuture<?> b = first.schedule(500, TimeUnit.MILLISECONDS,
+				firstRuns::incrementAndGet);
+		ScheduledFuture<?> c = second.schedule(20, TimeUnit.MILLISECONDS, () -> {});
+		first.stopAll();
+		c.get(5, TimeUnit.SECONDS);
+		assertThat(a.isCancelled()).isTrue();
+		assertThat(b.isCancelled()).isTrue();
+		assertThat(c.isCancelled()).isFalse();
+		assertThat(firstRuns).hasValue(0);
+		// The scope can still be used after stopping
+		first.schedule(1, TimeUnit.MILLISECONDS, firstRuns::incrementAndGet)
+				.get(5, TimeUnit.SECONDS);
+		assertThat(firstRuns).hasValue(1);
+	}
+
+	@Test
+	public void testClosedTimerRejectsTasks() {
+		ScheduledFuture<?> pending = timer.schedule(1, TimeUnit.HOURS, () -> {});
+		timer.close();
+		assertThat(pending.isCancelled()).isTrue();
+		assertThatThrownBy(() -> timer.schedule(1, TimeUnit.MILLISECONDS, () -> {}))
+				.isInstanceOf(IllegalStateException.class);
+	}
+
+}
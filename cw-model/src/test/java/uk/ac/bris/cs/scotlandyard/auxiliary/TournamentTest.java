@@ -0,0 +1,178 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.ai.AI;
+import uk.ac.bris.cs.scotlandyard.ai.CompactState.Outcome;
+import uk.ac.bris.cs.scotlandyard.ai.HeadlessGame;
+import uk.ac.bris.cs.scotlandyard.ai.ManagedAI.VisualiserType;
+import uk.ac.bris.cs.scotlandyard.ai.PlayerFactory;
+import uk.ac.bris.cs.scotlandyard.ai.Sprt.Verdict;
+import uk.ac.bris.cs.scotlandyard.ai.Tournament;
+import uk.ac.bris.cs.scotlandyard.ai.Tournament.Pairing;
+import uk.ac.bris.cs.scotlandyard.ai.Tournament.Result;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.GREEN;
+
+/**
+ * Tests for {@link Tournament} and {@link HeadlessGame}
+ */
+public class TournamentTest {
+
+	private static final AI RANDOM = AI.fromName("Random", VisualiserType.NONE, RandomAI.class);
+	private static final AI FIRST = AI.fromName("First", VisualiserType.NONE, FirstAI.class);
+	private static final AI BROKEN = AI.fromName("Broken", VisualiserType.NONE, BrokenAI.class);
+	private static final AI SLEEPING = AI.fromName("Sleeping", VisualiserType.NONE,
+			SleepingAI.class);
+
+	private static Graph<Integer, Transport> graph;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		graph = StandardGame.standardGraph();
+	}
+
+	// Picks a move at random, seeded by the position so games are repeatable
+	public static class RandomAI implements PlayerFactory {
+		@Override
+		public Player createPlayer(Colour colour) {
+			return (view, location, moves, callback) -> {
+				List<Move> sorted = new ArrayList<>(moves);
+				sorted.sort(Comparator.comparing(Move::toString));
+				Random random = new Random(view.getCurrentRound() * 1000L + location);
+				callback.accept(sorted.get(random.nextInt(sorted.size())));
+			};
+		}
+	}
+
+	// Always plays the first move in string order
+	public static class FirstAI implements PlayerFactory {
+		@Override
+		public Player createPlayer(Colour colour) {
+			return (view, location, moves, callback) -> callback
+					.accept(moves.stream().min(Comparator.comparing(Move::toString)).get());
+		}
+	}
+
+	// Fails on every move
+	public static class BrokenAI implements PlayerFactory {
+		@Override
+		public Player createPlayer(Colour colour) {
+			return new Player() {
+				@Override
+				public void makeMove(ScotlandYardView view, int location, Set<Move> moves,
+						Consumer<Move> callback) {
+					throw new IllegalStateException("Broken");
+				}
+			};
+		}
+	}
+
+	// Thinks for far longer than any move timeout, without ever returning early
+	public static class SleepingAI implements PlayerFactory {
+		@Override
+		public Player createPlayer(Colour colour) {
+			return (view, location, moves, callback) -> {
+				try {
+					Thread.sleep(60_000);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				callback.accept(moves.iterator().next());
+			};
+		}
+	}
+
+	private static Tournament.Builder builder(List<AI> ais) {
+		return new Tournament.Builder(ais).graph(graph).detectives(asList(BLUE, GREEN))
+				.threads(2).moveTimeout(Duration.ofSeconds(5));
+	}
+
+	@Test
+	public void testHeadlessGameEndsWithAWinner() {
+		HeadlessGame game = new HeadlessGame(graph, StandardGame.ROUNDS, asList(BLUE, GREEN),
+				Duration.ofSeconds(5), null);
+		Outcome outcome = game.play(RANDOM, FIRST, 3);
+		assertThat(outcome).isNotEqualTo(Outcome.NONE);
+		assertThat(game.play(RANDOM, FIRST, 3)).isEqualTo(outcome);
+	}
+
+	@Test
+	public void testFailingSideForfeits() {
+		HeadlessGame game = new HeadlessGame(graph, StandardGame.ROUNDS, asList(BLUE, GREEN),
+				Duration.ofSeconds(5), null);
+		assertThat(game.play(BROKEN, RANDOM, 1)).isEqualTo(Outcome.DETECTIVES);
+		assertThat(game.play(RANDOM, BROKEN, 1)).isEqualTo(Outcome.MR_X);
+	}
+
+	@Test(timeout = 10_000)
+	public void testSleepingSideLosesOnTime() throws Exception {
+		HeadlessGame game = new HeadlessGame(graph, StandardGame.ROUNDS, asList(BLUE, GREEN),
+				Duration.ofMillis(100), null);
+		assertThat(game.play(SLEEPING, RANDOM, 1)).isEqualTo(Outcome.DETECTIVES);
+		assertThat(game.play(RANDOM, SLEEPING, 1)).isEqualTo(Outcome.MR_X);
+
+		Result result = builder(asList(SLEEPING, RANDOM)).games(2)
+				.moveTimeout(Duration.ofMillis(100)).build().run();
+		assertThat(result.pairings()).hasSize(1);
+		Pairing pairing = result.pairings().get(0);
+		assertThat(pairing.games()).isEqualTo(2);
+		assertThat(pairing.firstWins()).isZero();
+	}
+
+	@Test
+	public void testSprtStopsClearPairingEarly() throws Exception {
+		Result result = builder(asList(RANDOM, BROKEN)).games(200).sprt(0, 50, 0.05, 0.05)
+				.build().run();
+		assertThat(result.pairings()).hasSize(1);
+		Pairing pairing = result.pairings().get(0);
+		assertThat(pairing.verdict()).isEqualTo(Verdict.ACCEPT_H1);
+		assertThat(pairing.firstWins()).isEqualTo(pairing.games());
+		assertThat(pairing.games()).isLessThan(50);
+		assertThat(result.bayesElo(RANDOM)).isGreaterThan(result.bayesElo(BROKEN));
+		assertThat(result.elo(RANDOM)).isGreaterThan(result.elo(BROKEN));
+	}
+
+	@Test
+	public void testRoundRobinAndGauntletPairings() throws Exception {
+		List<AI> ais = asList(RANDOM, FIRST, BROKEN);
+		Result roundRobin = builder(ais).games(2).build().run();
+		assertThat(roundRobin.pairings()).hasSize(3);
+		roundRobin.pairings().forEach(p -> assertThat(p.games()).isEqualTo(2));
+
+		Result gauntlet = builder(ais).games(2).gauntlet(BROKEN).build().run();
+		assertThat(gauntlet.pairings()).hasSize(2)
+				.allSatisfy(p -> assertThat(p.first()).isEqualTo(BROKEN))
+				.allSatisfy(p -> assertThat(p.firstWins()).isZero());
+	}
+
+	@Test
+	public void testSameSeedGivesSameResults() throws Exception {
+		List<AI> ais = asList(RANDOM, FIRST);
+		Result once = builder(ais).games(4).seed(11).build().run();
+		Result again = builder(ais).games(4).seed(11).threads(1).build().run();
+		assertThat(again.toString()).isEqualTo(once.toString());
+	}
+
+}
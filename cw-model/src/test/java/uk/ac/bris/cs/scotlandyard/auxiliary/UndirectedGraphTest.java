@@ -0,0 +1,107 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.Node;
+import uk.ac.bris.cs.gamekit.graph.UndirectedGraph;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link UndirectedGraph}
+ */
+public class UndirectedGraphTest {
+
+	private static UndirectedGraph<Integer, Transport> triangle() {
+		UndirectedGraph<Integer, Transport> graph = new UndirectedGraph<>();
+		for (int i = 1; i <= 3; i++) graph.addNode(new Node<>(i));
+		graph.addEdge(new Edge<>(new Node<>(1), new Node<>(2), Transport.TAXI));
+		graph.addEdge(new Edge<>(new Node<>(2), new Node<>(3), Transport.BUS));
+		graph.addEdge(new Edge<>(new Node<>(3), new Node<>(1), Transport.TAXI));
+		return graph;
+	}
+
+	private static Edge<Integer, Transport> edge(int source, int destination, Transport data) {
+		return new Edge<>(new Node<>(source), new Node<>(destination), data);
+	}
+
+	@Test
+	public void testEdgesFromStartAtTheNode() {
+		UndirectedGraph<Integer, Transport> graph = triangle();
+		assertThat(graph.getEdgesFrom(new Node<>(2))).containsExactly(
+				edge(2, 1, Transport.TAXI), edge(2, 3, Transport.BUS));
+		assertThat(graph.getEdgesFrom(new Node<>(1))).containsExactly(
+				edge(1, 2, Transport.TAXI), edge(1, 3, Transport.TAXI));
+	}
+
+	@Test
+	public void testEdgesToEndAtTheNode() {
+		UndirectedGraph<Integer, Transport> graph = triangle();
+		assertThat(graph.getEdgesTo(new Node<>(2))).containsExactly(
+				edge(1, 2, Transport.TAXI), edge(3, 2, Transport.BUS));
+		for (Node<Integer> node : graph.getNodes())
+			assertThat(graph.getEdgesTo(node)).allSatisfy(
+					e -> assertThat(e.destination()).isEqualTo(node));
+	}
+
+	@Test
+	public void testEdgesListEachEdgeBothWays() {
+		UndirectedGraph<Integer, Transport> graph = triangle();
+		assertThat(graph.getEdges()).containsExactly(
+				edge(1, 2, Transport.TAXI), edge(2, 1, Transport.TAXI),
+				edge(2, 3, Transport.BUS), edge(3, 2, Transport.BUS),
+				edge(3, 1, Transport.TAXI), edge(1, 3, Transport.TAXI));
+	}
+
+	@Test
+	public void testViewsAreLiveAndUnmodifiable() {
+		UndirectedGraph<Integer, Transport> graph = triangle();
+		Collection<Edge<Integer, Transport>> from = graph.getEdgesFrom(new Node<>(3));
+		Collection<Edge<Integer, Transport>> edges = graph.getEdges();
+		graph.addNode(new Node<>(4));
+		graph.addEdge(edge(4, 3, Transport.UNDERGROUND));
+		assertThat(from).contains(edge(3, 4, Transport.UNDERGROUND));
+		assertThat(edges).hasSize(8);
+		assertThatThrownBy(() -> from.add(edge(3, 3, Transport.TAXI)))
+				.isInstanceOf(UnsupportedOperationException.class);
+		assertThatThrownBy(() -> edges.clear()).isInstanceOf(UnsupportedOperationException.class);
+	}
+
+	@Test
+	public void testSelfLoopIsListedTwice() {
+		UndirectedGraph<Integer, Transport> graph = triangle();
+		graph.addEdge(edge(1, 1, Transport.FERRY));
+		assertThat(graph.getEdgesFrom(new Node<>(1))).filteredOn(e -> e.data() == Transport.FERRY)
+				.containsExactly(edge(1, 1, Transport.FERRY), edge(1, 1, Transport.FERRY));
+		assertThat(new UndirectedGraph<>(graph)).isEqualTo(graph);
+	}
+
+	@Test
+	public void testCopyEqualsTheOriginal() throws IOException {
+		Graph<Integer, Transport> standard = StandardGame.standardGraph();
+		UndirectedGraph<Integer, Transport> copy = new UndirectedGraph<>(standard);
+		assertThat(copy).isEqualTo(standard);
+		assertThat(copy.getEdges()).hasSameSizeAs(standard.getEdges());
+		for (Node<Integer> node : standard.getNodes())
+			assertThat(copy.getEdgesFrom(node))
+					.containsExactlyElementsOf(standard.getEdgesFrom(node));
+	}
+
+	@Test
+	public void testMissingNodesThrow() {
+		UndirectedGraph<Integer, Transport> graph = triangle();
+		assertThatThrownBy(() -> graph.addEdge(edge(1, 5, Transport.TAXI)))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> graph.getEdgesFrom(new Node<>(5)))
+				.isInstanceOf(NullPointerException.class);
+	}
+
+}
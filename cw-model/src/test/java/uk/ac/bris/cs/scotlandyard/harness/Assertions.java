@@ -43,7 +43,12 @@ final class Assertions {
 
 	}
 
-	static void disableSystemExit() {
+	// The number of harnesses that currently need System.exit() disabled, tests run in parallel
+	// so the security manager stays until the last of them is done
+	private static int exitDisabled = 0;
+
+	static synchronized void disableSystemExit() {
+		if (exitDisabled++ > 0) return;
 		System.setSecurityManager(new SecurityManager() {
 			@Override public void checkPermission(Permission perm) {
 				if (perm.getName().startsWith("exitVM")) {
@@ -53,7 +58,8 @@ final class Assertions {
 		});
 	}
 
-	static void enableSystemExit() {
+	static synchronized void enableSystemExit() {
+		if (exitDisabled == 0 || --exitDisabled > 0) return;
 		System.setSecurityManager(null);
 	}
 
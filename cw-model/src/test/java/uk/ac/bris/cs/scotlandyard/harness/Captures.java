@@ -8,7 +8,6 @@ import java.util.function.Consumer;
 
 import uk.ac.bris.cs.scotlandyard.model.Colour;
 import uk.ac.bris.cs.scotlandyard.model.Move;
-import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
 
 import static java.lang.String.format;
 import static java.util.Objects.hash;
@@ -29,9 +28,9 @@ final class Captures {
 			final int location;
 			final ImmutableSet<Move> moves;
 			final Consumer<Move> callback;
-			MakeMove(ScotlandYardView view,
+			MakeMove(ImmutableScotlandYardView view,
 			         int location, Set<Move> moves, Consumer<Move> callback) {
-				this.view = ImmutableScotlandYardView.snapshot(view);
+				this.view = view;
 				this.location = location;
 				this.moves = ImmutableSet.copyOf(moves);
 				this.callback = callback;
@@ -63,8 +62,8 @@ final class Captures {
 		static final class MoveMade {
 			final ImmutableScotlandYardView view;
 			final Move move;
-			MoveMade(ScotlandYardView view, Move move) {
-				this.view = ImmutableScotlandYardView.snapshot(view);
+			MoveMade(ImmutableScotlandYardView view, Move move) {
+				this.view = view;
 				this.move = move;
 			}
 			@Override public boolean equals(Object o) {
@@ -84,8 +83,8 @@ final class Captures {
 		static final class RoundStarted {
 			final ImmutableScotlandYardView view;
 			final int round;
-			RoundStarted(ScotlandYardView view, int round) {
-				this.view = ImmutableScotlandYardView.snapshot(view);
+			RoundStarted(ImmutableScotlandYardView view, int round) {
+				this.view = view;
 				this.round = round;
 			}
 			@Override public boolean equals(Object o) {
@@ -104,8 +103,8 @@ final class Captures {
 		}
 		static final class RotationComplete {
 			final ImmutableScotlandYardView view;
-			RotationComplete(ScotlandYardView view) {
-				this.view = ImmutableScotlandYardView.snapshot(view);
+			RotationComplete(ImmutableScotlandYardView view) {
+				this.view = view;
 			}
 			@Override public boolean equals(Object o) {
 				if (this == o) return true;
@@ -122,9 +121,9 @@ final class Captures {
 		static final class GameOver {
 			final ImmutableScotlandYardView view;
 			final ImmutableSet<Colour> winningPlayers;
-			GameOver(ScotlandYardView view,
+			GameOver(ImmutableScotlandYardView view,
 			         Set<Colour> winningPlayers) {
-				this.view = ImmutableScotlandYardView.snapshot(view);
+				this.view = view;
 				this.winningPlayers = ImmutableSet.copyOf(winningPlayers);
 			}
 			@Override public boolean equals(Object o) {
@@ -0,0 +1,71 @@
+package uk.ac.bris.cs.scotlandyard.harness;
+
+import org.junit.runner.Runner;
+import org.junit.runners.Parameterized;
+import org.junit.runners.ParentRunner;
+import org.junit.runners.model.RunnerScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A {@link Parameterized} runner that runs the test methods of each parameter in parallel, one
+ * parameter after another. Every test gets its own instance of the test class as usual, so
+ * fields (such as the {@link TestHarness}) are never shared; static state of the test class
+ * must be read only once the tests start. Pass the system property parallel=false to run the
+ * tests one after another.
+ */
+public final class ParallelParameterized extends Parameterized {
+
+	// Shared by every class so the machine is not oversubscribed, threads are daemons so a
+	// hanging test cannot keep the JVM alive
+	private static final ExecutorService POOL = Executors.newFixedThreadPool(
+			Runtime.getRuntime().availableProcessors(), runnable -> {
+				Thread thread = new Thread(runnable, "parallel-test");
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	public ParallelParameterized(Class<?> klass) throws Throwable {
+		super(klass);
+		if (!TestHarness.parallel()) return;
+		for (Runner runner : getChildren()) {
+			if (runner instanceof ParentRunner) ((ParentRunner<?>) runner).setScheduler(
+					new PoolScheduler());
+		}
+	}
+
+	// Runs the methods of one parameter on the pool and waits for all of them
+	private static final class PoolScheduler implements RunnerScheduler {
+
+		private final List<Future<?>> running = new ArrayList<>();
+
+		@Override public void schedule(Runnable childStatement) {
+			running.add(POOL.submit(childStatement));
+		}
+
+		@Override public void finished() {
+			boolean interrupted = false;
+			for (Future<?> future : running) {
+				while (true) {
+					try {
+						future.get();
+						break;
+					} catch (InterruptedException e) {
+						interrupted = true;
+					} catch (ExecutionException e) {
+						// Failures are reported to the notifier by the statement itself
+						break;
+					}
+				}
+			}
+			running.clear();
+			if (interrupted) Thread.currentThread().interrupt();
+		}
+	}
+
+}
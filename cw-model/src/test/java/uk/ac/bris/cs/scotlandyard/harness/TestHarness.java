@@ -5,6 +5,8 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Streams;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.AbstractMap.SimpleImmutableEntry;
@@ -20,6 +22,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
@@ -30,6 +33,7 @@ import uk.ac.bris.cs.scotlandyard.harness.Captures.Spectator.MoveMade;
 import uk.ac.bris.cs.scotlandyard.harness.Captures.Spectator.RotationComplete;
 import uk.ac.bris.cs.scotlandyard.harness.Captures.Spectator.RoundStarted;
 import uk.ac.bris.cs.scotlandyard.harness.ImmutableScotlandYardView.ImmutablePlayer;
+import uk.ac.bris.cs.scotlandyard.harness.ImmutableScotlandYardView.Snapshots;
 import uk.ac.bris.cs.scotlandyard.harness.PlayerInteractions.MakeMoveInteraction;
 import uk.ac.bris.cs.scotlandyard.harness.SpectatorInteractions.GameOverInteraction;
 import uk.ac.bris.cs.scotlandyard.harness.SpectatorInteractions.MoveMadeInteraction;
@@ -76,6 +80,9 @@ import static uk.ac.bris.cs.scotlandyard.model.Ticket.UNDERGROUND;
  * To print interactions to System.out, pass the system property printInteractions=true<br>
  * To change the default number of runs of each test from 10, pass the system property captureN,
  * e.g. captureN=5<br>
+ * To run the tests of a {@link ParallelParameterized} class one after another, pass the system
+ * property parallel=false; printed interactions of parallel tests are buffered and printed
+ * together when the test releases its shutdown lock<br>
  * For example: <code>-DprintInteractions=true</code>
  */
 public class TestHarness {
@@ -84,8 +91,16 @@ public class TestHarness {
 	enum EndMode {NO_MORE, IGNORE}
 
 	private final int captureN;
+	private final boolean parallel = parallel();
 	private final String callingClass;
+	private final AtomicBoolean holdsShutdownLock = new AtomicBoolean(true);
+	private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+	private final PrintStream out = parallel
+			? new PrintStream(buffer, true)
+			: System.out;
 	private final Queue<Interaction<?>> interactions = new ArrayDeque<>();
+	// Each capture is a diff against the one before, players are only made when printed
+	private final Snapshots snapshots = new Snapshots();
 	private boolean printInteractions;
 	private int totalInteractions = 0;
 	private int interactionsProcessed = 0;
@@ -107,6 +122,14 @@ public class TestHarness {
 				}).orElse(false);
 	}
 
+	/**
+	 * @return whether tests run in parallel, see the system property parallel
+	 */
+	static boolean parallel() {
+		return Optional.ofNullable(System.getProperty("parallel"))
+				.map(Boolean::parseBoolean).orElse(true);
+	}
+
 	private static int getIntFlag(String flagName, int fallback) {
 		return Optional.ofNullable(System.getProperty(flagName))
 				.flatMap(flag -> {
@@ -175,7 +198,7 @@ public class TestHarness {
 		private TestAssert previousRound;
 		private Interaction<?>[] interactions;
 		private List<Requirement<ScotlandYardGame>> reqs = new ArrayList<>();
-		Consumer<ScotlandYardGame> continuation = game -> Assertions.enableSystemExit();
+		Consumer<ScotlandYardGame> continuation = game -> releaseShutdownLock();
 
 		private TestAssert(Interaction<?>... interactions) {
 			this(null, interactions);
@@ -248,17 +271,29 @@ public class TestHarness {
 				continuation.accept(game);
 			} else {
 				if (printInteractions) {
-					System.out.println("BEGIN UML>>>>>>>>>>>>>>>>>>");
+					out.println("BEGIN UML>>>>>>>>>>>>>>>>>>");
 					recorder.readOut("__ignored__").values()
-							.forEach(System.out::println);
-					System.out.println("<<<<<<<<<<<<<<<<<<<<<END UML");
+							.forEach(out::println);
+					out.println("<<<<<<<<<<<<<<<<<<<<<END UML");
 				}
 			}
 		}
 	}
 
 	public void forceReleaseShutdownLock() {
-		Assertions.enableSystemExit();
+		releaseShutdownLock();
+		if (parallel && buffer.size() > 0) {
+			synchronized (System.out) {
+				System.out.print(buffer.toString());
+				System.out.flush();
+			}
+			buffer.reset();
+		}
+	}
+
+	// Each harness holds the lock once, however many times it is released
+	private void releaseShutdownLock() {
+		if (holdsShutdownLock.compareAndSet(true, false)) Assertions.enableSystemExit();
 	}
 
 	public interface Setups {
@@ -289,6 +324,8 @@ public class TestHarness {
 	                                             Supplier<C> unsafeCapture) {
 		// TODO wrap exceptions
 		C initial = unsafeCapture.get();
+		// Always one after another: the captures call the getters of a model that need not be
+		// thread safe, the test methods run in parallel instead
 		List<C> captures = Stream.generate(unsafeCapture)
 				.limit(captureN - 1)
 				.collect(toList());
@@ -351,7 +388,7 @@ public class TestHarness {
 							polled.key(), polled.describe(),
 							key, initial), polled.origin(), callingClass);
 				}
-				if (printInteractions) System.out.printf("[%s] %s::%s%n", item, key, initial);
+				if (printInteractions) out.printf("[%s] %s::%s%n", item, key, initial);
 
 				matched.applyAssertion(initial, (message, stack) ->
 						assertFailure(String.format("Error at interaction %s: " +
@@ -421,7 +458,7 @@ public class TestHarness {
 				.using((view, location, moves, callback) -> captureAndAssertInteraction(
 						mkPlayerKey(colour),
 						MakeMoveInteraction.class,
-						() -> new MakeMove(view, location, moves, callback)))
+						() -> new MakeMove(snapshots.take(view), location, moves, callback)))
 				.build();
 
 		// XXX will throw the harness needs to assert all events first
@@ -450,25 +487,25 @@ public class TestHarness {
 				if (printInteractions) that.onMoveMade(view, move);
 				if (!listenEvents.contains(ON_MOVE_MADE)) return;
 				captureAndAssertInteraction(k, MoveMadeInteraction.class,
-						() -> new MoveMade(view, move));
+						() -> new MoveMade(snapshots.take(view), move));
 			}
 			@Override public void onRoundStarted(ScotlandYardView view, int round) {
 				if (printInteractions) that.onRoundStarted(view, round);
 				if (!listenEvents.contains(ON_ROUND_STARTED)) return;
 				captureAndAssertInteraction(k, RoundStartedInteraction.class,
-						() -> new RoundStarted(view, round));
+						() -> new RoundStarted(snapshots.take(view), round));
 			}
 			@Override public void onRotationComplete(ScotlandYardView view) {
 				if (printInteractions) that.onRotationComplete(view);
 				if (!listenEvents.contains(ON_ROTATION_COMPLETE)) return;
 				captureAndAssertInteraction(k, RotationCompleteInteraction.class,
-						() -> new RotationComplete(view));
+						() -> new RotationComplete(snapshots.take(view)));
 			}
 			@Override public void onGameOver(ScotlandYardView view, Set<Colour> winningPlayers) {
 				if (printInteractions) that.onGameOver(view, winningPlayers);
 				if (!listenEvents.contains(ON_GAME_OVER)) return;
 				captureAndAssertInteraction(k, GameOverInteraction.class,
-						() -> new GameOver(view, winningPlayers));
+						() -> new GameOver(snapshots.take(view), winningPlayers));
 			}
 		};
 	}